@@ -11,6 +11,7 @@
  *******************************************************************************/
 package org.jacoco.maven;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Locale;
@@ -73,6 +74,17 @@ public abstract class AbstractReportMojo extends AbstractMavenReport {
 	@Parameter
 	List<String> excludes;
 
+	/**
+	 * Directory where the structure of analyzed classes is cached between
+	 * report runs. Unchanged classes are not parsed again. Entries which have
+	 * not been used for 30 days are removed. When not specified no cache is
+	 * used.
+	 *
+	 * @since 0.7.10
+	 */
+	@Parameter(property = "jacoco.analysisCache")
+	File analysisCache;
+
 	/**
 	 * Flag used to suppress execution.
 	 */
@@ -174,6 +186,7 @@ public abstract class AbstractReportMojo extends AbstractMavenReport {
 			throws MavenReportException {
 		try {
 			final ReportSupport support = new ReportSupport(getLog());
+			support.setAnalysisCache(analysisCache);
 			loadExecutionData(support);
 			addFormatters(support, locale);
 			final IReportVisitor visitor = support.initRootVisitor();
@@ -17,14 +17,22 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
 import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.IOUtil;
+import org.jacoco.core.instr.InstrumentationCache;
 import org.jacoco.core.instr.Instrumenter;
 import org.jacoco.core.runtime.OfflineInstrumentationAccessGenerator;
 
@@ -44,6 +52,25 @@ import org.jacoco.core.runtime.OfflineInstrumentationAccessGenerator;
 @Mojo(name = "instrument", defaultPhase = LifecyclePhase.PROCESS_CLASSES, threadSafe = true)
 public class InstrumentMojo extends AbstractJacocoMojo {
 
+	/**
+	 * Number of threads used to instrument the class files. With the default
+	 * of 1 all class files are instrumented one after the other.
+	 * 
+	 * @since 0.7.10
+	 */
+	@Parameter(property = "jacoco.instrument.threads", defaultValue = "1")
+	int threads;
+
+	/**
+	 * Directory where instrumented classes are cached between builds.
+	 * Unchanged classes are not instrumented again. Entries which have not
+	 * been used for 30 days are removed. When not specified no cache is used.
+	 * 
+	 * @since 0.7.10
+	 */
+	@Parameter(property = "jacoco.instrumentationCache")
+	File instrumentationCache;
+
 	@Override
 	public void executeMojo() throws MojoExecutionException,
 			MojoFailureException {
@@ -70,26 +97,78 @@ public class InstrumentMojo extends AbstractJacocoMojo {
 
 		final Instrumenter instrumenter = new Instrumenter(
 				new OfflineInstrumentationAccessGenerator());
+		if (instrumentationCache != null) {
+			final InstrumentationCache cache = new InstrumentationCache(
+					instrumentationCache);
+			cache.evict(InstrumentationCache.DEFAULT_MAX_AGE);
+			instrumenter.setCache(cache);
+		}
+		final List<String> classFiles = new ArrayList<String>();
 		for (final String fileName : fileNames) {
 			if (fileName.endsWith(".class")) {
-				final File source = new File(classesDir, fileName);
-				final File backup = new File(originalClassesDir, fileName);
-				InputStream input = null;
-				OutputStream output = null;
+				classFiles.add(fileName);
+			}
+		}
+		if (threads > 1) {
+			instrumentParallel(instrumenter, classesDir, originalClassesDir,
+					classFiles);
+		} else {
+			for (final String classFile : classFiles) {
 				try {
-					FileUtils.copyFile(source, backup);
-					input = new FileInputStream(backup);
-					output = new FileOutputStream(source);
-					instrumenter.instrument(input, output, source.getPath());
+					instrument(instrumenter, new File(classesDir, classFile),
+							new File(originalClassesDir, classFile));
 				} catch (final IOException e2) {
 					throw new MojoExecutionException(
 							"Unable to instrument file.", e2);
-				} finally {
-					IOUtil.close(input);
-					IOUtil.close(output);
 				}
 			}
 		}
 	}
 
+	private void instrumentParallel(final Instrumenter instrumenter,
+			final File classesDir, final File originalClassesDir,
+			final List<String> classFiles) throws MojoExecutionException {
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (final String classFile : classFiles) {
+				final File source = new File(classesDir, classFile);
+				final File backup = new File(originalClassesDir, classFile);
+				results.add(executor.submit(new Callable<Void>() {
+					public Void call() throws IOException {
+						instrument(instrumenter, source, backup);
+						return null;
+					}
+				}));
+			}
+			for (final Future<Void> result : results) {
+				result.get();
+			}
+		} catch (final ExecutionException e) {
+			throw new MojoExecutionException("Unable to instrument file.",
+					e.getCause());
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Interrupted while instrumenting.",
+					e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void instrument(final Instrumenter instrumenter,
+			final File source, final File backup) throws IOException {
+		InputStream input = null;
+		OutputStream output = null;
+		try {
+			FileUtils.copyFile(source, backup);
+			input = new FileInputStream(backup);
+			output = new FileOutputStream(source);
+			instrumenter.instrument(input, output, source.getPath());
+		} finally {
+			IOUtil.close(input);
+			IOUtil.close(output);
+		}
+	}
+
 }
@@ -22,7 +22,7 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.shared.model.fileset.FileSet;
 import org.apache.maven.shared.model.fileset.util.FileSetManager;
-import org.jacoco.core.tools.ExecFileLoader;
+import org.jacoco.core.tools.ExecFileMerger;
 
 /**
  * Mojo for merging a set of execution data files (*.exec) into a single file
@@ -80,13 +80,13 @@ public class MergeMojo extends AbstractJacocoMojo {
 	}
 
 	private void executeMerge() throws MojoExecutionException {
-		final ExecFileLoader loader = new ExecFileLoader();
+		final ExecFileMerger merger = new ExecFileMerger();
 
-		load(loader);
-		save(loader);
+		load(merger);
+		save(merger);
 	}
 
-	private void load(final ExecFileLoader loader)
+	private void load(final ExecFileMerger merger)
 			throws MojoExecutionException {
 		final FileSetManager fileSetManager = new FileSetManager(getLog());
 		for (final FileSet fileSet : fileSets) {
@@ -101,7 +101,7 @@ public class MergeMojo extends AbstractJacocoMojo {
 					getLog().info(
 							"Loading execution data file "
 									+ inputFile.getAbsolutePath());
-					loader.load(inputFile);
+					merger.add(inputFile);
 				} catch (final IOException e) {
 					throw new MojoExecutionException("Unable to read "
 							+ inputFile.getAbsolutePath(), e);
@@ -110,9 +110,9 @@ public class MergeMojo extends AbstractJacocoMojo {
 		}
 	}
 
-	private void save(final ExecFileLoader loader)
+	private void save(final ExecFileMerger merger)
 			throws MojoExecutionException {
-		if (loader.getExecutionDataStore().getContents().isEmpty()) {
+		if (!merger.hasExecutionData()) {
 			getLog().info(MSG_SKIPPING);
 			return;
 		}
@@ -120,7 +120,7 @@ public class MergeMojo extends AbstractJacocoMojo {
 				"Writing merged execution data to "
 						+ destFile.getAbsolutePath());
 		try {
-			loader.save(destFile, false);
+			merger.merge(destFile, false);
 		} catch (final IOException e) {
 			throw new MojoExecutionException("Unable to write merged file "
 					+ destFile.getAbsolutePath(), e);
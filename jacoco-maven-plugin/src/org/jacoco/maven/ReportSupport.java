@@ -27,6 +27,7 @@ import java.util.Locale;
 
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
+import org.jacoco.core.analysis.AnalysisCache;
 import org.jacoco.core.analysis.Analyzer;
 import org.jacoco.core.analysis.CoverageBuilder;
 import org.jacoco.core.analysis.IBundleCoverage;
@@ -61,6 +62,7 @@ final class ReportSupport {
 	private final Log log;
 	private final ExecFileLoader loader;
 	private final List<IReportVisitor> formatters;
+	private AnalysisCache analysisCache;
 
 	/**
 	 * Construct a new instance with the given log output.
@@ -87,6 +89,23 @@ final class ReportSupport {
 		loader.load(execFile);
 	}
 
+	/**
+	 * Sets a directory to cache the structure of analyzed classes. Entries
+	 * which have not been used for {@link AnalysisCache#DEFAULT_MAX_AGE} are
+	 * removed from the cache.
+	 * 
+	 * @param directory
+	 *            cache directory or <code>null</code> for no cache
+	 */
+	public void setAnalysisCache(final File directory) {
+		if (directory == null) {
+			analysisCache = null;
+		} else {
+			analysisCache = new AnalysisCache(directory);
+			analysisCache.evict(AnalysisCache.DEFAULT_MAX_AGE);
+		}
+	}
+
 	public void addXmlFormatter(final File targetfile, final String encoding)
 			throws IOException {
 		final XMLFormatter xml = new XMLFormatter();
@@ -195,6 +214,7 @@ final class ReportSupport {
 		if (classesDir.isDirectory()) {
 			final Analyzer analyzer = new Analyzer(
 					loader.getExecutionDataStore(), builder);
+			analyzer.setCache(analysisCache);
 			final FileFilter filter = new FileFilter(includes, excludes);
 			for (final File file : filter.getFiles(classesDir)) {
 				analyzer.analyzeAll(file);
@@ -29,7 +29,9 @@ import javax.management.ObjectName;
 
 import org.jacoco.agent.rt.internal.output.IAgentOutput;
 import org.jacoco.agent.rt.internal.output.FileOutput;
+import org.jacoco.agent.rt.internal.output.MappedFileOutput;
 import org.jacoco.agent.rt.internal.output.NoneOutput;
+import org.jacoco.agent.rt.internal.output.RotatingFileOutput;
 import org.jacoco.agent.rt.internal.output.TcpClientOutput;
 import org.jacoco.agent.rt.internal.output.TcpServerOutput;
 import org.jacoco.core.JaCoCo;
@@ -73,6 +75,14 @@ public class AgentTest implements IExceptionLogger {
 		assertEquals(FileOutput.class, agent.createAgentOutput()
 				.getClass());
 
+		options.setOutput(OutputMode.rotatingfile);
+		assertEquals(RotatingFileOutput.class, agent.createAgentOutput()
+				.getClass());
+
+		options.setOutput(OutputMode.mappedfile);
+		assertEquals(MappedFileOutput.class, agent.createAgentOutput()
+				.getClass());
+
 		options.setOutput(OutputMode.tcpserver);
 		assertEquals(TcpServerOutput.class, agent.createAgentOutput()
 				.getClass());
@@ -226,6 +236,34 @@ public class AgentTest implements IExceptionLogger {
 		assertEquals("agenttestid", sessionStore.getInfos().get(0).getId());
 	}
 
+	@Test
+	public void testGetExecutionDataDelta() throws IOException {
+		Agent agent = new Agent(options, this);
+		agent.startup();
+
+		boolean[] probes = agent.getData()
+				.getExecutionData(Long.valueOf(0x12345678), "Foo", 1)
+				.getProbes();
+		probes[0] = true;
+
+		ExecutionDataStore execStore = new ExecutionDataStore();
+		ExecutionDataReader reader = new ExecutionDataReader(
+				new ByteArrayInputStream(agent.getExecutionDataDelta()));
+		reader.setExecutionDataVisitor(execStore);
+		reader.setSessionInfoVisitor(new SessionInfoStore());
+		reader.read();
+		assertEquals("Foo", execStore.get(0x12345678).getName());
+
+		execStore = new ExecutionDataStore();
+		reader = new ExecutionDataReader(new ByteArrayInputStream(
+				agent.getExecutionDataDelta()));
+		reader.setExecutionDataVisitor(execStore);
+		reader.setSessionInfoVisitor(new SessionInfoStore());
+		reader.read();
+		assertTrue(execStore.getContents().isEmpty());
+		assertTrue(probes[0]);
+	}
+
 	@Test
 	public void testDump() throws Exception {
 		final boolean[] called = new boolean[1];
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+
+import org.jacoco.core.runtime.WildcardMatcher;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ClassLoaderExclusions}.
+ */
+public class ClassLoaderExclusionsTest {
+
+	private int matches;
+
+	private ClassLoaderExclusions exclusions;
+
+	@Before
+	public void setup() {
+		final WildcardMatcher matcher = new WildcardMatcher(
+				ExcludedLoader.class.getName()) {
+			@Override
+			public boolean matches(String s) {
+				matches++;
+				return super.matches(s);
+			}
+		};
+		exclusions = new ClassLoaderExclusions(matcher);
+	}
+
+	@Test
+	public void testExcluded() {
+		assertTrue(exclusions.isExcluded(new ExcludedLoader()));
+		assertFalse(exclusions.isExcluded(getClass().getClassLoader()));
+	}
+
+	@Test
+	public void testCachedPerLoaderClass() {
+		assertTrue(exclusions.isExcluded(new ExcludedLoader()));
+		assertTrue(exclusions.isExcluded(new ExcludedLoader()));
+		assertFalse(exclusions.isExcluded(getClass().getClassLoader()));
+		assertFalse(exclusions.isExcluded(getClass().getClassLoader()));
+
+		assertEquals(2, matches);
+		assertEquals(2, exclusions.size());
+	}
+
+	@Test
+	public void testLoaderNotPinned() {
+		ClassLoader loader = new ExcludedLoader();
+		exclusions.isExcluded(loader);
+		final WeakReference<ClassLoader> ref = new WeakReference<ClassLoader>(
+				loader);
+		loader = null;
+		for (int i = 0; i < 100 && ref.get() != null; i++) {
+			System.gc();
+		}
+		assertNull(ref.get());
+	}
+
+	private static class ExcludedLoader extends ClassLoader {
+
+		ExcludedLoader() {
+			super(null);
+		}
+
+	}
+
+}
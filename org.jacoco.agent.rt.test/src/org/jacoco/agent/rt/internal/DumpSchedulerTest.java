@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jacoco.agent.rt.internal.output.IAgentOutput;
+import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.RuntimeData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link DumpScheduler}.
+ */
+public class DumpSchedulerTest implements IAgentOutput {
+
+	private RuntimeData data;
+
+	private ExceptionRecorder logger;
+
+	private BlockingQueue<Boolean> dumps;
+
+	private IOException failure;
+
+	/** Number of failing dumps, negative for all dumps */
+	private int failures = -1;
+
+	private DumpScheduler scheduler;
+
+	@Before
+	public void setup() {
+		data = new RuntimeData();
+		logger = new ExceptionRecorder();
+		dumps = new LinkedBlockingQueue<Boolean>();
+		scheduler = new DumpScheduler(this, data, 10, logger);
+	}
+
+	@After
+	public void teardown() throws InterruptedException {
+		scheduler.stop();
+	}
+
+	@Test
+	public void testInitialDump() throws Exception {
+		scheduler.start();
+		assertDump();
+		logger.assertNoException();
+	}
+
+	@Test
+	public void testSkipUnchanged() throws Exception {
+		data.getExecutionData(Long.valueOf(1), "Foo", 2);
+		scheduler.start();
+		assertDump();
+		assertNoDump();
+	}
+
+	@Test
+	public void testDumpChangedProbes() throws Exception {
+		final boolean[] probes = data.getExecutionData(Long.valueOf(1), "Foo",
+				2).getProbes();
+		scheduler.start();
+		assertDump();
+		probes[1] = true;
+		assertDump();
+		assertNoDump();
+	}
+
+	@Test
+	public void testDumpChangedHitCounts() throws Exception {
+		final int[] hitCounts = data.getExecutionData(Long.valueOf(1), "Foo",
+				2, true).getHitCounts();
+		hitCounts[0] = 1;
+		scheduler.start();
+		assertDump();
+		hitCounts[0] = 2;
+		assertDump();
+		assertNoDump();
+	}
+
+	@Test
+	public void testDumpNewClass() throws Exception {
+		scheduler.start();
+		assertDump();
+		data.getExecutionData(Long.valueOf(1), "Foo", 2);
+		assertDump();
+	}
+
+	@Test
+	public void testDumpAfterReset() throws Exception {
+		data.getExecutionData(Long.valueOf(1), "Foo", 2).getProbes()[0] = true;
+		scheduler.start();
+		assertDump();
+		Thread.sleep(5);
+		data.reset();
+		data.getExecutionData(Long.valueOf(1), "Foo", 2).getProbes()[0] = true;
+		assertDump();
+	}
+
+	@Test
+	public void testLogException() throws Exception {
+		failure = new IOException("Failed");
+		scheduler.start();
+		assertDump();
+		scheduler.stop();
+		logger.assertException(IOException.class, "Failed");
+	}
+
+	@Test
+	public void testRetryFailedDump() throws Exception {
+		failure = new IOException("Failed");
+		failures = 2;
+		scheduler.start();
+		assertDump();
+		assertDump();
+		assertDump();
+		assertNoDump();
+		scheduler.stop();
+		logger.assertException(IOException.class, "Failed");
+	}
+
+	@Test
+	public void testStop() throws Exception {
+		scheduler.start();
+		scheduler.stop();
+		dumps.clear();
+		assertNoDump();
+	}
+
+	private void assertDump() throws InterruptedException {
+		final Boolean reset = dumps.poll(5, TimeUnit.SECONDS);
+		assertEquals(Boolean.FALSE, reset);
+	}
+
+	private void assertNoDump() throws InterruptedException {
+		assertFalse(dumps.poll(50, TimeUnit.MILLISECONDS) != null);
+	}
+
+	// === IAgentOutput ===
+
+	public void startup(final AgentOptions options, final RuntimeData data) {
+	}
+
+	public void writeExecutionData(final boolean reset) throws IOException {
+		dumps.add(Boolean.valueOf(reset));
+		if (failure != null && failures-- != 0) {
+			throw failure;
+		}
+	}
+
+	public void shutdown() {
+	}
+
+}
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal.output;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jacoco.agent.rt.internal.output.DumpCoalescer.Snapshot;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.ISessionInfoVisitor;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.runtime.RuntimeData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link DumpCoalescer}.
+ */
+public class DumpCoalescerTest {
+
+	private ExecutorService executor;
+
+	private BlockingRuntimeData data;
+
+	private DumpCoalescer coalescer;
+
+	@Before
+	public void setup() {
+		executor = Executors.newCachedThreadPool();
+		data = new BlockingRuntimeData();
+		coalescer = new DumpCoalescer(data);
+	}
+
+	@After
+	public void teardown() {
+		data.release.countDown();
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testCollect() throws Exception {
+		data.release.countDown();
+		data.getExecutionData(Long.valueOf(1), "Foo", 2).getProbes()[1] = true;
+		data.getExecutionData(Long.valueOf(2), "Bar", 1, true).getHitCounts()[0] = 5;
+
+		final Snapshot snapshot = coalescer.collect(false);
+
+		// Snapshot is not affected by later modifications:
+		data.getExecutionData(Long.valueOf(1), "Foo", 2).getProbes()[0] = true;
+		data.getExecutionData(Long.valueOf(2), "Bar", 1, true).getHitCounts()[0] = 7;
+
+		final ExecutionDataStore store = new ExecutionDataStore();
+		final SessionInfoStore sessions = new SessionInfoStore();
+		snapshot.accept(store, sessions);
+		assertEquals(1, sessions.getInfos().size());
+		assertFalse(store.get(1).getProbes()[0]);
+		assertTrue(store.get(1).getProbes()[1]);
+		assertEquals(5, store.get(2).getHitCounts()[0]);
+	}
+
+	@Test
+	public void testCollectSkipsClassesWithoutHits() throws Exception {
+		data.release.countDown();
+		data.getExecutionData(Long.valueOf(1), "Foo", 2);
+
+		final ExecutionDataStore store = new ExecutionDataStore();
+		coalescer.collect(false).accept(store, new SessionInfoStore());
+		assertNull(store.get(1));
+	}
+
+	@Test
+	public void testCollectReset() throws Exception {
+		data.release.countDown();
+		data.getExecutionData(Long.valueOf(1), "Foo", 2).getProbes()[1] = true;
+
+		final Snapshot snapshot = coalescer.collect(true);
+
+		final ExecutionDataStore store = new ExecutionDataStore();
+		snapshot.accept(store, new SessionInfoStore());
+		assertTrue(store.get(1).getProbes()[1]);
+		assertFalse(data.getExecutionData(Long.valueOf(1), "Foo", 2)
+				.getProbes()[1]);
+	}
+
+	@Test
+	public void testSequentialRequestsCollectSeparately() throws Exception {
+		data.release.countDown();
+		final Snapshot s1 = coalescer.collect(false);
+		final Snapshot s2 = coalescer.collect(false);
+		assertNotSame(s1, s2);
+		assertEquals(2, data.collects);
+	}
+
+	@Test
+	public void testConcurrentRequestsShareSnapshot() throws Exception {
+		final Future<Snapshot> first = executor.submit(collect(false));
+		data.started.await();
+
+		// Requests while the first snapshot is collected share the next one:
+		final List<Future<Snapshot>> waiting = new ArrayList<Future<Snapshot>>();
+		waiting.add(executor.submit(collect(false)));
+		waiting.add(executor.submit(collect(true)));
+		waiting.add(executor.submit(collect(false)));
+		while (getWaitingThreads() < waiting.size()) {
+			Thread.sleep(1);
+		}
+
+		data.release.countDown();
+		first.get();
+		final Snapshot shared = waiting.get(0).get();
+		for (final Future<Snapshot> f : waiting) {
+			assertSame(shared, f.get());
+		}
+		assertNotSame(first.get(), shared);
+		assertEquals(2, data.collects);
+		assertEquals(1, data.resets);
+	}
+
+	private Callable<Snapshot> collect(final boolean reset) {
+		return new Callable<Snapshot>() {
+			public Snapshot call() throws Exception {
+				return coalescer.collect(reset);
+			}
+		};
+	}
+
+	/**
+	 * Returns the number of threads waiting within {@link DumpCoalescer} for a
+	 * snapshot collected by another thread.
+	 */
+	private static int getWaitingThreads() {
+		int waiting = 0;
+		for (final StackTraceElement[] trace : Thread.getAllStackTraces()
+				.values()) {
+			if (trace.length > 0
+					&& Object.class.getName().equals(trace[0].getClassName())) {
+				for (final StackTraceElement e : trace) {
+					if (DumpCoalescer.class.getName().equals(e.getClassName())) {
+						waiting++;
+						break;
+					}
+				}
+			}
+		}
+		return waiting;
+	}
+
+	/**
+	 * Runtime data which blocks the first collect until it is released.
+	 */
+	private static class BlockingRuntimeData extends RuntimeData {
+
+		final CountDownLatch started = new CountDownLatch(1);
+
+		final CountDownLatch release = new CountDownLatch(1);
+
+		volatile int collects;
+
+		volatile int resets;
+
+		@Override
+		public void collect(final IExecutionDataVisitor executionDataVisitor,
+				final ISessionInfoVisitor sessionInfoVisitor,
+				final boolean reset) {
+			started.countDown();
+			try {
+				release.await();
+			} catch (final InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			collects++;
+			if (reset) {
+				resets++;
+			}
+			super.collect(executionDataVisitor, sessionInfoVisitor, reset);
+		}
+
+	}
+
+}
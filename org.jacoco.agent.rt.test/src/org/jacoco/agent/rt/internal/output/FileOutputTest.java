@@ -15,9 +15,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 import org.jacoco.agent.rt.internal.output.FileOutput;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
 import org.jacoco.core.runtime.AgentOptions;
 import org.jacoco.core.runtime.RuntimeData;
 import org.junit.Rule;
@@ -62,6 +67,65 @@ public class FileOutputTest {
 				destFile.length() > 0);
 	}
 
+	@Test
+	public void testWriteCompressedData() throws Exception {
+		File destFile = folder.newFile("jacoco.exec");
+		AgentOptions options = new AgentOptions();
+		options.setDestfile(destFile.getAbsolutePath());
+		options.setCompress(true);
+		RuntimeData data = new RuntimeData();
+		data.getExecutionData(Long.valueOf(0x12345678), "Foo", 3)
+				.getProbes()[1] = true;
+
+		FileOutput controller = new FileOutput();
+		controller.startup(options, data);
+		controller.writeExecutionData(false);
+		controller.shutdown();
+
+		ExecutionDataStore store = new ExecutionDataStore();
+		InputStream in = new FileInputStream(destFile);
+		ExecutionDataReader reader = new ExecutionDataReader(in);
+		reader.setSessionInfoVisitor(new SessionInfoStore());
+		reader.setExecutionDataVisitor(store);
+		reader.read();
+		in.close();
+		assertEquals("Foo", store.get(0x12345678).getName());
+		assertTrue(store.get(0x12345678).getProbes()[1]);
+	}
+
+	@Test
+	public void testAppendDelta() throws Exception {
+		File destFile = folder.newFile("jacoco.exec");
+		AgentOptions options = new AgentOptions();
+		options.setDestfile(destFile.getAbsolutePath());
+		RuntimeData data = new RuntimeData();
+		int[] hitCounts = data.getExecutionData(Long.valueOf(0x12345678),
+				"Foo", 2, true).getHitCounts();
+
+		FileOutput controller = new FileOutput();
+		controller.startup(options, data);
+		hitCounts[0] = 3;
+		controller.writeExecutionData(false);
+		final long length = destFile.length();
+		controller.writeExecutionData(false);
+		hitCounts[0] = 5;
+		hitCounts[1] = 1;
+		controller.writeExecutionData(false);
+		controller.shutdown();
+
+		// Unchanged data is not appended again:
+		ExecutionDataStore store = new ExecutionDataStore();
+		InputStream in = new FileInputStream(destFile);
+		ExecutionDataReader reader = new ExecutionDataReader(in);
+		reader.setSessionInfoVisitor(new SessionInfoStore());
+		reader.setExecutionDataVisitor(store);
+		reader.read();
+		in.close();
+		assertTrue(destFile.length() < 3 * length);
+		assertEquals(5, store.get(0x12345678).getHitCounts()[0]);
+		assertEquals(1, store.get(0x12345678).getHitCounts()[1]);
+	}
+
 	@Test(expected = IOException.class)
 	public void testInvalidDestFile() throws Exception {
 		AgentOptions options = new AgentOptions();
@@ -0,0 +1,267 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal.output;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.jacoco.agent.rt.internal.ExceptionRecorder;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.ISessionInfoVisitor;
+import org.jacoco.core.data.MappedExecutionDataReader;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.RuntimeData;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link MappedFileOutput}.
+ */
+public class MappedFileOutputTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File destFile;
+
+	private AgentOptions options;
+
+	private RuntimeData data;
+
+	private boolean[] probes;
+
+	private ExceptionRecorder logger;
+
+	@Before
+	public void setup() {
+		destFile = new File(folder.getRoot(), "sub/jacoco.exec");
+		options = new AgentOptions();
+		options.setDestfile(destFile.getAbsolutePath());
+		data = new RuntimeData();
+		data.setSessionId("session");
+		probes = data.getExecutionData(Long.valueOf(0x12345678), "Foo", 3)
+				.getProbes();
+		logger = new ExceptionRecorder();
+	}
+
+	@Test
+	public void testStartup() throws Exception {
+		final MappedFileOutput controller = new MappedFileOutput(logger);
+		controller.startup(options, data);
+
+		assertFalse(destFile.exists());
+		assertTrue(getFile().getName().matches("jacoco-[0-9a-f]+\\.exec"));
+		assertEquals(0, read().getContents().size());
+		controller.shutdown();
+		logger.assertNoException();
+	}
+
+	@Test
+	public void testWriteData() throws Exception {
+		final MappedFileOutput controller = new MappedFileOutput(logger);
+		controller.startup(options, data);
+		probes[1] = true;
+		controller.writeExecutionData(false);
+
+		// Data is available without shutdown:
+		assertTrue(read().get(0x12345678).getProbes()[1]);
+		assertFalse(read().get(0x12345678).getProbes()[2]);
+
+		probes[2] = true;
+		controller.writeExecutionData(false);
+		assertTrue(read().get(0x12345678).getProbes()[2]);
+
+		controller.shutdown();
+		logger.assertNoException();
+	}
+
+	@Test
+	public void testPeriodicUpdate() throws Exception {
+		final MappedFileOutput controller = new MappedFileOutput(logger, 10);
+		controller.startup(options, data);
+		probes[1] = true;
+
+		final long end = System.currentTimeMillis() + 5000;
+		while (!isProbeWritten(1)) {
+			assertTrue("No update", System.currentTimeMillis() < end);
+			Thread.sleep(10);
+		}
+
+		controller.shutdown();
+		logger.assertNoException();
+	}
+
+	@Test
+	public void testPeriodicUpdateAfterFailure() throws Exception {
+		final int[] failures = new int[] { 3 };
+		data = new RuntimeData() {
+			@Override
+			public void collect(IExecutionDataVisitor executionDataVisitor,
+					ISessionInfoVisitor sessionInfoVisitor, boolean reset) {
+				synchronized (failures) {
+					if (failures[0] > 0) {
+						failures[0]--;
+						throw new IllegalStateException("Failed");
+					}
+				}
+				super.collect(executionDataVisitor, sessionInfoVisitor, reset);
+			}
+		};
+		probes = data.getExecutionData(Long.valueOf(0x12345678), "Foo", 3)
+				.getProbes();
+		final MappedFileOutput controller = new MappedFileOutput(logger, 10);
+		controller.startup(options, data);
+		probes[1] = true;
+
+		// Updates continue after failures:
+		final long end = System.currentTimeMillis() + 5000;
+		while (!isProbeWritten(1)) {
+			assertTrue("No update", System.currentTimeMillis() < end);
+			Thread.sleep(10);
+		}
+
+		controller.shutdown();
+		// Only the first failure is logged:
+		logger.assertException(IllegalStateException.class, "Failed");
+	}
+
+	@Test
+	public void testReset() throws Exception {
+		final MappedFileOutput controller = new MappedFileOutput(logger);
+		controller.startup(options, data);
+		probes[1] = true;
+		controller.writeExecutionData(true);
+
+		assertFalse(probes[1]);
+		assertTrue(read().get(0x12345678).getProbes()[1]);
+
+		// Coverage is kept with the next update:
+		probes[2] = true;
+		controller.writeExecutionData(false);
+		assertTrue(read().get(0x12345678).getProbes()[1]);
+		assertTrue(read().get(0x12345678).getProbes()[2]);
+
+		controller.shutdown();
+		logger.assertNoException();
+	}
+
+	@Test
+	public void testResetHitCounts() throws Exception {
+		final int[] counts = data.getExecutionData(Long.valueOf(1), "Bar", 2,
+				true).getHitCounts();
+		final MappedFileOutput controller = new MappedFileOutput(logger);
+		controller.startup(options, data);
+		counts[0] = 3;
+		controller.writeExecutionData(false);
+		counts[0] = 5;
+		controller.writeExecutionData(true);
+		counts[0] = 2;
+		counts[1] = 1;
+		controller.writeExecutionData(false);
+		controller.writeExecutionData(false);
+
+		assertArrayEquals(new int[] { 7, 1 }, read().get(1).getHitCounts());
+		controller.shutdown();
+		logger.assertNoException();
+	}
+
+	@Test
+	public void testShutdown() throws Exception {
+		final MappedFileOutput controller = new MappedFileOutput(logger);
+		controller.startup(options, data);
+		probes[0] = true;
+		controller.shutdown();
+
+		final SessionInfoStore sessions = new SessionInfoStore();
+		assertTrue(read(sessions).get(0x12345678).getProbes()[0]);
+		assertEquals("session", sessions.getInfos().get(0).getId());
+		logger.assertNoException();
+	}
+
+	@Test
+	public void testSeparateFilesPerInstance() throws Exception {
+		final MappedFileOutput controller1 = new MappedFileOutput(logger);
+		controller1.startup(options, data);
+		probes[1] = true;
+		controller1.writeExecutionData(false);
+
+		// A restarted VM must not overwrite the data of the previous one:
+		final MappedFileOutput controller2 = new MappedFileOutput(logger);
+		controller2.startup(options, new RuntimeData());
+
+		final File[] files = destFile.getParentFile().listFiles();
+		assertEquals(2, files.length);
+		int withData = 0;
+		for (final File f : files) {
+			if (read(f, new SessionInfoStore()).get(0x12345678) != null) {
+				withData++;
+			}
+		}
+		assertEquals(1, withData);
+
+		controller1.shutdown();
+		controller2.shutdown();
+		logger.assertNoException();
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidDestFile() throws Exception {
+		options.setDestfile(new File(folder.newFile("file"), "jacoco.exec")
+				.getAbsolutePath());
+		new MappedFileOutput(logger).startup(options, data);
+	}
+
+	private boolean isProbeWritten(final int probe) throws IOException {
+		final ExecutionData data = read().get(0x12345678);
+		return data != null && data.getProbes()[probe];
+	}
+
+	private ExecutionDataStore read() throws IOException {
+		return read(new SessionInfoStore());
+	}
+
+	private ExecutionDataStore read(final SessionInfoStore sessions)
+			throws IOException {
+		return read(getFile(), sessions);
+	}
+
+	private ExecutionDataStore read(final File file,
+			final SessionInfoStore sessions) throws IOException {
+		final ExecutionDataStore store = new ExecutionDataStore();
+		final MappedExecutionDataReader reader = new MappedExecutionDataReader(
+				file);
+		reader.setSessionInfoVisitor(sessions);
+		reader.setExecutionDataVisitor(store);
+		reader.read();
+		return store;
+	}
+
+	/**
+	 * Returns the single file written next to the destination file.
+	 */
+	private File getFile() {
+		final File[] files = destFile.getParentFile().listFiles();
+		assertEquals(1, files.length);
+		return files[0];
+	}
+
+}
@@ -0,0 +1,295 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal.output;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.jacoco.agent.rt.internal.ExceptionRecorder;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.RuntimeData;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link RotatingFileOutput}.
+ */
+public class RotatingFileOutputTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File directory;
+
+	private AgentOptions options;
+
+	private RuntimeData data;
+
+	private boolean[] probes;
+
+	private ExceptionRecorder logger;
+
+	@Before
+	public void setup() throws IOException {
+		directory = folder.newFolder("coverage");
+		options = new AgentOptions();
+		options.setDestfile(new File(directory, "jacoco.exec")
+				.getAbsolutePath());
+		data = new RuntimeData();
+		probes = data.getExecutionData(Long.valueOf(0x12345678), "Foo", 3)
+				.getProbes();
+		probes[1] = true;
+		logger = new ExceptionRecorder();
+	}
+
+	@Test
+	public void testNoFileOnStartup() throws Exception {
+		final RotatingFileOutput controller = new RotatingFileOutput(logger);
+		controller.startup(options, data);
+		controller.shutdown();
+
+		assertEquals(0, getFiles().length);
+		logger.assertNoException();
+	}
+
+	@Test
+	public void testWriteData() throws Exception {
+		final RotatingFileOutput controller = new RotatingFileOutput(logger);
+		controller.startup(options, data);
+		controller.writeExecutionData(false);
+		controller.shutdown();
+
+		final File[] files = getFiles();
+		assertEquals(1, files.length);
+		assertTrue(files[0].getName().matches("jacoco-[0-9a-f]+-0\\.exec"));
+		assertEquals(1, read(files[0]));
+		assertTrue(getProbes(files[0])[1]);
+		logger.assertNoException();
+	}
+
+	@Test
+	public void testAppend() throws Exception {
+		final RotatingFileOutput controller = new RotatingFileOutput(logger);
+		controller.startup(options, data);
+		controller.writeExecutionData(false);
+		probes[2] = true;
+		controller.writeExecutionData(false);
+		controller.writeExecutionData(false);
+		controller.shutdown();
+
+		// Every dump with new data is written to a new file:
+		final File[] files = getFiles();
+		assertEquals(2, files.length);
+		assertEquals(1, read(files[0]));
+		assertTrue(Arrays.equals(new boolean[] { false, true, false },
+				getProbes(files[0])));
+		assertEquals(1, read(files[1]));
+		assertTrue(Arrays.equals(new boolean[] { false, false, true },
+				getProbes(files[1])));
+		logger.assertNoException();
+	}
+
+	@Test
+	public void testAppendHitCounts() throws Exception {
+		final int[] hitCounts = data.getExecutionData(Long.valueOf(0x1000),
+				"Bar", 1, true).getHitCounts();
+		final RotatingFileOutput controller = new RotatingFileOutput(logger);
+		controller.startup(options, data);
+		hitCounts[0] = 3;
+		controller.writeExecutionData(false);
+		hitCounts[0] = 5;
+		controller.writeExecutionData(false);
+		controller.shutdown();
+
+		// Merging all files results in the recorded hit counts:
+		final ExecutionDataStore store = new ExecutionDataStore();
+		for (final File f : getFiles()) {
+			load(f, store, new SessionInfoStore());
+		}
+		assertEquals(5, store.get(0x1000).getHitCounts()[0]);
+		logger.assertNoException();
+	}
+
+	@Test
+	public void testReplace() throws Exception {
+		options.setAppend(false);
+		final RotatingFileOutput controller = new RotatingFileOutput(logger);
+		controller.startup(options, data);
+		controller.writeExecutionData(false);
+		probes[2] = true;
+		controller.writeExecutionData(false);
+		controller.shutdown();
+
+		final File[] files = getFiles();
+		assertEquals(1, files.length);
+		assertEquals(2, read(files[0]));
+		assertTrue(Arrays.equals(new boolean[] { false, true, true },
+				getProbes(files[0])));
+		logger.assertNoException();
+	}
+
+	@Test
+	public void testRotateSize() throws Exception {
+		options.setAppend(false);
+		options.setRotateSize(1);
+		final RotatingFileOutput controller = new RotatingFileOutput(logger);
+		controller.startup(options, data);
+		controller.writeExecutionData(false);
+		controller.writeExecutionData(false);
+		probes[2] = true;
+		controller.writeExecutionData(false);
+		controller.shutdown();
+
+		// Rotated files only contain data recorded since the previous file:
+		final File[] files = getFiles();
+		assertEquals(3, files.length);
+		for (final File f : files) {
+			assertEquals(1, read(f));
+		}
+		assertTrue(Arrays.equals(new boolean[] { false, true, false },
+				getProbes(files[0])));
+		assertNull(getProbes(files[1]));
+		assertTrue(Arrays.equals(new boolean[] { false, false, true },
+				getProbes(files[2])));
+		logger.assertNoException();
+	}
+
+	@Test
+	public void testRotateInterval() throws Exception {
+		options.setAppend(false);
+		options.setRotateInterval(1);
+		final RotatingFileOutput controller = new RotatingFileOutput(logger);
+		controller.startup(options, data);
+		controller.writeExecutionData(false);
+		controller.writeExecutionData(false);
+		Thread.sleep(1100);
+		controller.writeExecutionData(false);
+		controller.shutdown();
+
+		final File[] files = getFiles();
+		assertEquals(2, files.length);
+		assertEquals(2, read(files[0]));
+		assertEquals(1, read(files[1]));
+		logger.assertNoException();
+	}
+
+	@Test
+	public void testSeparateFilesPerInstance() throws Exception {
+		final RotatingFileOutput controller1 = new RotatingFileOutput(logger);
+		controller1.startup(options, data);
+		final RotatingFileOutput controller2 = new RotatingFileOutput(logger);
+		controller2.startup(options, data);
+		controller1.writeExecutionData(false);
+		controller2.writeExecutionData(false);
+		controller1.shutdown();
+		controller2.shutdown();
+
+		assertEquals(2, getFiles().length);
+		logger.assertNoException();
+	}
+
+	@Test
+	public void testCompressedData() throws Exception {
+		options.setAppend(false);
+		options.setCompress(true);
+		final RotatingFileOutput controller = new RotatingFileOutput(logger);
+		controller.startup(options, data);
+		controller.writeExecutionData(false);
+		controller.writeExecutionData(false);
+		controller.shutdown();
+
+		assertEquals(2, read(getFiles()[0]));
+		logger.assertNoException();
+	}
+
+	@Test
+	public void testReset() throws Exception {
+		final RotatingFileOutput controller = new RotatingFileOutput(logger);
+		controller.startup(options, data);
+		controller.writeExecutionData(true);
+		controller.shutdown();
+
+		assertFalse(data.getExecutionData(Long.valueOf(0x12345678), "Foo", 3)
+				.getProbes()[1]);
+		assertEquals(1, read(getFiles()[0]));
+		assertTrue(getProbes(getFiles()[0])[1]);
+	}
+
+	@Test(expected = IOException.class)
+	public void testWriteAfterShutdown() throws Exception {
+		final RotatingFileOutput controller = new RotatingFileOutput(logger);
+		controller.startup(options, data);
+		controller.shutdown();
+		controller.writeExecutionData(false);
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidDirectory() throws Exception {
+		final File file = folder.newFile("file");
+		options.setDestfile(new File(file, "jacoco.exec").getAbsolutePath());
+		new RotatingFileOutput(logger).startup(options, data);
+	}
+
+	private File[] getFiles() {
+		final File[] files = directory.listFiles();
+		Arrays.sort(files);
+		return files;
+	}
+
+	/**
+	 * Reads the given file and returns the number of sessions in it.
+	 */
+	private int read(final File file) throws IOException {
+		final SessionInfoStore sessions = new SessionInfoStore();
+		load(file, new ExecutionDataStore(), sessions);
+		return sessions.getInfos().size();
+	}
+
+	/**
+	 * Reads the given file and returns the probes of class Foo or
+	 * <code>null</code> if the file contains no data for this class.
+	 */
+	private boolean[] getProbes(final File file) throws IOException {
+		final ExecutionDataStore store = new ExecutionDataStore();
+		load(file, store, new SessionInfoStore());
+		final ExecutionData foo = store.get(0x12345678);
+		return foo == null ? null : foo.getProbes();
+	}
+
+	private void load(final File file, final ExecutionDataStore store,
+			final SessionInfoStore sessions) throws IOException {
+		final InputStream in = new FileInputStream(file);
+		try {
+			final ExecutionDataReader reader = new ExecutionDataReader(in);
+			reader.setSessionInfoVisitor(sessions);
+			reader.setExecutionDataVisitor(store);
+			reader.read();
+		} finally {
+			in.close();
+		}
+	}
+
+}
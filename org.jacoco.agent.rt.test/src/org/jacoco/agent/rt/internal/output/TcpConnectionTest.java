@@ -175,6 +175,34 @@ public class TcpConnectionTest extends ExecutorTestBase {
 		f.get();
 	}
 
+	@Test
+	public void testRemoteDeltaDump() throws Exception {
+		data.getExecutionData(Long.valueOf(0x12345678), "Foo", 42).getProbes()[0] = true;
+		data.setSessionId("stubid");
+
+		final RemoteControlWriter remoteWriter = new RemoteControlWriter(
+				mockConnection.getSocketB().getOutputStream());
+
+		final TcpConnection con = new TcpConnection(
+				mockConnection.getSocketA(), data);
+		con.init();
+
+		final Future<Void> f = executor.submit(new Callable<Void>() {
+			public Void call() throws Exception {
+				con.run();
+				return null;
+			}
+		});
+
+		assertBlocks(f);
+
+		remoteWriter.visitDeltaDumpCommand("client");
+		readAndAssertData();
+
+		con.close();
+		f.get();
+	}
+
 	@Test
 	public void testLocalDump() throws Exception {
 		data.getExecutionData(Long.valueOf(0x12345678), "Foo", 42).getProbes()[0] = true;
@@ -13,16 +13,23 @@
 package org.jacoco.agent.rt.internal.output;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.jacoco.agent.rt.internal.ExceptionRecorder;
 import org.jacoco.core.data.ExecutionDataStore;
@@ -33,6 +40,8 @@ import org.jacoco.core.runtime.AgentOptions;
 import org.jacoco.core.runtime.RemoteControlReader;
 import org.jacoco.core.runtime.RemoteControlWriter;
 import org.jacoco.core.runtime.RuntimeData;
+import org.jacoco.core.tools.ExecDumpClient;
+import org.jacoco.core.tools.ExecFileLoader;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -116,6 +125,153 @@ public class TcpServerOutputTest {
 		controller.shutdown();
 	}
 
+	@Test
+	public void testMultipleConnections() throws Exception {
+		data.getExecutionData(Long.valueOf(0x12345678), "Foo", 42).getProbes()[0] = true;
+
+		final Socket socket1 = serverSocket.connect();
+		final Socket socket2 = serverSocket.connect();
+		final RemoteControlWriter remoteWriter1 = new RemoteControlWriter(
+				socket1.getOutputStream());
+		final RemoteControlReader remoteReader1 = new RemoteControlReader(
+				socket1.getInputStream());
+		final RemoteControlWriter remoteWriter2 = new RemoteControlWriter(
+				socket2.getOutputStream());
+		final RemoteControlReader remoteReader2 = new RemoteControlReader(
+				socket2.getInputStream());
+
+		// Second connection is served while the first one is still open:
+		final ExecutionDataStore execStore2 = new ExecutionDataStore();
+		remoteReader2.setExecutionDataVisitor(execStore2);
+		remoteReader2.setSessionInfoVisitor(new SessionInfoStore());
+		remoteWriter2.visitDumpCommand(true, false);
+		remoteReader2.read();
+		assertEquals("Foo", execStore2.get(0x12345678).getName());
+
+		final ExecutionDataStore execStore1 = new ExecutionDataStore();
+		remoteReader1.setExecutionDataVisitor(execStore1);
+		remoteReader1.setSessionInfoVisitor(new SessionInfoStore());
+		remoteWriter1.visitDumpCommand(true, false);
+		remoteReader1.read();
+		assertEquals("Foo", execStore1.get(0x12345678).getName());
+
+		logger.assertNoException();
+		controller.shutdown();
+	}
+
+	@Test
+	public void testWriteExecutionDataToAllConnections() throws Exception {
+		data.getExecutionData(Long.valueOf(0x12345678), "Foo", 42).getProbes()[0] = true;
+
+		final Socket socket1 = serverSocket.connect();
+		final Socket socket2 = serverSocket.connect();
+		final RemoteControlReader remoteReader1 = init(socket1);
+		final RemoteControlReader remoteReader2 = init(socket2);
+
+		controller.writeExecutionData(true);
+
+		for (final RemoteControlReader reader : new RemoteControlReader[] {
+				remoteReader1, remoteReader2 }) {
+			final ExecutionDataStore execStore = new ExecutionDataStore();
+			reader.setExecutionDataVisitor(execStore);
+			reader.setSessionInfoVisitor(new SessionInfoStore());
+			reader.read();
+			assertTrue(execStore.get(0x12345678).getProbes()[0]);
+		}
+		assertFalse(data.getExecutionData(Long.valueOf(0x12345678), "Foo", 42)
+				.getProbes()[0]);
+
+		logger.assertNoException();
+		controller.shutdown();
+	}
+
+	@Test
+	public void testConnectionLimit() throws Exception {
+		controller.shutdown();
+		serverSocket = new MockServerSocket();
+		controller = new TcpServerOutput(logger, 1) {
+			@Override
+			protected ServerSocket createServerSocket(AgentOptions options)
+					throws IOException {
+				return serverSocket;
+			}
+		};
+		controller.startup(options, data);
+
+		final Socket socket1 = serverSocket.connect();
+		init(socket1);
+
+		// Second client is not accepted while the first one is connected:
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Future<Socket> socket2 = executor
+					.submit(new Callable<Socket>() {
+						public Socket call() throws Exception {
+							return serverSocket.connect();
+						}
+					});
+			Thread.sleep(100);
+			assertFalse(socket2.isDone());
+
+			socket1.close();
+			init(socket2.get(5, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+
+		logger.assertNoException();
+		controller.shutdown();
+	}
+
+	@Test
+	public void testDeltaDumpsAcrossConnections() throws Exception {
+		controller.shutdown();
+		final ServerSocket[] socket = new ServerSocket[1];
+		controller = new TcpServerOutput(logger) {
+			@Override
+			protected ServerSocket createServerSocket(AgentOptions options)
+					throws IOException {
+				socket[0] = new ServerSocket(0, 0, InetAddress.getByName(null));
+				return socket[0];
+			}
+		};
+		data.getExecutionData(Long.valueOf(0x12345678), "Foo", 42).getProbes()[0] = true;
+		controller.startup(options, data);
+		final int port = socket[0].getLocalPort();
+
+		// Every dump uses a new connection:
+		final ExecDumpClient client = new ExecDumpClient();
+		client.setDelta(true);
+		final ExecFileLoader first = client.dump((String) null, port);
+		assertEquals("Foo", first.getExecutionDataStore().get(0x12345678)
+				.getName());
+		final ExecFileLoader second = client.dump((String) null, port);
+		assertTrue(second.getExecutionDataStore().getContents().isEmpty());
+
+		// Other clients keep their own baseline:
+		final ExecDumpClient other = new ExecDumpClient();
+		other.setDelta(true);
+		final ExecFileLoader third = other.dump((String) null, port);
+		assertEquals("Foo", third.getExecutionDataStore().get(0x12345678)
+				.getName());
+
+		controller.shutdown();
+		logger.assertNoException();
+	}
+
+	/**
+	 * Processes a NOP command to ensure the connection is initialized.
+	 */
+	private RemoteControlReader init(final Socket socket) throws IOException {
+		final RemoteControlWriter remoteWriter = new RemoteControlWriter(
+				socket.getOutputStream());
+		final RemoteControlReader remoteReader = new RemoteControlReader(
+				socket.getInputStream());
+		remoteWriter.visitDumpCommand(false, false);
+		remoteReader.read();
+		return remoteReader;
+	}
+
 	@Test
 	public void testInvalidHeader() throws Exception {
 		final Socket socket = serverSocket.connect();
@@ -124,10 +280,13 @@ public class TcpServerOutputTest {
 		out.write(0xfe);
 		out.write(0xba);
 		out.write(0xbe);
-		serverSocket.waitForAccept();
+		// Connection is closed after the invalid header has been read:
+		final InputStream in = socket.getInputStream();
+		while (in.read() != -1) {
+		}
+		controller.shutdown();
 		logger.assertException(IOException.class,
 				"Invalid execution data file.");
-		controller.shutdown();
 	}
 
 	@Test
@@ -55,6 +55,18 @@ public interface IAgent {
 	 */
 	byte[] getExecutionData(boolean reset);
 
+	/**
+	 * Returns the execution data recorded since the last call of this method
+	 * or since the last reset. Only classes with newly executed probes are
+	 * included. Merging all deltas gives the same data as
+	 * {@link #getExecutionData(boolean)}. Delta dumps requested by remote
+	 * clients are tracked separately and do not affect the result of this
+	 * method.
+	 * 
+	 * @return delta of the execution data in JaCoCo binary format
+	 */
+	byte[] getExecutionDataDelta();
+
 	/**
 	 * Triggers a dump of the current execution data through the configured
 	 * output.
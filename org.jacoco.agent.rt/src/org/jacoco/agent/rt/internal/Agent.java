@@ -19,7 +19,9 @@ import java.util.concurrent.Callable;
 import org.jacoco.agent.rt.IAgent;
 import org.jacoco.agent.rt.internal.output.FileOutput;
 import org.jacoco.agent.rt.internal.output.IAgentOutput;
+import org.jacoco.agent.rt.internal.output.MappedFileOutput;
 import org.jacoco.agent.rt.internal.output.NoneOutput;
+import org.jacoco.agent.rt.internal.output.RotatingFileOutput;
 import org.jacoco.agent.rt.internal.output.TcpClientOutput;
 import org.jacoco.agent.rt.internal.output.TcpServerOutput;
 import org.jacoco.core.JaCoCo;
@@ -27,6 +29,8 @@ import org.jacoco.core.data.ExecutionDataWriter;
 import org.jacoco.core.runtime.AbstractRuntime;
 import org.jacoco.core.runtime.AgentOptions;
 import org.jacoco.core.runtime.AgentOptions.OutputMode;
+import org.jacoco.core.runtime.ConcurrentRuntimeData;
+import org.jacoco.core.runtime.DeltaCollector;
 import org.jacoco.core.runtime.RuntimeData;
 
 /**
@@ -80,10 +84,14 @@ public class Agent implements IAgent {
 
 	private final RuntimeData data;
 
+	private final DeltaCollector delta;
+
 	private IAgentOutput output;
 
 	private Callable<Void> jmxRegistration;
 
+	private DumpScheduler dumpScheduler;
+
 	/**
 	 * Creates a new agent with the given agent options.
 	 * 
@@ -95,7 +103,8 @@ public class Agent implements IAgent {
 	Agent(final AgentOptions options, final IExceptionLogger logger) {
 		this.options = options;
 		this.logger = logger;
-		this.data = new RuntimeData();
+		this.data = new ConcurrentRuntimeData();
+		this.delta = new DeltaCollector(data);
 	}
 
 	/**
@@ -120,6 +129,11 @@ public class Agent implements IAgent {
 			data.setSessionId(sessionId);
 			output = createAgentOutput();
 			output.startup(options, data);
+			if (options.getDumpInterval() > 0) {
+				dumpScheduler = new DumpScheduler(output, data,
+						options.getDumpInterval() * 1000L, logger);
+				dumpScheduler.start();
+			}
 			if (options.getJmx()) {
 				jmxRegistration = new JmxRegistration(this);
 			}
@@ -133,6 +147,9 @@ public class Agent implements IAgent {
 	 */
 	public void shutdown() {
 		try {
+			if (dumpScheduler != null) {
+				dumpScheduler.stop();
+			}
 			if (options.getDumpOnExit()) {
 				output.writeExecutionData(false);
 			}
@@ -155,6 +172,10 @@ public class Agent implements IAgent {
 		switch (controllerType) {
 		case file:
 			return new FileOutput();
+		case rotatingfile:
+			return new RotatingFileOutput(logger);
+		case mappedfile:
+			return new MappedFileOutput(logger);
 		case tcpserver:
 			return new TcpServerOutput(logger);
 		case tcpclient:
@@ -208,6 +229,18 @@ public class Agent implements IAgent {
 		return buffer.toByteArray();
 	}
 
+	public byte[] getExecutionDataDelta() {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try {
+			final ExecutionDataWriter writer = new ExecutionDataWriter(buffer);
+			delta.collect(writer, writer);
+		} catch (final IOException e) {
+			// Must not happen with ByteArrayOutputStream
+			throw new AssertionError(e);
+		}
+		return buffer.toByteArray();
+	}
+
 	public void dump(final boolean reset) throws IOException {
 		output.writeExecutionData(reset);
 	}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jacoco.core.runtime.WildcardMatcher;
+
+/**
+ * Decides whether classes of a class loader are excluded from
+ * instrumentation. As the decision only depends on the class name of the
+ * loader it is cached per loader class, all instances of the same loader class
+ * share a single entry.
+ *
+ * Lookups neither lock nor allocate: The entries are kept in an array which is
+ * replaced on every insertion. Entries reference the loader classes weakly so
+ * loaders are not pinned in memory, entries of collected classes are dropped
+ * with the next insertion. The number of entries is limited, decisions for
+ * further loader classes are not cached.
+ */
+class ClassLoaderExclusions {
+
+	/** Maximum number of cached loader classes */
+	static final int MAX_ENTRIES = 64;
+
+	private static final Entry[] NO_ENTRIES = new Entry[0];
+
+	private final WildcardMatcher matcher;
+
+	private volatile Entry[] entries = NO_ENTRIES;
+
+	/**
+	 * Creates a new instance for the given class loader names.
+	 *
+	 * @param matcher
+	 *            matcher for the class names of excluded loaders
+	 */
+	ClassLoaderExclusions(final WildcardMatcher matcher) {
+		this.matcher = matcher;
+	}
+
+	/**
+	 * Checks whether the given class loader is excluded.
+	 *
+	 * @param loader
+	 *            class loader to check
+	 * @return <code>true</code> if the loader is excluded
+	 */
+	boolean isExcluded(final ClassLoader loader) {
+		final Class<?> type = loader.getClass();
+		final Entry[] current = entries;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i].get() == type) {
+				return current[i].excluded;
+			}
+		}
+		final boolean excluded = matcher.matches(type.getName());
+		add(type, excluded);
+		return excluded;
+	}
+
+	private synchronized void add(final Class<?> type, final boolean excluded) {
+		final List<Entry> list = new ArrayList<Entry>(entries.length + 1);
+		for (final Entry e : entries) {
+			final Class<?> t = e.get();
+			if (t == type) {
+				// Added concurrently
+				return;
+			}
+			if (t != null) {
+				list.add(e);
+			}
+		}
+		if (list.size() < MAX_ENTRIES) {
+			list.add(new Entry(type, excluded));
+		}
+		entries = list.toArray(new Entry[list.size()]);
+	}
+
+	/**
+	 * Number of cached loader classes.
+	 *
+	 * @return number of entries
+	 */
+	int size() {
+		return entries.length;
+	}
+
+	private static class Entry extends WeakReference<Class<?>> {
+
+		final boolean excluded;
+
+		Entry(final Class<?> type, final boolean excluded) {
+			super(type);
+			this.excluded = excluded;
+		}
+
+	}
+
+}
@@ -41,7 +41,7 @@ public class CoverageTransformer implements ClassFileTransformer {
 
 	private final WildcardMatcher excludes;
 
-	private final WildcardMatcher exclClassloader;
+	private final ClassLoaderExclusions exclClassloader;
 
 	private final ClassFileDumper classFileDumper;
 
@@ -62,11 +62,13 @@ public class CoverageTransformer implements ClassFileTransformer {
 	public CoverageTransformer(final IRuntime runtime,
 			final AgentOptions options, final IExceptionLogger logger) {
 		this.instrumenter = new Instrumenter(runtime);
+		instrumenter.setHitCounts(options.getHitCounts());
 		this.logger = logger;
 		// Class names will be reported in VM notation:
 		includes = new WildcardMatcher(toVMName(options.getIncludes()));
 		excludes = new WildcardMatcher(toVMName(options.getExcludes()));
-		exclClassloader = new WildcardMatcher(options.getExclClassloader());
+		exclClassloader = new ClassLoaderExclusions(new WildcardMatcher(
+				options.getExclClassloader()));
 		classFileDumper = new ClassFileDumper(options.getClassDumpDir());
 		inclBootstrapClasses = options.getInclBootstrapClasses();
 		inclNoLocationClasses = options.getInclNoLocationClasses();
@@ -120,7 +122,7 @@ public class CoverageTransformer implements ClassFileTransformer {
 			if (!inclNoLocationClasses && !hasSourceLocation(protectionDomain)) {
 				return false;
 			}
-			if (exclClassloader.matches(loader.getClass().getName())) {
+			if (exclClassloader.isExcluded(loader)) {
 				return false;
 			}
 		}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import org.jacoco.agent.rt.internal.output.IAgentOutput;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.ISessionInfoVisitor;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.runtime.RuntimeData;
+
+/**
+ * Periodically writes the execution data to the agent output from a low
+ * priority daemon thread. Dumps are skipped if the execution data has not
+ * changed since the previous successful dump, failed dumps are retried with
+ * the next interval.
+ */
+class DumpScheduler implements Runnable {
+
+	private final IAgentOutput output;
+
+	private final RuntimeData data;
+
+	private final long interval;
+
+	private final IExceptionLogger logger;
+
+	private final Thread thread;
+
+	private boolean stopped;
+
+	/** State of the execution data at the last dump */
+	private State last;
+
+	/**
+	 * Creates a new scheduler. The scheduler has to be started with
+	 * {@link #start()}.
+	 *
+	 * @param output
+	 *            output to write execution data to
+	 * @param data
+	 *            runtime data to check for changes
+	 * @param interval
+	 *            interval between two dumps in milliseconds
+	 * @param logger
+	 *            logger for exceptions while writing execution data
+	 */
+	DumpScheduler(final IAgentOutput output, final RuntimeData data,
+			final long interval, final IExceptionLogger logger) {
+		this.output = output;
+		this.data = data;
+		this.interval = interval;
+		this.logger = logger;
+		this.thread = new Thread(this);
+		thread.setName(getClass().getName());
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+	}
+
+	/**
+	 * Starts the scheduler thread.
+	 */
+	void start() {
+		thread.start();
+	}
+
+	/**
+	 * Stops the scheduler and waits until a dump in progress has finished.
+	 *
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted while waiting
+	 */
+	void stop() throws InterruptedException {
+		synchronized (this) {
+			stopped = true;
+			notifyAll();
+		}
+		thread.join();
+	}
+
+	public void run() {
+		boolean failed = false;
+		while (waitForNextDump()) {
+			try {
+				final State current = getState();
+				if (!current.equals(last)) {
+					output.writeExecutionData(false);
+					last = current;
+					failed = false;
+				}
+			} catch (final Exception e) {
+				// Failed dumps are retried with the next interval. Only the
+				// first failure is logged to avoid repeating the same problem
+				// again and again.
+				if (!failed) {
+					logger.logExeption(e);
+					failed = true;
+				}
+			}
+		}
+	}
+
+	private synchronized boolean waitForNextDump() {
+		final long end = System.currentTimeMillis() + interval;
+		long remaining = interval;
+		while (!stopped && remaining > 0) {
+			try {
+				wait(remaining);
+			} catch (final InterruptedException e) {
+				return false;
+			}
+			remaining = end - System.currentTimeMillis();
+		}
+		return !stopped;
+	}
+
+	private State getState() {
+		final State state = new State();
+		data.collect(state, state, false);
+		return state;
+	}
+
+	/**
+	 * Summary of the execution data which changes whenever probes are executed
+	 * or the execution data is reset.
+	 */
+	private static class State implements IExecutionDataVisitor,
+			ISessionInfoVisitor {
+
+		private long start;
+
+		private long classes;
+
+		private long hits;
+
+		public void visitSessionInfo(final SessionInfo info) {
+			start = info.getStartTimeStamp();
+		}
+
+		public void visitClassExecution(final ExecutionData data) {
+			classes++;
+			final int[] hitCounts = data.getHitCounts();
+			if (hitCounts == null) {
+				for (final boolean p : data.getProbes()) {
+					if (p) {
+						hits++;
+					}
+				}
+			} else {
+				for (final int c : hitCounts) {
+					hits += c;
+				}
+			}
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof State)) {
+				return false;
+			}
+			final State other = (State) obj;
+			return start == other.start && classes == other.classes
+					&& hits == other.hits;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (start ^ classes ^ hits);
+		}
+
+	}
+
+}
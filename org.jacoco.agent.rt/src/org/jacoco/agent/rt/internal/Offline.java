@@ -52,4 +52,21 @@ public final class Offline {
 				probecount).getProbes();
 	}
 
+	/**
+	 * API for offline instrumented classes recording hit counts.
+	 * 
+	 * @param classid
+	 *            class identifier
+	 * @param classname
+	 *            VM class name
+	 * @param probecount
+	 *            probe count for this class
+	 * @return hit counters for this class
+	 */
+	public static int[] getHitCounts(final long classid,
+			final String classname, final int probecount) {
+		return DATA.getExecutionData(Long.valueOf(classid), classname,
+				probecount, true).getHitCounts();
+	}
+
 }
@@ -15,7 +15,7 @@ import java.lang.instrument.Instrumentation;
 
 import org.jacoco.core.runtime.AgentOptions;
 import org.jacoco.core.runtime.IRuntime;
-import org.jacoco.core.runtime.ModifiedSystemClassRuntime;
+import org.jacoco.core.runtime.ModifiedSystemClassMapRuntime;
 
 /**
  * The agent which is referred as the <code>Premain-Class</code>. The agent
@@ -52,7 +52,7 @@ public final class PreMain {
 
 	private static IRuntime createRuntime(final Instrumentation inst)
 			throws Exception {
-		return ModifiedSystemClassRuntime.createFor(inst, "java/util/UUID");
+		return ModifiedSystemClassMapRuntime.createFor(inst, "java/util/UUID");
 	}
 
 }
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal.output;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jacoco.core.runtime.DeltaCollector;
+import org.jacoco.core.runtime.RuntimeData;
+
+/**
+ * The {@link DeltaCollector} instances of remote clients by client
+ * identifier, so clients keep their baseline across connections. As every
+ * collector keeps a copy of the probe data only the most recently used
+ * collectors are retained. A client whose collector has been discarded
+ * receives the complete execution data with its next delta dump.
+ */
+class DeltaCollectors {
+
+	/** Maximum number of retained collectors */
+	static final int MAX_CLIENTS = 16;
+
+	private final RuntimeData data;
+
+	private final Map<String, DeltaCollector> collectors = new LinkedHashMap<String, DeltaCollector>(
+			16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(
+				final Map.Entry<String, DeltaCollector> eldest) {
+			return size() > MAX_CLIENTS;
+		}
+	};
+
+	/**
+	 * Creates a new instance for the given runtime data.
+	 *
+	 * @param data
+	 *            runtime data to collect deltas from
+	 */
+	DeltaCollectors(final RuntimeData data) {
+		this.data = data;
+	}
+
+	/**
+	 * Returns the collector of the given client. A new collector is created
+	 * for unknown clients.
+	 *
+	 * @param clientId
+	 *            identifier of the client
+	 * @return collector of the client
+	 */
+	synchronized DeltaCollector get(final String clientId) {
+		DeltaCollector collector = collectors.get(clientId);
+		if (collector == null) {
+			collector = new DeltaCollector(data);
+			collectors.put(clientId, collector);
+		}
+		return collector;
+	}
+
+}
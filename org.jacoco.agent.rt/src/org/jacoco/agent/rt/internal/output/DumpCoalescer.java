@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal.output;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.ISessionInfoVisitor;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.runtime.RuntimeData;
+
+/**
+ * Coalesces concurrent dump requests of multiple connections. Requests which
+ * arrive while a snapshot is collected wait for the next snapshot. All
+ * requests waiting at this point share the next snapshot, so the runtime data
+ * is collected only once for them. If any of these requests asks for a reset
+ * the runtime data is reset after the shared snapshot has been taken. The
+ * runtime data is copied once per snapshot, classes without any hits are not
+ * copied as they are not written anyway.
+ */
+class DumpCoalescer {
+
+	private final RuntimeData data;
+
+	/** Snapshot the next collect will be performed for */
+	private Snapshot pending;
+
+	/** Whether a snapshot is currently collected */
+	private boolean collecting;
+
+	/**
+	 * Creates a new instance for the given runtime data.
+	 *
+	 * @param data
+	 *            runtime data to collect
+	 */
+	DumpCoalescer(final RuntimeData data) {
+		this.data = data;
+	}
+
+	/**
+	 * Returns a snapshot of the runtime data which has been collected after
+	 * this method has been called.
+	 *
+	 * @param reset
+	 *            if <code>true</code> the runtime data is reset after the
+	 *            snapshot has been taken
+	 * @return snapshot of the runtime data
+	 * @throws InterruptedIOException
+	 *             if the current thread is interrupted while waiting for the
+	 *             snapshot
+	 */
+	Snapshot collect(final boolean reset) throws InterruptedIOException {
+		final Snapshot snapshot;
+		synchronized (this) {
+			if (pending == null) {
+				pending = new Snapshot();
+			}
+			snapshot = pending;
+			snapshot.reset |= reset;
+			while (collecting && !snapshot.done) {
+				try {
+					wait();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+			}
+			if (snapshot.done) {
+				return snapshot;
+			}
+			collecting = true;
+			pending = null;
+		}
+		try {
+			data.collect(snapshot, snapshot, snapshot.reset);
+		} finally {
+			synchronized (this) {
+				collecting = false;
+				snapshot.done = true;
+				notifyAll();
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Copy of the runtime data at a certain point in time.
+	 */
+	static class Snapshot implements IExecutionDataVisitor,
+			ISessionInfoVisitor {
+
+		private final List<ExecutionData> executionData = new ArrayList<ExecutionData>();
+
+		private SessionInfo sessionInfo;
+
+		private boolean reset;
+
+		private boolean done;
+
+		/**
+		 * Emits the content of this snapshot to the given visitors.
+		 *
+		 * @param executionDataVisitor
+		 *            visitor for execution data
+		 * @param sessionInfoVisitor
+		 *            visitor for the session info
+		 */
+		void accept(final IExecutionDataVisitor executionDataVisitor,
+				final ISessionInfoVisitor sessionInfoVisitor) {
+			sessionInfoVisitor.visitSessionInfo(sessionInfo);
+			for (final ExecutionData d : executionData) {
+				executionDataVisitor.visitClassExecution(d);
+			}
+		}
+
+		public void visitSessionInfo(final SessionInfo info) {
+			sessionInfo = info;
+		}
+
+		public void visitClassExecution(final ExecutionData data) {
+			if (!data.hasHits()) {
+				return;
+			}
+			// The original is modified by the application and on reset
+			final int[] hitCounts = data.getHitCounts();
+			if (hitCounts == null) {
+				executionData.add(new ExecutionData(data.getId(), data
+						.getName(), data.getProbes().clone()));
+			} else {
+				executionData.add(new ExecutionData(data.getId(), data
+						.getName(), hitCounts.clone()));
+			}
+		}
+
+	}
+
+}
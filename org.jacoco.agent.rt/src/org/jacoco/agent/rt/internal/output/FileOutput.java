@@ -16,12 +16,17 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfoStore;
 import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.DeltaCollector;
 import org.jacoco.core.runtime.RuntimeData;
 
 /**
- * Local only agent output that will write coverage data to the filesystem. This
+ * Local only agent output that will write coverage data to the filesystem. In
+ * append mode only the execution data recorded since the previous write of
+ * this output is appended, so repeated dumps do not duplicate data. This
  * controller uses the following agent options:
  * <ul>
  * <li>destfile</li>
@@ -36,11 +41,22 @@ public class FileOutput implements IAgentOutput {
 
 	private boolean append;
 
+	private boolean compress;
+
+	private DeltaCollector delta;
+
+	/** Collected execution data which could not be appended yet */
+	private ExecutionDataStore unwritten;
+
+	private SessionInfoStore unwrittenSessions;
+
 	public final void startup(final AgentOptions options, final RuntimeData data)
 			throws IOException {
 		this.data = data;
 		this.destFile = new File(options.getDestfile()).getAbsoluteFile();
 		this.append = options.getAppend();
+		this.compress = options.getCompress();
+		this.delta = new DeltaCollector(data);
 		final File folder = destFile.getParentFile();
 		if (folder != null) {
 			folder.mkdirs();
@@ -49,14 +65,45 @@ public class FileOutput implements IAgentOutput {
 		openFile().close();
 	}
 
-	public void writeExecutionData(final boolean reset) throws IOException {
+	public synchronized void writeExecutionData(final boolean reset)
+			throws IOException {
+		// Synchronized as file locks can't be acquired twice within the same
+		// VM, e.g. for periodic dumps and dumps requested via JMX.
+		if (append) {
+			appendExecutionData(reset);
+			return;
+		}
 		final OutputStream output = openFile();
 		try {
-			final ExecutionDataWriter writer = new ExecutionDataWriter(output);
+			final ExecutionDataWriter writer = new ExecutionDataWriter(output,
+					compress);
 			data.collect(writer, writer, reset);
+			writer.flush();
+		} finally {
+			output.close();
+		}
+	}
+
+	private void appendExecutionData(final boolean reset) throws IOException {
+		if (unwritten == null) {
+			unwritten = new ExecutionDataStore();
+			unwrittenSessions = new SessionInfoStore();
+		}
+		// The delta is kept until it has been written, so it is not lost if
+		// the file can't be written temporarily:
+		delta.collect(unwritten, unwrittenSessions, reset);
+		final OutputStream output = openFile();
+		try {
+			final ExecutionDataWriter writer = new ExecutionDataWriter(output,
+					compress);
+			unwrittenSessions.accept(writer);
+			unwritten.accept(writer);
+			writer.flush();
 		} finally {
 			output.close();
 		}
+		unwritten = null;
+		unwrittenSessions = null;
 	}
 
 	public void shutdown() throws IOException {
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal.output;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.jacoco.agent.rt.internal.IExceptionLogger;
+import org.jacoco.core.data.MappedExecutionDataWriter;
+import org.jacoco.core.runtime.AbstractRuntime;
+import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.DeltaCollector;
+import org.jacoco.core.runtime.RuntimeData;
+
+/**
+ * Agent output that mirrors the probes of all classes into a memory mapped
+ * file. Probes executed since the previous update are merged into the file
+ * periodically from a background thread and on every dump, so the file keeps
+ * the coverage of all dumps with reset. As the operating system holds the file
+ * content, coverage data recorded up to the last update survives if the VM is
+ * killed. The file is created next to the configured destination file with a
+ * random identifier of the VM added to its name, so a restarted VM never
+ * overwrites the data of a killed one. This controller uses the following
+ * agent options:
+ * <ul>
+ * <li>destfile</li>
+ * </ul>
+ */
+public class MappedFileOutput implements IAgentOutput, Runnable {
+
+	/** Default interval between two updates of the mapped file */
+	static final long UPDATE_INTERVAL = 1000;
+
+	private final IExceptionLogger logger;
+
+	private final long interval;
+
+	private DeltaCollector delta;
+
+	private MappedExecutionDataWriter writer;
+
+	private Thread worker;
+
+	private boolean stopped;
+
+	/**
+	 * New controller instance.
+	 *
+	 * @param logger
+	 *            logger to use in case of exceptions is spawned threads
+	 */
+	public MappedFileOutput(final IExceptionLogger logger) {
+		this(logger, UPDATE_INTERVAL);
+	}
+
+	/**
+	 * New controller instance with a custom update interval.
+	 *
+	 * @param logger
+	 *            logger to use in case of exceptions is spawned threads
+	 * @param interval
+	 *            interval between two updates in milliseconds
+	 */
+	MappedFileOutput(final IExceptionLogger logger, final long interval) {
+		this.logger = logger;
+		this.interval = interval;
+	}
+
+	public void startup(final AgentOptions options, final RuntimeData data)
+			throws IOException {
+		this.delta = new DeltaCollector(data);
+		final File destFile = new File(options.getDestfile())
+				.getAbsoluteFile();
+		final File folder = destFile.getParentFile();
+		if (folder != null) {
+			folder.mkdirs();
+		}
+		writer = new MappedExecutionDataWriter(createFile(destFile));
+		worker = new Thread(this);
+		worker.setName(getClass().getName());
+		worker.setDaemon(true);
+		worker.setPriority(Thread.MIN_PRIORITY);
+		worker.start();
+	}
+
+	/**
+	 * Returns a file which does not exist yet next to the given destination
+	 * file. The name of the destination file is extended by a random
+	 * identifier.
+	 *
+	 * @param destFile
+	 *            configured destination file
+	 * @return file for this VM
+	 */
+	static File createFile(final File destFile) {
+		final String name = destFile.getName();
+		final int dot = name.lastIndexOf('.');
+		while (true) {
+			final String id = AbstractRuntime.createRandomId();
+			final File file;
+			if (dot > 0) {
+				file = new File(destFile.getParentFile(), name.substring(0,
+						dot) + "-" + id + name.substring(dot));
+			} else {
+				file = new File(destFile.getParentFile(), name + "-" + id);
+			}
+			if (!file.exists()) {
+				return file;
+			}
+		}
+	}
+
+	public synchronized void writeExecutionData(final boolean reset) {
+		delta.collect(writer, writer, reset);
+	}
+
+	/**
+	 * Stops the background thread, writes the final state of the probes and
+	 * closes the file.
+	 */
+	public void shutdown() throws Exception {
+		synchronized (this) {
+			stopped = true;
+			notifyAll();
+		}
+		worker.join();
+		writeExecutionData(false);
+		writer.close();
+	}
+
+	public void run() {
+		boolean failed = false;
+		while (waitForNextUpdate()) {
+			try {
+				writeExecutionData(false);
+				failed = false;
+			} catch (final RuntimeException e) {
+				// Failed updates are retried with the next interval. Only the
+				// first failure is logged to avoid repeating the same problem
+				// again and again.
+				if (!failed) {
+					logger.logExeption(e);
+					failed = true;
+				}
+			}
+		}
+	}
+
+	private synchronized boolean waitForNextUpdate() {
+		if (!stopped) {
+			try {
+				wait(interval);
+			} catch (final InterruptedException e) {
+				return false;
+			}
+		}
+		return !stopped;
+	}
+
+}
@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal.output;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedList;
+
+import org.jacoco.agent.rt.internal.IExceptionLogger;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.runtime.AbstractRuntime;
+import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.DeltaCollector;
+import org.jacoco.core.runtime.RuntimeData;
+
+/**
+ * Agent output that writes coverage data to separate files per VM. The files
+ * are created next to the configured destination file, their names consist of
+ * the name of the destination file, a random identifier of the VM and a
+ * sequence number, so different VMs never contend for the same file.
+ *
+ * Every dump only collects the execution data recorded since the previous dump
+ * of this output, so the files contain disjoint parts of the execution data
+ * and can be merged without counting hits twice. The data is collected on the
+ * calling thread and written by a background thread. With append mode every
+ * dump is written to a new file. Otherwise the current file contains the
+ * merged data of all dumps since it has been started and is replaced on every
+ * dump until it is rotated. Files are always written to a temporary file first
+ * which is then renamed, so readers never see incomplete files. This
+ * controller uses the following agent options:
+ * <ul>
+ * <li>destfile</li>
+ * <li>append</li>
+ * <li>rotatesize</li>
+ * <li>rotateinterval</li>
+ * </ul>
+ */
+public class RotatingFileOutput implements IAgentOutput, Runnable {
+
+	private final IExceptionLogger logger;
+
+	private final LinkedList<Dump> queue = new LinkedList<Dump>();
+
+	private DeltaCollector delta;
+
+	private File directory;
+
+	private String prefix;
+
+	private String suffix;
+
+	private boolean append;
+
+	private boolean compress;
+
+	private long rotateSize;
+
+	private long rotateInterval;
+
+	private boolean stopped;
+
+	private Thread worker;
+
+	private File current;
+
+	/** Data of all dumps written to the current file */
+	private ExecutionDataStore currentData;
+
+	private SessionInfoStore currentSessions;
+
+	private long currentSize;
+
+	private long currentStart;
+
+	private int sequence;
+
+	/**
+	 * New controller instance.
+	 *
+	 * @param logger
+	 *            logger to use in case of exceptions is spawned threads
+	 */
+	public RotatingFileOutput(final IExceptionLogger logger) {
+		this.logger = logger;
+	}
+
+	public void startup(final AgentOptions options, final RuntimeData data)
+			throws IOException {
+		this.delta = new DeltaCollector(data);
+		final File destFile = new File(options.getDestfile())
+				.getAbsoluteFile();
+		this.directory = destFile.getParentFile();
+		final String name = destFile.getName();
+		final int dot = name.lastIndexOf('.');
+		final String id = AbstractRuntime.createRandomId();
+		if (dot > 0) {
+			this.prefix = name.substring(0, dot) + "-" + id + "-";
+			this.suffix = name.substring(dot);
+		} else {
+			this.prefix = name + "-" + id + "-";
+			this.suffix = "";
+		}
+		this.append = options.getAppend();
+		this.compress = options.getCompress();
+		this.rotateSize = options.getRotateSize();
+		this.rotateInterval = options.getRotateInterval() * 1000L;
+		directory.mkdirs();
+		if (!directory.isDirectory() || !directory.canWrite()) {
+			throw new IOException(String.format("Can't write to directory %s.",
+					directory));
+		}
+		worker = new Thread(this);
+		worker.setName(getClass().getName());
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	public void writeExecutionData(final boolean reset) throws IOException {
+		final Dump dump = new Dump();
+		synchronized (queue) {
+			if (stopped) {
+				throw new IOException("Output already shut down.");
+			}
+			// Collected while holding the lock, so no delta gets lost if the
+			// output is shut down concurrently:
+			delta.collect(dump.executionData, dump.sessionInfos, reset);
+			queue.add(dump);
+			queue.notifyAll();
+		}
+	}
+
+	/**
+	 * Writes all pending dumps and stops the background thread.
+	 */
+	public void shutdown() throws Exception {
+		synchronized (queue) {
+			stopped = true;
+			queue.notifyAll();
+		}
+		worker.join();
+	}
+
+	public void run() {
+		while (true) {
+			final Dump dump;
+			synchronized (queue) {
+				while (queue.isEmpty() && !stopped) {
+					try {
+						queue.wait();
+					} catch (final InterruptedException e) {
+						return;
+					}
+				}
+				if (queue.isEmpty()) {
+					return;
+				}
+				dump = queue.removeFirst();
+			}
+			try {
+				write(dump);
+			} catch (final IOException e) {
+				logger.logExeption(e);
+			}
+		}
+	}
+
+	/**
+	 * Merges the given dump into the data of the current file and replaces the
+	 * file. If the file can't be written its data is kept and written with the
+	 * next dump.
+	 *
+	 * @param dump
+	 *            execution data collected since the previous dump
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	void write(final Dump dump) throws IOException {
+		if (append && current == null
+				&& dump.executionData.getContents().isEmpty()) {
+			// Don't create files without execution data
+			return;
+		}
+		final long now = System.currentTimeMillis();
+		if (current == null || isRotationRequired(now)) {
+			current = new File(directory, prefix + sequence++ + suffix);
+			currentData = new ExecutionDataStore();
+			currentSessions = new SessionInfoStore();
+			currentSize = 0;
+			currentStart = now;
+		}
+		dump.sessionInfos.accept(currentSessions);
+		dump.executionData.accept(currentData);
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ExecutionDataWriter writer = new ExecutionDataWriter(buffer,
+				compress);
+		currentSessions.accept(writer);
+		currentData.accept(writer);
+		writer.flush();
+		final byte[] content = buffer.toByteArray();
+		replace(content);
+		currentSize = content.length;
+		if (append) {
+			// The next dump is written to a new file:
+			current = null;
+		}
+	}
+
+	private void replace(final byte[] content) throws IOException {
+		final File temp = File.createTempFile("." + prefix, ".tmp", directory);
+		try {
+			writeFile(temp, content);
+			if (!temp.renameTo(current)) {
+				// Some platforms can't replace existing files. Move the
+				// previous file aside until the new one is in place:
+				final File previous = File.createTempFile("." + prefix,
+						".old", directory);
+				previous.delete();
+				final boolean moved = current.renameTo(previous);
+				if (!temp.renameTo(current)) {
+					if (moved) {
+						previous.renameTo(current);
+					}
+					throw new IOException(String.format(
+							"Can't rename %s to %s.", temp, current));
+				}
+				previous.delete();
+			}
+		} finally {
+			temp.delete();
+		}
+	}
+
+	private boolean isRotationRequired(final long now) {
+		return (rotateSize > 0 && currentSize >= rotateSize)
+				|| (rotateInterval > 0 && now - currentStart >= rotateInterval);
+	}
+
+	private static void writeFile(final File file, final byte[] content)
+			throws IOException {
+		final FileChannel out = new FileOutputStream(file).getChannel();
+		try {
+			final ByteBuffer buffer = ByteBuffer.wrap(content);
+			while (buffer.hasRemaining()) {
+				out.write(buffer);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Execution data collected by a single dump.
+	 */
+	static class Dump {
+
+		final ExecutionDataStore executionData = new ExecutionDataStore();
+
+		final SessionInfoStore sessionInfos = new SessionInfoStore();
+
+	}
+
+}
@@ -47,7 +47,8 @@ public class TcpClientOutput implements IAgentOutput {
 	public void startup(final AgentOptions options, final RuntimeData data)
 			throws IOException {
 		final Socket socket = createSocket(options);
-		connection = new TcpConnection(socket, data);
+		connection = new TcpConnection(socket, data,
+				options.getCompress());
 		connection.init();
 		worker = new Thread(new Runnable() {
 			public void run() {
@@ -15,7 +15,8 @@ import java.io.IOException;
 import java.net.Socket;
 import java.net.SocketException;
 
-import org.jacoco.core.runtime.IRemoteCommandVisitor;
+import org.jacoco.agent.rt.internal.output.DumpCoalescer.Snapshot;
+import org.jacoco.core.runtime.IRemoteDeltaCommandVisitor;
 import org.jacoco.core.runtime.RemoteControlReader;
 import org.jacoco.core.runtime.RemoteControlWriter;
 import org.jacoco.core.runtime.RuntimeData;
@@ -23,26 +24,63 @@ import org.jacoco.core.runtime.RuntimeData;
 /**
  * Handler for a single socket based remote connection.
  */
-class TcpConnection implements IRemoteCommandVisitor {
+class TcpConnection implements IRemoteDeltaCommandVisitor {
 
 	private final RuntimeData data;
 
+	private final DeltaCollectors deltas;
+
+	private final DumpCoalescer dumps;
+
 	private final Socket socket;
 
 	private RemoteControlWriter writer;
 
 	private RemoteControlReader reader;
 
-	private boolean initialized;
+	private final boolean compress;
+
+	private volatile boolean initialized;
 
 	public TcpConnection(final Socket socket, final RuntimeData data) {
+		this(socket, data, false);
+	}
+
+	public TcpConnection(final Socket socket, final RuntimeData data,
+			final boolean compress) {
+		this(socket, data, new DumpCoalescer(data), new DeltaCollectors(data),
+				compress);
+	}
+
+	/**
+	 * Creates a connection which shares dumps and delta baselines with other
+	 * connections.
+	 * 
+	 * @param socket
+	 *            socket of the connection
+	 * @param data
+	 *            runtime data
+	 * @param dumps
+	 *            coalescer shared by all connections to the runtime data
+	 * @param deltas
+	 *            delta collectors of all clients of the runtime data
+	 * @param compress
+	 *            whether execution data is sent compressed
+	 */
+	TcpConnection(final Socket socket, final RuntimeData data,
+			final DumpCoalescer dumps, final DeltaCollectors deltas,
+			final boolean compress) {
 		this.socket = socket;
 		this.data = data;
+		this.deltas = deltas;
+		this.dumps = dumps;
+		this.compress = compress;
 		this.initialized = false;
 	}
 
 	public void init() throws IOException {
-		this.writer = new RemoteControlWriter(socket.getOutputStream());
+		this.writer = new RemoteControlWriter(socket.getOutputStream(),
+				compress);
 		this.reader = new RemoteControlReader(socket.getInputStream());
 		this.reader.setRemoteCommandVisitor(this);
 		this.initialized = true;
@@ -83,6 +121,39 @@ class TcpConnection implements IRemoteCommandVisitor {
 		}
 	}
 
+	/**
+	 * Writes the given snapshot if the connection is already initialized and
+	 * the underlying socket is still open.
+	 * 
+	 * @param snapshot
+	 *            snapshot shared with other connections
+	 * @throws IOException
+	 */
+	void writeSnapshot(final Snapshot snapshot) throws IOException {
+		if (isOpen()) {
+			write(snapshot);
+		}
+	}
+
+	/**
+	 * Checks whether the connection is initialized and the underlying socket
+	 * is still open.
+	 * 
+	 * @return <code>true</code> if execution data can be written
+	 */
+	boolean isOpen() {
+		return initialized && !socket.isClosed();
+	}
+
+	private void write(final Snapshot snapshot) throws IOException {
+		// Dumps triggered by the agent may be written concurrently to the
+		// responses of this connection
+		synchronized (writer) {
+			snapshot.accept(writer, writer);
+			writer.sendCmdOk();
+		}
+	}
+
 	/**
 	 * Closes the underlying socket if not closed yet.
 	 * 
@@ -94,18 +165,28 @@ class TcpConnection implements IRemoteCommandVisitor {
 		}
 	}
 
-	// === IRemoteCommandVisitor ===
+	// === IRemoteDeltaCommandVisitor ===
 
 	public void visitDumpCommand(final boolean dump, final boolean reset)
 			throws IOException {
 		if (dump) {
-			data.collect(writer, writer, reset);
+			write(dumps.collect(reset));
 		} else {
 			if (reset) {
 				data.reset();
 			}
+			synchronized (writer) {
+				writer.sendCmdOk();
+			}
+		}
+	}
+
+	public void visitDeltaDumpCommand(final String clientId)
+			throws IOException {
+		synchronized (writer) {
+			deltas.get(clientId).collect(writer, writer);
+			writer.sendCmdOk();
 		}
-		writer.sendCmdOk();
 	}
 
 }
@@ -14,14 +14,26 @@ package org.jacoco.agent.rt.internal.output;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.ServerSocket;
+import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.jacoco.agent.rt.internal.IExceptionLogger;
+import org.jacoco.agent.rt.internal.output.DumpCoalescer.Snapshot;
 import org.jacoco.core.runtime.AgentOptions;
 import org.jacoco.core.runtime.RuntimeData;
 
 /**
- * Output that opens TCP server socket. This controller uses the following agent
+ * Output that opens TCP server socket. Multiple clients may connect at the
+ * same time, every connection is served by a separate thread. The number of
+ * concurrent connections is limited, further clients are accepted as soon as
+ * another connection has been closed. Concurrent dump
+ * requests share a single snapshot of the execution data. The baselines of
+ * delta dumps are kept per client identifier, so clients may use a new
+ * connection for every delta dump. This controller uses the following agent
  * options:
  * <ul>
  * <li>address</li>
@@ -30,12 +42,26 @@ import org.jacoco.core.runtime.RuntimeData;
  */
 public class TcpServerOutput implements IAgentOutput {
 
-	private TcpConnection connection;
+	/** Maximum number of pending connections */
+	private static final int BACKLOG = 50;
+
+	/** Default maximum number of concurrently served connections */
+	static final int MAX_CONNECTIONS = 16;
+
+	private final int maxConnections;
+
+	private final Set<TcpConnection> connections = new HashSet<TcpConnection>();
+
+	private final List<Thread> handlers = new ArrayList<Thread>();
 
 	private final IExceptionLogger logger;
 
 	private ServerSocket serverSocket;
 
+	private DumpCoalescer dumps;
+
+	private DeltaCollectors deltas;
+
 	private Thread worker;
 
 	/**
@@ -45,22 +71,35 @@ public class TcpServerOutput implements IAgentOutput {
 	 *            logger to use in case of exceptions is spawned threads
 	 */
 	public TcpServerOutput(final IExceptionLogger logger) {
+		this(logger, MAX_CONNECTIONS);
+	}
+
+	/**
+	 * New controller instance with the given connection limit.
+	 * 
+	 * @param logger
+	 *            logger to use in case of exceptions is spawned threads
+	 * @param maxConnections
+	 *            maximum number of concurrently served connections
+	 */
+	TcpServerOutput(final IExceptionLogger logger, final int maxConnections) {
 		this.logger = logger;
+		this.maxConnections = maxConnections;
 	}
 
 	public void startup(final AgentOptions options, final RuntimeData data)
 			throws IOException {
 		serverSocket = createServerSocket(options);
+		dumps = new DumpCoalescer(data);
+		deltas = new DeltaCollectors(data);
 		worker = new Thread(new Runnable() {
 			public void run() {
-				while (!serverSocket.isClosed()) {
+				while (awaitCapacity()) {
 					try {
-						synchronized (serverSocket) {
-							connection = new TcpConnection(
-									serverSocket.accept(), data);
-						}
-						connection.init();
-						connection.run();
+						final TcpConnection connection = new TcpConnection(
+								serverSocket.accept(), data, dumps, deltas,
+								options.getCompress());
+						serve(connection);
 					} catch (final IOException e) {
 						// If the serverSocket is closed while accepting
 						// connections a SocketException is expected.
@@ -76,19 +115,103 @@ public class TcpServerOutput implements IAgentOutput {
 		worker.start();
 	}
 
+	/**
+	 * Blocks until less than the maximum number of connections are served.
+	 * 
+	 * @return <code>false</code> if the server socket has been closed
+	 */
+	private boolean awaitCapacity() {
+		synchronized (connections) {
+			while (connections.size() >= maxConnections
+					&& !serverSocket.isClosed()) {
+				try {
+					connections.wait();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+			return !serverSocket.isClosed();
+		}
+	}
+
+	private void serve(final TcpConnection connection) throws IOException {
+		final Thread handler = new Thread(new Runnable() {
+			public void run() {
+				try {
+					connection.init();
+					connection.run();
+				} catch (final IOException e) {
+					// If the connection is closed on shutdown a
+					// SocketException is expected.
+					if (!(e instanceof SocketException && serverSocket
+							.isClosed())) {
+						logger.logExeption(e);
+					}
+				} finally {
+					synchronized (connections) {
+						connections.remove(connection);
+						handlers.remove(Thread.currentThread());
+						connections.notifyAll();
+					}
+				}
+			}
+		});
+		handler.setName(getClass().getName());
+		handler.setDaemon(true);
+		synchronized (connections) {
+			if (serverSocket.isClosed()) {
+				connection.close();
+				return;
+			}
+			connections.add(connection);
+			handlers.add(handler);
+		}
+		handler.start();
+	}
+
 	public void shutdown() throws Exception {
 		serverSocket.close();
-		synchronized (serverSocket) {
-			if (connection != null) {
+		final List<Thread> threads;
+		synchronized (connections) {
+			for (final TcpConnection connection : connections) {
 				connection.close();
 			}
+			threads = new ArrayList<Thread>(handlers);
+			connections.notifyAll();
 		}
 		worker.join();
+		for (final Thread handler : threads) {
+			handler.join();
+		}
 	}
 
 	public void writeExecutionData(final boolean reset) throws IOException {
-		if (connection != null) {
-			connection.writeExecutionData(reset);
+		final List<TcpConnection> targets = new ArrayList<TcpConnection>();
+		synchronized (connections) {
+			for (final TcpConnection connection : connections) {
+				if (connection.isOpen()) {
+					targets.add(connection);
+				}
+			}
+		}
+		if (targets.isEmpty()) {
+			return;
+		}
+		final Snapshot snapshot = dumps.collect(reset);
+		IOException failure = null;
+		for (final TcpConnection connection : targets) {
+			// A single broken connection must not affect the other clients
+			try {
+				connection.writeSnapshot(snapshot);
+			} catch (final IOException e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
 		}
 	}
 
@@ -103,7 +226,7 @@ public class TcpServerOutput implements IAgentOutput {
 	protected ServerSocket createServerSocket(final AgentOptions options)
 			throws IOException {
 		final InetAddress inetAddr = getInetAddress(options.getAddress());
-		return new ServerSocket(options.getPort(), 1, inetAddr);
+		return new ServerSocket(options.getPort(), BACKLOG, inetAddr);
 	}
 
 	/**
@@ -221,7 +221,10 @@ public class AbstractCoverageTask extends Task {
 	}
 
 	private AgentOptions prepareAgentOptions() {
-		if (OutputMode.file.equals(agentOptions.getOutput())) {
+		final OutputMode output = agentOptions.getOutput();
+		if (OutputMode.file.equals(output)
+				|| OutputMode.rotatingfile.equals(output)
+				|| OutputMode.mappedfile.equals(output)) {
 			agentOptions.setDestfile(destfile.getAbsolutePath());
 		}
 		return agentOptions;
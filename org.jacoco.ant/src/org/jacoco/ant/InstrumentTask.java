@@ -17,7 +17,15 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
@@ -25,6 +33,7 @@ import org.apache.tools.ant.types.Resource;
 import org.apache.tools.ant.types.ResourceCollection;
 import org.apache.tools.ant.types.resources.Union;
 import org.apache.tools.ant.util.FileUtils;
+import org.jacoco.core.instr.InstrumentationCache;
 import org.jacoco.core.instr.Instrumenter;
 import org.jacoco.core.runtime.OfflineInstrumentationAccessGenerator;
 
@@ -39,6 +48,10 @@ public class InstrumentTask extends Task {
 
 	private boolean removesignatures = true;
 
+	private int threads = 1;
+
+	private InstrumentationCache instrumentationCache;
+
 	/**
 	 * Sets the location of the instrumented classes.
 	 * 
@@ -59,6 +72,30 @@ public class InstrumentTask extends Task {
 		this.removesignatures = removesignatures;
 	}
 
+	/**
+	 * Sets the number of threads used to instrument class files. Class file
+	 * resources as well as the class files contained in archives are
+	 * instrumented in parallel. With the default of 1 all class files are
+	 * instrumented on the current thread.
+	 * 
+	 * @param threads
+	 *            number of threads
+	 */
+	public void setThreads(final int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Sets a directory where instrumented classes are cached between builds.
+	 * By default no cache is used.
+	 * 
+	 * @param dir
+	 *            cache directory
+	 */
+	public void setInstrumentationcache(final File dir) {
+		instrumentationCache = new InstrumentationCache(dir);
+	}
+
 	/**
 	 * This task accepts any number of class file resources.
 	 * 
@@ -79,18 +116,66 @@ public class InstrumentTask extends Task {
 		final Instrumenter instrumenter = new Instrumenter(
 				new OfflineInstrumentationAccessGenerator());
 		instrumenter.setRemoveSignatures(removesignatures);
-		final Iterator<?> resourceIterator = files.iterator();
-		while (resourceIterator.hasNext()) {
-			final Resource resource = (Resource) resourceIterator.next();
-			if (resource.isDirectory()) {
-				continue;
+		if (instrumentationCache != null) {
+			instrumentationCache.evict(InstrumentationCache.DEFAULT_MAX_AGE);
+			instrumenter.setCache(instrumentationCache);
+		}
+		final ExecutorService executor = threads > 1 ? Executors
+				.newFixedThreadPool(threads) : null;
+		instrumenter.setExecutor(executor);
+		try {
+			final List<Future<Integer>> classFiles = new ArrayList<Future<Integer>>();
+			final Iterator<?> resourceIterator = files.iterator();
+			while (resourceIterator.hasNext()) {
+				final Resource resource = (Resource) resourceIterator.next();
+				if (resource.isDirectory()) {
+					continue;
+				}
+				if (executor != null && isClassFile(resource)) {
+					classFiles.add(executor.submit(new Callable<Integer>() {
+						public Integer call() {
+							return Integer.valueOf(instrument(instrumenter,
+									resource));
+						}
+					}));
+				} else {
+					// Archives are processed on the current thread, their
+					// entries are instrumented by the executor:
+					total += instrument(instrumenter, resource);
+				}
+			}
+			for (final Future<Integer> f : classFiles) {
+				total += await(f);
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
 			}
-			total += instrument(instrumenter, resource);
 		}
 		log(format("Instrumented %s classes to %s", Integer.valueOf(total),
 				destdir.getAbsolutePath()));
 	}
 
+	private static boolean isClassFile(final Resource resource) {
+		return resource.getName().toLowerCase(Locale.ENGLISH)
+				.endsWith(".class");
+	}
+
+	private static int await(final Future<Integer> future) {
+		try {
+			return future.get().intValue();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BuildException(e);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof BuildException) {
+				throw (BuildException) cause;
+			}
+			throw new BuildException(cause);
+		}
+	}
+
 	private int instrument(final Instrumenter instrumenter,
 			final Resource resource) {
 		final File file = new File(destdir, resource.getName());
@@ -24,7 +24,7 @@ import org.apache.tools.ant.types.Resource;
 import org.apache.tools.ant.types.ResourceCollection;
 import org.apache.tools.ant.types.resources.Union;
 import org.apache.tools.ant.util.FileUtils;
-import org.jacoco.core.tools.ExecFileLoader;
+import org.jacoco.core.tools.ExecFileMerger;
 
 /**
  * Task for merging a set of execution data files (*.exec) into a single file
@@ -62,13 +62,13 @@ public class MergeTask extends Task {
 					getLocation());
 		}
 
-		final ExecFileLoader loader = new ExecFileLoader();
+		final ExecFileMerger merger = new ExecFileMerger();
 
-		load(loader);
-		save(loader);
+		load(merger);
+		save(merger);
 	}
 
-	private void load(final ExecFileLoader loader) {
+	private void load(final ExecFileMerger merger) {
 		final Iterator<?> resourceIterator = files.iterator();
 		while (resourceIterator.hasNext()) {
 			final Resource resource = (Resource) resourceIterator.next();
@@ -82,7 +82,7 @@ public class MergeTask extends Task {
 			InputStream resourceStream = null;
 			try {
 				resourceStream = resource.getInputStream();
-				loader.load(resourceStream);
+				merger.add(resourceStream);
 			} catch (final IOException e) {
 				throw new BuildException(format("Unable to read %s", resource),
 						e, getLocation());
@@ -92,11 +92,11 @@ public class MergeTask extends Task {
 		}
 	}
 
-	private void save(final ExecFileLoader loader) {
+	private void save(final ExecFileMerger merger) {
 		log(format("Writing merged execution data to %s",
 				destfile.getAbsolutePath()));
 		try {
-			loader.save(destfile, false);
+			merger.merge(destfile, false);
 		} catch (final IOException e) {
 			throw new BuildException(format("Unable to write merged file %s",
 					destfile.getAbsolutePath()), e, getLocation());
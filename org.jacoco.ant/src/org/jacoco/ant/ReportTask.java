@@ -31,6 +31,7 @@ import org.apache.tools.ant.types.Resource;
 import org.apache.tools.ant.types.resources.FileResource;
 import org.apache.tools.ant.types.resources.Union;
 import org.apache.tools.ant.util.FileUtils;
+import org.jacoco.core.analysis.AnalysisCache;
 import org.jacoco.core.analysis.Analyzer;
 import org.jacoco.core.analysis.CoverageBuilder;
 import org.jacoco.core.analysis.IBundleCoverage;
@@ -423,6 +424,8 @@ public class ReportTask extends Task {
 
 	private final List<FormatterElement> formatters = new ArrayList<FormatterElement>();
 
+	private AnalysisCache analysisCache;
+
 	/**
 	 * Returns the nested resource collection for execution data files.
 	 * 
@@ -485,9 +488,23 @@ public class ReportTask extends Task {
 		return element;
 	}
 
+	/**
+	 * Sets a directory where the structure of analyzed classes is cached
+	 * between report runs. By default no cache is used.
+	 * 
+	 * @param dir
+	 *            cache directory
+	 */
+	public void setAnalysiscache(final File dir) {
+		analysisCache = new AnalysisCache(dir);
+	}
+
 	@Override
 	public void execute() throws BuildException {
 		loadExecutionData();
+		if (analysisCache != null) {
+			analysisCache.evict(AnalysisCache.DEFAULT_MAX_AGE);
+		}
 		try {
 			final IReportVisitor visitor = createVisitor();
 			visitor.visitInfo(sessionInfoStore.getInfos(),
@@ -561,6 +578,7 @@ public class ReportTask extends Task {
 			throws IOException {
 		final CoverageBuilder builder = new CoverageBuilder();
 		final Analyzer analyzer = new Analyzer(executionDataStore, builder);
+		analyzer.setCache(analysisCache);
 		for (final Iterator<?> i = group.classfiles.iterator(); i.hasNext();) {
 			final Resource resource = (Resource) i.next();
 			if (resource.isDirectory() && resource instanceof FileResource) {
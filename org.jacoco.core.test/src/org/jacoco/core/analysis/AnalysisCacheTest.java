@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.jacoco.core.JaCoCo;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.Java9Support;
+import org.jacoco.core.internal.analysis.StringPool;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.internal.data.CompactDataOutput;
+import org.jacoco.core.test.TargetLoader;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link AnalysisCache}.
+ */
+public class AnalysisCacheTest {
+
+	private static final String NAME = "org/jacoco/core/analysis/Analyzer";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File directory;
+
+	private AnalysisCache cache;
+
+	private byte[] bytes;
+
+	private long classid;
+
+	@Before
+	public void setup() throws IOException {
+		directory = folder.newFolder("cache");
+		cache = new AnalysisCache(directory);
+		bytes = Java9Support.downgradeIfRequired(TargetLoader
+				.getClassDataAsBytes(Analyzer.class));
+		classid = CRC64.checksum(bytes);
+	}
+
+	@Test
+	public void testGetEmpty() {
+		assertNull(cache.get(classid, new StringPool()));
+	}
+
+	@Test
+	public void testNoExecutionData() throws IOException {
+		assertCachedEqualsAnalyzed(new ExecutionDataStore());
+	}
+
+	@Test
+	public void testProbes() throws IOException {
+		final boolean[] probes = new boolean[1000];
+		for (int i = 0; i < probes.length; i += 3) {
+			probes[i] = true;
+		}
+		final ExecutionDataStore store = new ExecutionDataStore();
+		store.put(new ExecutionData(classid, NAME, probes));
+		assertCachedEqualsAnalyzed(store);
+	}
+
+	@Test
+	public void testHitCounts() throws IOException {
+		final int[] hitCounts = new int[1000];
+		for (int i = 0; i < hitCounts.length; i += 2) {
+			hitCounts[i] = i % 7;
+		}
+		final ExecutionDataStore store = new ExecutionDataStore();
+		store.put(new ExecutionData(classid, NAME, hitCounts));
+		assertCachedEqualsAnalyzed(store);
+	}
+
+	@Test
+	public void testNoMatch() throws IOException {
+		final ExecutionDataStore store = new ExecutionDataStore();
+		store.put(new ExecutionData(42, NAME, new boolean[10]));
+		final List<IClassCoverage> cached = assertCachedEqualsAnalyzed(store);
+		assertTrue(cached.get(0).isNoMatch());
+	}
+
+	@Test
+	public void testCorruptEntry() throws IOException {
+		analyze(new ExecutionDataStore(), cache);
+		final File file = findEntry();
+		final FileOutputStream out = new FileOutputStream(file);
+		out.write(new byte[] { (byte) 0xC0, (byte) 0xCA, 0x10 });
+		out.close();
+		assertNull(cache.get(classid, new StringPool()));
+
+		assertCachedEqualsAnalyzed(new ExecutionDataStore());
+		assertNotNull(cache.get(classid, new StringPool()));
+	}
+
+	@Test
+	public void testEntryOfOtherBuild() throws IOException {
+		analyze(new ExecutionDataStore(), cache);
+		final File file = findEntry();
+		final CompactDataOutput out = new CompactDataOutput(
+				new FileOutputStream(file));
+		out.writeChar(0xC0CA);
+		out.writeChar(0x1001);
+		out.writeUTF(JaCoCo.VERSION + ".other");
+		out.writeUTF(file.getName());
+		out.close();
+		assertNull(cache.get(classid, new StringPool()));
+
+		assertCachedEqualsAnalyzed(new ExecutionDataStore());
+		assertNotNull(cache.get(classid, new StringPool()));
+	}
+
+	private File findEntry() {
+		final String name = String.format("%016x", Long.valueOf(classid));
+		final File file = new File(new File(directory, name.substring(0, 2)),
+				name);
+		assertTrue(file.isFile());
+		return file;
+	}
+
+	private List<IClassCoverage> assertCachedEqualsAnalyzed(
+			final ExecutionDataStore store) throws IOException {
+		final List<IClassCoverage> expected = analyze(store, null);
+		// First run fills the cache, second run uses it:
+		assertCoverageEquals(expected, analyze(store, cache));
+		findEntry();
+		final List<IClassCoverage> cached = analyze(store, cache);
+		assertCoverageEquals(expected, cached);
+		return cached;
+	}
+
+	private List<IClassCoverage> analyze(final ExecutionDataStore store,
+			final AnalysisCache c) throws IOException {
+		final List<IClassCoverage> result = new ArrayList<IClassCoverage>();
+		final Analyzer analyzer = new Analyzer(store, new ICoverageVisitor() {
+			public void visitCoverage(final IClassCoverage coverage) {
+				result.add(coverage);
+			}
+		});
+		analyzer.setCache(c);
+		analyzer.analyzeClass(bytes, "Test");
+		return result;
+	}
+
+	private void assertCoverageEquals(final List<IClassCoverage> expected,
+			final List<IClassCoverage> actual) {
+		assertEquals(1, actual.size());
+		final IClassCoverage e = expected.get(0);
+		final IClassCoverage a = actual.get(0);
+		assertEquals(e.getName(), a.getName());
+		assertEquals(e.getId(), a.getId());
+		assertEquals(e.isNoMatch(), a.isNoMatch());
+		assertEquals(e.getSignature(), a.getSignature());
+		assertEquals(e.getSuperName(), a.getSuperName());
+		assertArrayEquals(e.getInterfaceNames(), a.getInterfaceNames());
+		assertEquals(e.getSourceFileName(), a.getSourceFileName());
+		assertNodeEquals(e, a);
+		final Collection<IMethodCoverage> em = e.getMethods();
+		final Collection<IMethodCoverage> am = a.getMethods();
+		assertEquals(em.size(), am.size());
+		final Iterator<IMethodCoverage> ai = am.iterator();
+		for (final IMethodCoverage m : em) {
+			final IMethodCoverage n = ai.next();
+			assertEquals(m.getName(), n.getName());
+			assertEquals(m.getDesc(), n.getDesc());
+			assertEquals(m.getSignature(), n.getSignature());
+			assertNodeEquals(m, n);
+		}
+	}
+
+	private void assertNodeEquals(final ISourceNode e, final ISourceNode a) {
+		for (final ICoverageNode.CounterEntity entity : ICoverageNode.CounterEntity
+				.values()) {
+			assertEquals(e.getCounter(entity), a.getCounter(entity));
+		}
+		assertEquals(e.getFirstLine(), a.getFirstLine());
+		assertEquals(e.getLastLine(), a.getLastLine());
+		for (int i = e.getFirstLine(); i <= e.getLastLine(); i++) {
+			assertEquals(e.getLine(i), a.getLine(i));
+		}
+	}
+
+}
@@ -14,6 +14,7 @@ package org.jacoco.core.analysis;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -24,11 +25,16 @@ import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.jar.JarInputStream;
 import java.util.jar.Pack200;
 import java.util.zip.GZIPOutputStream;
@@ -96,7 +102,7 @@ public class AnalyzerTest {
 		final byte[] bytes = Java9Support.downgradeIfRequired(
 				TargetLoader.getClassDataAsBytes(AnalyzerTest.class));
 		executionData.get(Long.valueOf(CRC64.checksum(bytes)),
-				"org/jacoco/core/analysis/AnalyzerTest", 200);
+				"org/jacoco/core/analysis/AnalyzerTest", 400);
 		analyzer.analyzeClass(bytes, "Test");
 		assertFalse(classes.get("org/jacoco/core/analysis/AnalyzerTest")
 				.isNoMatch());
@@ -285,14 +291,14 @@ public class AnalyzerTest {
 	 *
 	 * With JDK > 5 triggers exception in
 	 * {@link Analyzer#analyzeAll(java.io.InputStream, String)},
-	 * i.e. message will contain only "broken.zip@brokenentry.txt".
+	 * i.e. message will contain only "broken.zip@brokenentry.class".
 	 */
 	@Test
 	public void testAnalyzeAll_BrokenZipEntry() throws IOException {
 		File file = new File(folder.getRoot(), "broken.zip");
 		OutputStream out = new FileOutputStream(file);
 		ZipOutputStream zip = new ZipOutputStream(out);
-		zip.putNextEntry(new ZipEntry("brokenentry.txt"));
+		zip.putNextEntry(new ZipEntry("brokenentry.class"));
 		out.write(0x23); // Unexpected data here
 		zip.close();
 		try {
@@ -304,6 +310,50 @@ public class AnalyzerTest {
 		}
 	}
 
+	@Test
+	public void testAnalyzeAll_ZipFile() throws IOException {
+		final File file = new File(folder.getRoot(), "test.jar");
+		final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(
+				file));
+		zip.putNextEntry(new ZipEntry("org/jacoco/core/analysis/"));
+		zip.putNextEntry(new ZipEntry(
+				"org/jacoco/core/analysis/AnalyzerTest.class"));
+		zip.write(TargetLoader.getClassDataAsBytes(AnalyzerTest.class));
+		// Entries are detected by content, independently of their name:
+		zip.putNextEntry(new ZipEntry("resource.txt"));
+		zip.write(TargetLoader.getClassDataAsBytes(Analyzer.class));
+		zip.putNextEntry(new ZipEntry("readme.txt"));
+		zip.write("no class file".getBytes());
+		zip.putNextEntry(new ZipEntry("lib/nested.JAR"));
+		final ZipOutputStream nested = new ZipOutputStream(zip);
+		nested.putNextEntry(new ZipEntry(
+				"org/jacoco/core/analysis/CoverageBuilder.class"));
+		nested.write(TargetLoader.getClassDataAsBytes(CoverageBuilder.class));
+		nested.finish();
+		zip.close();
+
+		final int count = analyzer.analyzeAll(file);
+		assertEquals(3, count);
+		assertClasses("org/jacoco/core/analysis/AnalyzerTest",
+				"org/jacoco/core/analysis/Analyzer",
+				"org/jacoco/core/analysis/CoverageBuilder");
+	}
+
+	@Test
+	public void testAnalyzeAll_BrokenZipFile() throws IOException {
+		final File file = new File(folder.getRoot(), "broken.jar");
+		final OutputStream out = new FileOutputStream(file);
+		out.write(new byte[] { 0x50, 0x4b, 0x03, 0x04, 0x42, 0x42 });
+		out.close();
+		try {
+			analyzer.analyzeAll(file);
+			fail("expected exception");
+		} catch (IOException e) {
+			assertEquals("Error while analyzing " + file.getPath() + ".",
+					e.getMessage());
+		}
+	}
+
 	/**
 	 * Triggers exception in
 	 * {@link Analyzer#analyzeClass(java.io.InputStream, String)}.
@@ -331,6 +381,101 @@ public class AnalyzerTest {
 		}
 	}
 
+	@Test
+	public void testAnalyzeAll_Parallel() throws Exception {
+		final Class<?>[] sources = new Class<?>[] { Analyzer.class,
+				AnalyzerTest.class, CoverageBuilder.class, ICounter.class,
+				CounterComparator.class, NodeComparator.class };
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ZipOutputStream zip = new ZipOutputStream(buffer);
+		for (final Class<?> c : sources) {
+			zip.putNextEntry(new ZipEntry(c.getName().replace('.', '/')
+					+ ".class"));
+			zip.write(TargetLoader.getClassDataAsBytes(c));
+		}
+		zip.finish();
+
+		final List<String> expected = analyzeNames(buffer.toByteArray(), null);
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int i = 0; i < 10; i++) {
+				assertEquals(expected,
+						analyzeNames(buffer.toByteArray(), executor));
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(sources.length, expected.size());
+	}
+
+	@Test
+	public void testAnalyzeAll_ParallelBrokenClassFileInZip()
+			throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ZipOutputStream zip = new ZipOutputStream(buffer);
+		zip.putNextEntry(new ZipEntry("org/jacoco/core/analysis/Analyzer.class"));
+		zip.write(TargetLoader.getClassDataAsBytes(Analyzer.class));
+		zip.putNextEntry(new ZipEntry(
+				"org/jacoco/core/analysis/AnalyzerTest.class"));
+		final byte[] brokenclass = TargetLoader
+				.getClassDataAsBytes(AnalyzerTest.class);
+		brokenclass[10] = 0x23;
+		zip.write(brokenclass);
+		zip.finish();
+
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			analyzer.setExecutor(executor);
+			analyzer.analyzeAll(new ByteArrayInputStream(buffer.toByteArray()),
+					"test.zip");
+			fail("expected exception");
+		} catch (IOException e) {
+			assertEquals(
+					"Error while analyzing test.zip@org/jacoco/core/analysis/AnalyzerTest.class.",
+					e.getMessage());
+		} finally {
+			executor.shutdown();
+		}
+		assertClasses("org/jacoco/core/analysis/Analyzer");
+	}
+
+	@Test
+	public void testAnalyzeClass_ParallelReportsOnCallingThread()
+			throws IOException {
+		final Thread caller = Thread.currentThread();
+		final Analyzer analyzer = new Analyzer(executionData,
+				new ICoverageVisitor() {
+					public void visitCoverage(IClassCoverage coverage) {
+						assertSame(caller, Thread.currentThread());
+						classes.put(coverage.getName(), coverage);
+					}
+				});
+		analyzer.setExecutor(new Executor() {
+			public void execute(Runnable command) {
+				final Thread t = new Thread(command);
+				t.start();
+			}
+		});
+		analyzer.analyzeClass(
+				TargetLoader.getClassDataAsBytes(AnalyzerTest.class), "Test");
+		assertClasses("org/jacoco/core/analysis/AnalyzerTest");
+	}
+
+	private List<String> analyzeNames(final byte[] zip,
+			final Executor executor) throws IOException {
+		final List<String> names = new ArrayList<String>();
+		final Analyzer analyzer = new Analyzer(executionData,
+				new ICoverageVisitor() {
+					public void visitCoverage(IClassCoverage coverage) {
+						names.add(coverage.getName() + ":"
+								+ coverage.getInstructionCounter());
+					}
+				});
+		analyzer.setExecutor(executor);
+		analyzer.analyzeAll(new ByteArrayInputStream(zip), "test.zip");
+		return names;
+	}
+
 	private void createClassfile(final String dir, final Class<?> source)
 			throws IOException {
 		File file = new File(folder.getRoot(), dir);
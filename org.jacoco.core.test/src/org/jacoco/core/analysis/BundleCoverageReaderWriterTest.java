@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.CounterImpl;
+import org.jacoco.core.internal.analysis.MethodCoverageImpl;
+import org.jacoco.core.test.TargetLoader;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link BundleCoverageWriter} and {@link BundleCoverageReader}.
+ */
+public class BundleCoverageReaderWriterTest {
+
+	private CoverageBuilder builder;
+
+	@Before
+	public void setup() {
+		builder = new CoverageBuilder();
+	}
+
+	@Test
+	public void testEmptyBundle() throws IOException {
+		final IBundleCoverage bundle = builder.getBundle("empty");
+		final IBundleCoverage copy = writeAndRead(bundle);
+		assertEquals("empty", copy.getName());
+		assertEquals(0, copy.getPackages().size());
+	}
+
+	@Test
+	public void testClassAttributes() throws IOException {
+		final ClassCoverageImpl c = new ClassCoverageImpl("foo/Sample", 123L,
+				true);
+		c.setSignature("<T:Ljava/lang/Object;>Ljava/lang/Object;");
+		c.setSuperName("foo/Base");
+		c.setInterfaces(new String[] { "foo/A", "foo/B" });
+		c.setSourceFileName("Sample.java");
+		addMethod(c, "doit", "(Ljava/util/List;)V",
+				"(Ljava/util/List<TT;>;)V");
+		builder.visitCoverage(c);
+
+		final IBundleCoverage copy = writeAndRead(builder.getBundle("test"));
+		final IClassCoverage actual = copy.getPackages().iterator().next()
+				.getClasses().iterator().next();
+		assertEquals("foo/Sample", actual.getName());
+		assertEquals(123L, actual.getId());
+		assertEquals(true, actual.isNoMatch());
+		assertEquals("<T:Ljava/lang/Object;>Ljava/lang/Object;",
+				actual.getSignature());
+		assertEquals("foo/Base", actual.getSuperName());
+		assertArrayEquals(new String[] { "foo/A", "foo/B" },
+				actual.getInterfaceNames());
+		assertEquals("Sample.java", actual.getSourceFileName());
+		final IMethodCoverage m = actual.getMethods().iterator().next();
+		assertEquals("doit", m.getName());
+		assertEquals("(Ljava/util/List;)V", m.getDesc());
+		assertEquals("(Ljava/util/List<TT;>;)V", m.getSignature());
+	}
+
+	@Test
+	public void testOptionalClassAttributes() throws IOException {
+		final ClassCoverageImpl c = new ClassCoverageImpl("Sample", 1L, false);
+		addMethod(c, "doit", "()V", null);
+		builder.visitCoverage(c);
+
+		final IBundleCoverage copy = writeAndRead(builder.getBundle("test"));
+		final IClassCoverage actual = copy.getPackages().iterator().next()
+				.getClasses().iterator().next();
+		assertNull(actual.getSignature());
+		assertNull(actual.getSuperName());
+		assertNull(actual.getInterfaceNames());
+		assertNull(actual.getSourceFileName());
+		assertNull(actual.getMethods().iterator().next().getSignature());
+	}
+
+	@Test
+	public void testLines() throws IOException {
+		final ClassCoverageImpl c = new ClassCoverageImpl("foo/Sample", 1L,
+				false);
+		c.setSourceFileName("Sample.java");
+		final MethodCoverageImpl m = new MethodCoverageImpl("doit", "()V",
+				null);
+		m.increment(CounterImpl.getInstance(3, 100), CounterImpl.COUNTER_0_0,
+				5);
+		m.increment(CounterImpl.COUNTER_1_0, CounterImpl.getInstance(1, 1),
+				1000);
+		m.updateHitCount(Integer.MAX_VALUE, 5);
+		m.incrementMethodCounter();
+		c.addMethod(m);
+		builder.visitCoverage(c);
+
+		final IBundleCoverage bundle = builder.getBundle("test");
+		final IBundleCoverage copy = writeAndRead(bundle);
+		assertBundle(bundle, copy);
+		final IMethodCoverage actual = copy.getPackages().iterator().next()
+				.getClasses().iterator().next().getMethods().iterator().next();
+		assertEquals(5, actual.getFirstLine());
+		assertEquals(1000, actual.getLastLine());
+		assertEquals(Integer.MAX_VALUE,
+				((IHitCountLine) actual.getLine(5)).getHitCount());
+		assertEquals(CounterImpl.getInstance(1, 1), actual.getLine(1000)
+				.getBranchCounter());
+		assertEquals(ICounter.EMPTY, actual.getLine(6).getStatus());
+	}
+
+	@Test
+	public void testAnalyzedClasses() throws IOException {
+		final Analyzer analyzer = new Analyzer(new ExecutionDataStore(),
+				builder);
+		analyzer.analyzeClass(TargetLoader.getClassDataAsBytes(getClass()),
+				"test");
+		analyzer.analyzeClass(
+				TargetLoader.getClassDataAsBytes(CoverageBuilder.class),
+				"test");
+		analyzer.analyzeClass(
+				TargetLoader.getClassDataAsBytes(BundleCoverageReader.class),
+				"test");
+
+		final IBundleCoverage bundle = builder.getBundle("test");
+		assertBundle(bundle, writeAndRead(bundle));
+	}
+
+	@Test
+	public void testPackageCountersWithoutContent() throws IOException {
+		final ClassCoverageImpl c = new ClassCoverageImpl("foo/Sample", 1L,
+				false);
+		addMethod(c, "doit", "()V", null);
+		builder.visitCoverage(c);
+		final IBundleCoverage bundle = builder.getBundle("test");
+
+		final IBundleCoverage copy = writeAndRead(bundle);
+		assertCounters(bundle, copy);
+		assertCounters(bundle.getPackages().iterator().next(), copy
+				.getPackages().iterator().next());
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidHeader() throws IOException {
+		new BundleCoverageReader(new ByteArrayInputStream(new byte[] {
+				(byte) 0xC0, (byte) 0xC0, 0x10, 0x07 })).read();
+	}
+
+	@Test(expected = IOException.class)
+	public void testIncompatibleVersion() throws IOException {
+		new BundleCoverageReader(new ByteArrayInputStream(new byte[] {
+				(byte) 0xC0, (byte) 0xC5, 0x00, 0x00 })).read();
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedContent() throws IOException {
+		final ClassCoverageImpl c = new ClassCoverageImpl("foo/Sample", 1L,
+				false);
+		addMethod(c, "doit", "()V", null);
+		builder.visitCoverage(c);
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		new BundleCoverageWriter(buffer).write(builder.getBundle("test"));
+		final byte[] bytes = buffer.toByteArray();
+		final byte[] truncated = new byte[bytes.length - 1];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		new BundleCoverageReader(new ByteArrayInputStream(truncated)).read();
+	}
+
+	private void addMethod(final ClassCoverageImpl c, final String name,
+			final String desc, final String signature) {
+		final MethodCoverageImpl m = new MethodCoverageImpl(name, desc,
+				signature);
+		m.increment(CounterImpl.COUNTER_0_1, CounterImpl.COUNTER_0_0, 3);
+		m.incrementMethodCounter();
+		c.addMethod(m);
+	}
+
+	private IBundleCoverage writeAndRead(final IBundleCoverage bundle)
+			throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		new BundleCoverageWriter(buffer).write(bundle);
+		return new BundleCoverageReader(new ByteArrayInputStream(
+				buffer.toByteArray())).read();
+	}
+
+	private void assertBundle(final IBundleCoverage expected,
+			final IBundleCoverage actual) {
+		assertCounters(expected, actual);
+		assertEquals(expected.getPackages().size(), actual.getPackages()
+				.size());
+		final Iterator<IPackageCoverage> packages = actual.getPackages()
+				.iterator();
+		for (final IPackageCoverage p : expected.getPackages()) {
+			final IPackageCoverage a = packages.next();
+			assertCounters(p, a);
+			assertEquals(p.getClasses().size(), a.getClasses().size());
+			final Iterator<IClassCoverage> classes = a.getClasses().iterator();
+			for (final IClassCoverage c : p.getClasses()) {
+				final IClassCoverage ac = classes.next();
+				assertSourceNode(c, ac);
+				assertEquals(c.getMethods().size(), ac.getMethods().size());
+				final Iterator<IMethodCoverage> methods = ac.getMethods()
+						.iterator();
+				for (final IMethodCoverage m : c.getMethods()) {
+					final IMethodCoverage am = methods.next();
+					assertSourceNode(m, am);
+					assertEquals(m.getDesc(), am.getDesc());
+				}
+			}
+			assertEquals(p.getSourceFiles().size(), a.getSourceFiles().size());
+			final Iterator<ISourceFileCoverage> sources = a.getSourceFiles()
+					.iterator();
+			for (final ISourceFileCoverage s : p.getSourceFiles()) {
+				final ISourceFileCoverage as = sources.next();
+				assertSourceNode(s, as);
+				assertEquals(s.getPackageName(), as.getPackageName());
+			}
+		}
+	}
+
+	private void assertSourceNode(final ISourceNode expected,
+			final ISourceNode actual) {
+		assertCounters(expected, actual);
+		assertEquals(expected.getFirstLine(), actual.getFirstLine());
+		assertEquals(expected.getLastLine(), actual.getLastLine());
+		for (int nr = expected.getFirstLine(); nr <= expected.getLastLine(); nr++) {
+			assertEquals(expected.getLine(nr), actual.getLine(nr));
+		}
+	}
+
+	private void assertCounters(final ICoverageNode expected,
+			final ICoverageNode actual) {
+		assertEquals(expected.getElementType(), actual.getElementType());
+		assertEquals(expected.getName(), actual.getName());
+		for (final CounterEntity entity : CounterEntity.values()) {
+			assertEquals(entity.name(), expected.getCounter(entity),
+					actual.getCounter(entity));
+		}
+	}
+
+}
@@ -22,7 +22,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
 import org.junit.Before;
@@ -282,6 +284,23 @@ public class ExecutionDataReaderWriterTest {
 		assertArrayEquals(data, store.get(123).getProbes());
 	}
 
+	@Test
+	public void testHitCounts() throws IOException {
+		final int[] counts = new int[] { 0, 1, 200, Integer.MAX_VALUE };
+		writer.visitClassExecution(new ExecutionData(123, "Sample", counts));
+		assertFalse(createReaderWithVisitors().read());
+		final int[] actual = store.get(123).getHitCounts();
+		assertTrue(Arrays.equals(counts, actual));
+	}
+
+	@Test
+	public void testNoHitCounts() throws IOException {
+		writer.visitClassExecution(new ExecutionData(123, "Sample",
+				new int[] { 0, 0 }));
+		assertFalse(createReaderWithVisitors().read());
+		assertTrue(store.getContents().isEmpty());
+	}
+
 	@Test(expected = RuntimeException.class)
 	public void testExecutionDataIOException() throws IOException {
 		final boolean[] broken = new boolean[1];
@@ -297,6 +316,131 @@ public class ExecutionDataReaderWriterTest {
 		writer.visitClassExecution(new ExecutionData(3, "Sample", createData(1)));
 	}
 
+	// === Compression ===
+
+	@Test
+	public void testCompressedHeader() throws IOException {
+		buffer.reset();
+		new ExecutionDataWriter(buffer, true);
+		final byte[] header = buffer.toByteArray();
+		assertEquals(5, header.length);
+		final char version = ExecutionDataWriter.COMPRESSED_FORMAT_VERSION;
+		assertEquals(version >> 8, 0xFF & header[3]);
+		assertEquals(version & 0xFF, 0xFF & header[4]);
+	}
+
+	@Test
+	public void testCompressedData() throws IOException {
+		buffer.reset();
+		final ExecutionDataWriter writer = new ExecutionDataWriter(buffer,
+				true);
+		final boolean[] data = createData(15);
+		final int[] counts = new int[] { 0, 1, 200, Integer.MAX_VALUE };
+		writer.visitSessionInfo(new SessionInfo("TestSession", 1, 2));
+		writer.visitClassExecution(new ExecutionData(3, "Sample", data));
+		writer.visitClassExecution(new ExecutionData(4, "Other", counts));
+
+		// Data is buffered until flushed:
+		assertEquals(5, buffer.size());
+		writer.flush();
+
+		assertFalse(createReaderWithVisitors().read());
+		assertEquals("TestSession", sessionInfo.getId());
+		assertArrayEquals(data, store.get(3).getProbes());
+		assertTrue(Arrays.equals(counts, store.get(4).getHitCounts()));
+	}
+
+	@Test
+	public void testCompressedChunks() throws IOException {
+		final ByteArrayOutputStream plain = new ByteArrayOutputStream();
+		final ExecutionDataWriter plainWriter = new ExecutionDataWriter(plain);
+		buffer.reset();
+		final ExecutionDataWriter writer = new ExecutionDataWriter(buffer,
+				true);
+		for (int i = 0; i < 5000; i++) {
+			final ExecutionData data = new ExecutionData(i,
+					"org/example/project/package/Class" + i, createData(50));
+			plainWriter.visitClassExecution(data);
+			writer.visitClassExecution(data);
+		}
+		// Chunks are written before flush:
+		assertTrue(buffer.size() > 5);
+		writer.flush();
+		assertTrue(buffer.size() < plain.size() / 2);
+
+		assertFalse(createReaderWithVisitors().read());
+		assertEquals(5000, store.getContents().size());
+		assertEquals("org/example/project/package/Class4999", store.get(4999)
+				.getName());
+	}
+
+	@Test
+	public void testCompressedDataClosedWithoutFlush() throws IOException {
+		buffer.reset();
+		final ExecutionDataWriter writer = new ExecutionDataWriter(buffer,
+				true);
+		final boolean[] data = createData(15);
+		writer.visitSessionInfo(new SessionInfo("TestSession", 1, 2));
+		writer.visitClassExecution(new ExecutionData(3, "Sample", data));
+		writer.close();
+
+		assertFalse(createReaderWithVisitors().read());
+		assertEquals("TestSession", sessionInfo.getId());
+		assertArrayEquals(data, store.get(3).getProbes());
+	}
+
+	@Test
+	public void testCompressedGroupEndsWithNextSessionInfo()
+			throws IOException {
+		buffer.reset();
+		final ExecutionDataWriter writer = new ExecutionDataWriter(buffer,
+				true);
+		final boolean[] data = createData(15);
+		writer.visitSessionInfo(new SessionInfo("First", 1, 2));
+		writer.visitClassExecution(new ExecutionData(3, "Sample", data));
+		assertEquals(5, buffer.size());
+		writer.visitSessionInfo(new SessionInfo("Second", 3, 4));
+
+		// The first group is complete without flush:
+		assertFalse(createReaderWithVisitors().read());
+		assertEquals("First", sessionInfo.getId());
+		assertArrayEquals(data, store.get(3).getProbes());
+	}
+
+	@Test
+	public void testCompressedBlocksDispatchedThroughReadBlock()
+			throws IOException {
+		buffer.reset();
+		final ExecutionDataWriter writer = new ExecutionDataWriter(buffer,
+				true);
+		writer.visitSessionInfo(new SessionInfo("TestSession", 1, 2));
+		writer.visitClassExecution(new ExecutionData(3, "Sample",
+				new boolean[] { true }));
+		writer.flush();
+
+		final List<Byte> blocks = new ArrayList<Byte>();
+		final ExecutionDataReader reader = new ExecutionDataReader(
+				new ByteArrayInputStream(buffer.toByteArray())) {
+			@Override
+			protected boolean readBlock(final byte blocktype)
+					throws IOException {
+				blocks.add(Byte.valueOf(blocktype));
+				return super.readBlock(blocktype);
+			}
+		};
+		reader.setExecutionDataVisitor(store);
+		reader.setSessionInfoVisitor(new ISessionInfoVisitor() {
+			public void visitSessionInfo(SessionInfo info) {
+			}
+		});
+		assertFalse(reader.read());
+		assertEquals(Arrays.asList(
+				Byte.valueOf(ExecutionDataWriter.BLOCK_HEADER),
+				Byte.valueOf(ExecutionDataWriter.BLOCK_COMPRESSED),
+				Byte.valueOf(ExecutionDataWriter.BLOCK_SESSIONINFO),
+				Byte.valueOf(ExecutionDataWriter.BLOCK_EXECUTIONDATA)), blocks);
+	}
+
 	private ExecutionDataReader createReaderWithVisitors() throws IOException {
 		final ExecutionDataReader reader = createReader();
 		reader.setExecutionDataVisitor(store);
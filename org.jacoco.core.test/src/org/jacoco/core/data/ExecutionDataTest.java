@@ -13,6 +13,7 @@ package org.jacoco.core.data;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
@@ -139,6 +140,93 @@ public class ExecutionDataTest {
 		a.assertCompatibility(5, "Example", 3);
 	}
 
+	@Test
+	public void testHitCounts() {
+		final int[] counts = new int[] { 0, 3, 0 };
+		final ExecutionData e = new ExecutionData(5, "Example", counts);
+		assertSame(counts, e.getHitCounts());
+		assertFalse(e.getProbes()[0]);
+		assertTrue(e.getProbes()[1]);
+		assertFalse(e.getProbes()[2]);
+		assertTrue(e.hasHits());
+	}
+
+	@Test
+	public void testHitCountsReset() {
+		final ExecutionData e = new ExecutionData(5, "Example", new int[] {
+				1, 2 });
+		e.reset();
+		assertEquals(0, e.getHitCounts()[0]);
+		assertEquals(0, e.getHitCounts()[1]);
+		assertFalse(e.hasHits());
+	}
+
+	@Test
+	public void testNoHitCounts() {
+		final ExecutionData e = new ExecutionData(5, "Example", 3);
+		assertNull(e.getHitCounts());
+	}
+
+	@Test
+	public void testMergeHitCounts() {
+		final ExecutionData a = new ExecutionData(5, "Example", new int[] {
+				0, 1, 2, Integer.MAX_VALUE - 1 });
+		final ExecutionData b = new ExecutionData(5, "Example", new int[] {
+				0, 0, 3, 5 });
+		a.merge(b);
+		assertEquals(0, a.getHitCounts()[0]);
+		assertEquals(1, a.getHitCounts()[1]);
+		assertEquals(5, a.getHitCounts()[2]);
+		assertEquals(Integer.MAX_VALUE, a.getHitCounts()[3]);
+	}
+
+	@Test
+	public void testMergeProbesIntoHitCounts() {
+		final ExecutionData a = new ExecutionData(5, "Example", new int[] {
+				0, 0, 7 });
+		final ExecutionData b = new ExecutionData(5, "Example", new boolean[] {
+				false, true, true });
+		a.merge(b);
+		assertEquals(0, a.getHitCounts()[0]);
+		assertEquals(1, a.getHitCounts()[1]);
+		assertEquals(7, a.getHitCounts()[2]);
+	}
+
+	@Test
+	public void testMergeHitCountsIntoProbes() {
+		final ExecutionData a = new ExecutionData(5, "Example", new boolean[] {
+				false, false });
+		final ExecutionData b = new ExecutionData(5, "Example", new int[] {
+				0, 4 });
+		a.merge(b);
+		assertFalse(a.getProbes()[0]);
+		assertTrue(a.getProbes()[1]);
+	}
+
+	@Test
+	public void testSubtractHitCounts() {
+		final ExecutionData a = new ExecutionData(5, "Example", new int[] {
+				3, 4 });
+		final ExecutionData b = new ExecutionData(5, "Example", new int[] {
+				0, 1 });
+		a.merge(b, false);
+		assertEquals(3, a.getHitCounts()[0]);
+		assertEquals(0, a.getHitCounts()[1]);
+	}
+
+	@Test
+	public void testAssertCompatibilityHitCounts() {
+		final ExecutionData a = new ExecutionData(5, "Example", new int[] { 1 });
+		a.assertCompatibility(5, "Example", 1, true);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAssertCompatibilityHitCountsNegative() {
+		final ExecutionData a = new ExecutionData(5, "Example",
+				new boolean[] { true });
+		a.assertCompatibility(5, "Example", 1, true);
+	}
+
 	@Test
 	public void testToString() {
 		final ExecutionData a = new ExecutionData(Long.MAX_VALUE, "Example",
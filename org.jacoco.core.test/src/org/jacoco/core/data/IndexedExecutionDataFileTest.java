@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link IndexedExecutionDataWriter} and
+ * {@link IndexedExecutionDataFile}.
+ */
+public class IndexedExecutionDataFileTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File file;
+
+	@Before
+	public void setup() throws IOException {
+		file = folder.newFile("indexed.exec");
+		final OutputStream out = new FileOutputStream(file);
+		final IndexedExecutionDataWriter writer = new IndexedExecutionDataWriter(
+				out);
+		writer.visitSessionInfo(new SessionInfo("session", 1, 2));
+		writer.visitClassExecution(new ExecutionData(3, "C", new boolean[] {
+				true, false }));
+		writer.visitClassExecution(new ExecutionData(-5, "A",
+				new boolean[] { true }));
+		writer.visitClassExecution(new ExecutionData(7, "NoHits",
+				new boolean[] { false }));
+		writer.visitClassExecution(new ExecutionData(3, "C", new boolean[] {
+				false, true }));
+		writer.visitClassExecution(new ExecutionData(4, "B", new int[] { 3,
+				0, 7 }));
+		writer.writeIndex();
+		out.close();
+	}
+
+	@Test
+	public void testGetIds() throws IOException {
+		final IndexedExecutionDataFile indexed = new IndexedExecutionDataFile(
+				file);
+		assertTrue(Arrays.equals(new long[] { -5, 3, 3, 4 }, indexed.getIds()));
+		indexed.close();
+	}
+
+	@Test
+	public void testGet() throws IOException {
+		final IndexedExecutionDataFile indexed = new IndexedExecutionDataFile(
+				file);
+
+		final ExecutionData a = indexed.get(-5);
+		assertEquals("A", a.getName());
+		assertTrue(Arrays.equals(new boolean[] { true }, a.getProbes()));
+
+		final ExecutionData c = indexed.get(3);
+		assertEquals("C", c.getName());
+		assertTrue(Arrays.equals(new boolean[] { true, true }, c.getProbes()));
+
+		final ExecutionData b = indexed.get(4);
+		assertEquals("B", b.getName());
+		assertArrayEquals(new int[] { 3, 0, 7 }, b.getHitCounts());
+
+		assertNull(indexed.get(7));
+		assertNull(indexed.get(Long.MAX_VALUE));
+		assertNull(indexed.get(Long.MIN_VALUE));
+		indexed.close();
+	}
+
+	@Test
+	public void testReadSequential() throws IOException {
+		final ExecutionDataStore store = new ExecutionDataStore();
+		final SessionInfoStore sessions = new SessionInfoStore();
+		final InputStream in = new FileInputStream(file);
+		final ExecutionDataReader reader = new ExecutionDataReader(in);
+		reader.setExecutionDataVisitor(store);
+		reader.setSessionInfoVisitor(sessions);
+		reader.read();
+		in.close();
+
+		assertEquals(1, sessions.getInfos().size());
+		assertEquals(3, store.getContents().size());
+		assertTrue(Arrays.equals(new boolean[] { true, true }, store.get(3)
+				.getProbes()));
+		assertArrayEquals(new int[] { 3, 0, 7 }, store.get(4).getHitCounts());
+	}
+
+	@Test
+	public void testAppendedToOtherFile() throws IOException {
+		final File combined = folder.newFile("combined.exec");
+		final OutputStream out = new FileOutputStream(combined);
+		final ExecutionDataWriter writer = new ExecutionDataWriter(out);
+		writer.visitClassExecution(new ExecutionData(9, "D",
+				new boolean[] { true }));
+		final InputStream in = new FileInputStream(file);
+		final byte[] buffer = new byte[1024];
+		int len;
+		while ((len = in.read(buffer)) != -1) {
+			out.write(buffer, 0, len);
+		}
+		in.close();
+		out.close();
+
+		final IndexedExecutionDataFile indexed = new IndexedExecutionDataFile(
+				combined);
+		assertEquals("C", indexed.get(3).getName());
+		assertNull(indexed.get(9));
+		indexed.close();
+	}
+
+	@Test
+	public void testNoIndex() throws IOException {
+		final File plain = folder.newFile("plain.exec");
+		final OutputStream out = new FileOutputStream(plain);
+		final ExecutionDataWriter writer = new ExecutionDataWriter(out);
+		for (int i = 0; i < 5; i++) {
+			writer.visitClassExecution(new ExecutionData(i, "Foo",
+					new boolean[] { true }));
+		}
+		out.close();
+		assertNoIndex(plain);
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		assertNoIndex(folder.newFile("empty.exec"));
+	}
+
+	@Test
+	public void testDataAppendedAfterIndex() throws IOException {
+		final OutputStream out = new FileOutputStream(file, true);
+		final ExecutionDataWriter writer = new ExecutionDataWriter(out);
+		writer.visitClassExecution(new ExecutionData(9, "D",
+				new boolean[] { true }));
+		out.close();
+		assertNoIndex(file);
+	}
+
+	private void assertNoIndex(final File f) {
+		try {
+			new IndexedExecutionDataFile(f);
+			fail("IOException expected");
+		} catch (final IOException e) {
+			assertEquals("No execution data index found.", e.getMessage());
+		}
+	}
+
+}
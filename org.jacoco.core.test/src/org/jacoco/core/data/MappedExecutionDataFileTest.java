@@ -0,0 +1,261 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link MappedExecutionDataWriter} and
+ * {@link MappedExecutionDataReader}.
+ */
+public class MappedExecutionDataFileTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File file;
+
+	private MappedExecutionDataWriter writer;
+
+	private ExecutionDataStore store;
+
+	private SessionInfoStore sessions;
+
+	@Before
+	public void setup() throws IOException {
+		file = new File(folder.getRoot(), "mapped.exec");
+		writer = new MappedExecutionDataWriter(file);
+		store = new ExecutionDataStore();
+		sessions = new SessionInfoStore();
+	}
+
+	@After
+	public void teardown() throws IOException {
+		writer.close();
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		read();
+		assertEquals(1, sessions.getInfos().size());
+		assertEquals(0, store.getContents().size());
+	}
+
+	@Test
+	public void testSessionInfo() throws IOException {
+		writer.visitSessionInfo(new SessionInfo("first", 1, 2));
+		writer.visitSessionInfo(new SessionInfo("id", 3, 4));
+		read();
+		final SessionInfo info = sessions.getInfos().get(0);
+		assertEquals("id", info.getId());
+		assertEquals(3, info.getStartTimeStamp());
+		assertEquals(4, info.getDumpTimeStamp());
+	}
+
+	@Test
+	public void testLongSessionId() throws IOException {
+		final char[] id = new char[1000];
+		Arrays.fill(id, 'x');
+		writer.visitSessionInfo(new SessionInfo(new String(id), 1, 2));
+		read();
+		assertEquals(MappedExecutionDataWriter.MAX_SESSION_ID, sessions
+				.getInfos().get(0).getId().length());
+	}
+
+	@Test
+	public void testProbes() throws IOException {
+		writer.visitClassExecution(new ExecutionData(1, "Foo", new boolean[] {
+				true, false, true }));
+		writer.visitClassExecution(new ExecutionData(-2, "Bar",
+				new boolean[] { false }));
+		read();
+		assertEquals("Foo", store.get(1).getName());
+		assertTrue(Arrays.equals(new boolean[] { true, false, true }, store
+				.get(1).getProbes()));
+		assertEquals("Bar", store.get(-2).getName());
+		assertTrue(Arrays.equals(new boolean[] { false }, store.get(-2)
+				.getProbes()));
+	}
+
+	@Test
+	public void testHitCounts() throws IOException {
+		writer.visitClassExecution(new ExecutionData(1, "Foo", new int[] { 0,
+				7, Integer.MAX_VALUE }));
+		read();
+		assertArrayEquals(new int[] { 0, 7, Integer.MAX_VALUE }, store.get(1)
+				.getHitCounts());
+	}
+
+	@Test
+	public void testUpdate() throws IOException {
+		final boolean[] probes = new boolean[] { true, false };
+		final ExecutionData data = new ExecutionData(1, "Foo", probes);
+		writer.visitClassExecution(data);
+		probes[1] = true;
+		writer.visitClassExecution(data);
+		read();
+		assertTrue(Arrays.equals(new boolean[] { true, true }, store.get(1)
+				.getProbes()));
+
+		// Reset data does not remove coverage from the file:
+		data.reset();
+		writer.visitClassExecution(data);
+		store = new ExecutionDataStore();
+		read();
+		assertTrue(Arrays.equals(new boolean[] { true, true }, store.get(1)
+				.getProbes()));
+	}
+
+	@Test
+	public void testUpdateHitCounts() throws IOException {
+		final int[] counts = new int[] { 1, 0 };
+		final ExecutionData data = new ExecutionData(1, "Foo", counts);
+		writer.visitClassExecution(data);
+		counts[0] = 5;
+		counts[1] = 3;
+		writer.visitClassExecution(data);
+		read();
+		assertArrayEquals(new int[] { 6, 3 }, store.get(1).getHitCounts());
+	}
+
+	@Test
+	public void testUpdateHitCountsSaturated() throws IOException {
+		writer.visitClassExecution(new ExecutionData(1, "Foo", new int[] {
+				Integer.MAX_VALUE - 1, 0 }));
+		writer.visitClassExecution(new ExecutionData(1, "Foo", new int[] { 5,
+				0 }));
+		read();
+		assertArrayEquals(new int[] { Integer.MAX_VALUE, 0 }, store.get(1)
+				.getHitCounts());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testIncompatibleProbeCount() {
+		writer.visitClassExecution(new ExecutionData(1, "Foo", 2));
+		writer.visitClassExecution(new ExecutionData(1, "Foo", 3));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testIncompatibleProbeType() {
+		writer.visitClassExecution(new ExecutionData(1, "Foo", 2));
+		writer.visitClassExecution(new ExecutionData(1, "Foo", new int[2]));
+	}
+
+	@Test
+	public void testMultipleRegions() throws IOException {
+		for (int i = 0; i < 2000; i++) {
+			final boolean[] probes = new boolean[1000];
+			probes[i % 1000] = true;
+			writer.visitClassExecution(new ExecutionData(i, "Class" + i,
+					probes));
+		}
+		// Larger than a single region:
+		writer.visitClassExecution(new ExecutionData(-1, "Large",
+				new int[300000]));
+		read();
+		assertEquals(2001, store.getContents().size());
+		for (int i = 0; i < 2000; i++) {
+			assertTrue(store.get(i).getProbes()[i % 1000]);
+		}
+		assertEquals(300000, store.get(-1).getHitCounts().length);
+	}
+
+	@Test
+	public void testReadWithoutClose() throws IOException {
+		writer.visitClassExecution(new ExecutionData(1, "Foo",
+				new boolean[] { true }));
+		read();
+		assertTrue(store.get(1).getProbes()[0]);
+	}
+
+	@Test
+	public void testReplaceExistingFile() throws IOException {
+		writer.visitClassExecution(new ExecutionData(1, "Foo",
+				new boolean[] { true }));
+		writer.close();
+		writer = new MappedExecutionDataWriter(file);
+		read();
+		assertEquals(0, store.getContents().size());
+	}
+
+	@Test
+	public void testIncompleteBlock() throws IOException {
+		writer.visitClassExecution(new ExecutionData(1, "Foo",
+				new boolean[] { true }));
+		writer.close();
+		// Simulate a crash after the block content but before the block type
+		// of a second class has been written:
+		final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		final int next = MappedExecutionDataWriter.HEADER_SIZE + 1 + 8 + 4 + 2
+				+ 6 + 1;
+		raf.seek(next + 1);
+		raf.writeLong(2);
+		raf.close();
+		read();
+		assertEquals(1, store.getContents().size());
+		assertNull(store.get(2));
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidFile() throws IOException {
+		file = folder.newFile("invalid.exec");
+		final FileOutputStream out = new FileOutputStream(file);
+		out.write(new byte[] { 1, 2, 3, 4 });
+		out.close();
+		read();
+	}
+
+	@Test(expected = IOException.class)
+	public void testExecFile() throws IOException {
+		file = folder.newFile("regular.exec");
+		final FileOutputStream out = new FileOutputStream(file);
+		new ExecutionDataWriter(out);
+		out.close();
+		read();
+	}
+
+	@Test(expected = IncompatibleExecDataVersionException.class)
+	public void testIncompatibleVersion() throws IOException {
+		file = folder.newFile("other.exec");
+		final DataOutputStream out = new DataOutputStream(
+				new FileOutputStream(file));
+		out.writeChar(ExecutionDataWriter.MAGIC_NUMBER);
+		out.writeChar(0x3006);
+		out.close();
+		read();
+	}
+
+	private void read() throws IOException {
+		final MappedExecutionDataReader reader = new MappedExecutionDataReader(
+				file);
+		reader.setSessionInfoVisitor(sessions);
+		reader.setExecutionDataVisitor(store);
+		reader.read();
+	}
+
+}
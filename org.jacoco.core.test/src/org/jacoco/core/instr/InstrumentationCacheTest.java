@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.instr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jacoco.core.internal.Java9Support;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.runtime.LoggerRuntime;
+import org.jacoco.core.runtime.OfflineInstrumentationAccessGenerator;
+import org.jacoco.core.test.TargetLoader;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link InstrumentationCache}.
+ */
+public class InstrumentationCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File directory;
+
+	private InstrumentationCache cache;
+
+	private byte[] bytes;
+
+	private long classid;
+
+	@Before
+	public void setup() throws IOException {
+		directory = folder.newFolder("cache");
+		cache = new InstrumentationCache(directory);
+		bytes = TargetLoader
+				.getClassDataAsBytes(InstrumentationCacheTest.class);
+		classid = CRC64.checksum(bytes);
+	}
+
+	@Test
+	public void testGetEmpty() {
+		assertNull(cache.get(1, classid));
+	}
+
+	@Test
+	public void testPutGet() {
+		cache.put(1, classid, new byte[] { 1, 2, 3 });
+		assertArrayEquals(new byte[] { 1, 2, 3 }, cache.get(1, classid));
+		assertNull(cache.get(2, classid));
+		assertNull(cache.get(1, classid + 1));
+	}
+
+	@Test
+	public void testCorruptEntry() throws IOException {
+		cache.put(1, classid, new byte[] { 1, 2, 3 });
+		final FileOutputStream out = new FileOutputStream(findEntry());
+		out.write(new byte[] { (byte) 0xC0, (byte) 0xCB, 0x10 });
+		out.close();
+		assertNull(cache.get(1, classid));
+
+		cache.put(1, classid, new byte[] { 4, 5 });
+		assertArrayEquals(new byte[] { 4, 5 }, cache.get(1, classid));
+	}
+
+	@Test
+	public void testInstrumenter() throws IOException {
+		final Instrumenter instrumenter = createInstrumenter();
+		final byte[] expected = instrumenter.instrument(bytes, "Test");
+
+		instrumenter.setCache(cache);
+		assertArrayEquals(expected, instrumenter.instrument(bytes, "Test"));
+		assertEquals(1, findEntries().size());
+
+		// Second instrumenter with the same configuration uses the entry:
+		final Instrumenter other = createInstrumenter();
+		other.setCache(cache);
+		final byte[] cached = other.instrument(bytes, "Test");
+		assertArrayEquals(expected, cached);
+		assertEquals(1, findEntries().size());
+	}
+
+	@Test
+	public void testInstrumenterUsesCachedEntry() throws IOException {
+		final Instrumenter instrumenter = createInstrumenter();
+		instrumenter.setCache(cache);
+		final byte[] expected = instrumenter.instrument(bytes, "Test");
+
+		// Modify the cached entry to prove that it is used:
+		final File entry = findEntry();
+		final FileInputStream in = new FileInputStream(entry);
+		final byte[] content = Java9Support.readFully(in);
+		in.close();
+		content[content.length - 1] ^= 0xff;
+		final FileOutputStream out = new FileOutputStream(entry);
+		out.write(content);
+		out.close();
+
+		final byte[] actual = instrumenter.instrument(bytes, "Test");
+		expected[expected.length - 1] ^= 0xff;
+		assertArrayEquals(expected, actual);
+	}
+
+	@Test
+	public void testInstrumenterConfiguration() throws IOException {
+		final Instrumenter instrumenter = createInstrumenter();
+		instrumenter.setCache(cache);
+		final byte[] probes = instrumenter.instrument(bytes, "Test");
+
+		instrumenter.setHitCounts(true);
+		final byte[] hitCounts = instrumenter.instrument(bytes, "Test");
+		assertFalse(probes.length == hitCounts.length);
+		assertEquals(2, findEntries().size());
+
+		// Runtimes with different keys result in different configurations:
+		final Instrumenter logger1 = new Instrumenter(new LoggerRuntime());
+		logger1.setCache(cache);
+		logger1.instrument(bytes, "Test");
+		final Instrumenter logger2 = new Instrumenter(new LoggerRuntime());
+		logger2.setCache(cache);
+		logger2.instrument(bytes, "Test");
+		assertEquals(4, findEntries().size());
+	}
+
+	@Test
+	public void testInstrumenterBrokenClass() throws IOException {
+		final Instrumenter instrumenter = createInstrumenter();
+		instrumenter.setCache(cache);
+		try {
+			instrumenter.instrument(new byte[] { 1, 2, 3 }, "Broken");
+			fail("IOException expected");
+		} catch (final IOException e) {
+			assertEquals("Error while instrumenting class Broken.",
+					e.getMessage());
+		}
+		assertEquals(0, findEntries().size());
+	}
+
+	private Instrumenter createInstrumenter() {
+		return new Instrumenter(new OfflineInstrumentationAccessGenerator());
+	}
+
+	private File findEntry() {
+		final List<File> entries = findEntries();
+		assertEquals(1, entries.size());
+		return entries.get(0);
+	}
+
+	private List<File> findEntries() {
+		final List<File> entries = new ArrayList<File>();
+		final File[] dirs = directory.listFiles();
+		if (dirs != null) {
+			for (final File dir : dirs) {
+				for (final File file : dir.listFiles()) {
+					entries.add(file);
+				}
+			}
+		}
+		return entries;
+	}
+
+}
@@ -11,8 +11,10 @@
  *******************************************************************************/
 package org.jacoco.core.instr;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
@@ -23,6 +25,8 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.jar.JarInputStream;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Pack200;
@@ -32,7 +36,14 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
+import org.jacoco.core.analysis.Analyzer;
 import org.jacoco.core.analysis.AnalyzerTest;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.IHitCountLine;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.runtime.ModifiedSystemClassMapRuntime;
 import org.jacoco.core.runtime.RuntimeData;
 import org.jacoco.core.runtime.SystemPropertiesRuntime;
 import org.jacoco.core.test.TargetLoader;
@@ -192,6 +203,108 @@ public class InstrumenterTest {
 		}
 	}
 
+	@Test
+	public void testInstrumentAll_KeepEntryTime() throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		ZipOutputStream zipout = new ZipOutputStream(buffer);
+		final ZipEntry entry = new ZipEntry("Test.class");
+		entry.setTime(1000000000000L);
+		zipout.putNextEntry(entry);
+		zipout.write(TargetLoader.getClassDataAsBytes(getClass()));
+		zipout.finish();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		instrumenter.instrumentAll(
+				new ByteArrayInputStream(buffer.toByteArray()), out, "Test");
+
+		ZipInputStream zipin = new ZipInputStream(new ByteArrayInputStream(
+				out.toByteArray()));
+		assertEquals(1000000000000L, zipin.getNextEntry().getTime());
+	}
+
+	@Test
+	public void testInstrumentAll_Parallel() throws IOException {
+		ByteArrayOutputStream nested = new ByteArrayOutputStream();
+		ZipOutputStream nestedout = new ZipOutputStream(nested);
+		addEntry(nestedout, "Nested.class",
+				TargetLoader.getClassDataAsBytes(Analyzer.class));
+		nestedout.finish();
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		ZipOutputStream zipout = new ZipOutputStream(buffer);
+		addEntry(zipout, "META-INF/MANIFEST.MF",
+				"Manifest-Version: 1.0\r\n\r\nName: A.class\r\nSHA1-Digest: xyz\r\n\r\n"
+						.getBytes());
+		addEntry(zipout, "META-INF/ALIAS.SF", new byte[0]);
+		final Class<?>[] classes = new Class<?>[] { Instrumenter.class,
+				InstrumenterTest.class, Analyzer.class, AnalyzerTest.class,
+				CoverageBuilder.class, RuntimeData.class };
+		for (int i = 0; i < classes.length; i++) {
+			addEntry(zipout, "C" + i + ".class",
+					TargetLoader.getClassDataAsBytes(classes[i]));
+			addEntry(zipout, "resource" + i + ".txt", ("text" + i).getBytes());
+			if (i == 2) {
+				addEntry(zipout, "lib/nested.jar", nested.toByteArray());
+			}
+		}
+		zipout.finish();
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		assertEquals(7, instrumenter.instrumentAll(new ByteArrayInputStream(
+				buffer.toByteArray()), expected, "Test"));
+
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			instrumenter.setExecutor(executor);
+			for (int i = 0; i < 5; i++) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				assertEquals(7, instrumenter.instrumentAll(
+						new ByteArrayInputStream(buffer.toByteArray()), out,
+						"Test"));
+				assertArrayEquals(expected.toByteArray(), out.toByteArray());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testInstrumentAll_ParallelBrokenClassFileInZip()
+			throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		ZipOutputStream zipout = new ZipOutputStream(buffer);
+		addEntry(zipout, "Ok.class",
+				TargetLoader.getClassDataAsBytes(getClass()));
+		final byte[] brokenclass = TargetLoader.getClassDataAsBytes(getClass());
+		brokenclass[10] = 0x23;
+		addEntry(zipout, "Test.class", brokenclass);
+		zipout.finish();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			instrumenter.setExecutor(executor);
+			instrumenter.instrumentAll(
+					new ByteArrayInputStream(buffer.toByteArray()), out,
+					"test.zip");
+			fail();
+		} catch (IOException e) {
+			assertEquals(
+					"Error while instrumenting class test.zip@Test.class.",
+					e.getMessage());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static void addEntry(final ZipOutputStream zipout,
+			final String name, final byte[] content) throws IOException {
+		final ZipEntry entry = new ZipEntry(name);
+		entry.setTime(1000000000000L);
+		zipout.putNextEntry(entry);
+		zipout.write(content);
+	}
+
 	@Test
 	public void testInstrumentAll_Pack200() throws IOException {
 		ByteArrayOutputStream jarbuffer = new ByteArrayOutputStream();
@@ -272,4 +385,53 @@ public class InstrumenterTest {
 		assertNull(zipin.getNextEntry());
 	}
 
+	@Test(expected = IllegalStateException.class)
+	public void testSetHitCountsNotSupported() {
+		instrumenter.setHitCounts(true);
+	}
+
+	@Test
+	public void testHitCounts() throws Exception {
+		final ModifiedSystemClassMapRuntime mapRuntime = new ModifiedSystemClassMapRuntime(
+				InstrumenterTest.class, "accessField");
+		final RuntimeData data = new RuntimeData();
+		mapRuntime.startup(data);
+		try {
+			instrumenter = new Instrumenter(mapRuntime);
+			instrumenter.setHitCounts(true);
+			final byte[] original = TargetLoader
+					.getClassDataAsBytes(SerializationTarget.class);
+			final byte[] bytes = instrumenter.instrument(original, "Test");
+			final Class<?> clazz = new TargetLoader().add(
+					SerializationTarget.class, bytes);
+			for (int i = 0; i < 3; i++) {
+				clazz.getConstructor(String.class, Integer.TYPE).newInstance(
+						"Hello", Integer.valueOf(i));
+			}
+
+			final ExecutionDataStore store = new ExecutionDataStore();
+			data.collect(store, new SessionInfoStore(), false);
+			final CoverageBuilder builder = new CoverageBuilder();
+			new Analyzer(store, builder).analyzeClass(original, "Test");
+			final IClassCoverage coverage = builder.getClasses().iterator()
+					.next();
+			int coveredLines = 0;
+			for (int l = coverage.getFirstLine(); l <= coverage.getLastLine(); l++) {
+				final IHitCountLine line = (IHitCountLine) coverage.getLine(l);
+				if (line.getInstructionCounter().getCoveredCount() > 0) {
+					assertEquals(3, line.getHitCount());
+					coveredLines++;
+				} else {
+					assertEquals(0, line.getHitCount());
+				}
+			}
+			assertTrue(coveredLines > 0);
+		} finally {
+			mapRuntime.shutdown();
+		}
+	}
+
+	/** Access field for the modified system class runtime. */
+	public static Object accessField;
+
 }
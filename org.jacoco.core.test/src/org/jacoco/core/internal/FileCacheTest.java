@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.jacoco.core.JaCoCo;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link FileCache}.
+ */
+public class FileCacheTest {
+
+	private static final long DAY = 24L * 60L * 60L * 1000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File directory;
+
+	private FileCache cache;
+
+	@Before
+	public void setup() throws IOException {
+		directory = folder.newFolder("cache");
+		cache = new FileCache(directory, (char) 0xC0CF, (char) 0x1001);
+	}
+
+	@Test
+	public void testGetEmpty() {
+		assertNull(cache.get("0123456789abcdef"));
+	}
+
+	@Test
+	public void testPutGet() {
+		cache.put("0123456789abcdef", new byte[] { 1, 2, 3 });
+		cache.put("0123456789abcdee", new byte[0]);
+		assertArrayEquals(new byte[] { 1, 2, 3 },
+				cache.get("0123456789abcdef"));
+		assertArrayEquals(new byte[0], cache.get("0123456789abcdee"));
+		assertTrue(new File(directory, "01/0123456789abcdef").isFile());
+	}
+
+	@Test
+	public void testReplace() {
+		cache.put("0123456789abcdef", new byte[] { 1, 2, 3 });
+		cache.put("0123456789abcdef", new byte[] { 4 });
+		assertArrayEquals(new byte[] { 4 }, cache.get("0123456789abcdef"));
+		assertEquals(1, new File(directory, "01").listFiles().length);
+	}
+
+	@Test
+	public void testOtherFormat() {
+		cache.put("0123456789abcdef", new byte[] { 1, 2, 3 });
+		assertNull(new FileCache(directory, (char) 0xC0CF, (char) 0x1002)
+				.get("0123456789abcdef"));
+		assertNull(new FileCache(directory, (char) 0xC0CE, (char) 0x1001)
+				.get("0123456789abcdef"));
+	}
+
+	@Test
+	public void testOtherBuild() throws IOException {
+		writeEntry("0123456789abcdef", JaCoCo.VERSION + ".other");
+		assertNull(cache.get("0123456789abcdef"));
+	}
+
+	@Test
+	public void testOtherKey() throws IOException {
+		writeEntry("0123456789abcdef", JaCoCo.VERSION);
+		assertArrayEquals(new byte[] { 7 }, cache.get("0123456789abcdef"));
+		final File file = new File(directory, "01/0123456789abcdef");
+		assertTrue(file.renameTo(new File(directory, "01/0123456789abcdee")));
+		assertNull(cache.get("0123456789abcdee"));
+	}
+
+	@Test
+	public void testCorruptEntry() throws IOException {
+		cache.put("0123456789abcdef", new byte[] { 1, 2, 3 });
+		final FileOutputStream out = new FileOutputStream(new File(directory,
+				"01/0123456789abcdef"), true);
+		out.write(0);
+		out.close();
+		assertNull(cache.get("0123456789abcdef"));
+	}
+
+	@Test
+	public void testEvict() {
+		cache.put("0123456789abcdef", new byte[] { 1 });
+		cache.put("fedcba9876543210", new byte[] { 2 });
+		final File old = new File(directory, "01/0123456789abcdef");
+		assertTrue(old.setLastModified(System.currentTimeMillis() - 2 * DAY));
+
+		assertEquals(1, cache.evict(DAY));
+		assertFalse(old.exists());
+		assertArrayEquals(new byte[] { 2 }, cache.get("fedcba9876543210"));
+	}
+
+	@Test
+	public void testEvictEmpty() {
+		assertEquals(0, new FileCache(new File(directory, "missing"),
+				(char) 0xC0CF, (char) 0x1001).evict(DAY));
+	}
+
+	@Test
+	public void testGetMarksEntryAsUsed() {
+		cache.put("0123456789abcdef", new byte[] { 1 });
+		final File file = new File(directory, "01/0123456789abcdef");
+		assertTrue(file.setLastModified(System.currentTimeMillis() - 2 * DAY));
+
+		cache.get("0123456789abcdef");
+		assertEquals(0, cache.evict(DAY));
+	}
+
+	private void writeEntry(final String key, final String build)
+			throws IOException {
+		final File dir = new File(directory, key.substring(0, 2));
+		dir.mkdirs();
+		final DataOutputStream out = new DataOutputStream(
+				new FileOutputStream(new File(dir, key)));
+		out.writeChar(0xC0CF);
+		out.writeChar(0x1001);
+		out.writeUTF(build);
+		out.writeUTF(key);
+		out.writeInt(1);
+		out.write(7);
+		out.close();
+	}
+
+}
@@ -13,6 +13,7 @@ package org.jacoco.core.internal.analysis;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 
 import org.jacoco.core.analysis.ICounter;
 import org.junit.Before;
@@ -174,4 +175,54 @@ public class LineImplTest {
 		assertFalse(line.equals(line2));
 	}
 
+	@Test
+	public void testHitCount() {
+		assertEquals(0, line.getHitCount());
+		line = line.updateHitCount(5);
+		assertEquals(5, line.getHitCount());
+		line = line.updateHitCount(3);
+		assertEquals(5, line.getHitCount());
+		line = line.increment(CounterImpl.getInstance(1, 2),
+				CounterImpl.COUNTER_0_0);
+		assertEquals(5, line.getHitCount());
+		assertEquals(CounterImpl.getInstance(1, 2),
+				line.getInstructionCounter());
+	}
+
+	@Test
+	public void testHitCountZero() {
+		assertSame(LineImpl.EMPTY, LineImpl.EMPTY.updateHitCount(0));
+	}
+
+	@Test
+	public void testGetInstanceSingleton() {
+		assertSame(LineImpl.EMPTY, LineImpl.getInstance(0, 0, 0, 0, 0));
+		assertSame(LineImpl.getInstance(1, 2, 3, 4, 0),
+				LineImpl.getInstance(1, 2, 3, 4, 0));
+	}
+
+	@Test
+	public void testGetInstanceLarge() {
+		line = LineImpl.getInstance(100, 200, 300, 400, 0);
+		assertEquals(CounterImpl.getInstance(100, 200),
+				line.getInstructionCounter());
+		assertEquals(CounterImpl.getInstance(300, 400), line.getBranchCounter());
+		assertEquals(0, line.getHitCount());
+	}
+
+	@Test
+	public void testGetInstanceHitCount() {
+		line = LineImpl.getInstance(1, 2, 0, 0, 7);
+		assertEquals(CounterImpl.getInstance(1, 2),
+				line.getInstructionCounter());
+		assertEquals(7, line.getHitCount());
+	}
+
+	@Test
+	public void testEqualsHitCount() {
+		LineImpl line2 = line.updateHitCount(1);
+		assertFalse(line.equals(line2));
+		assertFalse(line.hashCode() == line2.hashCode());
+	}
+
 }
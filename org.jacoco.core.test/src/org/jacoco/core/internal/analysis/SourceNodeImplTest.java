@@ -13,7 +13,9 @@ package org.jacoco.core.internal.analysis;
 
 import static org.junit.Assert.assertEquals;
 
+import org.jacoco.core.analysis.CoverageNodeImpl;
 import org.jacoco.core.analysis.ICoverageNode.ElementType;
+import org.jacoco.core.analysis.ILine;
 import org.jacoco.core.analysis.ISourceNode;
 import org.junit.Test;
 
@@ -213,4 +215,111 @@ public class SourceNodeImplTest {
 		assertEquals(CounterImpl.getInstance(0, 1), node.getLineCounter());
 	}
 
+	@Test
+	public void testIncrementLargeValues() {
+		final SourceNodeImpl node = new SourceNodeImpl(ElementType.CLASS, "Foo");
+		node.increment(CounterImpl.getInstance(1, 2),
+				CounterImpl.getInstance(3, 4), 10);
+		node.increment(CounterImpl.getInstance(5, 6),
+				CounterImpl.COUNTER_0_0, 12);
+		node.increment(CounterImpl.getInstance(1000, 0),
+				CounterImpl.getInstance(0, 70000), 10);
+
+		assertEquals(CounterImpl.getInstance(1001, 2), node.getLine(10)
+				.getInstructionCounter());
+		assertEquals(CounterImpl.getInstance(3, 70004), node.getLine(10)
+				.getBranchCounter());
+		assertEquals(CounterImpl.COUNTER_0_0, node.getLine(11)
+				.getInstructionCounter());
+		assertEquals(CounterImpl.getInstance(5, 6), node.getLine(12)
+				.getInstructionCounter());
+		assertEquals(CounterImpl.getInstance(0, 2), node.getLineCounter());
+	}
+
+	@Test
+	public void testUpdateHitCount() {
+		final SourceNodeImpl node = new SourceNodeImpl(ElementType.CLASS, "Foo");
+		node.increment(CounterImpl.COUNTER_0_1, CounterImpl.COUNTER_0_0, 10);
+		node.updateHitCount(5, 10);
+		node.updateHitCount(3, 10);
+		node.updateHitCount(0, 11);
+		node.increment(CounterImpl.COUNTER_0_1, CounterImpl.COUNTER_0_0, 5);
+		node.updateHitCount(2, 5);
+
+		assertEquals(2, node.getLine(5).getHitCount());
+		assertEquals(5, node.getLine(10).getHitCount());
+		assertEquals(0, node.getLine(11).getHitCount());
+		assertEquals(CounterImpl.COUNTER_0_1, node.getLine(10)
+				.getInstructionCounter());
+	}
+
+	@Test
+	public void testIncrementChildLines() {
+		final SourceNodeImpl node = new SourceNodeImpl(ElementType.CLASS, "Foo");
+		node.increment(CounterImpl.getInstance(1, 0), CounterImpl.COUNTER_0_0,
+				20);
+
+		final SourceNodeImpl child = new SourceNodeImpl(ElementType.CLASS,
+				"Foo");
+		child.increment(CounterImpl.getInstance(0, 1),
+				CounterImpl.getInstance(1, 1), 10);
+		child.increment(CounterImpl.getInstance(0, 300),
+				CounterImpl.COUNTER_0_0, 20);
+		child.updateHitCount(4, 10);
+
+		node.increment(child);
+
+		assertEquals(CounterImpl.getInstance(0, 1), node.getLine(10)
+				.getInstructionCounter());
+		assertEquals(CounterImpl.getInstance(1, 1), node.getLine(10)
+				.getBranchCounter());
+		assertEquals(4, node.getLine(10).getHitCount());
+		assertEquals(CounterImpl.getInstance(1, 300), node.getLine(20)
+				.getInstructionCounter());
+		assertEquals(CounterImpl.getInstance(0, 2), node.getLineCounter());
+	}
+
+	@Test
+	public void testIncrementChildOtherImplementation() {
+		final SourceNodeImpl node = new SourceNodeImpl(ElementType.CLASS, "Foo");
+		final SourceNodeImpl lines = new SourceNodeImpl(ElementType.CLASS,
+				"Foo");
+		lines.increment(CounterImpl.getInstance(2, 0),
+				CounterImpl.COUNTER_0_0, 7);
+		lines.updateHitCount(3, 7);
+		final ISourceNode child = new LineDelegate(lines);
+
+		node.increment(child);
+
+		final LineImpl line = node.getLine(7);
+		assertEquals(CounterImpl.getInstance(2, 0),
+				line.getInstructionCounter());
+		assertEquals(3, line.getHitCount());
+		assertEquals(CounterImpl.getInstance(1, 0), node.getLineCounter());
+	}
+
+	private static class LineDelegate extends CoverageNodeImpl implements
+			ISourceNode {
+
+		private final ISourceNode delegate;
+
+		LineDelegate(final ISourceNode delegate) {
+			super(ElementType.CLASS, "Foo");
+			this.delegate = delegate;
+		}
+
+		public int getFirstLine() {
+			return delegate.getFirstLine();
+		}
+
+		public int getLastLine() {
+			return delegate.getLastLine();
+		}
+
+		public ILine getLine(final int nr) {
+			return delegate.getLine(nr);
+		}
+
+	}
+
 }
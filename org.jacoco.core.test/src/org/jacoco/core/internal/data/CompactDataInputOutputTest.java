@@ -105,6 +105,19 @@ public class CompactDataInputOutputTest {
 				true);
 	}
 
+	@Test
+	public void testVarIntArray() throws IOException {
+		final int[] values = new int[] { 0, 1, 0x7F, 0x80, 0x3FFF, 0x4000,
+				Integer.MAX_VALUE };
+		out.writeVarIntArray(values);
+		out.close();
+		final int[] actual = in.readVarIntArray();
+		assertEquals(values.length, actual.length);
+		for (int i = 0; i < values.length; i++) {
+			assertEquals("Index " + i, values[i], actual[i]);
+		}
+	}
+
 	private void testPackedBoolean(boolean... values) throws IOException {
 		out.writeBooleanArray(values);
 		out.close();
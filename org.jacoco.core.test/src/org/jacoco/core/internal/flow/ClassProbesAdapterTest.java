@@ -11,12 +11,35 @@
  *******************************************************************************/
 package org.jacoco.core.internal.flow;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.ILine;
+import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.internal.analysis.ClassAnalyzer;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.StringPool;
+import org.jacoco.core.internal.instr.ClassInstrumenter;
+import org.jacoco.core.internal.instr.ProbeArrayStrategyFactory;
+import org.jacoco.core.runtime.OfflineInstrumentationAccessGenerator;
+import org.jacoco.core.test.TargetLoader;
+import org.jacoco.core.test.validation.targets.Target01;
+import org.jacoco.core.test.validation.targets.Target02;
+import org.jacoco.core.test.validation.targets.Target03;
+import org.jacoco.core.test.validation.targets.Target04;
+import org.jacoco.core.test.validation.targets.Target05;
+import org.jacoco.core.test.validation.targets.Target06;
+import org.jacoco.core.test.validation.targets.Target07;
+import org.jacoco.core.test.validation.targets.Target08;
 import org.junit.Test;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
@@ -146,6 +169,150 @@ public class ClassProbesAdapterTest {
 		assertFalse(mv.frame);
 	}
 
+	@Test
+	public void testAcceptSameAsBuffered() throws IOException {
+		final Class<?>[] classes = new Class<?>[] { Target01.class,
+				Target02.class, Target03.class, Target04.class, Target05.class,
+				Target06.class, Target07.class, Target08.class,
+				Analyzer.class, MethodProbesAdapter.class,
+				UninitializedFrameTarget.class };
+		for (final Class<?> c : classes) {
+			final ClassReader reader = new ClassReader(
+					TargetLoader.getClassDataAsBytes(c));
+			assertArrayEquals(c.getName(), instrument(reader, false),
+					instrument(reader, true));
+		}
+	}
+
+	@Test
+	public void testAcceptSameAnalysisAsBuffered() throws IOException {
+		final Class<?>[] classes = new Class<?>[] { Target01.class,
+				Target02.class, Target03.class, Target04.class, Target05.class,
+				Target06.class, Target07.class, Target08.class,
+				Analyzer.class, MethodProbesAdapter.class,
+				UninitializedFrameTarget.class };
+		for (final Class<?> c : classes) {
+			final ClassReader reader = new ClassReader(
+					TargetLoader.getClassDataAsBytes(c));
+			assertEquals(c.getName(), analyze(reader, false),
+					analyze(reader, true));
+		}
+	}
+
+	@Test
+	public void testAcceptWithFrameOnlyLabel() {
+		final ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_6, 0, "Foo", null, "java/lang/Object", null);
+		final MethodVisitor mv = writer.visitMethod(0, "foo", "()V", null,
+				null);
+		mv.visitCode();
+		final Label start = new Label();
+		mv.visitLabel(start);
+		mv.visitLineNumber(1, start);
+		mv.visitInsn(Opcodes.ICONST_0);
+		mv.visitInsn(Opcodes.POP);
+		// Label which is only created by ClassReader for the frame:
+		mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+		mv.visitInsn(Opcodes.NOP);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(1, 1);
+		mv.visitEnd();
+		writer.visitEnd();
+		final ClassReader reader = new ClassReader(writer.toByteArray());
+
+		assertEquals("foo()V 4/4/0/0\n", analyze(reader, false));
+		assertEquals("foo()V 4/4/0/0\n", analyze(reader, true));
+	}
+
+	@Test
+	public void testAcceptWithSubroutines() {
+		final ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_3, 0, "Foo", null, "java/lang/Object", null);
+		writeMethodWithBranch(writer);
+		final MethodVisitor mv = writer.visitMethod(0, "sub", "()V", null,
+				null);
+		mv.visitCode();
+		final Label sub = new Label();
+		final Label end = new Label();
+		mv.visitJumpInsn(Opcodes.JSR, sub);
+		mv.visitJumpInsn(Opcodes.GOTO, end);
+		mv.visitLabel(sub);
+		mv.visitVarInsn(Opcodes.ASTORE, 1);
+		mv.visitVarInsn(Opcodes.RET, 1);
+		mv.visitLabel(end);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(1, 2);
+		mv.visitEnd();
+		writeMethodWithTableSwitch(writer);
+		writer.visitEnd();
+		final ClassReader reader = new ClassReader(writer.toByteArray());
+
+		final MockClassVisitor buffered = new MockClassVisitor();
+		reader.accept(new ClassProbesAdapter(buffered, false), 0);
+		final MockClassVisitor cv = new MockClassVisitor();
+		ClassProbesAdapter.accept(reader, cv, false, 0);
+		assertEquals(buffered.count, cv.count);
+		assertArrayEquals(instrument(reader, false), instrument(reader, true));
+	}
+
+	private static class UninitializedFrameTarget {
+
+		// Stackmap frames reference the NEW instruction:
+		Object create(final String s, final boolean flag) {
+			final int length = s.length();
+			return new StringBuilder(flag ? s : String.valueOf(length));
+		}
+
+	}
+
+	private String analyze(final ClassReader reader, final boolean accept) {
+		final boolean[] probes = new boolean[10000];
+		for (int i = 0; i < probes.length; i++) {
+			probes[i] = i % 3 != 1;
+		}
+		final ClassCoverageImpl coverage = new ClassCoverageImpl(
+				reader.getClassName(), 0, false);
+		final ClassAnalyzer analyzer = new ClassAnalyzer(coverage, probes,
+				new StringPool());
+		if (accept) {
+			ClassProbesAdapter.accept(reader, analyzer, false, 0);
+		} else {
+			reader.accept(new ClassProbesAdapter(analyzer, false), 0);
+		}
+		final StringBuilder result = new StringBuilder();
+		for (final IMethodCoverage m : coverage.getMethods()) {
+			result.append(m.getName()).append(m.getDesc());
+			for (int nr = m.getFirstLine(); nr <= m.getLastLine(); nr++) {
+				final ILine line = m.getLine(nr);
+				result.append(' ')
+						.append(line.getInstructionCounter().getCoveredCount())
+						.append('/')
+						.append(line.getInstructionCounter().getTotalCount())
+						.append('/')
+						.append(line.getBranchCounter().getCoveredCount())
+						.append('/')
+						.append(line.getBranchCounter().getTotalCount());
+			}
+			result.append('\n');
+		}
+		return result.toString();
+	}
+
+	private byte[] instrument(final ClassReader reader, final boolean accept) {
+		final ClassWriter writer = new ClassWriter(0);
+		final ClassInstrumenter instrumenter = new ClassInstrumenter(
+				ProbeArrayStrategyFactory.createFor(reader,
+						new OfflineInstrumentationAccessGenerator()), writer);
+		if (accept) {
+			ClassProbesAdapter.accept(reader, instrumenter, true,
+					ClassReader.EXPAND_FRAMES);
+		} else {
+			reader.accept(new ClassProbesAdapter(instrumenter, true),
+					ClassReader.EXPAND_FRAMES);
+		}
+		return writer.toByteArray();
+	}
+
 	private void writeMethod(final ClassVisitor cv) {
 		MethodVisitor mv = cv.visitMethod(0, "foo", "()V", null, null);
 		mv.visitCode();
@@ -13,6 +13,10 @@ package org.jacoco.core.internal.flow;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -82,4 +86,76 @@ public class InstructionTest {
 		assertEquals(1, first.getCoveredBranches());
 	}
 
+	@Test
+	public void testPropagateExecutions() {
+		final Instruction root = new Instruction(1);
+		final Instruction a = new Instruction(2);
+		final Instruction b = new Instruction(3);
+		final Instruction c = new Instruction(4);
+		a.setPredecessor(root);
+		b.setPredecessor(root);
+		c.setPredecessor(a);
+		c.addExecutions(3);
+		b.addExecutions(5);
+		a.addExecutions(1);
+
+		Instruction.propagateExecutions(Arrays.asList(c, b, a, root));
+
+		assertEquals(3, c.getExecutions());
+		assertEquals(5, b.getExecutions());
+		assertEquals(4, a.getExecutions());
+		assertEquals(9, root.getExecutions());
+	}
+
+	@Test
+	public void testPropagateExecutionsSaturates() {
+		final Instruction a = new Instruction(1);
+		final Instruction b = new Instruction(2);
+		a.setPredecessor(instruction);
+		b.setPredecessor(instruction);
+		a.addExecutions(Integer.MAX_VALUE);
+		b.addExecutions(1);
+
+		Instruction.propagateExecutions(Arrays.asList(instruction, a, b));
+
+		assertEquals(Integer.MAX_VALUE, instruction.getExecutions());
+	}
+
+	@Test
+	public void testPropagateExecutionsCycle() {
+		final Instruction a = new Instruction(1);
+		final Instruction b = new Instruction(2);
+		final Instruction entry = new Instruction(3);
+		a.setPredecessor(b);
+		b.setPredecessor(a);
+		entry.setPredecessor(a);
+		entry.addExecutions(2);
+		b.addExecutions(3);
+
+		Instruction.propagateExecutions(Arrays.asList(a, b, entry));
+
+		assertEquals(2, entry.getExecutions());
+		assertEquals(5, a.getExecutions());
+		assertEquals(5, b.getExecutions());
+	}
+
+	@Test
+	public void testPropagateExecutionsOnLongSequence() {
+		final List<Instruction> instructions = new ArrayList<Instruction>();
+		Instruction next = new Instruction(0);
+		instructions.add(next);
+		for (int i = 0; i < 0x10000; i++) {
+			final Instruction insn = new Instruction(i);
+			insn.setPredecessor(next);
+			insn.addExecutions(1);
+			instructions.add(insn);
+			next = insn;
+		}
+
+		Instruction.propagateExecutions(instructions);
+
+		assertEquals(0x10000, instructions.get(0).getExecutions());
+		assertEquals(1, next.getExecutions());
+	}
+
 }
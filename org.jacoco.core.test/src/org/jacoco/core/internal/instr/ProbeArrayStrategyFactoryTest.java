@@ -16,9 +16,12 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
 import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
 import org.jacoco.core.runtime.OfflineInstrumentationAccessGenerator;
 import org.junit.Before;
@@ -27,8 +30,10 @@ import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.util.TraceClassVisitor;
 
 /**
  * Unit tests for {@link ProbeArrayStrategyFactory} and the
@@ -211,10 +216,118 @@ public class ProbeArrayStrategyFactoryTest {
 				true, 0);
 	}
 
+	@Test
+	public void testCreateInstrumenterClass8() {
+		assertInstrumenter(createClass(Opcodes.V1_8, 0, true, true, false));
+	}
+
+	@Test
+	public void testCreateInstrumenterInterface7() {
+		assertInstrumenter(createClass(Opcodes.V1_7, Opcodes.ACC_INTERFACE,
+				true, false, true));
+	}
+
+	@Test
+	public void testCreateInstrumenterEmptyInterface8() {
+		assertInstrumenter(createClass(Opcodes.V1_8, Opcodes.ACC_INTERFACE,
+				false, false, true));
+	}
+
+	@Test
+	public void testCreateInstrumenterClinitInterface8() {
+		assertInstrumenter(createClass(Opcodes.V1_8, Opcodes.ACC_INTERFACE,
+				true, false, true));
+	}
+
+	@Test
+	public void testCreateInstrumenterInterface8() {
+		assertInstrumenter(createClass(Opcodes.V1_8, Opcodes.ACC_INTERFACE,
+				false, true, true));
+	}
+
+	@Test
+	public void testCreateInstrumenterClinitAndMethodsInterface8() {
+		assertInstrumenter(createClass(Opcodes.V1_8, Opcodes.ACC_INTERFACE,
+				true, true, true));
+	}
+
+	@Test
+	public void testCreateInstrumenterDefaultMethodInterface8() {
+		final ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_8, Opcodes.ACC_INTERFACE, "Foo", null,
+				"java/lang/Object", null);
+		final MethodVisitor mv = writer.visitMethod(Opcodes.ACC_PUBLIC, "foo",
+				"(Z)I", null, null);
+		mv.visitCode();
+		final Label start = new Label();
+		mv.visitLabel(start);
+		mv.visitLineNumber(1, start);
+		mv.visitVarInsn(Opcodes.ILOAD, 1);
+		final Label alt = new Label();
+		mv.visitJumpInsn(Opcodes.IFEQ, alt);
+		mv.visitInsn(Opcodes.ICONST_1);
+		mv.visitInsn(Opcodes.IRETURN);
+		mv.visitLabel(alt);
+		mv.visitLineNumber(2, alt);
+		mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+		mv.visitInsn(Opcodes.ICONST_0);
+		mv.visitInsn(Opcodes.IRETURN);
+		final Label end = new Label();
+		mv.visitLabel(end);
+		mv.visitLocalVariable("this", "LFoo;", null, start, end, 0);
+		mv.visitLocalVariable("b", "Z", null, start, end, 1);
+		mv.visitMaxs(1, 2);
+		mv.visitEnd();
+		writer.visitEnd();
+		assertInstrumenter(writer.toByteArray());
+	}
+
+	/**
+	 * Asserts that the instrumenter created in a single pass emits the same
+	 * class as the strategy which counts the probes in a separate pass.
+	 */
+	private void assertInstrumenter(final byte[] bytes) {
+		final ClassReader reader = new ClassReader(bytes);
+		for (final boolean hitCounts : new boolean[] { false, true }) {
+			final ClassWriter expected = new ClassWriter(0);
+			ClassProbesAdapter.accept(reader, new ClassInstrumenter(
+					ProbeArrayStrategyFactory.createFor(reader, generator,
+							hitCounts), hitCounts, expected), true,
+					ClassReader.EXPAND_FRAMES);
+
+			final ClassWriter actual = new ClassWriter(0);
+			ClassProbesAdapter.accept(reader, ProbeArrayStrategyFactory
+					.createInstrumenter(reader, generator, hitCounts, actual),
+					true, ClassReader.EXPAND_FRAMES);
+
+			// The constant pool order may differ as buffered fields are
+			// emitted before the methods:
+			assertEquals(toString(expected.toByteArray()),
+					toString(actual.toByteArray()));
+		}
+	}
+
+	private static String toString(final byte[] bytes) {
+		final StringWriter buffer = new StringWriter();
+		new ClassReader(bytes).accept(new TraceClassVisitor(new PrintWriter(
+				buffer)), 0);
+		return buffer.toString();
+	}
+
 	private IProbeArrayStrategy test(int version, int access, boolean clinit,
 			boolean method, boolean abstractMethod) {
+		final IProbeArrayStrategy strategy = ProbeArrayStrategyFactory
+				.createFor(new ClassReader(createClass(version, access, clinit,
+						method, abstractMethod)), generator);
+
+		strategy.addMembers(cv, 123);
+		return strategy;
+	}
+
+	private static byte[] createClass(int version, int access, boolean clinit,
+			boolean method, boolean abstractMethod) {
 		final ClassWriter writer = new ClassWriter(0);
-		writer.visit(version, access, "Foo", "java/lang/Object", null, null);
+		writer.visit(version, access, "Foo", null, "java/lang/Object", null);
 		if (clinit) {
 			final MethodVisitor mv = writer.visitMethod(
 					Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "<clinit>", "()V",
@@ -239,12 +352,7 @@ public class ProbeArrayStrategyFactoryTest {
 			mv.visitEnd();
 		}
 		writer.visitEnd();
-
-		final IProbeArrayStrategy strategy = ProbeArrayStrategyFactory
-				.createFor(new ClassReader(writer.toByteArray()), generator);
-
-		strategy.addMembers(cv, 123);
-		return strategy;
+		return writer.toByteArray();
 	}
 
 	private static class AddedMethod {
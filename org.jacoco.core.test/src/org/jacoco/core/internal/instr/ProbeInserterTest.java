@@ -102,6 +102,25 @@ public class ProbeInserterTest {
 		expectedVisitor.visitInsn(Opcodes.BASTORE);
 	}
 
+	@Test
+	public void testHitCountProbe() {
+		ProbeInserter pi = new ProbeInserter(Opcodes.ACC_STATIC, "m", "()V",
+				actualVisitor, arrayStrategy, true);
+		pi.insertProbe(7);
+
+		expectedVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+		expectedVisitor.visitIntInsn(Opcodes.BIPUSH, 7);
+		expectedVisitor.visitInsn(Opcodes.DUP2);
+		expectedVisitor.visitInsn(Opcodes.IALOAD);
+		expectedVisitor.visitInsn(Opcodes.ICONST_1);
+		expectedVisitor.visitInsn(Opcodes.IADD);
+		expectedVisitor.visitInsn(Opcodes.DUP);
+		expectedVisitor.visitIntInsn(Opcodes.BIPUSH, 31);
+		expectedVisitor.visitInsn(Opcodes.IUSHR);
+		expectedVisitor.visitInsn(Opcodes.ISUB);
+		expectedVisitor.visitInsn(Opcodes.IASTORE);
+	}
+
 	@Test
 	public void testVisitCode() {
 		ProbeInserter pi = new ProbeInserter(0, "m", "()V", actualVisitor,
@@ -204,6 +223,17 @@ public class ProbeInserterTest {
 		expectedVisitor.visitMaxs(13, 9);
 	}
 
+	@Test
+	public void testVisitMaxsHitCounts() {
+		ProbeInserter pi = new ProbeInserter(0, "m", "(II)V", actualVisitor,
+				arrayStrategy, true);
+		pi.visitCode();
+		pi.visitMaxs(10, 8);
+
+		expectedVisitor.visitLdcInsn("init");
+		expectedVisitor.visitMaxs(15, 9);
+	}
+
 	@Test
 	public void testVisitFrame() {
 		ProbeInserter pi = new ProbeInserter(0, "m", "(J)V", actualVisitor,
@@ -227,6 +257,17 @@ public class ProbeInserterTest {
 				new Object[0]);
 	}
 
+	@Test
+	public void testVisitFrameHitCounts() {
+		ProbeInserter pi = new ProbeInserter(Opcodes.ACC_STATIC, "m", "()V",
+				actualVisitor, arrayStrategy, true);
+
+		pi.visitFrame(Opcodes.F_NEW, 0, new Object[] {}, 0, new Object[0]);
+
+		expectedVisitor.visitFrame(Opcodes.F_NEW, 1, new Object[] { "[I" }, 0,
+				new Object[0]);
+	}
+
 	@Test
 	public void testVisitFrameProbeAt0() {
 		ProbeInserter pi = new ProbeInserter(Opcodes.ACC_STATIC, "m", "()V",
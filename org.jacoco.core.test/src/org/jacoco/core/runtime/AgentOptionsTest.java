@@ -52,6 +52,11 @@ public class AgentOptionsTest {
 		assertEquals(AgentOptions.DEFAULT_PORT, options.getPort());
 		assertNull(options.getClassDumpDir());
 		assertFalse(options.getJmx());
+		assertFalse(options.getHitCounts());
+		assertFalse(options.getCompress());
+		assertEquals(0, options.getDumpInterval());
+		assertEquals(0, options.getRotateSize());
+		assertEquals(0, options.getRotateInterval());
 
 		assertEquals("", options.toString());
 	}
@@ -397,6 +402,104 @@ public class AgentOptionsTest {
 		assertTrue(options.getJmx());
 	}
 
+	@Test
+	public void testGetHitCounts() {
+		AgentOptions options = new AgentOptions("hitcounts=true");
+		assertTrue(options.getHitCounts());
+	}
+
+	@Test
+	public void testSetHitCounts() {
+		AgentOptions options = new AgentOptions();
+		options.setHitCounts(true);
+		assertTrue(options.getHitCounts());
+	}
+
+	@Test
+	public void testGetCompress() {
+		AgentOptions options = new AgentOptions("compress=true");
+		assertTrue(options.getCompress());
+	}
+
+	@Test
+	public void testSetCompress() {
+		AgentOptions options = new AgentOptions();
+		options.setCompress(true);
+		assertTrue(options.getCompress());
+	}
+
+	@Test
+	public void testGetDumpInterval() {
+		AgentOptions options = new AgentOptions("dumpinterval=60");
+		assertEquals(60, options.getDumpInterval());
+	}
+
+	@Test
+	public void testSetDumpInterval() {
+		AgentOptions options = new AgentOptions();
+		options.setDumpInterval(30);
+		assertEquals(30, options.getDumpInterval());
+		assertEquals("dumpinterval=30", options.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseDumpIntervalNegative() {
+		new AgentOptions("dumpinterval=-1");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetDumpIntervalNegative() {
+		new AgentOptions().setDumpInterval(-1);
+	}
+
+	@Test
+	public void testGetOutputRotatingFile() {
+		AgentOptions options = new AgentOptions("output=rotatingfile");
+		assertEquals(AgentOptions.OutputMode.rotatingfile, options.getOutput());
+	}
+
+	@Test
+	public void testGetOutputMappedFile() {
+		AgentOptions options = new AgentOptions("output=mappedfile");
+		assertEquals(AgentOptions.OutputMode.mappedfile, options.getOutput());
+	}
+
+	@Test
+	public void testGetRotateSize() {
+		AgentOptions options = new AgentOptions("rotatesize=1048576");
+		assertEquals(1048576, options.getRotateSize());
+	}
+
+	@Test
+	public void testSetRotateSize() {
+		AgentOptions options = new AgentOptions();
+		options.setRotateSize(1024);
+		assertEquals(1024, options.getRotateSize());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseRotateSizeNegative() {
+		new AgentOptions("rotatesize=-1");
+	}
+
+	@Test
+	public void testGetRotateInterval() {
+		AgentOptions options = new AgentOptions("rotateinterval=3600");
+		assertEquals(3600, options.getRotateInterval());
+	}
+
+	@Test
+	public void testSetRotateInterval() {
+		AgentOptions options = new AgentOptions();
+		options.setRotateInterval(60);
+		assertEquals(60, options.getRotateInterval());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetRotateIntervalNegative() {
+		new AgentOptions().setRotateInterval(-1);
+	}
+
 	@Test
 	public void testGetVMArgumentWithNoOptions() {
 		AgentOptions options = new AgentOptions();
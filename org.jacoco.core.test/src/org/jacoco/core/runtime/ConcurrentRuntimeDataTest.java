@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jacoco.core.data.ExecutionData;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ConcurrentRuntimeData}.
+ */
+public class ConcurrentRuntimeDataTest {
+
+	private ConcurrentRuntimeData data;
+	private TestStorage storage;
+
+	@Before
+	public void setup() {
+		data = new ConcurrentRuntimeData();
+		storage = new TestStorage();
+	}
+
+	@Test
+	public void testGetProbes() {
+		Object[] args = new Object[] { Long.valueOf(123), "Foo",
+				Integer.valueOf(3) };
+		data.equals(args);
+
+		data.collect(storage, storage, false);
+		assertSame(storage.getData(123).getProbes(), args[0]);
+		assertEquals("Foo", storage.getData(123).getName());
+	}
+
+	@Test
+	public void testGetExecutionDataSameInstance() {
+		final ExecutionData e1 = data.getExecutionData(Long.valueOf(42), "Foo",
+				2);
+		final ExecutionData e2 = data.getExecutionData(42, "Foo", 2);
+		assertSame(e1, e2);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testGetExecutionDataIncompatible() {
+		data.getExecutionData(42, "Foo", 2);
+		data.getExecutionData(42, "Bar", 2);
+	}
+
+	@Test
+	public void testManyEntries() {
+		final List<ExecutionData> entries = new ArrayList<ExecutionData>();
+		for (int i = 0; i < 10000; i++) {
+			entries.add(data.getExecutionData(i * 31L, "Class" + i, 1));
+		}
+		for (int i = 0; i < 10000; i++) {
+			assertSame(entries.get(i),
+					data.getExecutionData(i * 31L, "Class" + i, 1));
+		}
+		data.collect(storage, storage, false);
+		storage.assertSize(10000);
+	}
+
+	@Test
+	public void testCollectEmpty() {
+		data.collect(storage, storage, false);
+		storage.assertSize(0);
+		assertNotNull(storage.getSessionInfo());
+	}
+
+	@Test
+	public void testCollectWithReset() {
+		data.setSessionId("testsession");
+		boolean[] probes = data.getExecutionData(123, "Foo", 1).getProbes();
+		probes[0] = true;
+
+		data.collect(storage, storage, true);
+
+		assertFalse(probes[0]);
+		assertEquals("testsession", storage.getSessionInfo().getId());
+	}
+
+	@Test
+	public void testCollectWithoutReset() {
+		data.setSessionId("testsession");
+		boolean[] probes = data.getExecutionData(123, "Foo", 1).getProbes();
+		probes[0] = true;
+
+		data.collect(storage, storage, false);
+
+		assertTrue(probes[0]);
+		assertEquals("testsession", storage.getSessionInfo().getId());
+	}
+
+	@Test
+	public void testCollectDeltaAfterCollectWithReset() {
+		final boolean[] probes = data.getExecutionData(42, "Foo", 1)
+				.getProbes();
+		final DeltaCollector collector = new DeltaCollector(data);
+		probes[0] = true;
+		collector.collect(storage, storage);
+		storage.assertSize(1);
+		data.collect(new TestStorage(), new TestStorage(), true);
+		probes[0] = true;
+
+		storage = new TestStorage();
+		collector.collect(storage, storage);
+		storage.assertSize(1);
+	}
+
+	@Test
+	public void testReset() throws InterruptedException {
+		boolean[] probes = data.getExecutionData(123, "Foo", 1).getProbes();
+		probes[0] = true;
+		data.collect(storage, storage, false);
+		final long start = storage.getSessionInfo().getStartTimeStamp();
+		Thread.sleep(5);
+
+		data.reset();
+
+		assertFalse(probes[0]);
+		data.collect(storage, storage, false);
+		assertTrue(storage.getSessionInfo().getStartTimeStamp() > start);
+	}
+
+	@Test
+	public void testConcurrentRegistration() throws Exception {
+		final int threads = 8;
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<ExecutionData[]>> results = new ArrayList<Future<ExecutionData[]>>();
+			for (int t = 0; t < threads; t++) {
+				results.add(executor.submit(new Callable<ExecutionData[]>() {
+					public ExecutionData[] call() {
+						final ExecutionData[] result = new ExecutionData[2000];
+						for (int i = 0; i < result.length; i++) {
+							result[i] = data.getExecutionData(i, "Class" + i,
+									3);
+						}
+						return result;
+					}
+				}));
+			}
+			final ExecutionData[] first = results.get(0).get();
+			for (final Future<ExecutionData[]> f : results) {
+				final ExecutionData[] other = f.get();
+				for (int i = 0; i < first.length; i++) {
+					assertSame(first[i], other[i]);
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+		data.collect(storage, storage, false);
+		storage.assertSize(2000);
+	}
+
+}
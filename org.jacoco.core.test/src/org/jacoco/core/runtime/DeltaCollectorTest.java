@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link DeltaCollector}.
+ */
+public class DeltaCollectorTest {
+
+	private RuntimeData data;
+
+	private DeltaCollector collector;
+
+	private TestStorage storage;
+
+	@Before
+	public void setup() {
+		data = new RuntimeData();
+		collector = new DeltaCollector(data);
+		storage = new TestStorage();
+	}
+
+	@Test
+	public void testCollect() {
+		final boolean[] probes = data.getExecutionData(Long.valueOf(123),
+				"Foo", 3).getProbes();
+		data.getExecutionData(Long.valueOf(456), "Bar", 1);
+
+		collector.collect(storage, storage);
+		storage.assertSize(0);
+		assertNotNull(storage.getSessionInfo());
+
+		probes[0] = true;
+		collector.collect(storage, storage);
+		storage.assertSize(1);
+		assertTrue(Arrays.equals(new boolean[] { true, false, false },
+				storage.getData(123).getProbes()));
+
+		probes[2] = true;
+		storage = new TestStorage();
+		collector.collect(storage, storage);
+		storage.assertSize(1);
+		assertTrue(Arrays.equals(new boolean[] { false, false, true },
+				storage.getData(123).getProbes()));
+
+		storage = new TestStorage();
+		collector.collect(storage, storage);
+		storage.assertSize(0);
+		assertTrue(probes[0]);
+	}
+
+	@Test
+	public void testCollectHitCounts() {
+		final int[] counts = data.getExecutionData(Long.valueOf(123), "Foo",
+				2, true).getHitCounts();
+		counts[0] = 5;
+		collector.collect(storage, storage);
+		assertArrayEquals(new int[] { 5, 0 }, storage.getData(123)
+				.getHitCounts());
+
+		counts[0] = 7;
+		counts[1] = 1;
+		collector.collect(storage, storage);
+		assertArrayEquals(new int[] { 2, 1 }, storage.getData(123)
+				.getHitCounts());
+	}
+
+	@Test
+	public void testCollectAfterReset() {
+		final boolean[] probes = data.getExecutionData(Long.valueOf(123),
+				"Foo", 1).getProbes();
+		probes[0] = true;
+		collector.collect(storage, storage);
+		data.reset();
+		probes[0] = true;
+
+		storage = new TestStorage();
+		collector.collect(storage, storage);
+		storage.assertSize(1);
+	}
+
+	@Test
+	public void testCollectWithReset() {
+		final boolean[] probes = data.getExecutionData(Long.valueOf(123),
+				"Foo", 2).getProbes();
+		probes[0] = true;
+		collector.collect(storage, storage);
+		probes[1] = true;
+
+		storage = new TestStorage();
+		collector.collect(storage, storage, true);
+		assertTrue(Arrays.equals(new boolean[] { false, true },
+				storage.getData(123).getProbes()));
+		assertFalse(probes[0]);
+		assertFalse(probes[1]);
+
+		probes[0] = true;
+		storage = new TestStorage();
+		collector.collect(storage, storage);
+		assertTrue(Arrays.equals(new boolean[] { true, false },
+				storage.getData(123).getProbes()));
+	}
+
+	@Test
+	public void testIndependentCollectors() {
+		final boolean[] probes = data.getExecutionData(Long.valueOf(123),
+				"Foo", 2).getProbes();
+		final DeltaCollector other = new DeltaCollector(data);
+		probes[0] = true;
+		collector.collect(storage, storage);
+		assertTrue(Arrays.equals(new boolean[] { true, false },
+				storage.getData(123).getProbes()));
+
+		probes[1] = true;
+		storage = new TestStorage();
+		other.collect(storage, storage);
+		assertTrue(Arrays.equals(new boolean[] { true, true },
+				storage.getData(123).getProbes()));
+
+		storage = new TestStorage();
+		collector.collect(storage, storage);
+		assertTrue(Arrays.equals(new boolean[] { false, true },
+				storage.getData(123).getProbes()));
+	}
+
+}
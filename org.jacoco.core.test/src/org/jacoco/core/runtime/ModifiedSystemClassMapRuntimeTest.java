@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.junit.Test;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Unit tests for {@link ModifiedSystemClassMapRuntime}.
+ */
+public class ModifiedSystemClassMapRuntimeTest extends RuntimeTestBase {
+
+	@Override
+	IRuntime createRuntime() {
+		return new ModifiedSystemClassMapRuntime(
+				ModifiedSystemClassMapRuntimeTest.class, "accessField");
+	}
+
+	/** This static member emulate the instrumented system class. */
+	public static Object accessField;
+
+	@Test
+	public void testAccessObject() {
+		assertTrue(accessField instanceof ProbeArrayMap);
+	}
+
+	@Test
+	public void testNoAllocationInDataAccessor() {
+		createRuntime().generateDataAccessor(1001, "Target", 5,
+				new MethodVisitor(InstrSupport.ASM_API_VERSION) {
+					@Override
+					public void visitTypeInsn(int opcode, String type) {
+						if (opcode != Opcodes.CHECKCAST) {
+							fail("No allocation allowed.");
+						}
+					}
+
+					@Override
+					public void visitMethodInsn(int opcode, String owner,
+							String name, String desc, boolean itf) {
+						if (!"java/util/Map".equals(owner)) {
+							fail("Unexpected method call " + owner + "."
+									+ name);
+						}
+					}
+				});
+	}
+
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ProbeArrayMap}.
+ */
+public class ProbeArrayMapTest {
+
+	private RuntimeData data;
+
+	private ProbeArrayMap map;
+
+	@Before
+	public void setup() {
+		data = new RuntimeData();
+		map = new ProbeArrayMap(data);
+	}
+
+	@Test
+	public void testCreateKey() {
+		assertEquals("-42:3:foo/Bar", ProbeArrayMap.createKey(-42, "foo/Bar", 3));
+	}
+
+	@Test
+	public void testGet() {
+		final boolean[] probes = (boolean[]) map.get(ProbeArrayMap.createKey(
+				Long.MIN_VALUE, "foo/Bar", 3));
+		assertEquals(3, probes.length);
+		assertSame(data.getExecutionData(Long.valueOf(Long.MIN_VALUE),
+				"foo/Bar", 3).getProbes(), probes);
+	}
+
+	@Test
+	public void testGetCached() {
+		final String key = ProbeArrayMap.createKey(123, "Foo", 2);
+		assertSame(map.get(key), map.get(new String(key)));
+	}
+
+	@Test
+	public void testGetAfterReset() {
+		final String key = ProbeArrayMap.createKey(123, "Foo", 2);
+		final boolean[] probes = (boolean[]) map.get(key);
+		probes[0] = true;
+		data.reset();
+		assertSame(probes, map.get(key));
+		assertFalse(probes[0]);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testGetIncompatible() {
+		map.get(ProbeArrayMap.createKey(123, "Foo", 2));
+		map.get(ProbeArrayMap.createKey(123, "Foo", 3));
+	}
+
+	@Test
+	public void testEmpty() {
+		assertTrue(map.isEmpty());
+	}
+
+}
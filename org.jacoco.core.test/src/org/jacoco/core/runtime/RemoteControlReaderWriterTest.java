@@ -19,8 +19,10 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.ExecutionDataReader;
 import org.jacoco.core.data.ExecutionDataReaderWriterTest;
+import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.data.ExecutionDataWriter;
 import org.junit.Before;
 import org.junit.Test;
@@ -84,6 +86,37 @@ public class RemoteControlReaderWriterTest extends
 		assertEquals("cmd(" + doDump + "," + doReset + ")", calls.toString());
 	}
 
+	@Test
+	public void testVisitDeltaDump() throws IOException {
+		writer.visitDeltaDumpCommand("client");
+		final RemoteControlReader reader = createReader();
+		final StringBuilder calls = new StringBuilder();
+		reader.setRemoteCommandVisitor(new IRemoteDeltaCommandVisitor() {
+
+			public void visitDumpCommand(boolean dump, boolean reset) {
+				calls.append("cmd(" + dump + "," + reset + ")");
+			}
+
+			public void visitDeltaDumpCommand(String clientId) {
+				calls.append("delta(" + clientId + ")");
+			}
+		});
+		assertFalse(reader.read());
+		assertEquals("delta(client)", calls.toString());
+	}
+
+	@Test(expected = IOException.class)
+	public void testNoRemoteDeltaCommandVisitor() throws IOException {
+		writer.visitDeltaDumpCommand("client");
+		final RemoteControlReader reader = createReader();
+		reader.setRemoteCommandVisitor(new IRemoteCommandVisitor() {
+
+			public void visitDumpCommand(boolean dump, boolean reset) {
+			}
+		});
+		reader.read();
+	}
+
 	@Test
 	public void testSendCmdOk() throws IOException {
 		writer.sendCmdOk();
@@ -91,6 +124,21 @@ public class RemoteControlReaderWriterTest extends
 		assertTrue(reader.read());
 	}
 
+	@Test
+	public void testCompressedDataBeforeCmdOk() throws IOException {
+		buffer.reset();
+		final RemoteControlWriter writer = new RemoteControlWriter(buffer,
+				true);
+		writer.visitClassExecution(new ExecutionData(3, "Sample",
+				new boolean[] { true }));
+		writer.sendCmdOk();
+		final RemoteControlReader reader = createReader();
+		final ExecutionDataStore store = new ExecutionDataStore();
+		reader.setExecutionDataVisitor(store);
+		assertTrue(reader.read());
+		assertTrue(store.get(3).getProbes()[0]);
+	}
+
 	@Override
 	protected RemoteControlReader createReader() throws IOException {
 		return new RemoteControlReader(new ByteArrayInputStream(
@@ -11,9 +11,14 @@
  *******************************************************************************/
 package org.jacoco.core.runtime;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
 import org.junit.Test;
 
 public class WildcardMatcherTest {
@@ -62,6 +67,114 @@ public class WildcardMatcherTest {
 		assertTrue(new WildcardMatcher("*Test:*Foo").matches("UnitTest"));
 	}
 
+	@Test
+	public void testOptional() {
+		assertTrue(new WildcardMatcher("a?b").matches("ab"));
+		assertTrue(new WildcardMatcher("a??b").matches("axb"));
+		assertFalse(new WildcardMatcher("a??b").matches("axyzb"));
+		assertTrue(new WildcardMatcher("a?*?b").matches("axyzb"));
+	}
+
+	@Test
+	public void testPrefixes() {
+		final WildcardMatcher matcher = new WildcardMatcher(
+				"org/*:com/example/*:com/*:net/a*:Foo");
+		assertTrue(matcher.matches("org/Foo"));
+		assertTrue(matcher.matches("com/example/Foo"));
+		assertTrue(matcher.matches("com/Foo"));
+		assertTrue(matcher.matches("net/abc"));
+		assertTrue(matcher.matches("Foo"));
+		assertFalse(matcher.matches("net/b"));
+		assertFalse(matcher.matches("co"));
+		assertFalse(matcher.matches("Foo2"));
+		assertFalse(matcher.matches("org"));
+		assertFalse(matcher.matches(""));
+	}
+
+	@Test
+	public void testSeparatorsOnly() {
+		assertTrue(new WildcardMatcher(":").matches(""));
+		assertFalse(new WildcardMatcher(":").matches("a"));
+	}
+
+	@Test
+	public void testLineTerminators() {
+		assertFalse(new WildcardMatcher("*").matches("a\nb"));
+		assertFalse(new WildcardMatcher("a?b").matches("a\u2028b"));
+		assertTrue(new WildcardMatcher("a*\n*").matches("a\n"));
+	}
+
+	@Test
+	public void testSupplementaryCharacters() {
+		assertTrue(new WildcardMatcher("a?b").matches("a\uD83D\uDE00b"));
+		assertFalse(new WildcardMatcher("*\uDE00").matches("\uD83D\uDE00"));
+	}
+
+	@Test
+	public void testSameAsRegularExpression() {
+		final List<String> expressions = combine(new String[] { "a", "b",
+				"?", "*", ":" }, 5);
+		final List<String> strings = combine(new String[] { "a", "b", "\n",
+				"\uD83D\uDE00" }, 3);
+		for (final String expression : expressions) {
+			final WildcardMatcher matcher = new WildcardMatcher(expression);
+			final Pattern pattern = toPattern(expression);
+			for (final String s : strings) {
+				assertEquals(expression + " / " + s,
+						Boolean.valueOf(pattern.matcher(s).matches()),
+						Boolean.valueOf(matcher.matches(s)));
+			}
+		}
+	}
+
+	/**
+	 * All combinations of the given tokens up to the given length.
+	 */
+	private static List<String> combine(final String[] tokens,
+			final int length) {
+		final List<String> result = new ArrayList<String>();
+		result.add("");
+		int start = 0;
+		for (int i = 0; i < length; i++) {
+			final int end = result.size();
+			for (int j = start; j < end; j++) {
+				for (final String token : tokens) {
+					result.add(result.get(j) + token);
+				}
+			}
+			start = end;
+		}
+		return result;
+	}
+
+	/**
+	 * Reference implementation based on a regular expression.
+	 */
+	private static Pattern toPattern(final String expression) {
+		final StringBuilder regex = new StringBuilder();
+		for (final String part : expression.split("\\:")) {
+			if (regex.length() > 0) {
+				regex.append('|');
+			}
+			regex.append('(');
+			for (final char c : part.toCharArray()) {
+				switch (c) {
+				case '?':
+					regex.append(".?");
+					break;
+				case '*':
+					regex.append(".*");
+					break;
+				default:
+					regex.append(Pattern.quote(String.valueOf(c)));
+					break;
+				}
+			}
+			regex.append(')');
+		}
+		return Pattern.compile(regex.toString());
+	}
+
 	@Test
 	public void testDollar() {
 		assertTrue(new WildcardMatcher("*$*").matches("java/util/Map$Entry"));
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.io.IOException;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.test.TargetLoader;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.SimpleRemapper;
+
+/**
+ * Scenario to measure the heap used by the coverage tree of a bundle of copies
+ * of a target class.
+ */
+public class CoverageHeapScenario implements IPerfScenario {
+
+	private final Class<?> target;
+
+	private final int packages;
+
+	private final int classes;
+
+	public CoverageHeapScenario(final Class<?> target, final int packages,
+			final int classes) {
+		this.target = target;
+		this.packages = packages;
+		this.classes = classes;
+	}
+
+	public void run(final IPerfOutput output) throws Exception {
+		final long before = getUsedHeap();
+		final IBundleCoverage bundle = createBundle(target, packages, classes);
+		final long size = getUsedHeap() - before;
+		output.writeByteResult(String.format(
+				"heap for coverage of %s classes", Integer.valueOf(bundle
+						.getClassCounter().getTotalCount())), size,
+				IPerfOutput.NO_REFERENCE);
+	}
+
+	/**
+	 * Analyzes copies of the target class with different names in different
+	 * packages.
+	 */
+	private static IBundleCoverage createBundle(final Class<?> target,
+			final int packages, final int classes) throws IOException {
+		final byte[] bytes = TargetLoader.getClassDataAsBytes(target);
+		final String name = target.getName().replace('.', '/');
+		final CoverageBuilder builder = new CoverageBuilder();
+		final Analyzer analyzer = new Analyzer(new ExecutionDataStore(),
+				builder);
+		for (int p = 0; p < packages; p++) {
+			for (int c = 0; c < classes; c++) {
+				final String copy = "pkg" + p + "/Target" + c;
+				final String sourceName = "Target" + c + ".java";
+				final ClassWriter writer = new ClassWriter(0);
+				final ClassVisitor remapper = new ClassRemapper(writer,
+						new SimpleRemapper(name, copy)) {
+					@Override
+					public void visitSource(final String source,
+							final String debug) {
+						super.visitSource(sourceName, debug);
+					}
+				};
+				new ClassReader(bytes).accept(remapper, 0);
+				analyzer.analyzeClass(writer.toByteArray(), copy);
+			}
+		}
+		return builder.getBundle("perf");
+	}
+
+	private static long getUsedHeap() {
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
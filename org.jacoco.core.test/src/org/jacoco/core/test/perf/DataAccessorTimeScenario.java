@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.util.concurrent.Callable;
+
+import org.jacoco.core.runtime.IRuntime;
+import org.jacoco.core.runtime.RuntimeData;
+import org.jacoco.core.test.TargetLoader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.GeneratorAdapter;
+import org.objectweb.asm.commons.Method;
+
+/**
+ * Scenario to measure the time taken by the data accessor of a given runtime,
+ * i.e. the code executed on class initialization and on every method
+ * invocation of instrumented interfaces.
+ */
+public class DataAccessorTimeScenario extends TimedScenario {
+
+	/** Access field for modified system class runtimes. */
+	public static Object accessField;
+
+	private static final String CLASS_NAME = "org/jacoco/core/test/perf/DataAccessorTarget";
+
+	private final IRuntime runtime;
+
+	private final int count;
+
+	protected DataAccessorTimeScenario(final String description,
+			final IRuntime runtime, final int count) {
+		super(description);
+		this.runtime = runtime;
+		this.count = count;
+	}
+
+	@Override
+	public void run(final IPerfOutput output) throws Exception {
+		runtime.startup(new RuntimeData());
+		try {
+			super.run(output);
+		} finally {
+			runtime.shutdown();
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected Callable<Void> getInstrumentedCallable() throws Exception {
+		final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+		writer.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, CLASS_NAME, null,
+				"java/lang/Object",
+				new String[] { Type.getInternalName(Callable.class) });
+
+		GeneratorAdapter gen = new GeneratorAdapter(writer.visitMethod(
+				Opcodes.ACC_PUBLIC, "<init>", "()V", null, null),
+				Opcodes.ACC_PUBLIC, "<init>", "()V");
+		gen.visitCode();
+		gen.loadThis();
+		gen.invokeConstructor(Type.getType(Object.class), new Method("<init>",
+				"()V"));
+		gen.returnValue();
+		gen.visitMaxs(1, 1);
+		gen.visitEnd();
+
+		// Repeatedly request the probe array:
+		gen = new GeneratorAdapter(writer.visitMethod(Opcodes.ACC_PUBLIC,
+				"call", "()Ljava/lang/Object;", null, null),
+				Opcodes.ACC_PUBLIC, "call", "()Ljava/lang/Object;");
+		gen.visitCode();
+		final int counter = gen.newLocal(Type.INT_TYPE);
+		gen.push(count);
+		gen.storeLocal(counter);
+		final Label loop = gen.newLabel();
+		final Label end = gen.newLabel();
+		gen.mark(loop);
+		gen.loadLocal(counter);
+		gen.ifZCmp(GeneratorAdapter.EQ, end);
+		final int size = runtime.generateDataAccessor(1000, CLASS_NAME, 3, gen);
+		gen.pop();
+		gen.iinc(counter, -1);
+		gen.goTo(loop);
+		gen.mark(end);
+		gen.visitInsn(Opcodes.ACONST_NULL);
+		gen.returnValue();
+		gen.visitMaxs(size, 2);
+		gen.visitEnd();
+
+		writer.visitEnd();
+
+		final TargetLoader loader = new TargetLoader();
+		return (Callable<Void>) loader.add(CLASS_NAME.replace('/', '.'),
+				writer.toByteArray()).newInstance();
+	}
+
+}
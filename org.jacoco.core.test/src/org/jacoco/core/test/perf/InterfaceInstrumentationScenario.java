@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.util.concurrent.Callable;
+
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.instr.ClassInstrumenter;
+import org.jacoco.core.internal.instr.IProbeArrayStrategy;
+import org.jacoco.core.internal.instr.ProbeArrayStrategyFactory;
+import org.jacoco.core.runtime.LoggerRuntime;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Scenario to measure the instrumentation of Java 8 interfaces with default
+ * methods. The reference counts the probes of the interface in a separate pass
+ * before the interface is instrumented.
+ */
+public class InterfaceInstrumentationScenario extends TimedScenario {
+
+	private final int methods;
+
+	private final int count;
+
+	protected InterfaceInstrumentationScenario(int methods, int count) {
+		super(String.format(
+				"instrumenting %s interfaces with %s default methods",
+				Integer.valueOf(count), Integer.valueOf(methods)));
+		this.methods = methods;
+		this.count = count;
+	}
+
+	@Override
+	protected Callable<Void> getInstrumentedCallable() throws Exception {
+		final byte[] bytes = createInterface();
+		final Instrumenter instr = new Instrumenter(new LoggerRuntime());
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				for (int i = 0; i < count; i++) {
+					instr.instrument(bytes, "TestTarget");
+				}
+				return null;
+			}
+		};
+	}
+
+	@Override
+	protected Callable<Void> getReferenceCallable() throws Exception {
+		final byte[] bytes = createInterface();
+		final LoggerRuntime runtime = new LoggerRuntime();
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				for (int i = 0; i < count; i++) {
+					final ClassReader reader = new ClassReader(bytes);
+					final ClassWriter writer = new ClassWriter(reader, 0);
+					final IProbeArrayStrategy strategy = ProbeArrayStrategyFactory
+							.createFor(reader, runtime);
+					ClassProbesAdapter.accept(reader, new ClassInstrumenter(
+							strategy, writer), true, ClassReader.EXPAND_FRAMES);
+					writer.toByteArray();
+				}
+				return null;
+			}
+		};
+	}
+
+	private byte[] createInterface() {
+		final ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT
+				| Opcodes.ACC_INTERFACE, "TestTarget", null,
+				"java/lang/Object", null);
+		for (int i = 0; i < methods; i++) {
+			writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT,
+					"get" + i, "()I", null, null).visitEnd();
+			final MethodVisitor mv = writer.visitMethod(Opcodes.ACC_PUBLIC,
+					"max" + i, "(I)I", null, null);
+			mv.visitCode();
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, "TestTarget", "get"
+					+ i, "()I", true);
+			mv.visitVarInsn(Opcodes.ILOAD, 1);
+			final Label other = new Label();
+			mv.visitJumpInsn(Opcodes.IF_ICMPLT, other);
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, "TestTarget", "get"
+					+ i, "()I", true);
+			mv.visitInsn(Opcodes.IRETURN);
+			mv.visitLabel(other);
+			mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+			mv.visitVarInsn(Opcodes.ILOAD, 1);
+			mv.visitInsn(Opcodes.IRETURN);
+			mv.visitMaxs(2, 2);
+			mv.visitEnd();
+		}
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+
+}
@@ -13,6 +13,10 @@ package org.jacoco.core.test.perf;
 
 import java.io.PrintWriter;
 
+import org.jacoco.core.runtime.ModifiedSystemClassMapRuntime;
+import org.jacoco.core.runtime.ModifiedSystemClassRuntime;
+import org.jacoco.core.runtime.SystemPropertiesRuntime;
+import org.jacoco.core.runtime.URLStreamHandlerRuntime;
 import org.jacoco.core.test.perf.targets.Target01;
 import org.jacoco.core.test.perf.targets.Target02;
 import org.jacoco.core.test.perf.targets.Target03;
@@ -31,7 +35,23 @@ public class PerformanceSuite implements IPerfScenario {
 				.run(output);
 		new InstrumentationSizeSzenario(Target03.class).run(output);
 		new InstrumentationTimeScenario(Target03.class, 1000).run(output);
+		new SinglePassInstrumentationScenario(Target03.class, 1000)
+				.run(output);
+		new InterfaceInstrumentationScenario(20, 1000).run(output);
 		new AnalysisTimeScenario(Target03.class, 1000).run(output);
+		new CoverageHeapScenario(Target03.class, 50, 200).run(output);
+		new WildcardMatcherScenario(300, 100000).run(output);
+		new DataAccessorTimeScenario("system properties accessor",
+				new SystemPropertiesRuntime(), 100000).run(output);
+		new DataAccessorTimeScenario("url stream handler accessor",
+				new URLStreamHandlerRuntime(), 100000).run(output);
+		new DataAccessorTimeScenario("system class accessor",
+				new ModifiedSystemClassRuntime(DataAccessorTimeScenario.class,
+						"accessField"), 100000).run(output);
+		new DataAccessorTimeScenario("system class map accessor",
+				new ModifiedSystemClassMapRuntime(
+						DataAccessorTimeScenario.class, "accessField"), 100000)
+				.run(output);
 	}
 
 	public static void main(String[] args) throws Exception {
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.instr.ClassInstrumenter;
+import org.jacoco.core.internal.instr.IProbeArrayStrategy;
+import org.jacoco.core.internal.instr.ProbeArrayStrategyFactory;
+import org.jacoco.core.runtime.LoggerRuntime;
+import org.jacoco.core.test.TargetLoader;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+
+/**
+ * Scenario to compare the instrumentation with a separate control flow pass
+ * with the instrumentation which buffers every method as a tree. Besides the
+ * execution time the allocated memory is reported if the JVM supports
+ * measuring it.
+ */
+public class SinglePassInstrumentationScenario extends TimedScenario {
+
+	private final Class<?> target;
+
+	private final int count;
+
+	protected SinglePassInstrumentationScenario(Class<?> target, int count) {
+		super(String.format("instrumenting %s classes without method buffers",
+				Integer.valueOf(count)));
+		this.target = target;
+		this.count = count;
+	}
+
+	@Override
+	public void run(IPerfOutput output) throws Exception {
+		super.run(output);
+		final Method allocatedBytes = getAllocatedBytesMethod();
+		if (allocatedBytes != null) {
+			final long bytes = getAllocatedBytes(allocatedBytes,
+					getInstrumentedCallable());
+			final long refbytes = getAllocatedBytes(allocatedBytes,
+					getReferenceCallable());
+			output.writeByteResult(String.format(
+					"allocated while instrumenting %s classes",
+					Integer.valueOf(count)), bytes, refbytes);
+		}
+	}
+
+	@Override
+	protected Callable<Void> getInstrumentedCallable() throws Exception {
+		return createCallable(true);
+	}
+
+	@Override
+	protected Callable<Void> getReferenceCallable() throws Exception {
+		return createCallable(false);
+	}
+
+	private Callable<Void> createCallable(final boolean singlePass)
+			throws Exception {
+		final byte[] bytes = TargetLoader.getClassDataAsBytes(target);
+		final LoggerRuntime runtime = new LoggerRuntime();
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				for (int i = 0; i < count; i++) {
+					final ClassReader reader = new ClassReader(bytes);
+					final ClassWriter writer = new ClassWriter(reader, 0);
+					final IProbeArrayStrategy strategy = ProbeArrayStrategyFactory
+							.createFor(reader, runtime);
+					final ClassInstrumenter instrumenter = new ClassInstrumenter(
+							strategy, writer);
+					if (singlePass) {
+						ClassProbesAdapter.accept(reader, instrumenter, true,
+								ClassReader.EXPAND_FRAMES);
+					} else {
+						reader.accept(
+								new ClassProbesAdapter(instrumenter, true),
+								ClassReader.EXPAND_FRAMES);
+					}
+					writer.toByteArray();
+				}
+				return null;
+			}
+		};
+	}
+
+	private static Method getAllocatedBytesMethod() {
+		try {
+			return Class.forName("com.sun.management.ThreadMXBean").getMethod(
+					"getThreadAllocatedBytes", long.class);
+		} catch (final Exception e) {
+			// Not supported by this JVM
+			return null;
+		}
+	}
+
+	private static long getAllocatedBytes(final Method allocatedBytes,
+			final Callable<Void> subject) throws Exception {
+		final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		final Long id = Long.valueOf(Thread.currentThread().getId());
+		final long start = ((Long) allocatedBytes.invoke(bean, id))
+				.longValue();
+		subject.call();
+		return ((Long) allocatedBytes.invoke(bean, id)).longValue() - start;
+	}
+
+}
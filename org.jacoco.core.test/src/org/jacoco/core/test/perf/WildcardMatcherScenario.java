@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+
+import org.jacoco.core.runtime.WildcardMatcher;
+
+/**
+ * Scenario to measure the filtering of class names with a long list of
+ * exclude expressions as used for libraries and generated proxies. The
+ * reference matches with a single regular expression.
+ */
+public class WildcardMatcherScenario extends TimedScenario {
+
+	private static final String[] GENERATED = new String[] {
+			"*$$EnhancerByCGLIB$$*", "*$$FastClassByCGLIB$$*",
+			"*$$EnhancerBySpringCGLIB$$*", "*$$FastClassBySpringCGLIB$$*",
+			"*$$_javassist_*", "*_$$_jvst*", "*$HibernateProxy$*",
+			"*$ByteBuddy$*", "*$MockitoMock$*", "com/sun/proxy/$Proxy*",
+			"*$$Lambda$*", "*_Stub", "*_Skel", "*?Test" };
+
+	private final String expression;
+
+	private final List<String> names;
+
+	private final int count;
+
+	protected WildcardMatcherScenario(final int libraries, final int count) {
+		super(String.format("matching %s class names against %s expressions",
+				Integer.valueOf(count), Integer.valueOf(libraries
+						+ GENERATED.length)));
+		final StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < libraries; i++) {
+			buffer.append("org/library").append(i).append("/*:");
+		}
+		for (final String g : GENERATED) {
+			buffer.append(g).append(':');
+		}
+		this.expression = buffer.toString();
+		this.names = new ArrayList<String>();
+		for (int i = 0; i < libraries; i++) {
+			names.add("org/library" + i + "/internal/Util");
+			names.add("org/application/module" + i + "/Service");
+			names.add("org/application/module" + i
+					+ "/Service$$EnhancerByCGLIB$$" + i);
+		}
+		this.count = count;
+	}
+
+	@Override
+	protected Callable<Void> getInstrumentedCallable() throws Exception {
+		final WildcardMatcher matcher = new WildcardMatcher(expression);
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				for (int i = 0; i < count; i++) {
+					matcher.matches(names.get(i % names.size()));
+				}
+				return null;
+			}
+		};
+	}
+
+	@Override
+	protected Callable<Void> getReferenceCallable() throws Exception {
+		final StringBuilder regex = new StringBuilder();
+		for (final String part : expression.split("\\:")) {
+			if (regex.length() > 0) {
+				regex.append('|');
+			}
+			regex.append('(');
+			for (final char c : part.toCharArray()) {
+				switch (c) {
+				case '?':
+					regex.append(".?");
+					break;
+				case '*':
+					regex.append(".*");
+					break;
+				default:
+					regex.append(Pattern.quote(String.valueOf(c)));
+					break;
+				}
+			}
+			regex.append(')');
+		}
+		final Pattern pattern = Pattern.compile(regex.toString());
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				for (int i = 0; i < count; i++) {
+					pattern.matcher(names.get(i % names.size())).matches();
+				}
+				return null;
+			}
+		};
+	}
+
+}
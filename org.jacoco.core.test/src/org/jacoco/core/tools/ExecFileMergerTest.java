@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.data.SessionInfoStore;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link ExecFileMerger}.
+ */
+public class ExecFileMergerTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private File tempDirectory;
+
+	private List<ExecutionData> result;
+
+	private SessionInfoStore sessions;
+
+	@Before
+	public void setup() throws IOException {
+		tempDirectory = folder.newFolder("temp");
+		result = new ArrayList<ExecutionData>();
+		sessions = new SessionInfoStore();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBufferSize() {
+		new ExecFileMerger(tempDirectory, 0);
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		final ExecFileMerger merger = new ExecFileMerger();
+		assertFalse(merger.hasExecutionData());
+		merge(merger);
+		assertTrue(result.isEmpty());
+	}
+
+	@Test
+	public void testMergeInMemory() throws IOException {
+		final ExecFileMerger merger = new ExecFileMerger(tempDirectory, 10);
+		merger.add(createExec("s1", new ExecutionData(3, "C", new boolean[] {
+				true, false }), new ExecutionData(1, "A", new boolean[] { true })));
+		merger.add(createExec("s2", new ExecutionData(3, "C", new boolean[] {
+				false, true }), new ExecutionData(2, "B", new boolean[] { true })));
+		assertTrue(merger.hasExecutionData());
+		assertEquals(0, tempDirectory.list().length);
+
+		merge(merger);
+
+		assertEquals(2, sessions.getInfos().size());
+		assertEquals(3, result.size());
+		assertData(1, "A", new boolean[] { true }, result.get(0));
+		assertData(2, "B", new boolean[] { true }, result.get(1));
+		assertData(3, "C", new boolean[] { true, true }, result.get(2));
+	}
+
+	@Test
+	public void testMergeWithTemporaryFiles() throws IOException {
+		final ExecFileMerger merger = new ExecFileMerger(tempDirectory, 3);
+		for (int i = 0; i < 200; i++) {
+			final boolean[] probes = new boolean[200];
+			probes[i] = true;
+			merger.add(createExec("s" + i, new ExecutionData(i % 50, "C"
+					+ (i % 50), new boolean[] { true }), new ExecutionData(
+					-1000, "Shared", probes)));
+		}
+		assertTrue(tempDirectory.list().length > 64);
+
+		merge(merger);
+
+		assertEquals(0, tempDirectory.list().length);
+		assertEquals(200, sessions.getInfos().size());
+		assertEquals(51, result.size());
+		final boolean[] all = new boolean[200];
+		Arrays.fill(all, true);
+		assertData(-1000, "Shared", all, result.get(0));
+		for (int i = 0; i < 50; i++) {
+			assertData(i, "C" + i, new boolean[] { true }, result.get(i + 1));
+		}
+	}
+
+	@Test
+	public void testMergeHitCounts() throws IOException {
+		final ExecFileMerger merger = new ExecFileMerger(tempDirectory, 1);
+		merger.add(createExec("s1", new ExecutionData(1, "A", new int[] { 1,
+				2, 0 }), new ExecutionData(2, "B", new int[] { 1 })));
+		merger.add(createExec("s2", new ExecutionData(1, "A", new int[] { 3,
+				0, 0 })));
+		merger.add(createExec("s3", new ExecutionData(1, "A", new boolean[] {
+				false, false, true })));
+
+		merge(merger);
+
+		assertEquals(2, result.size());
+		assertArrayEquals(new int[] { 4, 2, 1 }, result.get(0).getHitCounts());
+		assertArrayEquals(new int[] { 1 }, result.get(1).getHitCounts());
+	}
+
+	@Test
+	public void testMergeFlagsBeforeHitCounts() throws IOException {
+		final ExecFileMerger merger = new ExecFileMerger(tempDirectory, 1);
+		merger.add(createExec("s1", new ExecutionData(1, "A", new boolean[] {
+				false, true })));
+		merger.add(createExec("s2", new ExecutionData(1, "A", new int[] { 5,
+				0 })));
+
+		merge(merger);
+
+		assertEquals(1, result.size());
+		assertNull(result.get(0).getHitCounts());
+		assertData(1, "A", new boolean[] { true, true }, result.get(0));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testIncompatibleData() throws IOException {
+		final ExecFileMerger merger = new ExecFileMerger(tempDirectory, 1);
+		merger.add(createExec("s1", new ExecutionData(1, "A",
+				new boolean[] { true })));
+		merger.add(createExec("s2", new ExecutionData(1, "B",
+				new boolean[] { true })));
+		merge(merger);
+	}
+
+	@Test
+	public void testMergeFile() throws IOException {
+		final ExecFileMerger merger = new ExecFileMerger(tempDirectory, 1);
+		merger.add(createExec("s1", new ExecutionData(2, "B",
+				new boolean[] { true })));
+		merger.add(createExec("s2", new ExecutionData(1, "A",
+				new boolean[] { true })));
+		final File file = new File(folder.getRoot(), "sub/merged.exec");
+		merger.merge(file, false);
+
+		final ExecFileLoader loader = new ExecFileLoader();
+		loader.load(file);
+		assertEquals(2, loader.getSessionInfoStore().getInfos().size());
+		assertEquals(2, loader.getExecutionDataStore().getContents().size());
+		assertEquals(0, tempDirectory.list().length);
+	}
+
+	private void merge(final ExecFileMerger merger) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		merger.merge(out);
+		final ExecutionDataReader reader = new ExecutionDataReader(
+				new ByteArrayInputStream(out.toByteArray()));
+		reader.setSessionInfoVisitor(sessions);
+		reader.setExecutionDataVisitor(new IExecutionDataVisitor() {
+			public void visitClassExecution(final ExecutionData data) {
+				result.add(data);
+			}
+		});
+		reader.read();
+	}
+
+	private ByteArrayInputStream createExec(final String sessionId,
+			final ExecutionData... data) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final ExecutionDataWriter writer = new ExecutionDataWriter(out);
+		writer.visitSessionInfo(new SessionInfo(sessionId, 1, 2));
+		for (final ExecutionData d : data) {
+			writer.visitClassExecution(d);
+		}
+		return new ByteArrayInputStream(out.toByteArray());
+	}
+
+	private void assertData(final long id, final String name,
+			final boolean[] probes, final ExecutionData actual) {
+		assertEquals(id, actual.getId());
+		assertEquals(name, actual.getName());
+		assertTrue(Arrays.equals(probes, actual.getProbes()));
+	}
+
+}
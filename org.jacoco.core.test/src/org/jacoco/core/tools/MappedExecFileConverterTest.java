@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.MappedExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link MappedExecFileConverter}.
+ */
+public class MappedExecFileConverterTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private File source;
+
+	@Before
+	public void setup() throws IOException {
+		source = new File(folder.getRoot(), "mapped.exec");
+		final MappedExecutionDataWriter writer = new MappedExecutionDataWriter(
+				source);
+		writer.visitSessionInfo(new SessionInfo("session", 1, 2));
+		writer.visitClassExecution(new ExecutionData(1, "Foo", new boolean[] {
+				true, false }));
+		writer.visitClassExecution(new ExecutionData(2, "Bar", new int[] { 3,
+				0, 7 }));
+		writer.close();
+	}
+
+	@Test
+	public void testConvert() throws IOException {
+		final File dest = new File(folder.getRoot(), "sub/jacoco.exec");
+		new MappedExecFileConverter().convert(source, dest);
+		assertContents(dest);
+	}
+
+	@Test
+	public void testConvertCompressed() throws IOException {
+		final File dest = new File(folder.getRoot(), "jacoco.exec");
+		final MappedExecFileConverter converter = new MappedExecFileConverter();
+		converter.setCompress(true);
+		converter.convert(source, dest);
+
+		final InputStream in = new FileInputStream(dest);
+		in.skip(3);
+		assertEquals(ExecutionDataWriter.COMPRESSED_FORMAT_VERSION,
+				(in.read() << 8) | in.read());
+		in.close();
+		assertContents(dest);
+	}
+
+	private void assertContents(final File file) throws IOException {
+		final ExecFileLoader loader = new ExecFileLoader();
+		loader.load(file);
+		final SessionInfo info = loader.getSessionInfoStore().getInfos()
+				.get(0);
+		assertEquals("session", info.getId());
+		assertEquals(1, info.getStartTimeStamp());
+		assertEquals(2, info.getDumpTimeStamp());
+		final ExecutionData foo = loader.getExecutionDataStore().get(1);
+		assertEquals("Foo", foo.getName());
+		assertTrue(Arrays.equals(new boolean[] { true, false },
+				foo.getProbes()));
+		assertArrayEquals(new int[] { 3, 0, 7 }, loader
+				.getExecutionDataStore().get(2).getHitCounts());
+	}
+
+}
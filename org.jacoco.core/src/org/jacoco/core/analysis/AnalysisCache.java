@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.jacoco.core.internal.FileCache;
+import org.jacoco.core.internal.analysis.ClassStructure;
+import org.jacoco.core.internal.analysis.StringPool;
+import org.jacoco.core.internal.data.CompactDataInput;
+import org.jacoco.core.internal.data.CompactDataOutput;
+
+/**
+ * Persistent cache for the structure of analyzed classes. The cache is keyed by
+ * the class id, i.e. the CRC64 checksum of the class file. For classes found in
+ * the cache the {@link Analyzer} only applies the probe data to the cached
+ * structure and does not need to parse the class file again.
+ *
+ * The cache is stored in a directory with one file per class. Multiple
+ * {@link Analyzer} instances, also from different processes, may share the
+ * same directory. Every entry records the JaCoCo build which created it,
+ * entries of other builds are ignored and replaced like unreadable entries.
+ * Therefore changes of the analyzer never lead to stale results. Failures
+ * while writing the cache are ignored, as the cache is only an optimization.
+ * Unused entries can be removed with {@link #evict(long)}.
+ *
+ * @see Analyzer#setCache(AnalysisCache)
+ */
+public class AnalysisCache {
+
+	/** Magic number of cache files */
+	private static final char MAGIC_NUMBER = 0xC0CA;
+
+	/**
+	 * Version of the cache file format. This version must be incremented
+	 * whenever the file format changes. Changes of the analysis results are
+	 * covered by the build version stored in every entry.
+	 */
+	private static final char FORMAT_VERSION = 0x1001;
+
+	/**
+	 * Time in milliseconds after which unused entries are evicted by the Ant
+	 * tasks and Maven goals of JaCoCo, 30 days.
+	 */
+	public static final long DEFAULT_MAX_AGE = 30L * 24L * 60L * 60L * 1000L;
+
+	private final FileCache store;
+
+	/**
+	 * Creates a new cache stored in the given directory. The directory is
+	 * created on demand.
+	 *
+	 * @param directory
+	 *            directory for the cache files
+	 */
+	public AnalysisCache(final File directory) {
+		this.store = new FileCache(directory, MAGIC_NUMBER, FORMAT_VERSION);
+	}
+
+	/**
+	 * Returns the cached structure for the given class.
+	 *
+	 * @param classid
+	 *            class identifier
+	 * @param stringPool
+	 *            pool to normalize strings
+	 * @return cached structure or <code>null</code> if no valid entry exists
+	 */
+	ClassStructure get(final long classid, final StringPool stringPool) {
+		final byte[] content = store.get(getKey(classid));
+		if (content == null) {
+			return null;
+		}
+		try {
+			return ClassStructure.read(new CompactDataInput(
+					new ByteArrayInputStream(content)), stringPool);
+		} catch (final IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the structure of the given class in the cache.
+	 *
+	 * @param classid
+	 *            class identifier
+	 * @param structure
+	 *            structure of the class
+	 */
+	void put(final long classid, final ClassStructure structure) {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try {
+			final CompactDataOutput data = new CompactDataOutput(buffer);
+			structure.write(data);
+			data.flush();
+		} catch (final IOException e) {
+			// Must not happen with ByteArrayOutputStream
+			throw new AssertionError(e);
+		}
+		store.put(getKey(classid), buffer.toByteArray());
+	}
+
+	/**
+	 * Deletes all entries which have not been used for the given time.
+	 *
+	 * @param maxAge
+	 *            maximum age of unused entries in milliseconds
+	 * @return number of deleted entries
+	 */
+	public int evict(final long maxAge) {
+		return store.evict(maxAge);
+	}
+
+	private static String getKey(final long classid) {
+		return String.format("%016x", Long.valueOf(classid));
+	}
+
+}
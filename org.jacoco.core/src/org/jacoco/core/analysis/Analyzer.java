@@ -15,9 +15,19 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 import org.jacoco.core.data.ExecutionData;
@@ -27,11 +37,11 @@ import org.jacoco.core.internal.Java9Support;
 import org.jacoco.core.internal.Pack200Streams;
 import org.jacoco.core.internal.analysis.ClassAnalyzer;
 import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.ClassStructure;
 import org.jacoco.core.internal.analysis.StringPool;
 import org.jacoco.core.internal.data.CRC64;
 import org.jacoco.core.internal.flow.ClassProbesAdapter;
 import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassVisitor;
 
 /**
  * An {@link Analyzer} instance processes a set of Java class files and
@@ -40,15 +50,32 @@ import org.objectweb.asm.ClassVisitor;
  * {@link Analyzer} requires a {@link ExecutionDataStore} instance that holds
  * the execution data for the classes to analyze. The {@link Analyzer} offers
  * several methods to analyze classes from a variety of sources.
+ * 
+ * Optionally class files can be analyzed in parallel with a given
+ * {@link Executor}, see {@link #setExecutor(Executor)}. In this case the
+ * results are still reported on the calling thread and in the same order as
+ * for sequential analysis.
+ * 
+ * Optionally the structure of analyzed classes can be stored in a persistent
+ * {@link AnalysisCache}, see {@link #setCache(AnalysisCache)}.
  */
 public class Analyzer {
 
+	/** Maximum number of class files analyzed ahead of the reported results */
+	private static final int MAX_PENDING = 256;
+
 	private final ExecutionDataStore executionData;
 
 	private final ICoverageVisitor coverageVisitor;
 
 	private final StringPool stringPool;
 
+	private final LinkedList<AnalysisTask> pending = new LinkedList<AnalysisTask>();
+
+	private Executor executor;
+
+	private AnalysisCache cache;
+
 	/**
 	 * Creates a new analyzer reporting to the given output.
 	 * 
@@ -66,37 +93,62 @@ public class Analyzer {
 	}
 
 	/**
-	 * Creates an ASM class visitor for analysis.
+	 * Sets an executor which is used to analyze class files in parallel.
+	 * Coverage results are still reported on the thread calling the
+	 * <code>analyze</code> methods in the same order as without executor. All
+	 * results are reported before the respective method returns. Default is
+	 * <code>null</code> which means all classes are analyzed on the calling
+	 * thread.
+	 * 
+	 * @param executor
+	 *            executor for class file analysis or <code>null</code>
+	 */
+	public void setExecutor(final Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Sets a persistent cache for the structure of analyzed classes. Classes
+	 * found in the cache are not parsed again, only the execution data is
+	 * applied to the cached structure. Default is <code>null</code> which
+	 * means every class is analyzed.
+	 * 
+	 * @param cache
+	 *            cache for analysis results or <code>null</code>
+	 */
+	public void setCache(final AnalysisCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Creates a probes visitor for analysis.
 	 * 
 	 * @param classid
 	 *            id of the class calculated with {@link CRC64}
-	 * @param className
-	 *            VM name of the class
-	 * @return ASM visitor to write class definition to
+	 * @param coverage
+	 *            coverage node to fill
+	 * @param probes
+	 *            execution data for this class or <code>null</code>
+	 * @param hitCounts
+	 *            hit counts for this class or <code>null</code>
+	 * @param visitor
+	 *            visitor to report the class coverage to
+	 * @return visitor to pass the class definition to
 	 */
-	private ClassVisitor createAnalyzingVisitor(final long classid,
-			final String className) {
-		final ExecutionData data = executionData.get(classid);
-		final boolean[] probes;
-		final boolean noMatch;
-		if (data == null) {
-			probes = null;
-			noMatch = executionData.contains(className);
-		} else {
-			probes = data.getProbes();
-			noMatch = false;
-		}
-		final ClassCoverageImpl coverage = new ClassCoverageImpl(className,
-				classid, noMatch);
-		final ClassAnalyzer analyzer = new ClassAnalyzer(coverage, probes,
-				stringPool) {
+	private ClassAnalyzer createAnalyzingVisitor(final long classid,
+			final ClassCoverageImpl coverage, final boolean[] probes,
+			final int[] hitCounts, final ICoverageVisitor visitor) {
+		final AnalysisCache c = cache;
+		return new ClassAnalyzer(coverage, probes, hitCounts, stringPool) {
 			@Override
 			public void visitEnd() {
 				super.visitEnd();
-				coverageVisitor.visitCoverage(coverage);
+				if (c != null) {
+					c.put(classid, getStructure());
+				}
+				visitor.visitCoverage(coverage);
 			}
 		};
-		return new ClassProbesAdapter(analyzer, false);
 	}
 
 	/**
@@ -106,9 +158,39 @@ public class Analyzer {
 	 *            reader with class definitions
 	 */
 	public void analyzeClass(final ClassReader reader) {
-		final ClassVisitor visitor = createAnalyzingVisitor(
-				CRC64.checksum(reader.b), reader.getClassName());
-		reader.accept(visitor, 0);
+		analyzeClass(reader, coverageVisitor);
+	}
+
+	private void analyzeClass(final ClassReader reader,
+			final ICoverageVisitor visitor) {
+		final long classid = CRC64.checksum(reader.b);
+		final String className = reader.getClassName();
+		final ExecutionData data = executionData.get(classid);
+		final boolean[] probes;
+		final int[] hitCounts;
+		final boolean noMatch;
+		if (data == null) {
+			probes = null;
+			hitCounts = null;
+			noMatch = executionData.contains(className);
+		} else {
+			// Probe flags are derived from hit counts during analysis:
+			hitCounts = data.getHitCounts();
+			probes = hitCounts == null ? data.getProbes() : null;
+			noMatch = false;
+		}
+		if (cache != null) {
+			final ClassStructure structure = cache.get(classid, stringPool);
+			if (structure != null && structure.getName().equals(className)) {
+				visitor.visitCoverage(structure.createCoverage(classid,
+						noMatch, probes, hitCounts));
+				return;
+			}
+		}
+		final ClassCoverageImpl coverage = new ClassCoverageImpl(className,
+				classid, noMatch);
+		ClassProbesAdapter.accept(reader, createAnalyzingVisitor(classid,
+				coverage, probes, hitCounts, visitor), false, 0);
 	}
 
 	/**
@@ -123,6 +205,20 @@ public class Analyzer {
 	 */
 	public void analyzeClass(final byte[] buffer, final String location)
 			throws IOException {
+		try {
+			analyzeClassBuffer(buffer, location);
+			completePending();
+		} finally {
+			pending.clear();
+		}
+	}
+
+	private void analyzeClassBuffer(final byte[] buffer, final String location)
+			throws IOException {
+		if (executor != null) {
+			submit(new AnalysisTask(buffer, location));
+			return;
+		}
 		try {
 			analyzeClass(
 					new ClassReader(Java9Support.downgradeIfRequired(buffer)));
@@ -144,14 +240,24 @@ public class Analyzer {
 	public void analyzeClass(final InputStream input, final String location)
 			throws IOException {
 		try {
-			analyzeClass(Java9Support.readFully(input), location);
+			analyzeClassStream(input, location);
+			completePending();
+		} finally {
+			pending.clear();
+		}
+	}
+
+	private void analyzeClassStream(final InputStream input,
+			final String location) throws IOException {
+		try {
+			analyzeClassBuffer(Java9Support.readFully(input), location);
 		} catch (final RuntimeException e) {
 			throw analyzerError(location, e);
 		}
 	}
 
 	private IOException analyzerError(final String location,
-			final Exception cause) {
+			final Throwable cause) {
 		final IOException ex = new IOException(String.format(
 				"Error while analyzing %s.", location));
 		ex.initCause(cause);
@@ -174,6 +280,17 @@ public class Analyzer {
 	 */
 	public int analyzeAll(final InputStream input, final String location)
 			throws IOException {
+		try {
+			final int count = analyzeContent(input, location);
+			completePending();
+			return count;
+		} finally {
+			pending.clear();
+		}
+	}
+
+	private int analyzeContent(final InputStream input, final String location)
+			throws IOException {
 		final ContentTypeDetector detector;
 		try {
 			detector = new ContentTypeDetector(input);
@@ -182,7 +299,7 @@ public class Analyzer {
 		}
 		switch (detector.getType()) {
 		case ContentTypeDetector.CLASSFILE:
-			analyzeClass(detector.getInputStream(), location);
+			analyzeClassStream(detector.getInputStream(), location);
 			return 1;
 		case ContentTypeDetector.ZIPFILE:
 			return analyzeZip(detector.getInputStream(), location);
@@ -198,7 +315,9 @@ public class Analyzer {
 	/**
 	 * Analyzes all class files contained in the given file or folder. Class
 	 * files as well as ZIP files are considered. Folders are searched
-	 * recursively.
+	 * recursively. ZIP files are accessed through their central directory and
+	 * only the headers of entries which turn out not to be class files or
+	 * nested archives are read.
 	 * 
 	 * @param file
 	 *            file or folder to look for class files
@@ -207,15 +326,27 @@ public class Analyzer {
 	 *             if the file can't be read or a class can't be analyzed
 	 */
 	public int analyzeAll(final File file) throws IOException {
+		try {
+			final int count = analyzeFile(file);
+			completePending();
+			return count;
+		} finally {
+			pending.clear();
+		}
+	}
+
+	private int analyzeFile(final File file) throws IOException {
 		int count = 0;
 		if (file.isDirectory()) {
 			for (final File f : file.listFiles()) {
-				count += analyzeAll(f);
+				count += analyzeFile(f);
 			}
+		} else if (isZipFile(file)) {
+			count += analyzeZipFile(file);
 		} else {
 			final InputStream in = new FileInputStream(file);
 			try {
-				count += analyzeAll(in, file.getPath());
+				count += analyzeContent(in, file.getPath());
 			} finally {
 				in.close();
 			}
@@ -223,6 +354,58 @@ public class Analyzer {
 		return count;
 	}
 
+	private boolean isZipFile(final File file) throws IOException {
+		final InputStream in = new FileInputStream(file);
+		try {
+			return new ContentTypeDetector(in).getType() == ContentTypeDetector.ZIPFILE;
+		} catch (final IOException e) {
+			throw analyzerError(file.getPath(), e);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Analyzes a ZIP archive from the file system. Like for streams the type of
+	 * every entry is detected from its content, independently of its name.
+	 * Other than for streams entries of other types are only inflated as far
+	 * as required to read their header.
+	 */
+	private int analyzeZipFile(final File file) throws IOException {
+		final String location = file.getPath();
+		final ZipFile zip;
+		try {
+			zip = new ZipFile(file);
+		} catch (final IOException e) {
+			throw analyzerError(location, e);
+		}
+		try {
+			int count = 0;
+			final Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				final ZipEntry entry = entries.nextElement();
+				if (entry.isDirectory()) {
+					continue;
+				}
+				final String entryLocation = location + "@" + entry.getName();
+				final InputStream in;
+				try {
+					in = zip.getInputStream(entry);
+				} catch (final IOException e) {
+					throw analyzerError(entryLocation, e);
+				}
+				try {
+					count += analyzeContent(in, entryLocation);
+				} finally {
+					in.close();
+				}
+			}
+			return count;
+		} finally {
+			zip.close();
+		}
+	}
+
 	/**
 	 * Analyzes all classes from the given class path. Directories containing
 	 * class files as well as archive files are considered.
@@ -239,13 +422,18 @@ public class Analyzer {
 	 */
 	public int analyzeAll(final String path, final File basedir)
 			throws IOException {
-		int count = 0;
-		final StringTokenizer st = new StringTokenizer(path,
-				File.pathSeparator);
-		while (st.hasMoreTokens()) {
-			count += analyzeAll(new File(basedir, st.nextToken()));
+		try {
+			int count = 0;
+			final StringTokenizer st = new StringTokenizer(path,
+					File.pathSeparator);
+			while (st.hasMoreTokens()) {
+				count += analyzeFile(new File(basedir, st.nextToken()));
+			}
+			completePending();
+			return count;
+		} finally {
+			pending.clear();
 		}
-		return count;
 	}
 
 	private int analyzeZip(final InputStream input, final String location)
@@ -254,7 +442,7 @@ public class Analyzer {
 		ZipEntry entry;
 		int count = 0;
 		while ((entry = nextEntry(zip, location)) != null) {
-			count += analyzeAll(zip, location + "@" + entry.getName());
+			count += analyzeContent(zip, location + "@" + entry.getName());
 		}
 		return count;
 	}
@@ -276,7 +464,7 @@ public class Analyzer {
 		} catch (IOException e) {
 			throw analyzerError(location, e);
 		}
-		return analyzeAll(gzipInputStream, location);
+		return analyzeContent(gzipInputStream, location);
 	}
 
 	private int analyzePack200(final InputStream input, final String location)
@@ -287,7 +475,73 @@ public class Analyzer {
 		} catch (IOException e) {
 			throw analyzerError(location, e);
 		}
-		return analyzeAll(unpackedInput, location);
+		return analyzeContent(unpackedInput, location);
+	}
+
+	private void submit(final AnalysisTask task) throws IOException {
+		pending.add(task);
+		executor.execute(task);
+		// Report finished results early and limit the number of buffered
+		// class files:
+		while (!pending.isEmpty()
+				&& (pending.size() > MAX_PENDING || pending.peek().isDone())) {
+			report(pending.poll());
+		}
+	}
+
+	private void completePending() throws IOException {
+		while (!pending.isEmpty()) {
+			report(pending.poll());
+		}
+	}
+
+	private void report(final AnalysisTask task) throws IOException {
+		final List<IClassCoverage> result;
+		try {
+			result = task.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(String.format(
+					"Interrupted while analyzing %s.", task.location));
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw analyzerError(task.location, cause);
+		}
+		for (final IClassCoverage coverage : result) {
+			coverageVisitor.visitCoverage(coverage);
+		}
+	}
+
+	/**
+	 * Analysis of a single class file which is executed by the executor.
+	 */
+	private final class AnalysisTask extends
+			FutureTask<List<IClassCoverage>> {
+
+		final String location;
+
+		AnalysisTask(final byte[] buffer, final String location) {
+			super(new Callable<List<IClassCoverage>>() {
+				public List<IClassCoverage> call() throws Exception {
+					final List<IClassCoverage> result = new ArrayList<IClassCoverage>(
+							1);
+					analyzeClass(
+							new ClassReader(Java9Support
+									.downgradeIfRequired(buffer)),
+							new ICoverageVisitor() {
+								public void visitCoverage(
+										final IClassCoverage coverage) {
+									result.add(coverage);
+								}
+							});
+					return result;
+				}
+			});
+			this.location = location;
+		}
 	}
 
 }
@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import static java.lang.String.format;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.jacoco.core.internal.analysis.BundleCoverageImpl;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.CounterImpl;
+import org.jacoco.core.internal.analysis.MethodCoverageImpl;
+import org.jacoco.core.internal.analysis.SourceFileCoverageImpl;
+import org.jacoco.core.internal.analysis.SourceNodeImpl;
+import org.jacoco.core.internal.analysis.StringPool;
+import org.jacoco.core.internal.data.CompactDataInput;
+
+/**
+ * Deserialization of coverage data written by {@link BundleCoverageWriter}.
+ * The counters of the bundle and its packages are available immediately. The
+ * classes and source files of a package are decoded when they are accessed for
+ * the first time. Therefore consumers which only need the summary, like checks
+ * on bundle level, don't pay for the details. The returned nodes can be used
+ * from multiple threads.
+ */
+public class BundleCoverageReader {
+
+	private final CompactDataInput in;
+
+	private final StringPool stringPool = new StringPool();
+
+	/**
+	 * Creates a new reader based on the given input stream. Depending on the
+	 * nature of the underlying stream input should be buffered as most data is
+	 * read in single bytes.
+	 *
+	 * @param input
+	 *            input stream to read coverage data from
+	 */
+	public BundleCoverageReader(final InputStream input) {
+		this.in = new CompactDataInput(input);
+	}
+
+	/**
+	 * Reads a bundle. The content of the packages is kept in memory in encoded
+	 * form, the underlying stream is not required after this method returns.
+	 *
+	 * @return bundle read from the stream
+	 * @throws IOException
+	 *             if the stream does not contain a valid bundle or might be
+	 *             thrown by the underlying stream
+	 */
+	public IBundleCoverage read() throws IOException {
+		if (in.readChar() != BundleCoverageWriter.MAGIC_NUMBER) {
+			throw new IOException("Invalid coverage data file.");
+		}
+		final char version = in.readChar();
+		if (version != BundleCoverageWriter.FORMAT_VERSION) {
+			throw new IOException(format(
+					"Incompatible coverage data version %x.",
+					Integer.valueOf(version)));
+		}
+		final String name = in.readUTF();
+		final int count = in.readVarInt();
+		final Collection<IPackageCoverage> packages = new ArrayList<IPackageCoverage>(
+				count);
+		for (int i = 0; i < count; i++) {
+			final PackageNode p = new PackageNode(in.readUTF());
+			readCounters(in, p);
+			p.content = new byte[in.readVarInt()];
+			in.readFully(p.content);
+			packages.add(p);
+		}
+		return new BundleCoverageImpl(name, packages);
+	}
+
+	private class PackageNode extends CoverageNodeImpl implements
+			IPackageCoverage {
+
+		private byte[] content;
+
+		private Collection<IClassCoverage> classes;
+
+		private Collection<ISourceFileCoverage> sourceFiles;
+
+		PackageNode(final String name) {
+			super(ElementType.PACKAGE, name);
+		}
+
+		public synchronized Collection<IClassCoverage> getClasses() {
+			decode();
+			return classes;
+		}
+
+		public synchronized Collection<ISourceFileCoverage> getSourceFiles() {
+			decode();
+			return sourceFiles;
+		}
+
+		private void decode() {
+			if (content == null) {
+				return;
+			}
+			final CompactDataInput data = new CompactDataInput(
+					new ByteArrayInputStream(content));
+			try {
+				final int classCount = data.readVarInt();
+				classes = new ArrayList<IClassCoverage>(classCount);
+				for (int i = 0; i < classCount; i++) {
+					classes.add(readClass(data));
+				}
+				final int sourceCount = data.readVarInt();
+				sourceFiles = new ArrayList<ISourceFileCoverage>(sourceCount);
+				for (int i = 0; i < sourceCount; i++) {
+					final SourceFileCoverageImpl s = new SourceFileCoverageImpl(
+							stringPool.get(data.readUTF()), getName());
+					readLines(data, s);
+					readCounters(data, s);
+					sourceFiles.add(s);
+				}
+			} catch (final IOException e) {
+				// The content has been checked for completeness when reading
+				// the bundle, so this only happens for corrupt data:
+				throw new IllegalStateException(format(
+						"Invalid coverage data for package %s.", getName()), e);
+			}
+			content = null;
+		}
+
+	}
+
+	private ClassCoverageImpl readClass(final CompactDataInput data)
+			throws IOException {
+		final ClassCoverageImpl c = new ClassCoverageImpl(
+				stringPool.get(data.readUTF()), data.readLong(),
+				data.readBoolean());
+		c.setSignature(stringPool.get(readOptionalUTF(data)));
+		c.setSuperName(stringPool.get(readOptionalUTF(data)));
+		if (data.readBoolean()) {
+			final String[] interfaces = new String[data.readVarInt()];
+			for (int i = 0; i < interfaces.length; i++) {
+				interfaces[i] = data.readUTF();
+			}
+			c.setInterfaces(stringPool.get(interfaces));
+		}
+		c.setSourceFileName(stringPool.get(readOptionalUTF(data)));
+		final int methodCount = data.readVarInt();
+		for (int i = 0; i < methodCount; i++) {
+			final MethodCoverageImpl m = new MethodCoverageImpl(
+					stringPool.get(data.readUTF()), stringPool.get(data
+							.readUTF()), stringPool.get(readOptionalUTF(data)));
+			readLines(data, m);
+			readCounters(data, m);
+			// Also adds the lines of the method to the class:
+			c.addMethod(m);
+		}
+		readCounters(data, c);
+		return c;
+	}
+
+	/**
+	 * Restores the lines of the given node. As this also modifies the counters
+	 * of the node, the counters have to be read afterwards.
+	 */
+	private static void readLines(final CompactDataInput data,
+			final SourceNodeImpl node) throws IOException {
+		final int count = data.readVarInt();
+		if (count == 0) {
+			return;
+		}
+		final int[] numbers = new int[count];
+		int previous = 0;
+		for (int i = 0; i < count; i++) {
+			previous += data.readVarInt();
+			numbers[i] = previous;
+		}
+		final int[][] columns = new int[5][count];
+		for (final int[] column : columns) {
+			for (int i = 0; i < count; i++) {
+				column[i] = data.readVarInt();
+			}
+		}
+		node.ensureCapacity(numbers[0], numbers[count - 1]);
+		for (int i = 0; i < count; i++) {
+			node.increment(
+					CounterImpl.getInstance(columns[0][i], columns[1][i]),
+					CounterImpl.getInstance(columns[2][i], columns[3][i]),
+					numbers[i]);
+			node.updateHitCount(columns[4][i], numbers[i]);
+		}
+	}
+
+	/**
+	 * Overwrites all counters of the given node. The order corresponds to
+	 * {@link ICoverageNode.CounterEntity}.
+	 */
+	private static void readCounters(final CompactDataInput data,
+			final CoverageNodeImpl node) throws IOException {
+		node.instructionCounter = readCounter(data);
+		node.branchCounter = readCounter(data);
+		node.lineCounter = readCounter(data);
+		node.complexityCounter = readCounter(data);
+		node.methodCounter = readCounter(data);
+		node.classCounter = readCounter(data);
+	}
+
+	private static CounterImpl readCounter(final CompactDataInput data)
+			throws IOException {
+		final int missed = data.readVarInt();
+		return CounterImpl.getInstance(missed, data.readVarInt());
+	}
+
+	private static String readOptionalUTF(final CompactDataInput data)
+			throws IOException {
+		return data.readBoolean() ? data.readUTF() : null;
+	}
+
+}
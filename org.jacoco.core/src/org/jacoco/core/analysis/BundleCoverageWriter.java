@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+import org.jacoco.core.internal.analysis.LineImpl;
+import org.jacoco.core.internal.data.CompactDataOutput;
+
+/**
+ * Serialization of analyzed coverage data into binary streams. The stream
+ * contains the complete coverage tree of a {@link IBundleCoverage} including
+ * the line coverage of methods and source files. It can be read with
+ * {@link BundleCoverageReader} to create reports without analyzing the class
+ * files again.
+ *
+ * The content of every package is written as a separate block so that readers
+ * can decode packages on demand. Per source node only lines with coverage
+ * information are stored: The line numbers are written as differences to the
+ * previous line, followed by one column for every line counter value. The
+ * lines of classes are not stored, as they are the sum of the lines of their
+ * methods.
+ */
+public class BundleCoverageWriter {
+
+	/** File format version, will be incremented for each incompatible change. */
+	public static final char FORMAT_VERSION;
+
+	static {
+		// Runtime initialize to ensure javac does not inline the value.
+		FORMAT_VERSION = 0x1001;
+	}
+
+	/** Magic number in header for file format identification. */
+	public static final char MAGIC_NUMBER = 0xC0C5;
+
+	private final CompactDataOutput out;
+
+	/**
+	 * Creates a new writer based on the given output stream.
+	 *
+	 * @param output
+	 *            binary stream to write coverage data to
+	 */
+	public BundleCoverageWriter(final OutputStream output) {
+		this.out = new CompactDataOutput(output);
+	}
+
+	/**
+	 * Writes the given bundle including the file header and flushes the
+	 * underlying stream.
+	 *
+	 * @param bundle
+	 *            bundle to write
+	 * @throws IOException
+	 *             might be thrown by the underlying stream
+	 */
+	public void write(final IBundleCoverage bundle) throws IOException {
+		out.writeChar(MAGIC_NUMBER);
+		out.writeChar(FORMAT_VERSION);
+		out.writeUTF(bundle.getName());
+		out.writeVarInt(bundle.getPackages().size());
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		for (final IPackageCoverage p : bundle.getPackages()) {
+			out.writeUTF(p.getName());
+			writeCounters(out, p);
+			buffer.reset();
+			final CompactDataOutput block = new CompactDataOutput(buffer);
+			writePackageContent(block, p);
+			block.flush();
+			out.writeVarInt(buffer.size());
+			buffer.writeTo(out);
+		}
+		out.flush();
+	}
+
+	private static void writePackageContent(final CompactDataOutput out,
+			final IPackageCoverage p) throws IOException {
+		out.writeVarInt(p.getClasses().size());
+		for (final IClassCoverage c : p.getClasses()) {
+			writeClass(out, c);
+		}
+		out.writeVarInt(p.getSourceFiles().size());
+		for (final ISourceFileCoverage s : p.getSourceFiles()) {
+			out.writeUTF(s.getName());
+			writeLines(out, s);
+			writeCounters(out, s);
+		}
+	}
+
+	private static void writeClass(final CompactDataOutput out,
+			final IClassCoverage c) throws IOException {
+		out.writeUTF(c.getName());
+		out.writeLong(c.getId());
+		out.writeBoolean(c.isNoMatch());
+		writeOptionalUTF(out, c.getSignature());
+		writeOptionalUTF(out, c.getSuperName());
+		final String[] interfaces = c.getInterfaceNames();
+		out.writeBoolean(interfaces != null);
+		if (interfaces != null) {
+			out.writeVarInt(interfaces.length);
+			for (final String i : interfaces) {
+				out.writeUTF(i);
+			}
+		}
+		writeOptionalUTF(out, c.getSourceFileName());
+		out.writeVarInt(c.getMethods().size());
+		for (final IMethodCoverage m : c.getMethods()) {
+			out.writeUTF(m.getName());
+			out.writeUTF(m.getDesc());
+			writeOptionalUTF(out, m.getSignature());
+			writeLines(out, m);
+			writeCounters(out, m);
+		}
+		writeCounters(out, c);
+	}
+
+	private static void writeCounters(final CompactDataOutput out,
+			final ICoverageNode node) throws IOException {
+		for (final CounterEntity entity : CounterEntity.values()) {
+			final ICounter counter = node.getCounter(entity);
+			out.writeVarInt(counter.getMissedCount());
+			out.writeVarInt(counter.getCoveredCount());
+		}
+	}
+
+	private static void writeLines(final CompactDataOutput out,
+			final ISourceNode node) throws IOException {
+		final int first = node.getFirstLine();
+		if (first == ISourceNode.UNKNOWN_LINE) {
+			out.writeVarInt(0);
+			return;
+		}
+		final int capacity = node.getLastLine() - first + 1;
+		final int[] numbers = new int[capacity];
+		final int[][] columns = new int[5][capacity];
+		int count = 0;
+		for (int nr = first; nr < first + capacity; nr++) {
+			final ILine line = node.getLine(nr);
+			final ICounter instructions = line.getInstructionCounter();
+			final ICounter branches = line.getBranchCounter();
+			final int hitCount = LineImpl.hitCountOf(line);
+			if (instructions.getTotalCount() == 0
+					&& branches.getTotalCount() == 0 && hitCount == 0) {
+				continue;
+			}
+			numbers[count] = nr;
+			columns[0][count] = instructions.getMissedCount();
+			columns[1][count] = instructions.getCoveredCount();
+			columns[2][count] = branches.getMissedCount();
+			columns[3][count] = branches.getCoveredCount();
+			columns[4][count] = hitCount;
+			count++;
+		}
+		out.writeVarInt(count);
+		int previous = 0;
+		for (int i = 0; i < count; i++) {
+			out.writeVarInt(numbers[i] - previous);
+			previous = numbers[i];
+		}
+		for (final int[] column : columns) {
+			for (int i = 0; i < count; i++) {
+				out.writeVarInt(column[i]);
+			}
+		}
+	}
+
+	private static void writeOptionalUTF(final CompactDataOutput out,
+			final String s) throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) {
+			out.writeUTF(s);
+		}
+	}
+
+}
@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+/**
+ * A line which additionally provides the number of executions. All lines
+ * created by JaCoCo implement this interface.
+ */
+public interface IHitCountLine extends ILine {
+
+	/**
+	 * Returns the number of executions of this line if the coverage data has
+	 * been recorded with hit counters. The value saturates at
+	 * {@link Integer#MAX_VALUE}.
+	 * 
+	 * @return number of executions of this line or 0 if no hit counts are
+	 *         available
+	 */
+	public int getHitCount();
+
+}
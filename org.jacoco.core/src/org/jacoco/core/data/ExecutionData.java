@@ -19,6 +19,11 @@ import java.util.Arrays;
  * Execution data for a single Java class. While instances are immutable care
  * has to be taken about the probe data array of type <code>boolean[]</code>
  * which can be modified.
+ * 
+ * Optionally execution data can record hit counts instead of plain probe
+ * flags. In this case the data is backed by an array of type
+ * <code>int[]</code> with saturating counters, and the probe flags are derived
+ * from it.
  */
 public final class ExecutionData {
 
@@ -28,6 +33,8 @@ public final class ExecutionData {
 
 	private final boolean[] probes;
 
+	private final int[] hitCounts;
+
 	/**
 	 * Creates a new {@link ExecutionData} object with the given probe data.
 	 * 
@@ -43,6 +50,25 @@ public final class ExecutionData {
 		this.id = id;
 		this.name = name;
 		this.probes = probes;
+		this.hitCounts = null;
+	}
+
+	/**
+	 * Creates a new {@link ExecutionData} object with the given hit counts.
+	 * 
+	 * @param id
+	 *            class identifier
+	 * @param name
+	 *            VM name
+	 * @param hitCounts
+	 *            hit count per probe
+	 */
+	public ExecutionData(final long id, final String name,
+			final int[] hitCounts) {
+		this.id = id;
+		this.name = name;
+		this.probes = null;
+		this.hitCounts = hitCounts;
 	}
 
 	/**
@@ -60,6 +86,7 @@ public final class ExecutionData {
 		this.id = id;
 		this.name = name;
 		this.probes = new boolean[probeCount];
+		this.hitCounts = null;
 	}
 
 	/**
@@ -83,19 +110,40 @@ public final class ExecutionData {
 
 	/**
 	 * Returns the execution data probes. A value of <code>true</code> indicates
-	 * that the corresponding probe was executed.
+	 * that the corresponding probe was executed. If this object records hit
+	 * counts a new array is derived from the current counts with every call.
 	 * 
 	 * @return probe data
 	 */
 	public boolean[] getProbes() {
-		return probes;
+		if (hitCounts == null) {
+			return probes;
+		}
+		final boolean[] result = new boolean[hitCounts.length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = hitCounts[i] != 0;
+		}
+		return result;
 	}
 
 	/**
-	 * Sets all probes to <code>false</code>.
+	 * Returns the hit count for every probe if this object records hit counts.
+	 * 
+	 * @return hit counts or <code>null</code> if only probe flags are recorded
+	 */
+	public int[] getHitCounts() {
+		return hitCounts;
+	}
+
+	/**
+	 * Sets all probes to <code>false</code> and all hit counts to zero.
 	 */
 	public void reset() {
-		Arrays.fill(probes, false);
+		if (hitCounts == null) {
+			Arrays.fill(probes, false);
+		} else {
+			Arrays.fill(hitCounts, 0);
+		}
 	}
 
 	/**
@@ -104,6 +152,14 @@ public final class ExecutionData {
 	 * @return <code>true</code>, if at least one probe has been hit
 	 */
 	public boolean hasHits() {
+		if (hitCounts != null) {
+			for (final int c : hitCounts) {
+				if (c != 0) {
+					return true;
+				}
+			}
+			return false;
+		}
 		for (final boolean p : probes) {
 			if (p) {
 				return true;
@@ -112,6 +168,10 @@ public final class ExecutionData {
 		return false;
 	}
 
+	private int getProbeCount() {
+		return hitCounts == null ? probes.length : hitCounts.length;
+	}
+
 	/**
 	 * Merges the given execution data into the probe data of this object. I.e.
 	 * a probe entry in this object is marked as executed (<code>true</code>) if
@@ -149,6 +209,11 @@ public final class ExecutionData {
 	 * 
 	 * The probe array of the other object is not modified.
 	 * 
+	 * If this object records hit counts, merging adds the counts of the other
+	 * object (saturating at {@link Integer#MAX_VALUE}) or, if the other object
+	 * only has probe flags, counts executed probes at least once. Subtraction
+	 * resets the counts of all probes executed in the other object.
+	 * 
 	 * @param other
 	 *            execution data to merge
 	 * @param flag
@@ -156,15 +221,45 @@ public final class ExecutionData {
 	 */
 	public void merge(final ExecutionData other, final boolean flag) {
 		assertCompatibility(other.getId(), other.getName(),
-				other.getProbes().length);
-		final boolean[] otherData = other.getProbes();
+				other.getProbeCount());
+		if (hitCounts != null) {
+			mergeHitCounts(other, flag);
+			return;
+		}
 		for (int i = 0; i < probes.length; i++) {
-			if (otherData[i]) {
+			if (other.isHit(i)) {
 				probes[i] = flag;
 			}
 		}
 	}
 
+	private boolean isHit(final int probe) {
+		return hitCounts == null ? probes[probe] : hitCounts[probe] != 0;
+	}
+
+	private void mergeHitCounts(final ExecutionData other, final boolean flag) {
+		final int[] otherCounts = other.hitCounts;
+		if (otherCounts == null) {
+			final boolean[] otherData = other.probes;
+			for (int i = 0; i < hitCounts.length; i++) {
+				if (otherData[i]) {
+					hitCounts[i] = flag ? Math.max(hitCounts[i], 1) : 0;
+				}
+			}
+			return;
+		}
+		for (int i = 0; i < hitCounts.length; i++) {
+			if (otherCounts[i] != 0) {
+				if (flag) {
+					final int sum = hitCounts[i] + otherCounts[i];
+					hitCounts[i] = sum < 0 ? Integer.MAX_VALUE : sum;
+				} else {
+					hitCounts[i] = 0;
+				}
+			}
+		}
+	}
+
 	/**
 	 * Asserts that this execution data object is compatible with the given
 	 * parameters. The purpose of this check is to detect a very unlikely class
@@ -191,13 +286,40 @@ public final class ExecutionData {
 					"Different class names %s and %s for id %016x.", this.name,
 					name, Long.valueOf(id)));
 		}
-		if (this.probes.length != probecount) {
+		if (getProbeCount() != probecount) {
 			throw new IllegalStateException(format(
 					"Incompatible execution data for class %s with id %016x.",
 					name, Long.valueOf(id)));
 		}
 	}
 
+	/**
+	 * Asserts that this execution data object is compatible with the given
+	 * parameters and records the given kind of probe data.
+	 * 
+	 * @param id
+	 *            other class id, must be the same
+	 * @param name
+	 *            other name, must be equal to this name
+	 * @param probecount
+	 *            probe data length, must be the same as for this data
+	 * @param hitCounts
+	 *            <code>true</code> if this data must record hit counts,
+	 *            <code>false</code> if it must record probe flags only
+	 * @throws IllegalStateException
+	 *             if the given parameters do not match this instance
+	 */
+	public void assertCompatibility(final long id, final String name,
+			final int probecount, final boolean hitCounts)
+			throws IllegalStateException {
+		assertCompatibility(id, name, probecount);
+		if (hitCounts != (this.hitCounts != null)) {
+			throw new IllegalStateException(format(
+					"Incompatible probe type for class %s with id %016x.",
+					name, Long.valueOf(id)));
+		}
+	}
+
 	@Override
 	public String toString() {
 		return String.format("ExecutionData[name=%s, id=%016x]", name,
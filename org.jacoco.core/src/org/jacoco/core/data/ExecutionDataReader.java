@@ -13,8 +13,12 @@ package org.jacoco.core.data;
 
 import static java.lang.String.format;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.zip.InflaterInputStream;
 
 import org.jacoco.core.internal.data.CompactDataInput;
 
@@ -26,6 +30,9 @@ public class ExecutionDataReader {
 	/** Underlying data input */
 	protected final CompactDataInput in;
 
+	/** Source of {@link #in}, switched while compressed blocks are read */
+	private final BlockInput blockInput;
+
 	private ISessionInfoVisitor sessionInfoVisitor = null;
 
 	private IExecutionDataVisitor executionDataVisitor = null;
@@ -41,7 +48,8 @@ public class ExecutionDataReader {
 	 *            input stream to read execution data from
 	 */
 	public ExecutionDataReader(final InputStream input) {
-		this.in = new CompactDataInput(input);
+		this.blockInput = new BlockInput(input);
+		this.in = new CompactDataInput(blockInput);
 	}
 
 	/**
@@ -114,6 +122,15 @@ public class ExecutionDataReader {
 		case ExecutionDataWriter.BLOCK_EXECUTIONDATA:
 			readExecutionData();
 			return true;
+		case ExecutionDataWriter.BLOCK_HITCOUNTDATA:
+			readHitCountData();
+			return true;
+		case ExecutionDataWriter.BLOCK_INDEX:
+			skipIndex();
+			return true;
+		case ExecutionDataWriter.BLOCK_COMPRESSED:
+			readCompressedBlock();
+			return true;
 		default:
 			throw new IOException(format("Unknown block type %x.",
 					Byte.valueOf(blocktype)));
@@ -125,11 +142,47 @@ public class ExecutionDataReader {
 			throw new IOException("Invalid execution data file.");
 		}
 		final char version = in.readChar();
-		if (version != ExecutionDataWriter.FORMAT_VERSION) {
+		if (version != ExecutionDataWriter.FORMAT_VERSION
+				&& version != ExecutionDataWriter.INDEXED_FORMAT_VERSION
+				&& version != ExecutionDataWriter.COMPRESSED_FORMAT_VERSION) {
 			throw new IncompatibleExecDataVersionException(version);
 		}
 	}
 
+	private void skipIndex() throws IOException {
+		// The index is only used for random access:
+		final int count = in.readVarInt();
+		for (int i = 0; i < count; i++) {
+			in.readLong();
+			in.readLong();
+		}
+		in.readLong();
+		in.readLong();
+	}
+
+	private void readCompressedBlock() throws IOException {
+		final byte[] compressed = new byte[in.readVarInt()];
+		in.readFully(compressed);
+		final InputStream inflated = new InflaterInputStream(
+				new ByteArrayInputStream(compressed));
+		// The inflated blocks are dispatched through readBlock() so that
+		// subclasses see them like uncompressed blocks:
+		final InputStream previous = blockInput.switchTo(new BufferedInputStream(
+				inflated));
+		try {
+			int i;
+			while ((i = in.read()) != -1) {
+				if (!readBlock((byte) i)) {
+					throw new IOException(
+							"Invalid block in compressed execution data.");
+				}
+			}
+		} finally {
+			blockInput.switchTo(previous);
+			inflated.close();
+		}
+	}
+
 	private void readSessionInfo() throws IOException {
 		if (sessionInfoVisitor == null) {
 			throw new IOException("No session info visitor.");
@@ -151,4 +204,33 @@ public class ExecutionDataReader {
 				probes));
 	}
 
+	private void readHitCountData() throws IOException {
+		if (executionDataVisitor == null) {
+			throw new IOException("No execution data visitor.");
+		}
+		final long id = in.readLong();
+		final String name = in.readUTF();
+		final int[] hitCounts = in.readVarIntArray();
+		executionDataVisitor.visitClassExecution(new ExecutionData(id, name,
+				hitCounts));
+	}
+
+	/**
+	 * Input which allows to temporarily read from a different stream. As
+	 * {@link CompactDataInput} does not buffer data the switch is transparent.
+	 */
+	private static class BlockInput extends FilterInputStream {
+
+		BlockInput(final InputStream in) {
+			super(in);
+		}
+
+		InputStream switchTo(final InputStream source) {
+			final InputStream previous = in;
+			in = source;
+			return previous;
+		}
+
+	}
+
 }
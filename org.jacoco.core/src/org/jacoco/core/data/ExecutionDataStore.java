@@ -128,13 +128,42 @@ public final class ExecutionDataStore implements IExecutionDataVisitor {
 	 */
 	public ExecutionData get(final Long id, final String name,
 			final int probecount) {
+		return get(id, name, probecount, false);
+	}
+
+	/**
+	 * Returns the coverage data for the class with the given identifier. If
+	 * there is no data available under the given id a new entry is created,
+	 * which optionally records hit counts.
+	 * 
+	 * @param id
+	 *            class identifier
+	 * @param name
+	 *            VM name of the class
+	 * @param probecount
+	 *            probe data length
+	 * @param hitCounts
+	 *            <code>true</code> if the entry should record hit counts
+	 * @return execution data
+	 * @throws IllegalStateException
+	 *             if the existing entry is not compatible
+	 */
+	public ExecutionData get(final Long id, final String name,
+			final int probecount, final boolean hitCounts)
+			throws IllegalStateException {
 		ExecutionData entry = entries.get(id);
 		if (entry == null) {
-			entry = new ExecutionData(id.longValue(), name, probecount);
+			if (hitCounts) {
+				entry = new ExecutionData(id.longValue(), name,
+						new int[probecount]);
+			} else {
+				entry = new ExecutionData(id.longValue(), name, probecount);
+			}
 			entries.put(id, entry);
 			names.add(name);
 		} else {
-			entry.assertCompatibility(id.longValue(), name, probecount);
+			entry.assertCompatibility(id.longValue(), name, probecount,
+					hitCounts);
 		}
 		return entry;
 	}
@@ -14,6 +14,8 @@ package org.jacoco.core.data;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 import org.jacoco.core.internal.data.CompactDataOutput;
 
@@ -26,9 +28,30 @@ public class ExecutionDataWriter implements ISessionInfoVisitor,
 	/** File format version, will be incremented for each incompatible change. */
 	public static final char FORMAT_VERSION;
 
+	/**
+	 * File format version of execution data files with a trailing index, see
+	 * {@link IndexedExecutionDataWriter}.
+	 */
+	public static final char INDEXED_FORMAT_VERSION;
+
+	/**
+	 * File format version of execution data streams which contain compressed
+	 * blocks, see {@link #ExecutionDataWriter(OutputStream, boolean)}.
+	 */
+	public static final char COMPRESSED_FORMAT_VERSION;
+
+	/**
+	 * File format version of memory mapped execution data files, see
+	 * {@link MappedExecutionDataWriter}.
+	 */
+	public static final char MAPPED_FORMAT_VERSION;
+
 	static {
 		// Runtime initialize to ensure javac does not inline the value.
 		FORMAT_VERSION = 0x1007;
+		INDEXED_FORMAT_VERSION = 0x9007;
+		COMPRESSED_FORMAT_VERSION = 0x5007;
+		MAPPED_FORMAT_VERSION = 0x3007;
 	}
 
 	/** Magic number in header for file format identification. */
@@ -43,9 +66,27 @@ public class ExecutionDataWriter implements ISessionInfoVisitor,
 	/** Block identifier for execution data of a single class. */
 	public static final byte BLOCK_EXECUTIONDATA = 0x11;
 
+	/** Block identifier for hit counters of a single class. */
+	public static final byte BLOCK_HITCOUNTDATA = 0x12;
+
+	/** Block identifier for the class id index at the end of a file. */
+	public static final byte BLOCK_INDEX = 0x13;
+
+	/** Block identifier for a deflated sequence of data blocks. */
+	public static final byte BLOCK_COMPRESSED = 0x14;
+
+	/** Uncompressed size after which buffered blocks are compressed. */
+	private static final int COMPRESSION_CHUNK_SIZE = 0x10000;
+
 	/** Underlying data output */
 	protected final CompactDataOutput out;
 
+	/** Buffer for blocks to compress or <code>null</code> */
+	private final ByteArrayOutputStream compressionBuffer;
+
+	/** Output for session info and execution data blocks */
+	private final CompactDataOutput dataOut;
+
 	/**
 	 * Creates a new writer based on the given output stream. Depending on the
 	 * nature of the underlying stream output should be buffered as most data is
@@ -57,8 +98,52 @@ public class ExecutionDataWriter implements ISessionInfoVisitor,
 	 *             if the header can't be written
 	 */
 	public ExecutionDataWriter(final OutputStream output) throws IOException {
+		this(output, FORMAT_VERSION);
+	}
+
+	/**
+	 * Creates a new writer based on the given output stream which optionally
+	 * compresses session info and execution data. Compressed data is buffered
+	 * and written in chunks. A chunk ends at the latest when the next session
+	 * info starts, so every dump of runtime data ends up in its own chunks.
+	 * After the last data has been written either {@link #flush()} or
+	 * {@link #close()} has to be called to write the pending chunk. Compressed
+	 * streams can only be read by JaCoCo versions which support them.
+	 * 
+	 * @param output
+	 *            binary stream to write execution data to
+	 * @param compress
+	 *            <code>true</code> if data should be compressed
+	 * @throws IOException
+	 *             if the header can't be written
+	 */
+	public ExecutionDataWriter(final OutputStream output,
+			final boolean compress) throws IOException {
+		this(output, compress ? COMPRESSED_FORMAT_VERSION : FORMAT_VERSION);
+	}
+
+	/**
+	 * Creates a new writer based on the given output stream which writes a
+	 * header with the given format version.
+	 * 
+	 * @param output
+	 *            binary stream to write execution data to
+	 * @param version
+	 *            format version for the header
+	 * @throws IOException
+	 *             if the header can't be written
+	 */
+	protected ExecutionDataWriter(final OutputStream output,
+			final char version) throws IOException {
 		this.out = new CompactDataOutput(output);
-		writeHeader();
+		if (version == COMPRESSED_FORMAT_VERSION) {
+			this.compressionBuffer = new ByteArrayOutputStream();
+			this.dataOut = new CompactDataOutput(compressionBuffer);
+		} else {
+			this.compressionBuffer = null;
+			this.dataOut = out;
+		}
+		writeHeader(version);
 	}
 
 	/**
@@ -67,28 +152,82 @@ public class ExecutionDataWriter implements ISessionInfoVisitor,
 	 * @throws IOException
 	 *             if the header can't be written
 	 */
-	private void writeHeader() throws IOException {
+	private void writeHeader(final char version) throws IOException {
 		out.writeByte(BLOCK_HEADER);
 		out.writeChar(MAGIC_NUMBER);
-		out.writeChar(FORMAT_VERSION);
+		out.writeChar(version);
 	}
 
 	/**
-	 * Flushes the underlying stream.
+	 * Writes all buffered blocks and flushes the underlying stream.
 	 * 
 	 * @throws IOException
 	 *             if the underlying stream can't be flushed
 	 */
 	public void flush() throws IOException {
+		writeCompressedBlock();
 		out.flush();
 	}
 
+	/**
+	 * Writes all buffered blocks and closes the underlying stream.
+	 * 
+	 * @throws IOException
+	 *             if the buffered blocks can't be written or the underlying
+	 *             stream can't be closed
+	 */
+	public void close() throws IOException {
+		try {
+			writeCompressedBlock();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes all blocks buffered for compression to the underlying stream.
+	 * Subclasses have to call this method before they write own blocks to
+	 * {@link #out}.
+	 * 
+	 * @throws IOException
+	 *             if the compressed block can't be written
+	 */
+	protected void writeCompressedBlock() throws IOException {
+		if (compressionBuffer == null || compressionBuffer.size() == 0) {
+			return;
+		}
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		final Deflater deflater = new Deflater();
+		try {
+			final DeflaterOutputStream deflaterStream = new DeflaterOutputStream(
+					compressed, deflater);
+			compressionBuffer.writeTo(deflaterStream);
+			deflaterStream.finish();
+		} finally {
+			deflater.end();
+		}
+		compressionBuffer.reset();
+		out.writeByte(BLOCK_COMPRESSED);
+		out.writeVarInt(compressed.size());
+		compressed.writeTo(out);
+	}
+
+	private void checkCompressionBuffer() throws IOException {
+		if (compressionBuffer != null
+				&& compressionBuffer.size() >= COMPRESSION_CHUNK_SIZE) {
+			writeCompressedBlock();
+		}
+	}
+
 	public void visitSessionInfo(final SessionInfo info) {
 		try {
-			out.writeByte(BLOCK_SESSIONINFO);
-			out.writeUTF(info.getId());
-			out.writeLong(info.getStartTimeStamp());
-			out.writeLong(info.getDumpTimeStamp());
+			// A session info starts a new group of blocks:
+			writeCompressedBlock();
+			dataOut.writeByte(BLOCK_SESSIONINFO);
+			dataOut.writeUTF(info.getId());
+			dataOut.writeLong(info.getStartTimeStamp());
+			dataOut.writeLong(info.getDumpTimeStamp());
+			checkCompressionBuffer();
 		} catch (final IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -97,10 +236,19 @@ public class ExecutionDataWriter implements ISessionInfoVisitor,
 	public void visitClassExecution(final ExecutionData data) {
 		if (data.hasHits()) {
 			try {
-				out.writeByte(BLOCK_EXECUTIONDATA);
-				out.writeLong(data.getId());
-				out.writeUTF(data.getName());
-				out.writeBooleanArray(data.getProbes());
+				final int[] hitCounts = data.getHitCounts();
+				if (hitCounts != null) {
+					dataOut.writeByte(BLOCK_HITCOUNTDATA);
+					dataOut.writeLong(data.getId());
+					dataOut.writeUTF(data.getName());
+					dataOut.writeVarIntArray(hitCounts);
+				} else {
+					dataOut.writeByte(BLOCK_EXECUTIONDATA);
+					dataOut.writeLong(data.getId());
+					dataOut.writeUTF(data.getName());
+					dataOut.writeBooleanArray(data.getProbes());
+				}
+				checkCompressionBuffer();
 			} catch (final IOException e) {
 				throw new RuntimeException(e);
 			}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+import static java.lang.String.format;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+import org.jacoco.core.internal.data.CompactDataInput;
+
+/**
+ * Random access to execution data files written with an
+ * {@link IndexedExecutionDataWriter}. Only the index is read when the file is
+ * opened, the execution data of single classes is read on demand. If further
+ * execution data has been appended to the file after the index, the file has
+ * to be read sequentially with {@link ExecutionDataReader}.
+ *
+ * Instances are not thread safe.
+ */
+public class IndexedExecutionDataFile {
+
+	/** Size of index offset and index length at the end of the file */
+	private static final int TRAILER_SIZE = 16;
+
+	private final RandomAccessFile file;
+
+	private final long start;
+
+	private final long[] ids;
+
+	private final long[] offsets;
+
+	/**
+	 * Opens the given file and reads its index.
+	 *
+	 * @param file
+	 *            execution data file with index
+	 * @throws IOException
+	 *             if the file can't be read or does not end with an index
+	 */
+	public IndexedExecutionDataFile(final File file) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		try {
+			final long length = this.file.length();
+			if (length < TRAILER_SIZE) {
+				throw noIndex();
+			}
+			this.file.seek(length - TRAILER_SIZE);
+			final long indexOffset = this.file.readLong();
+			final long segmentLength = this.file.readLong();
+			start = length - segmentLength;
+			if (start < 0 || indexOffset <= 0
+					|| indexOffset >= segmentLength - TRAILER_SIZE) {
+				throw noIndex();
+			}
+			CompactDataInput in = open(0);
+			if (in.readByte() != ExecutionDataWriter.BLOCK_HEADER
+					|| in.readChar() != ExecutionDataWriter.MAGIC_NUMBER
+					|| in.readChar() != ExecutionDataWriter.INDEXED_FORMAT_VERSION) {
+				throw noIndex();
+			}
+			in = open(indexOffset);
+			if (in.readByte() != ExecutionDataWriter.BLOCK_INDEX) {
+				throw noIndex();
+			}
+			final int count = in.readVarInt();
+			ids = new long[count];
+			offsets = new long[count];
+			for (int i = 0; i < count; i++) {
+				ids[i] = in.readLong();
+				offsets[i] = in.readLong();
+			}
+		} catch (final IOException e) {
+			this.file.close();
+			throw e;
+		}
+	}
+
+	private static IOException noIndex() {
+		return new IOException("No execution data index found.");
+	}
+
+	private CompactDataInput open(final long offset) throws IOException {
+		file.seek(start + offset);
+		return new CompactDataInput(new BufferedInputStream(
+				new InputStream() {
+					@Override
+					public int read() throws IOException {
+						return file.read();
+					}
+
+					@Override
+					public int read(final byte[] b, final int off,
+							final int len) throws IOException {
+						return file.read(b, off, len);
+					}
+				}));
+	}
+
+	/**
+	 * Returns the ids of all classes in this file in ascending order. An id
+	 * is listed multiple times if the file contains multiple blocks for the
+	 * same class.
+	 *
+	 * @return class ids
+	 */
+	public long[] getIds() {
+		return ids.clone();
+	}
+
+	/**
+	 * Reads the execution data of the class with the given id. If the file
+	 * contains multiple blocks for the class they are merged.
+	 *
+	 * @param id
+	 *            class id
+	 * @return execution data or <code>null</code> if the file contains no data
+	 *         for this class
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	public ExecutionData get(final long id) throws IOException {
+		ExecutionData result = null;
+		for (int i = find(id); i < ids.length && ids[i] == id; i++) {
+			final ExecutionData data = read(offsets[i]);
+			if (result == null) {
+				result = data;
+			} else {
+				result.merge(data);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Binary search for the first entry with the given id or the insertion
+	 * point if there is no such entry.
+	 */
+	private int find(final long id) {
+		int low = 0;
+		int high = ids.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (ids[mid] < id) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private ExecutionData read(final long offset) throws IOException {
+		final CompactDataInput in = open(offset);
+		final byte type = in.readByte();
+		final long id = in.readLong();
+		final String name = in.readUTF();
+		switch (type) {
+		case ExecutionDataWriter.BLOCK_EXECUTIONDATA:
+			return new ExecutionData(id, name, in.readBooleanArray());
+		case ExecutionDataWriter.BLOCK_HITCOUNTDATA:
+			return new ExecutionData(id, name, in.readVarIntArray());
+		default:
+			throw new IOException(format("Unknown block type %x.",
+					Byte.valueOf(type)));
+		}
+	}
+
+	/**
+	 * Closes the underlying file.
+	 *
+	 * @throws IOException
+	 *             if the file can't be closed
+	 */
+	public void close() throws IOException {
+		file.close();
+	}
+
+}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Serialization of execution data into binary streams with a trailing index.
+ * The index lists the offsets of all execution data blocks sorted by class id
+ * and allows random access to the data of single classes, see
+ * {@link IndexedExecutionDataFile}. The stream can still be read sequentially
+ * with {@link ExecutionDataReader}.
+ *
+ * The index is written with {@link #writeIndex()}. Afterwards no further data
+ * must be written to this writer.
+ */
+public class IndexedExecutionDataWriter extends ExecutionDataWriter {
+
+	private final CountingOutputStream counter;
+
+	private final List<Entry> entries = new ArrayList<Entry>();
+
+	/**
+	 * Creates a new writer based on the given output stream. Depending on the
+	 * nature of the underlying stream output should be buffered as most data is
+	 * written in single bytes.
+	 *
+	 * @param output
+	 *            binary stream to write execution data to
+	 * @throws IOException
+	 *             if the header can't be written
+	 */
+	public IndexedExecutionDataWriter(final OutputStream output)
+			throws IOException {
+		this(new CountingOutputStream(output));
+	}
+
+	private IndexedExecutionDataWriter(final CountingOutputStream output)
+			throws IOException {
+		super(output, INDEXED_FORMAT_VERSION);
+		this.counter = output;
+	}
+
+	@Override
+	public void visitClassExecution(final ExecutionData data) {
+		final long offset = counter.count;
+		super.visitClassExecution(data);
+		if (counter.count != offset) {
+			entries.add(new Entry(data.getId(), offset));
+		}
+	}
+
+	/**
+	 * Writes the index of all execution data written so far and flushes the
+	 * underlying stream.
+	 *
+	 * @throws IOException
+	 *             if the index can't be written
+	 */
+	public void writeIndex() throws IOException {
+		// Stable sort keeps blocks of the same class in stream order:
+		Collections.sort(entries);
+		final long indexOffset = counter.count;
+		out.writeByte(BLOCK_INDEX);
+		out.writeVarInt(entries.size());
+		for (final Entry e : entries) {
+			out.writeLong(e.id);
+			out.writeLong(e.offset);
+		}
+		out.writeLong(indexOffset);
+		out.writeLong(counter.count + 8);
+		out.flush();
+	}
+
+	private static class Entry implements Comparable<Entry> {
+
+		final long id;
+
+		final long offset;
+
+		Entry(final long id, final long offset) {
+			this.id = id;
+			this.offset = offset;
+		}
+
+		public int compareTo(final Entry other) {
+			return id < other.id ? -1 : (id == other.id ? 0 : 1);
+		}
+
+	}
+
+	private static class CountingOutputStream extends FilterOutputStream {
+
+		long count;
+
+		CountingOutputStream(final OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len)
+				throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+	}
+
+}
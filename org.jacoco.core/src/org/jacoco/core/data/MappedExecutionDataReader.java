@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+import static java.lang.String.format;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Reads execution data from files written by {@link MappedExecutionDataWriter}.
+ * The file may still be in use by a running process or may be left over from
+ * a crashed process, in both cases the data of the last update of every class
+ * is read.
+ */
+public class MappedExecutionDataReader {
+
+	private final File file;
+
+	private ISessionInfoVisitor sessionInfoVisitor = null;
+
+	private IExecutionDataVisitor executionDataVisitor = null;
+
+	/**
+	 * Creates a new reader for the given file.
+	 *
+	 * @param file
+	 *            memory mapped execution data file
+	 */
+	public MappedExecutionDataReader(final File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Sets an listener for session information.
+	 *
+	 * @param visitor
+	 *            visitor to retrieve session info events
+	 */
+	public void setSessionInfoVisitor(final ISessionInfoVisitor visitor) {
+		this.sessionInfoVisitor = visitor;
+	}
+
+	/**
+	 * Sets an listener for execution data.
+	 *
+	 * @param visitor
+	 *            visitor to retrieve execution data events
+	 */
+	public void setExecutionDataVisitor(final IExecutionDataVisitor visitor) {
+		this.executionDataVisitor = visitor;
+	}
+
+	/**
+	 * Reads the session information and the execution data of all classes
+	 * and emits them to the registered visitors.
+	 *
+	 * @throws IOException
+	 *             might be thrown by the underlying file
+	 * @throws IncompatibleExecDataVersionException
+	 *             incompatible data version from different JaCoCo release
+	 */
+	public void read() throws IOException,
+			IncompatibleExecDataVersionException {
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)));
+		try {
+			readHeader(in);
+			while (readBlock(in)) {
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private void readHeader(final DataInputStream in) throws IOException {
+		if (in.readChar() != ExecutionDataWriter.MAGIC_NUMBER) {
+			throw new IOException("Invalid execution data file.");
+		}
+		final char version = in.readChar();
+		if (version != ExecutionDataWriter.MAPPED_FORMAT_VERSION) {
+			throw new IncompatibleExecDataVersionException(version);
+		}
+		final long start = in.readLong();
+		final long dump = in.readLong();
+		final char[] id = new char[Math.min(in.readChar(),
+				MappedExecutionDataWriter.MAX_SESSION_ID)];
+		for (int i = 0; i < id.length; i++) {
+			id[i] = in.readChar();
+		}
+		skip(in, MappedExecutionDataWriter.HEADER_SIZE - 22 - 2 * id.length);
+		if (sessionInfoVisitor != null) {
+			sessionInfoVisitor.visitSessionInfo(new SessionInfo(new String(id),
+					start, dump));
+		}
+	}
+
+	private boolean readBlock(final DataInputStream in) throws IOException {
+		final int type = in.read();
+		switch (type) {
+		case -1:
+		case 0:
+			return false;
+		case MappedExecutionDataWriter.BLOCK_GAP:
+			skip(in, in.readInt());
+			return true;
+		case ExecutionDataWriter.BLOCK_EXECUTIONDATA:
+		case ExecutionDataWriter.BLOCK_HITCOUNTDATA:
+			readExecutionData(in,
+					type == ExecutionDataWriter.BLOCK_HITCOUNTDATA);
+			return true;
+		default:
+			throw new IOException(format("Unknown block type %x.",
+					Integer.valueOf(type)));
+		}
+	}
+
+	private void readExecutionData(final DataInputStream in,
+			final boolean hitCounts) throws IOException {
+		final long id = in.readLong();
+		final int count = in.readInt();
+		final char[] name = new char[in.readChar()];
+		for (int i = 0; i < name.length; i++) {
+			name[i] = in.readChar();
+		}
+		final ExecutionData data;
+		if (hitCounts) {
+			final int[] counts = new int[count];
+			for (int i = 0; i < count; i++) {
+				counts[i] = in.readInt();
+			}
+			data = new ExecutionData(id, new String(name), counts);
+		} else {
+			final boolean[] probes = new boolean[count];
+			for (int i = 0; i < count; i++) {
+				probes[i] = in.readByte() != 0;
+			}
+			data = new ExecutionData(id, new String(name), probes);
+		}
+		if (executionDataVisitor != null) {
+			executionDataVisitor.visitClassExecution(data);
+		}
+	}
+
+	private static void skip(final DataInputStream in, final int length)
+			throws IOException {
+		int remaining = length;
+		while (remaining > 0) {
+			final int skipped = in.skipBytes(remaining);
+			if (skipped <= 0) {
+				throw new EOFException();
+			}
+			remaining -= skipped;
+		}
+	}
+
+}
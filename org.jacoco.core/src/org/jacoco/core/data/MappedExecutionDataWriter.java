@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mirrors execution data into a memory mapped file. Every class gets a fixed
+ * slot in the file when it is visited the first time, subsequent visits of the
+ * same class merge their probe values into the slot: Executed probes are set
+ * and hit counts are added, like with {@link ExecutionDataStore}. Therefore
+ * execution data which has been reset in the meantime does not remove
+ * coverage from the file. To keep hit counts correct every visit should only
+ * contain the data recorded since the previous visit, e.g. as collected by
+ * <code>DeltaCollector</code>. As the file content is
+ * held by the operating system it survives a crash of the writing process
+ * without explicit writes. The file can be read with
+ * {@link MappedExecutionDataReader}.
+ *
+ * The file starts with a header containing the session information. Slots are
+ * appended in blocks of the following layout, the block type is written last
+ * so that incomplete blocks are never read:
+ *
+ * <pre>
+ * byte   block type
+ * long   class id
+ * int    probe count
+ * char   name length
+ * char[] name
+ * byte[] probes or int[] hit counts
+ * </pre>
+ *
+ * Instances are not thread safe.
+ */
+public class MappedExecutionDataWriter implements ISessionInfoVisitor,
+		IExecutionDataVisitor {
+
+	/** Block identifier for unused space up to the next mapped region. */
+	static final byte BLOCK_GAP = 0x7F;
+
+	/** Maximum number of characters stored for the session id */
+	static final int MAX_SESSION_ID = 256;
+
+	/** Size of the file header including the session information */
+	static final int HEADER_SIZE = 1024;
+
+	/** Size of a gap block */
+	private static final int GAP_SIZE = 5;
+
+	/** Default size of each mapped region */
+	private static final int REGION_SIZE = 0x100000;
+
+	private final RandomAccessFile file;
+
+	private final FileChannel channel;
+
+	private final List<MappedByteBuffer> regions = new ArrayList<MappedByteBuffer>();
+
+	private final Map<Long, Slot> slots = new HashMap<Long, Slot>();
+
+	private MappedByteBuffer region;
+
+	private long regionStart;
+
+	/**
+	 * Creates a new mapped file. Existing content of the file is discarded.
+	 *
+	 * @param file
+	 *            file to map
+	 * @throws IOException
+	 *             if the file can't be created or mapped
+	 */
+	public MappedExecutionDataWriter(final File file) throws IOException {
+		this.file = new RandomAccessFile(file, "rw");
+		try {
+			this.file.setLength(0);
+			this.channel = this.file.getChannel();
+			map(0, REGION_SIZE);
+			region.putChar(2, ExecutionDataWriter.MAPPED_FORMAT_VERSION);
+			region.putChar(0, ExecutionDataWriter.MAGIC_NUMBER);
+			region.position(HEADER_SIZE);
+		} catch (final IOException e) {
+			this.file.close();
+			throw e;
+		}
+	}
+
+	private void map(final long start, final int size) throws IOException {
+		region = channel.map(MapMode.READ_WRITE, start, size);
+		regionStart = start;
+		regions.add(region);
+	}
+
+	/**
+	 * Updates the session information in the file header.
+	 */
+	public void visitSessionInfo(final SessionInfo info) {
+		String id = info.getId();
+		if (id.length() > MAX_SESSION_ID) {
+			id = id.substring(0, MAX_SESSION_ID);
+		}
+		final ByteBuffer header = regions.get(0);
+		header.putLong(4, info.getStartTimeStamp());
+		header.putLong(12, info.getDumpTimeStamp());
+		header.putChar(20, (char) id.length());
+		for (int i = 0; i < id.length(); i++) {
+			header.putChar(22 + 2 * i, id.charAt(i));
+		}
+	}
+
+	/**
+	 * Merges the probe values of the given class into its slot. The slot is
+	 * created with the first visit of the class.
+	 *
+	 * @throws IllegalStateException
+	 *             if the file can't be extended for a new slot or the given
+	 *             data is not compatible with the existing slot
+	 */
+	public void visitClassExecution(final ExecutionData data) {
+		final Long id = Long.valueOf(data.getId());
+		Slot slot = slots.get(id);
+		if (slot == null) {
+			try {
+				slot = createSlot(data);
+			} catch (final IOException e) {
+				throw new IllegalStateException(e);
+			}
+			slots.put(id, slot);
+		} else {
+			data.assertCompatibility(slot.id, slot.name, slot.count,
+					slot.hitCounts);
+			slot.update(data);
+		}
+	}
+
+	private Slot createSlot(final ExecutionData data) throws IOException {
+		final String name = data.getName();
+		final int[] hitCounts = data.getHitCounts();
+		final int count = hitCounts == null ? data.getProbes().length
+				: hitCounts.length;
+		final int size = 1 + 8 + 4 + 2 + 2 * name.length()
+				+ (hitCounts == null ? count : 4 * count);
+		if (region.remaining() < size + GAP_SIZE) {
+			final int position = region.position();
+			region.putInt(position + 1, region.remaining() - GAP_SIZE);
+			region.put(position, BLOCK_GAP);
+			map(regionStart + region.capacity(),
+					Math.max(REGION_SIZE, size + GAP_SIZE));
+		}
+		final int position = region.position();
+		region.position(position + 1);
+		region.putLong(data.getId());
+		region.putInt(count);
+		region.putChar((char) name.length());
+		for (int i = 0; i < name.length(); i++) {
+			region.putChar(name.charAt(i));
+		}
+		final Slot slot = new Slot(data.getId(), name, count,
+				hitCounts != null, region, region.position());
+		region.position(position + size);
+		slot.update(data);
+		region.put(position,
+				hitCounts == null ? ExecutionDataWriter.BLOCK_EXECUTIONDATA
+						: ExecutionDataWriter.BLOCK_HITCOUNTDATA);
+		return slot;
+	}
+
+	/**
+	 * Forces all changes to the storage device.
+	 */
+	public void flush() {
+		for (final MappedByteBuffer r : regions) {
+			r.force();
+		}
+	}
+
+	/**
+	 * Flushes all changes and closes the underlying file. The mapped content
+	 * is released by the VM at some later point in time.
+	 *
+	 * @throws IOException
+	 *             if the file can't be closed
+	 */
+	public void close() throws IOException {
+		flush();
+		file.close();
+	}
+
+	/**
+	 * Location of the probe values of a single class.
+	 */
+	private static class Slot {
+
+		final long id;
+
+		final String name;
+
+		final int count;
+
+		final boolean hitCounts;
+
+		private final ByteBuffer buffer;
+
+		private final int offset;
+
+		Slot(final long id, final String name, final int count,
+				final boolean hitCounts, final ByteBuffer buffer,
+				final int offset) {
+			this.id = id;
+			this.name = name;
+			this.count = count;
+			this.hitCounts = hitCounts;
+			this.buffer = buffer;
+			this.offset = offset;
+		}
+
+		void update(final ExecutionData data) {
+			// Only modified values are written to avoid dirtying pages
+			if (hitCounts) {
+				final int[] counts = data.getHitCounts();
+				for (int i = 0; i < counts.length; i++) {
+					if (counts[i] != 0) {
+						final int pos = offset + 4 * i;
+						final int sum = buffer.getInt(pos) + counts[i];
+						buffer.putInt(pos, sum < 0 ? Integer.MAX_VALUE : sum);
+					}
+				}
+			} else {
+				final boolean[] probes = data.getProbes();
+				for (int i = 0; i < probes.length; i++) {
+					if (probes[i] && buffer.get(offset + i) == 0) {
+						buffer.put(offset + i, (byte) 1);
+					}
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.instr;
+
+import java.io.File;
+
+import org.jacoco.core.internal.FileCache;
+
+/**
+ * Persistent cache for instrumented classes. The cache is keyed by the class
+ * id, i.e. the CRC64 checksum of the original class file, and the
+ * configuration of the {@link Instrumenter}. For classes found in the cache
+ * the {@link Instrumenter} returns the cached result and does not need to
+ * instrument the class again.
+ *
+ * The cache is stored in a directory with one file per class and
+ * configuration. Multiple {@link Instrumenter} instances, also from different
+ * processes, may share the same directory. Entries written by other JaCoCo
+ * builds and unreadable entries are ignored and replaced. Failures while
+ * writing the cache are ignored, as the cache is only an optimization. Unused
+ * entries can be removed with {@link #evict(long)}.
+ *
+ * @see Instrumenter#setCache(InstrumentationCache)
+ */
+public class InstrumentationCache {
+
+	/** Magic number of cache files */
+	private static final char MAGIC_NUMBER = 0xC0CB;
+
+	/** Version of the cache file format */
+	private static final char FORMAT_VERSION = 0x1001;
+
+	/**
+	 * Time in milliseconds after which unused entries are evicted by the Ant
+	 * tasks and Maven goals of JaCoCo, 30 days.
+	 */
+	public static final long DEFAULT_MAX_AGE = 30L * 24L * 60L * 60L * 1000L;
+
+	private final FileCache store;
+
+	/**
+	 * Creates a new cache stored in the given directory. The directory is
+	 * created on demand.
+	 *
+	 * @param directory
+	 *            directory for the cache files
+	 */
+	public InstrumentationCache(final File directory) {
+		this.store = new FileCache(directory, MAGIC_NUMBER, FORMAT_VERSION);
+	}
+
+	/**
+	 * Returns the cached instrumented definition of the given class.
+	 *
+	 * @param configuration
+	 *            identifier of the instrumenter configuration
+	 * @param classid
+	 *            class identifier
+	 * @return instrumented definition or <code>null</code> if no valid entry
+	 *         exists
+	 */
+	byte[] get(final long configuration, final long classid) {
+		return store.get(getKey(configuration, classid));
+	}
+
+	/**
+	 * Stores the instrumented definition of the given class in the cache.
+	 *
+	 * @param configuration
+	 *            identifier of the instrumenter configuration
+	 * @param classid
+	 *            class identifier
+	 * @param instrumented
+	 *            instrumented definition of the class
+	 */
+	void put(final long configuration, final long classid,
+			final byte[] instrumented) {
+		store.put(getKey(configuration, classid), instrumented);
+	}
+
+	/**
+	 * Deletes all entries which have not been used for the given time.
+	 *
+	 * @param maxAge
+	 *            maximum age of unused entries in milliseconds
+	 * @return number of deleted entries
+	 */
+	public int evict(final long maxAge) {
+		return store.evict(maxAge);
+	}
+
+	private static String getKey(final long configuration, final long classid) {
+		return String.format("%016x-%016x", Long.valueOf(classid),
+				Long.valueOf(configuration));
+	}
+
+}
@@ -12,37 +12,66 @@
 package org.jacoco.core.instr;
 
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
+import org.jacoco.core.JaCoCo;
 import org.jacoco.core.internal.ContentTypeDetector;
 import org.jacoco.core.internal.Java9Support;
 import org.jacoco.core.internal.Pack200Streams;
+import org.jacoco.core.internal.data.CRC64;
 import org.jacoco.core.internal.flow.ClassProbesAdapter;
 import org.jacoco.core.internal.instr.ClassInstrumenter;
-import org.jacoco.core.internal.instr.IProbeArrayStrategy;
 import org.jacoco.core.internal.instr.ProbeArrayStrategyFactory;
 import org.jacoco.core.internal.instr.SignatureRemover;
 import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
+import org.jacoco.core.runtime.IHitCountsAccessorGenerator;
 import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 
 /**
  * Several APIs to instrument Java class definitions for coverage tracing.
+ * 
+ * Optionally the class files within archives can be instrumented in parallel
+ * with a given {@link Executor}, see {@link #setExecutor(Executor)}. The
+ * resulting archives are identical to sequential instrumentation.
+ * 
+ * Optionally instrumented classes can be stored in a persistent
+ * {@link InstrumentationCache}, see {@link #setCache(InstrumentationCache)}.
  */
 public class Instrumenter {
 
+	/** Maximum number of archive entries processed ahead of the output */
+	private static final int MAX_PENDING = 256;
+
 	private final IExecutionDataAccessorGenerator accessorGenerator;
 
 	private final SignatureRemover signatureRemover;
 
+	private boolean hitCounts;
+
+	private Executor executor;
+
+	private InstrumentationCache cache;
+
+	/** Identifier of the current configuration for cache entries */
+	private long configuration;
+
 	/**
 	 * Creates a new instance based on the given runtime.
 	 * 
@@ -67,6 +96,91 @@ public class Instrumenter {
 		signatureRemover.setActive(flag);
 	}
 
+	/**
+	 * Determines whether probes should count executions instead of only
+	 * recording whether they have been executed. Hit counters are only
+	 * supported by runtimes implementing {@link IHitCountsAccessorGenerator}.
+	 * Default is <code>false</code>.
+	 * 
+	 * @param flag
+	 *            <code>true</code> if probes should count executions
+	 * @throws IllegalStateException
+	 *             if the runtime does not support hit counters
+	 */
+	public void setHitCounts(final boolean flag) {
+		if (flag
+				&& !(accessorGenerator instanceof IHitCountsAccessorGenerator)) {
+			throw new IllegalStateException(
+					"Runtime does not support hit counts.");
+		}
+		this.hitCounts = flag;
+		if (cache != null) {
+			configuration = getConfiguration();
+		}
+	}
+
+	/**
+	 * Sets an executor which is used to instrument the class files within
+	 * archives in parallel. The entries are still read and written by the
+	 * thread calling {@link #instrumentAll(InputStream, OutputStream, String)}
+	 * in their original order. Default is <code>null</code> which means all
+	 * classes are instrumented on the calling thread.
+	 * 
+	 * @param executor
+	 *            executor for class file instrumentation or <code>null</code>
+	 */
+	public void setExecutor(final Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Sets a persistent cache for instrumented classes. Classes found in the
+	 * cache are not instrumented again. Default is <code>null</code> which
+	 * means every class is instrumented.
+	 * 
+	 * @param cache
+	 *            cache for instrumented classes or <code>null</code>
+	 */
+	public void setCache(final InstrumentationCache cache) {
+		this.cache = cache;
+		if (cache != null) {
+			configuration = getConfiguration();
+		}
+	}
+
+	/**
+	 * Calculates an identifier for the current configuration. It includes the
+	 * JaCoCo build, as the instrumentation might change with every build, and
+	 * all inputs of the probe array strategies. The code emitted by the
+	 * accessor generator, e.g. runtime keys, is captured by instrumenting a
+	 * reference class.
+	 */
+	private long getConfiguration() {
+		final ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_5, Opcodes.ACC_SUPER, "Configuration", null,
+				"java/lang/Object", null);
+		final MethodVisitor mv = writer.visitMethod(Opcodes.ACC_STATIC, "run",
+				"()V", null, null);
+		mv.visitCode();
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		writer.visitEnd();
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try {
+			final DataOutputStream out = new DataOutputStream(buffer);
+			out.writeUTF(JaCoCo.VERSION);
+			out.writeUTF(accessorGenerator.getClass().getName());
+			out.writeBoolean(hitCounts);
+			out.write(instrument(new ClassReader(writer.toByteArray())));
+			out.flush();
+		} catch (final IOException e) {
+			// Must not happen with ByteArrayOutputStream
+			throw new AssertionError(e);
+		}
+		return CRC64.checksum(buffer.toByteArray());
+	}
+
 	/**
 	 * Creates a instrumented version of the given class if possible.
 	 * 
@@ -83,11 +197,11 @@ public class Instrumenter {
 				throw new IllegalStateException();
 			}
 		};
-		final IProbeArrayStrategy strategy = ProbeArrayStrategyFactory
-				.createFor(reader, accessorGenerator);
-		final ClassVisitor visitor = new ClassProbesAdapter(
-				new ClassInstrumenter(strategy, writer), true);
-		reader.accept(visitor, ClassReader.EXPAND_FRAMES);
+		final ClassInstrumenter instrumenter = ProbeArrayStrategyFactory
+				.createInstrumenter(reader, accessorGenerator, hitCounts,
+						writer);
+		ClassProbesAdapter.accept(reader, instrumenter, true,
+				ClassReader.EXPAND_FRAMES);
 		return writer.toByteArray();
 	}
 
@@ -104,6 +218,20 @@ public class Instrumenter {
 	 */
 	public byte[] instrument(final byte[] buffer, final String name)
 			throws IOException {
+		if (cache == null) {
+			return instrumentBuffer(buffer, name);
+		}
+		final long classid = CRC64.checksum(buffer);
+		byte[] result = cache.get(configuration, classid);
+		if (result == null) {
+			result = instrumentBuffer(buffer, name);
+			cache.put(configuration, classid, result);
+		}
+		return result;
+	}
+
+	private byte[] instrumentBuffer(final byte[] buffer, final String name)
+			throws IOException {
 		try {
 			if (Java9Support.isPatchRequired(buffer)) {
 				final byte[] result = instrument(
@@ -187,7 +315,11 @@ public class Instrumenter {
 	 */
 	public int instrumentAll(final InputStream input,
 			final OutputStream output, final String name) throws IOException {
-		final ContentTypeDetector detector = new ContentTypeDetector(input);
+		return instrumentContent(new ContentTypeDetector(input), output, name);
+	}
+
+	private int instrumentContent(final ContentTypeDetector detector,
+			final OutputStream output, final String name) throws IOException {
 		switch (detector.getType()) {
 		case ContentTypeDetector.CLASSFILE:
 			instrument(detector.getInputStream(), output, name);
@@ -208,6 +340,7 @@ public class Instrumenter {
 			final OutputStream output, final String name) throws IOException {
 		final ZipInputStream zipin = new ZipInputStream(input);
 		final ZipOutputStream zipout = new ZipOutputStream(output);
+		final LinkedList<EntryTask> pending = new LinkedList<EntryTask>();
 		ZipEntry entry;
 		int count = 0;
 		while ((entry = zipin.getNextEntry()) != null) {
@@ -216,16 +349,106 @@ public class Instrumenter {
 				continue;
 			}
 
-			zipout.putNextEntry(new ZipEntry(entryName));
-			if (!signatureRemover.filterEntry(entryName, zipin, zipout)) {
-				count += instrumentAll(zipin, zipout, name + "@" + entryName);
+			final ZipEntry newEntry = new ZipEntry(entryName);
+			// Keep the original time stamp for reproducible archives
+			if (entry.getTime() != -1) {
+				newEntry.setTime(entry.getTime());
+			}
+			if (executor == null) {
+				zipout.putNextEntry(newEntry);
+				if (!signatureRemover.filterEntry(entryName, zipin, zipout)) {
+					count += instrumentAll(zipin, zipout, name + "@"
+							+ entryName);
+				}
+				zipout.closeEntry();
+			} else {
+				count += submitEntry(zipin, newEntry, name + "@" + entryName,
+						pending, zipout);
 			}
-			zipout.closeEntry();
+		}
+		while (!pending.isEmpty()) {
+			writeEntry(pending.poll(), zipout);
 		}
 		zipout.finish();
 		return count;
 	}
 
+	private int submitEntry(final InputStream input, final ZipEntry entry,
+			final String name, final LinkedList<EntryTask> pending,
+			final ZipOutputStream zipout) throws IOException {
+		final ContentTypeDetector detector = new ContentTypeDetector(input);
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		int count = 0;
+		if (signatureRemover.filterEntry(entry.getName(),
+				detector.getInputStream(), buffer)) {
+			addCompleted(new EntryTask(entry, name, buffer.toByteArray(),
+					false), pending);
+		} else {
+			switch (detector.getType()) {
+			case ContentTypeDetector.CLASSFILE:
+				final EntryTask task = new EntryTask(entry, name,
+						Java9Support.readFully(detector.getInputStream()), true);
+				pending.add(task);
+				executor.execute(task);
+				count = 1;
+				break;
+			case ContentTypeDetector.ZIPFILE:
+			case ContentTypeDetector.GZFILE:
+			case ContentTypeDetector.PACK200FILE:
+				// Nested archives are streamed after all previous entries
+				while (!pending.isEmpty()) {
+					writeEntry(pending.poll(), zipout);
+				}
+				zipout.putNextEntry(entry);
+				count = instrumentContent(detector, zipout, name);
+				zipout.closeEntry();
+				return count;
+			default:
+				copy(detector.getInputStream(), buffer);
+				addCompleted(new EntryTask(entry, name, buffer.toByteArray(),
+						false), pending);
+				break;
+			}
+		}
+		// Write finished entries early and limit the number of buffered
+		// entries:
+		while (!pending.isEmpty()
+				&& (pending.size() > MAX_PENDING || pending.peek().isDone())) {
+			writeEntry(pending.poll(), zipout);
+		}
+		return count;
+	}
+
+	private void addCompleted(final EntryTask task,
+			final LinkedList<EntryTask> pending) {
+		task.run();
+		pending.add(task);
+	}
+
+	private void writeEntry(final EntryTask task, final ZipOutputStream zipout)
+			throws IOException {
+		final byte[] content;
+		try {
+			content = task.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(String.format(
+					"Interrupted while instrumenting %s.", task.name));
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw instrumentError(task.name, (RuntimeException) cause);
+		}
+		zipout.putNextEntry(task.entry);
+		zipout.write(content);
+		zipout.closeEntry();
+	}
+
 	private int instrumentGzip(final InputStream input,
 			final OutputStream output, final String name) throws IOException {
 		final GZIPOutputStream gzout = new GZIPOutputStream(output);
@@ -252,4 +475,27 @@ public class Instrumenter {
 		}
 	}
 
+	/**
+	 * Content of a single archive entry. Class files are instrumented by the
+	 * executor, the content of all other entries is passed unchanged.
+	 */
+	private final class EntryTask extends FutureTask<byte[]> {
+
+		final ZipEntry entry;
+
+		final String name;
+
+		EntryTask(final ZipEntry entry, final String name, final byte[] buffer,
+				final boolean classfile) {
+			super(new Callable<byte[]>() {
+				public byte[] call() throws Exception {
+					return classfile ? instrument(buffer, name) : buffer;
+				}
+			});
+			this.entry = entry;
+			this.name = name;
+		}
+
+	}
+
 }
@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.jacoco.core.JaCoCo;
+
+/**
+ * Directory based store for persistent caches. Every entry is stored in a
+ * separate file which starts with a header consisting of a magic number, a
+ * format version, the JaCoCo build version and the key of the entry. Entries
+ * with a different header, e.g. written by another JaCoCo build, and
+ * unreadable entries are treated as missing and get replaced. Failures while
+ * writing entries are ignored, as caches are only an optimization.
+ *
+ * Multiple instances, also from different processes, may share the same
+ * directory. Entries are written to temporary files first, so readers never
+ * see incomplete entries.
+ */
+public class FileCache {
+
+	/** Minimum time between updates of the last use of an entry */
+	private static final long TOUCH_INTERVAL = 60L * 60L * 1000L;
+
+	private final File directory;
+
+	private final char magicNumber;
+
+	private final char formatVersion;
+
+	/**
+	 * Creates a new store in the given directory. The directory is created on
+	 * demand.
+	 *
+	 * @param directory
+	 *            directory for the cache files
+	 * @param magicNumber
+	 *            magic number identifying the kind of cache
+	 * @param formatVersion
+	 *            version of the content format
+	 */
+	public FileCache(final File directory, final char magicNumber,
+			final char formatVersion) {
+		this.directory = directory;
+		this.magicNumber = magicNumber;
+		this.formatVersion = formatVersion;
+	}
+
+	/**
+	 * Returns the content of the entry with the given key. Reading an entry
+	 * marks it as used.
+	 *
+	 * @param key
+	 *            key of the entry, must be a valid file name
+	 * @return content or <code>null</code> if no valid entry exists
+	 */
+	public byte[] get(final String key) {
+		final File file = getFile(key);
+		if (!file.isFile()) {
+			return null;
+		}
+		final byte[] content;
+		try {
+			final DataInputStream in = new DataInputStream(
+					new BufferedInputStream(new FileInputStream(file)));
+			try {
+				content = readEntry(in, key, file.length());
+			} finally {
+				in.close();
+			}
+		} catch (final IOException e) {
+			return null;
+		}
+		if (content != null) {
+			final long now = System.currentTimeMillis();
+			if (file.lastModified() < now - TOUCH_INTERVAL) {
+				file.setLastModified(now);
+			}
+		}
+		return content;
+	}
+
+	private byte[] readEntry(final DataInputStream in, final String key,
+			final long fileLength) throws IOException {
+		if (in.readChar() != magicNumber || in.readChar() != formatVersion
+				|| !JaCoCo.VERSION.equals(in.readUTF())
+				|| !key.equals(in.readUTF())) {
+			return null;
+		}
+		final int length = in.readInt();
+		if (length < 0 || length > fileLength) {
+			return null;
+		}
+		final byte[] content = new byte[length];
+		in.readFully(content);
+		if (in.read() != -1) {
+			return null;
+		}
+		return content;
+	}
+
+	/**
+	 * Stores the given content under the given key. An existing entry is
+	 * replaced.
+	 *
+	 * @param key
+	 *            key of the entry, must be a valid file name
+	 * @param content
+	 *            content of the entry
+	 */
+	public void put(final String key, final byte[] content) {
+		final File file = getFile(key);
+		final File dir = file.getParentFile();
+		try {
+			dir.mkdirs();
+			final File temp = File.createTempFile(key, ".tmp", dir);
+			try {
+				final DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(new FileOutputStream(temp)));
+				try {
+					out.writeChar(magicNumber);
+					out.writeChar(formatVersion);
+					out.writeUTF(JaCoCo.VERSION);
+					out.writeUTF(key);
+					out.writeInt(content.length);
+					out.write(content);
+				} finally {
+					out.close();
+				}
+				if (!temp.renameTo(file)) {
+					// Some platforms can't rename to existing files. A
+					// missing entry is only a cache miss for readers:
+					file.delete();
+					temp.renameTo(file);
+				}
+			} finally {
+				temp.delete();
+			}
+		} catch (final IOException e) {
+			// The cache is an optimization only
+		}
+	}
+
+	/**
+	 * Deletes all entries which have not been written or read for the given
+	 * time. This also removes entries of other JaCoCo builds and leftovers of
+	 * interrupted writes.
+	 *
+	 * @param maxAge
+	 *            maximum age of unused entries in milliseconds
+	 * @return number of deleted entries
+	 */
+	public int evict(final long maxAge) {
+		final File[] dirs = directory.listFiles();
+		if (dirs == null) {
+			return 0;
+		}
+		final long limit = System.currentTimeMillis() - maxAge;
+		int count = 0;
+		for (final File dir : dirs) {
+			final File[] files = dir.listFiles();
+			if (files == null) {
+				continue;
+			}
+			for (final File file : files) {
+				if (file.isFile() && file.lastModified() < limit
+						&& file.delete()) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	private File getFile(final String key) {
+		return new File(new File(directory, key.substring(0, 2)), key);
+	}
+
+}
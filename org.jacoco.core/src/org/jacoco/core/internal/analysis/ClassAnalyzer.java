@@ -11,6 +11,9 @@
  *******************************************************************************/
 package org.jacoco.core.internal.analysis;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.jacoco.core.analysis.IMethodCoverage;
 import org.jacoco.core.internal.flow.ClassProbesVisitor;
 import org.jacoco.core.internal.flow.MethodProbesVisitor;
@@ -25,7 +28,9 @@ public class ClassAnalyzer extends ClassProbesVisitor {
 
 	private final ClassCoverageImpl coverage;
 	private final boolean[] probes;
+	private final int[] hitCounts;
 	private final StringPool stringPool;
+	private final List<MethodAnalyzer> methods = new ArrayList<MethodAnalyzer>();
 
 	/**
 	 * Creates a new analyzer that builds coverage data for a class.
@@ -39,8 +44,29 @@ public class ClassAnalyzer extends ClassProbesVisitor {
 	 */
 	public ClassAnalyzer(final ClassCoverageImpl coverage,
 			final boolean[] probes, final StringPool stringPool) {
+		this(coverage, probes, null, stringPool);
+	}
+
+	/**
+	 * Creates a new analyzer that builds coverage data including hit counts
+	 * for a class.
+	 * 
+	 * @param coverage
+	 *            coverage node for the analyzed class data
+	 * @param probes
+	 *            execution data for this class or <code>null</code>
+	 * @param hitCounts
+	 *            hit counts for this class or <code>null</code>, take
+	 *            precedence over <code>probes</code>
+	 * @param stringPool
+	 *            shared pool to minimize the number of {@link String} instances
+	 */
+	public ClassAnalyzer(final ClassCoverageImpl coverage,
+			final boolean[] probes, final int[] hitCounts,
+			final StringPool stringPool) {
 		this.coverage = coverage;
 		this.probes = probes;
+		this.hitCounts = hitCounts;
 		this.stringPool = stringPool;
 	}
 
@@ -70,7 +96,7 @@ public class ClassAnalyzer extends ClassProbesVisitor {
 		}
 
 		return new MethodAnalyzer(stringPool.get(name), stringPool.get(desc),
-				stringPool.get(signature), probes) {
+				stringPool.get(signature), probes, hitCounts) {
 			@Override
 			public void visitEnd() {
 				super.visitEnd();
@@ -78,6 +104,7 @@ public class ClassAnalyzer extends ClassProbesVisitor {
 				if (methodCoverage.getInstructionCounter().getTotalCount() > 0) {
 					// Only consider methods that actually contain code
 					coverage.addMethod(methodCoverage);
+					methods.add(this);
 				}
 			}
 		};
@@ -113,6 +140,24 @@ public class ClassAnalyzer extends ClassProbesVisitor {
 		return super.visitField(access, name, desc, signature, value);
 	}
 
+	/**
+	 * Returns the structure of the analyzed class which allows to calculate
+	 * coverage for different probe data without analyzing the byte code again.
+	 * Must only be called after this visitor has been processed.
+	 * 
+	 * @return structure of the class
+	 */
+	public ClassStructure getStructure() {
+		final List<MethodStructure> structures = new ArrayList<MethodStructure>(
+				methods.size());
+		for (final MethodAnalyzer m : methods) {
+			structures.add(m.getStructure());
+		}
+		return new ClassStructure(coverage.getName(), coverage.getSignature(),
+				coverage.getSuperName(), coverage.getInterfaceNames(),
+				coverage.getSourceFileName(), structures);
+	}
+
 	@Override
 	public void visitTotalProbeCount(final int count) {
 		// nothing to do
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.analysis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jacoco.core.internal.data.CompactDataInput;
+import org.jacoco.core.internal.data.CompactDataOutput;
+
+/**
+ * Probe independent result of the analysis of a class. Coverage data for any
+ * probe data can be calculated from this structure without parsing the class
+ * file again.
+ *
+ * @see ClassAnalyzer#getStructure()
+ */
+public final class ClassStructure {
+
+	private final String name;
+	private final String signature;
+	private final String superName;
+	private final String[] interfaces;
+	private final String sourceFileName;
+	private final List<MethodStructure> methods;
+
+	ClassStructure(final String name, final String signature,
+			final String superName, final String[] interfaces,
+			final String sourceFileName, final List<MethodStructure> methods) {
+		this.name = name;
+		this.signature = signature;
+		this.superName = superName;
+		this.interfaces = interfaces;
+		this.sourceFileName = sourceFileName;
+		this.methods = methods;
+	}
+
+	/**
+	 * Returns the VM name of the class.
+	 *
+	 * @return VM name of the class
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Calculates the coverage of this class for the given probe data.
+	 *
+	 * @param id
+	 *            class identifier
+	 * @param noMatch
+	 *            <code>true</code>, if class id does not match with execution
+	 *            data
+	 * @param probes
+	 *            execution data for this class or <code>null</code>
+	 * @param hitCounts
+	 *            hit counts for this class or <code>null</code>
+	 * @return coverage node for the class
+	 */
+	public ClassCoverageImpl createCoverage(final long id,
+			final boolean noMatch, final boolean[] probes, final int[] hitCounts) {
+		final ClassCoverageImpl coverage = new ClassCoverageImpl(name, id,
+				noMatch);
+		coverage.setSignature(signature);
+		coverage.setSuperName(superName);
+		coverage.setInterfaces(interfaces);
+		coverage.setSourceFileName(sourceFileName);
+		for (final MethodStructure m : methods) {
+			coverage.addMethod(m.createCoverage(probes, hitCounts));
+		}
+		return coverage;
+	}
+
+	/**
+	 * Writes this structure to the given output.
+	 *
+	 * @param out
+	 *            output to write to
+	 * @throws IOException
+	 *             if the output can't be written
+	 */
+	public void write(final CompactDataOutput out) throws IOException {
+		out.writeUTF(name);
+		writeOptionalUTF(out, signature);
+		writeOptionalUTF(out, superName);
+		out.writeVarInt(interfaces.length);
+		for (final String i : interfaces) {
+			out.writeUTF(i);
+		}
+		writeOptionalUTF(out, sourceFileName);
+		out.writeVarInt(methods.size());
+		for (final MethodStructure m : methods) {
+			m.write(out);
+		}
+	}
+
+	/**
+	 * Reads a structure written by {@link #write(CompactDataOutput)}.
+	 *
+	 * @param in
+	 *            input to read from
+	 * @param stringPool
+	 *            pool to normalize strings
+	 * @return structure read from the input
+	 * @throws IOException
+	 *             if the input can't be read
+	 */
+	public static ClassStructure read(final CompactDataInput in,
+			final StringPool stringPool) throws IOException {
+		final String name = stringPool.get(in.readUTF());
+		final String signature = stringPool.get(readOptionalUTF(in));
+		final String superName = stringPool.get(readOptionalUTF(in));
+		final String[] interfaces = new String[in.readVarInt()];
+		for (int i = 0; i < interfaces.length; i++) {
+			interfaces[i] = in.readUTF();
+		}
+		final String sourceFileName = stringPool.get(readOptionalUTF(in));
+		final int methodCount = in.readVarInt();
+		final List<MethodStructure> methods = new ArrayList<MethodStructure>(
+				methodCount);
+		for (int i = 0; i < methodCount; i++) {
+			methods.add(MethodStructure.read(in, stringPool));
+		}
+		return new ClassStructure(name, signature, superName,
+				stringPool.get(interfaces), sourceFileName, methods);
+	}
+
+	static void writeOptionalUTF(final CompactDataOutput out, final String s)
+			throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) {
+			out.writeUTF(s);
+		}
+	}
+
+	static String readOptionalUTF(final CompactDataInput in)
+			throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+}
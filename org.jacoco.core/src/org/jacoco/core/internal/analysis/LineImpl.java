@@ -12,12 +12,13 @@
 package org.jacoco.core.internal.analysis;
 
 import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.IHitCountLine;
 import org.jacoco.core.analysis.ILine;
 
 /**
- * Implementation of {@link ILine}.
+ * Implementation of {@link IHitCountLine}.
  */
-public abstract class LineImpl implements ILine {
+public abstract class LineImpl implements IHitCountLine {
 
 	/** Max instruction counter value for which singletons are created */
 	private static final int SINGLETON_INS_LIMIT = 8;
@@ -53,17 +54,67 @@ public abstract class LineImpl implements ILine {
 		final int ic = instructions.getCoveredCount();
 		final int bm = branches.getMissedCount();
 		final int bc = branches.getCoveredCount();
-		if (im <= SINGLETON_INS_LIMIT && ic <= SINGLETON_INS_LIMIT
-				&& bm <= SINGLETON_BRA_LIMIT && bc <= SINGLETON_BRA_LIMIT) {
+		if (isSingleton(im, ic, bm, bc)) {
 			return SINGLETONS[im][ic][bm][bc];
 		}
 		return new Var(instructions, branches);
 	}
 
+	/**
+	 * Returns a line with the given counter values. For small values without
+	 * hit count a shared instance is returned, otherwise a new instance.
+	 * 
+	 * @param im
+	 *            number of missed instructions
+	 * @param ic
+	 *            number of covered instructions
+	 * @param bm
+	 *            number of missed branches
+	 * @param bc
+	 *            number of covered branches
+	 * @param hitCount
+	 *            number of executions
+	 * @return line instance
+	 */
+	public static LineImpl getInstance(final int im, final int ic,
+			final int bm, final int bc, final int hitCount) {
+		if (hitCount <= 0 && isSingleton(im, ic, bm, bc)) {
+			return SINGLETONS[im][ic][bm][bc];
+		}
+		return new Var(CounterImpl.getInstance(im, ic),
+				CounterImpl.getInstance(bm, bc)).updateHitCount(hitCount);
+	}
+
+	/**
+	 * Returns the hit count of the given line. Lines which do not implement
+	 * {@link IHitCountLine} have no hit count.
+	 * 
+	 * @param line
+	 *            any line
+	 * @return number of executions of the line or 0
+	 */
+	public static int hitCountOf(final ILine line) {
+		if (line instanceof IHitCountLine) {
+			return ((IHitCountLine) line).getHitCount();
+		}
+		return 0;
+	}
+
+	private static boolean isSingleton(final int im, final int ic,
+			final int bm, final int bc) {
+		return im >= 0 && im <= SINGLETON_INS_LIMIT && ic >= 0
+				&& ic <= SINGLETON_INS_LIMIT && bm >= 0
+				&& bm <= SINGLETON_BRA_LIMIT && bc >= 0
+				&& bc <= SINGLETON_BRA_LIMIT;
+	}
+
 	/**
 	 * Mutable version.
 	 */
 	private static final class Var extends LineImpl {
+
+		private int hitCount;
+
 		Var(final CounterImpl instructions, final CounterImpl branches) {
 			super(instructions, branches);
 		}
@@ -75,6 +126,16 @@ public abstract class LineImpl implements ILine {
 			this.branches = this.branches.increment(branches);
 			return this;
 		}
+
+		@Override
+		public LineImpl updateHitCount(final int hitCount) {
+			this.hitCount = Math.max(this.hitCount, hitCount);
+			return this;
+		}
+
+		public int getHitCount() {
+			return hitCount;
+		}
 	}
 
 	/**
@@ -89,9 +150,22 @@ public abstract class LineImpl implements ILine {
 		@Override
 		public LineImpl increment(final ICounter instructions,
 				final ICounter branches) {
-			return getInstance(this.instructions.increment(instructions),
+			return LineImpl.getInstance(
+					this.instructions.increment(instructions),
 					this.branches.increment(branches));
 		}
+
+		@Override
+		public LineImpl updateHitCount(final int hitCount) {
+			if (hitCount <= 0) {
+				return this;
+			}
+			return new Var(instructions, branches).updateHitCount(hitCount);
+		}
+
+		public int getHitCount() {
+			return 0;
+		}
 	}
 
 	/** instruction counter */
@@ -117,7 +191,17 @@ public abstract class LineImpl implements ILine {
 	public abstract LineImpl increment(final ICounter instructions,
 			final ICounter branches);
 
-	// === ILine implementation ===
+	/**
+	 * Raises the hit count of this line to the given value if it is higher
+	 * than the current hit count.
+	 * 
+	 * @param hitCount
+	 *            number of executions
+	 * @return instance with new hit count
+	 */
+	public abstract LineImpl updateHitCount(final int hitCount);
+
+	// === IHitCountLine implementation ===
 
 	public int getStatus() {
 		return instructions.getStatus() | branches.getStatus();
@@ -133,7 +217,8 @@ public abstract class LineImpl implements ILine {
 
 	@Override
 	public int hashCode() {
-		return 23 * instructions.hashCode() ^ branches.hashCode();
+		return (23 * instructions.hashCode() ^ branches.hashCode()) * 31
+				+ getHitCount();
 	}
 
 	@Override
@@ -141,7 +226,8 @@ public abstract class LineImpl implements ILine {
 		if (obj instanceof ILine) {
 			final ILine that = (ILine) obj;
 			return this.instructions.equals(that.getInstructionCounter())
-					&& this.branches.equals(that.getBranchCounter());
+					&& this.branches.equals(that.getBranchCounter())
+					&& this.getHitCount() == hitCountOf(that);
 		}
 		return false;
 	}
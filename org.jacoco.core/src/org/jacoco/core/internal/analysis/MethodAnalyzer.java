@@ -32,6 +32,8 @@ public class MethodAnalyzer extends MethodProbesVisitor {
 
 	private final boolean[] probes;
 
+	private final int[] hitCounts;
+
 	private final MethodCoverageImpl coverage;
 
 	private int currentLine = ISourceNode.UNKNOWN_LINE;
@@ -46,8 +48,8 @@ public class MethodAnalyzer extends MethodProbesVisitor {
 	/** List of all analyzed instructions */
 	private final List<Instruction> instructions = new ArrayList<Instruction>();
 
-	/** List of all predecessors of covered probes */
-	private final List<Instruction> coveredProbes = new ArrayList<Instruction>();
+	/** List of all probes with their predecessor instructions */
+	private final List<Probe> probeList = new ArrayList<Probe>();
 
 	/** List of all jumps encountered */
 	private final List<Jump> jumps = new ArrayList<Jump>();
@@ -71,8 +73,34 @@ public class MethodAnalyzer extends MethodProbesVisitor {
 	 */
 	public MethodAnalyzer(final String name, final String desc,
 			final String signature, final boolean[] probes) {
+		this(name, desc, signature, probes, null);
+	}
+
+	/**
+	 * New Method analyzer for the given probe data and hit counts.
+	 * 
+	 * @param name
+	 *            method name
+	 * @param desc
+	 *            method descriptor
+	 * @param signature
+	 *            optional parameterized signature
+	 * 
+	 * @param probes
+	 *            recorded probe date of the containing class or
+	 *            <code>null</code> if the class is not executed at all
+	 * @param hitCounts
+	 *            recorded hit counts of the containing class or
+	 *            <code>null</code> if no hit counts have been recorded. If
+	 *            present the probe flags are derived from the counts and
+	 *            <code>probes</code> is ignored.
+	 */
+	public MethodAnalyzer(final String name, final String desc,
+			final String signature, final boolean[] probes,
+			final int[] hitCounts) {
 		super();
 		this.probes = probes;
+		this.hitCounts = hitCounts;
 		this.coverage = new MethodCoverageImpl(name, desc, signature);
 	}
 
@@ -265,9 +293,47 @@ public class MethodAnalyzer extends MethodProbesVisitor {
 		for (final Jump j : jumps) {
 			LabelInfo.getInstruction(j.target).setPredecessor(j.source);
 		}
+		calculateCoverage(coverage, instructions, probeList, probes, hitCounts,
+				firstLine, lastLine);
+	}
+
+	/**
+	 * Returns the structure of the analyzed method which allows to calculate
+	 * coverage for different probe data without analyzing the byte code again.
+	 * Must only be called after this visitor has been processed.
+	 * 
+	 * @return structure of the method
+	 */
+	MethodStructure getStructure() {
+		return new MethodStructure(coverage.getName(), coverage.getDesc(),
+				coverage.getSignature(), firstLine, lastLine, instructions,
+				probeList);
+	}
+
+	/**
+	 * Calculates the coverage of a method from the given instruction graph
+	 * with wired predecessors.
+	 */
+	static void calculateCoverage(final MethodCoverageImpl coverage,
+			final List<Instruction> instructions, final List<Probe> probeList,
+			final boolean[] probes, final int[] hitCounts, final int firstLine,
+			final int lastLine) {
 		// Propagate probe values:
-		for (final Instruction p : coveredProbes) {
-			p.setCovered();
+		if (hitCounts != null) {
+			for (final Probe p : probeList) {
+				final int count = hitCounts[p.id];
+				if (count != 0) {
+					p.instruction.setCovered();
+					p.instruction.addExecutions(count);
+				}
+			}
+			Instruction.propagateExecutions(instructions);
+		} else if (probes != null) {
+			for (final Probe p : probeList) {
+				if (probes[p.id]) {
+					p.instruction.setCovered();
+				}
+			}
 		}
 		// Report result:
 		coverage.ensureCapacity(firstLine, lastLine);
@@ -279,14 +345,27 @@ public class MethodAnalyzer extends MethodProbesVisitor {
 			final ICounter branchCounter = total > 1 ? CounterImpl.getInstance(
 					total - covered, covered) : CounterImpl.COUNTER_0_0;
 			coverage.increment(instrCounter, branchCounter, i.getLine());
+			coverage.updateHitCount(i.getExecutions(), i.getLine());
 		}
 		coverage.incrementMethodCounter();
 	}
 
 	private void addProbe(final int probeId) {
 		lastInsn.addBranch();
-		if (probes != null && probes[probeId]) {
-			coveredProbes.add(lastInsn);
+		probeList.add(new Probe(lastInsn, probeId));
+	}
+
+	/**
+	 * A probe and the instruction it belongs to.
+	 */
+	static class Probe {
+
+		final Instruction instruction;
+		final int id;
+
+		Probe(final Instruction instruction, final int id) {
+			this.instruction = instruction;
+			this.id = id;
 		}
 	}
 
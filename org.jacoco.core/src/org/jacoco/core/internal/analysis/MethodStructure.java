@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.analysis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jacoco.core.internal.analysis.MethodAnalyzer.Probe;
+import org.jacoco.core.internal.data.CompactDataInput;
+import org.jacoco.core.internal.data.CompactDataOutput;
+import org.jacoco.core.internal.flow.Instruction;
+
+/**
+ * Probe independent result of the analysis of a single method: The instruction
+ * graph with source lines and branches and the position of every probe. From
+ * this structure the coverage of the method can be calculated for any probe
+ * data.
+ */
+final class MethodStructure {
+
+	private static final int NO_PREDECESSOR = -1;
+
+	private final String name;
+	private final String desc;
+	private final String signature;
+	private final int firstLine;
+	private final int lastLine;
+
+	private final int[] lines;
+	private final int[] predecessors;
+	private final int[] branches;
+
+	private final int[] probeIds;
+	private final int[] probeInstructions;
+
+	/**
+	 * Creates the structure from the given instruction graph.
+	 */
+	MethodStructure(final String name, final String desc,
+			final String signature, final int firstLine, final int lastLine,
+			final List<Instruction> instructions, final List<Probe> probes) {
+		this.name = name;
+		this.desc = desc;
+		this.signature = signature;
+		this.firstLine = firstLine;
+		this.lastLine = lastLine;
+
+		final int size = instructions.size();
+		final Map<Instruction, Integer> index = new IdentityHashMap<Instruction, Integer>(
+				size);
+		for (int i = 0; i < size; i++) {
+			index.put(instructions.get(i), Integer.valueOf(i));
+		}
+		lines = new int[size];
+		predecessors = new int[size];
+		branches = new int[size];
+		for (int i = 0; i < size; i++) {
+			final Instruction insn = instructions.get(i);
+			lines[i] = insn.getLine();
+			final Instruction predecessor = insn.getPredecessor();
+			predecessors[i] = predecessor == null ? NO_PREDECESSOR : index.get(
+					predecessor).intValue();
+			branches[i] = insn.getBranches();
+		}
+		probeIds = new int[probes.size()];
+		probeInstructions = new int[probes.size()];
+		for (int i = 0; i < probeIds.length; i++) {
+			final Probe p = probes.get(i);
+			probeIds[i] = p.id;
+			probeInstructions[i] = index.get(p.instruction).intValue();
+		}
+	}
+
+	private MethodStructure(final String name, final String desc,
+			final String signature, final int firstLine, final int lastLine,
+			final int[] lines, final int[] predecessors, final int[] branches,
+			final int[] probeIds, final int[] probeInstructions) {
+		this.name = name;
+		this.desc = desc;
+		this.signature = signature;
+		this.firstLine = firstLine;
+		this.lastLine = lastLine;
+		this.lines = lines;
+		this.predecessors = predecessors;
+		this.branches = branches;
+		this.probeIds = probeIds;
+		this.probeInstructions = probeInstructions;
+	}
+
+	/**
+	 * Calculates the coverage of this method for the given probe data.
+	 *
+	 * @param probes
+	 *            probe data of the containing class or <code>null</code>
+	 * @param hitCounts
+	 *            hit counts of the containing class or <code>null</code>
+	 * @return coverage of this method
+	 */
+	MethodCoverageImpl createCoverage(final boolean[] probes,
+			final int[] hitCounts) {
+		final List<Instruction> instructions = new ArrayList<Instruction>(
+				lines.length);
+		for (final int line : lines) {
+			instructions.add(new Instruction(line));
+		}
+		for (int i = 0; i < predecessors.length; i++) {
+			if (predecessors[i] != NO_PREDECESSOR) {
+				instructions.get(i).setPredecessor(
+						instructions.get(predecessors[i]));
+			}
+		}
+		// Remaining branches are jumps to overwritten predecessors and probes:
+		for (int i = 0; i < branches.length; i++) {
+			final Instruction insn = instructions.get(i);
+			for (int b = insn.getBranches(); b < branches[i]; b++) {
+				insn.addBranch();
+			}
+		}
+		final List<Probe> probeList = new ArrayList<Probe>(probeIds.length);
+		for (int i = 0; i < probeIds.length; i++) {
+			probeList.add(new Probe(instructions.get(probeInstructions[i]),
+					probeIds[i]));
+		}
+		final MethodCoverageImpl coverage = new MethodCoverageImpl(name, desc,
+				signature);
+		MethodAnalyzer.calculateCoverage(coverage, instructions, probeList,
+				probes, hitCounts, firstLine, lastLine);
+		return coverage;
+	}
+
+	/**
+	 * Writes this structure to the given output.
+	 *
+	 * @param out
+	 *            output to write to
+	 * @throws IOException
+	 *             if the output can't be written
+	 */
+	void write(final CompactDataOutput out) throws IOException {
+		out.writeUTF(name);
+		out.writeUTF(desc);
+		ClassStructure.writeOptionalUTF(out, signature);
+		out.writeVarInt(firstLine);
+		out.writeVarInt(lastLine);
+		out.writeVarInt(lines.length);
+		for (int i = 0; i < lines.length; i++) {
+			out.writeVarInt(lines[i]);
+			out.writeVarInt(predecessors[i] + 1);
+			out.writeVarInt(branches[i]);
+		}
+		out.writeVarInt(probeIds.length);
+		for (int i = 0; i < probeIds.length; i++) {
+			out.writeVarInt(probeIds[i]);
+			out.writeVarInt(probeInstructions[i]);
+		}
+	}
+
+	/**
+	 * Reads a structure written by {@link #write(CompactDataOutput)}.
+	 *
+	 * @param in
+	 *            input to read from
+	 * @param stringPool
+	 *            pool to normalize strings
+	 * @return structure read from the input
+	 * @throws IOException
+	 *             if the input can't be read
+	 */
+	static MethodStructure read(final CompactDataInput in,
+			final StringPool stringPool) throws IOException {
+		final String name = stringPool.get(in.readUTF());
+		final String desc = stringPool.get(in.readUTF());
+		final String signature = stringPool.get(ClassStructure
+				.readOptionalUTF(in));
+		final int firstLine = in.readVarInt();
+		final int lastLine = in.readVarInt();
+		final int size = in.readVarInt();
+		final int[] lines = new int[size];
+		final int[] predecessors = new int[size];
+		final int[] branches = new int[size];
+		for (int i = 0; i < size; i++) {
+			lines[i] = in.readVarInt();
+			predecessors[i] = in.readVarInt() - 1;
+			branches[i] = in.readVarInt();
+		}
+		final int probeCount = in.readVarInt();
+		final int[] probeIds = new int[probeCount];
+		final int[] probeInstructions = new int[probeCount];
+		for (int i = 0; i < probeCount; i++) {
+			probeIds[i] = in.readVarInt();
+			probeInstructions[i] = in.readVarInt();
+		}
+		return new MethodStructure(name, desc, signature, firstLine, lastLine,
+				lines, predecessors, branches, probeIds, probeInstructions);
+	}
+
+}
@@ -17,11 +17,38 @@ import org.jacoco.core.analysis.ILine;
 import org.jacoco.core.analysis.ISourceNode;
 
 /**
- * Implementation of {@link ISourceNode}.
+ * Implementation of {@link ISourceNode}. The counters of the lines are kept in
+ * primitive arrays, {@link ILine} instances are only created on request by
+ * {@link #getLine(int)}.
  */
 public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 
-	private LineImpl[] lines;
+	/** Number of counter values per line */
+	private static final int VALUES = 4;
+
+	private static final int INSTRUCTIONS_MISSED = 0;
+
+	private static final int INSTRUCTIONS_COVERED = 1;
+
+	private static final int BRANCHES_MISSED = 2;
+
+	private static final int BRANCHES_COVERED = 3;
+
+	/** Max counter value which can be stored in packed form */
+	private static final int PACKED_LIMIT = 0xFF;
+
+	/**
+	 * Counter values of all lines starting with line {@link #offset}. As long
+	 * as all values fit into a byte the four values of a line are packed into
+	 * a single int, otherwise every value has its own slot.
+	 */
+	private int[] lines;
+
+	/** <code>true</code> if the {@link #lines} are stored in packed form */
+	private boolean packed;
+
+	/** hit counts of the lines, only created if there are any */
+	private int[] hitCounts;
 
 	/** first line number in {@link #lines} */
 	private int offset;
@@ -37,6 +64,8 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 	public SourceNodeImpl(final ElementType elementType, final String name) {
 		super(elementType, name);
 		lines = null;
+		packed = true;
+		hitCounts = null;
 		offset = UNKNOWN_LINE;
 	}
 
@@ -56,21 +85,30 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 		}
 		if (lines == null) {
 			offset = first;
-			lines = new LineImpl[last - first + 1];
+			lines = new int[(last - first + 1) * getStride()];
 		} else {
 			final int newFirst = Math.min(getFirstLine(), first);
 			final int newLast = Math.max(getLastLine(), last);
 			final int newLength = newLast - newFirst + 1;
-			if (newLength > lines.length) {
-				final LineImpl[] newLines = new LineImpl[newLength];
-				System.arraycopy(lines, 0, newLines, offset - newFirst,
-						lines.length);
+			if (newLength > getLength()) {
+				final int shift = offset - newFirst;
+				lines = resize(lines, shift * getStride(), newLength
+						* getStride());
+				if (hitCounts != null) {
+					hitCounts = resize(hitCounts, shift, newLength);
+				}
 				offset = newFirst;
-				lines = newLines;
 			}
 		}
 	}
 
+	private static int[] resize(final int[] source, final int position,
+			final int length) {
+		final int[] target = new int[length];
+		System.arraycopy(source, 0, target, position, source.length);
+		return target;
+	}
+
 	/**
 	 * Increments all counters by the values of the given child. When
 	 * incrementing the line counter it is assumed that the child refers to the
@@ -91,10 +129,49 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 		if (firstLine != UNKNOWN_LINE) {
 			final int lastLine = child.getLastLine();
 			ensureCapacity(firstLine, lastLine);
-			for (int i = firstLine; i <= lastLine; i++) {
-				final ILine line = child.getLine(i);
-				incrementLine(line.getInstructionCounter(),
-						line.getBranchCounter(), i);
+			if (child instanceof SourceNodeImpl) {
+				incrementLines((SourceNodeImpl) child);
+			} else {
+				for (int i = firstLine; i <= lastLine; i++) {
+					final ILine line = child.getLine(i);
+					final ICounter instructions = line
+							.getInstructionCounter();
+					final ICounter branches = line.getBranchCounter();
+					incrementLine(instructions.getMissedCount(),
+							instructions.getCoveredCount(),
+							branches.getMissedCount(),
+							branches.getCoveredCount(), i);
+					updateHitCount(LineImpl.hitCountOf(line), i);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the lines of the given node directly from its arrays without
+	 * creating {@link ILine} instances.
+	 */
+	private void incrementLines(final SourceNodeImpl child) {
+		final int length = child.getLength();
+		for (int i = 0; i < length; i++) {
+			final int nr = child.offset + i;
+			if (child.packed) {
+				final int value = child.lines[i];
+				if (value != 0) {
+					incrementLine(unpack(value, INSTRUCTIONS_MISSED),
+							unpack(value, INSTRUCTIONS_COVERED),
+							unpack(value, BRANCHES_MISSED),
+							unpack(value, BRANCHES_COVERED), nr);
+				}
+			} else {
+				final int pos = i * VALUES;
+				incrementLine(child.lines[pos + INSTRUCTIONS_MISSED],
+						child.lines[pos + INSTRUCTIONS_COVERED],
+						child.lines[pos + BRANCHES_MISSED],
+						child.lines[pos + BRANCHES_COVERED], nr);
+			}
+			if (child.hitCounts != null) {
+				updateHitCount(child.hitCounts[i], nr);
 			}
 		}
 	}
@@ -114,23 +191,50 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 	public void increment(final ICounter instructions, final ICounter branches,
 			final int line) {
 		if (line != UNKNOWN_LINE) {
-			incrementLine(instructions, branches, line);
+			incrementLine(instructions.getMissedCount(),
+					instructions.getCoveredCount(), branches.getMissedCount(),
+					branches.getCoveredCount(), line);
 		}
 		instructionCounter = instructionCounter.increment(instructions);
 		branchCounter = branchCounter.increment(branches);
 	}
 
-	private void incrementLine(final ICounter instructions,
-			final ICounter branches, final int line) {
+	/**
+	 * Raises the hit count of the given line to the given value if it is
+	 * higher than the current hit count of the line.
+	 * 
+	 * @param hitCount
+	 *            number of executions
+	 * @param line
+	 *            line number or {@link ISourceNode#UNKNOWN_LINE}
+	 */
+	public void updateHitCount(final int hitCount, final int line) {
+		if (line != UNKNOWN_LINE && hitCount > 0) {
+			ensureCapacity(line, line);
+			if (hitCounts == null) {
+				hitCounts = new int[getLength()];
+			}
+			final int i = line - offset;
+			hitCounts[i] = Math.max(hitCounts[i], hitCount);
+		}
+	}
+
+	private void incrementLine(final int instructionsMissed,
+			final int instructionsCovered, final int branchesMissed,
+			final int branchesCovered, final int line) {
 		ensureCapacity(line, line);
-		final LineImpl l = getLine(line);
-		final int oldTotal = l.getInstructionCounter().getTotalCount();
-		final int oldCovered = l.getInstructionCounter().getCoveredCount();
-		lines[line - offset] = l.increment(instructions, branches);
+		final int i = line - offset;
+		final int oldMissed = getValue(i, INSTRUCTIONS_MISSED);
+		final int oldCovered = getValue(i, INSTRUCTIONS_COVERED);
+		setValues(i, oldMissed + instructionsMissed, oldCovered
+				+ instructionsCovered, getValue(i, BRANCHES_MISSED)
+				+ branchesMissed, getValue(i, BRANCHES_COVERED)
+				+ branchesCovered);
 
 		// Increment line counter:
-		if (instructions.getTotalCount() > 0) {
-			if (instructions.getCoveredCount() == 0) {
+		final int oldTotal = oldMissed + oldCovered;
+		if (instructionsMissed + instructionsCovered > 0) {
+			if (instructionsCovered == 0) {
 				if (oldTotal == 0) {
 					lineCounter = lineCounter
 							.increment(CounterImpl.COUNTER_1_0);
@@ -148,6 +252,59 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 		}
 	}
 
+	private int getStride() {
+		return packed ? 1 : VALUES;
+	}
+
+	private int getLength() {
+		return lines.length / getStride();
+	}
+
+	private static int unpack(final int value, final int index) {
+		return (value >>> (index * 8)) & PACKED_LIMIT;
+	}
+
+	private int getValue(final int i, final int index) {
+		if (packed) {
+			return unpack(lines[i], index);
+		}
+		return lines[i * VALUES + index];
+	}
+
+	private void setValues(final int i, final int instructionsMissed,
+			final int instructionsCovered, final int branchesMissed,
+			final int branchesCovered) {
+		if (packed) {
+			final int all = instructionsMissed | instructionsCovered
+					| branchesMissed | branchesCovered;
+			if ((all & ~PACKED_LIMIT) == 0) {
+				lines[i] = instructionsMissed | instructionsCovered << 8
+						| branchesMissed << 16 | branchesCovered << 24;
+				return;
+			}
+			expand();
+		}
+		final int pos = i * VALUES;
+		lines[pos + INSTRUCTIONS_MISSED] = instructionsMissed;
+		lines[pos + INSTRUCTIONS_COVERED] = instructionsCovered;
+		lines[pos + BRANCHES_MISSED] = branchesMissed;
+		lines[pos + BRANCHES_COVERED] = branchesCovered;
+	}
+
+	/**
+	 * Switches to the unpacked form where every value has its own slot.
+	 */
+	private void expand() {
+		final int[] expanded = new int[lines.length * VALUES];
+		for (int i = 0; i < lines.length; i++) {
+			for (int index = 0; index < VALUES; index++) {
+				expanded[i * VALUES + index] = unpack(lines[i], index);
+			}
+		}
+		lines = expanded;
+		packed = false;
+	}
+
 	// === ISourceNode implementation ===
 
 	public int getFirstLine() {
@@ -155,15 +312,18 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 	}
 
 	public int getLastLine() {
-		return lines == null ? UNKNOWN_LINE : (offset + lines.length - 1);
+		return lines == null ? UNKNOWN_LINE : (offset + getLength() - 1);
 	}
 
 	public LineImpl getLine(final int nr) {
 		if (lines == null || nr < getFirstLine() || nr > getLastLine()) {
 			return LineImpl.EMPTY;
 		}
-		final LineImpl line = lines[nr - offset];
-		return line == null ? LineImpl.EMPTY : line;
+		final int i = nr - offset;
+		return LineImpl.getInstance(getValue(i, INSTRUCTIONS_MISSED),
+				getValue(i, INSTRUCTIONS_COVERED),
+				getValue(i, BRANCHES_MISSED), getValue(i, BRANCHES_COVERED),
+				hitCounts == null ? 0 : hitCounts[i]);
 	}
 
 }
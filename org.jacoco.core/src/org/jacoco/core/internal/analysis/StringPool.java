@@ -12,22 +12,23 @@
  *******************************************************************************/
 package org.jacoco.core.internal.analysis;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Utility to normalize {@link String} instances in a way that if
  * <code>equals()</code> is <code>true</code> for two strings they will be
  * represented the same instance. While this is exactly what
  * {@link String#intern()} does, this implementation avoids VM specific side
- * effects and is supposed to be faster, as neither native code is called nor
- * synchronization is required for concurrent lookup.
+ * effects and is supposed to be faster, as no native code is called. Instances
+ * can safely be shared between threads analyzing classes in parallel.
  */
 public final class StringPool {
 
 	private static final String[] EMPTY_ARRAY = new String[0];
 
-	private final Map<String, String> pool = new HashMap<String, String>(1024);
+	private final ConcurrentMap<String, String> pool = new ConcurrentHashMap<String, String>(
+			1024);
 
 	/**
 	 * Returns a normalized instance that is equal to the given {@link String} .
@@ -42,8 +43,8 @@ public final class StringPool {
 		}
 		final String norm = pool.get(s);
 		if (norm == null) {
-			pool.put(s, s);
-			return s;
+			final String other = pool.putIfAbsent(s, s);
+			return other == null ? s : other;
 		}
 		return norm;
 	}
@@ -68,4 +68,20 @@ public class CompactDataInput extends DataInputStream {
 		return value;
 	}
 
+	/**
+	 * Reads an array of integers written by
+	 * {@link CompactDataOutput#writeVarIntArray(int[])}.
+	 * 
+	 * @return int array
+	 * @throws IOException
+	 *             if thrown by the underlying stream
+	 */
+	public int[] readVarIntArray() throws IOException {
+		final int[] value = new int[readVarInt()];
+		for (int i = 0; i < value.length; i++) {
+			value[i] = readVarInt();
+		}
+		return value;
+	}
+
 }
@@ -80,4 +80,20 @@ public class CompactDataOutput extends DataOutputStream {
 		}
 	}
 
+	/**
+	 * Writes an array of non-negative integers. Every value is written in the
+	 * variable length encoding of {@link #writeVarInt(int)}.
+	 * 
+	 * @param value
+	 *            int array
+	 * @throws IOException
+	 *             if thrown by the underlying stream
+	 */
+	public void writeVarIntArray(final int[] value) throws IOException {
+		writeVarInt(value.length);
+		for (final int i : value) {
+			writeVarInt(i);
+		}
+	}
+
 }
@@ -0,0 +1,420 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.flow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Class visitor which calculates the control flow information of the labels of
+ * all methods in a separate pass over a {@link ClassReader}. Other than
+ * {@link LabelFlowAnalyzer#markLabels(org.objectweb.asm.tree.MethodNode)} no
+ * tree representation of the methods is created.
+ *
+ * As {@link ClassReader} creates new {@link Label} instances for every pass the
+ * labels are recorded in the order of their first occurrence together with
+ * their instruction position. A subsequent pass over the same reader attaches
+ * the recorded information to its labels with the adapter created by
+ * {@link MethodFlow#createAdapter(MethodVisitor)}. To keep the separate pass
+ * cheap stackmap frames are skipped. Labels which only exist for frames in the
+ * subsequent pass get their successor information calculated on the fly.
+ */
+final class ClassFlowAnalyzer extends ClassVisitor {
+
+	/** Position of labels which first occur as a jump or block reference */
+	private static final int REFERENCE = -1;
+
+	private final List<MethodFlow> methods = new ArrayList<MethodFlow>();
+
+	private int next = 0;
+
+	private ClassFlowAnalyzer() {
+		super(InstrSupport.ASM_API_VERSION);
+	}
+
+	/**
+	 * Calculates the control flow information for all methods of the class
+	 * from the given reader.
+	 *
+	 * @param reader
+	 *            reader with the class definition
+	 * @param flags
+	 *            flags which will be used for the actual pass over the reader
+	 * @return flow information for all methods
+	 */
+	static ClassFlowAnalyzer analyze(final ClassReader reader, final int flags) {
+		final ClassFlowAnalyzer analyzer = new ClassFlowAnalyzer();
+		reader.accept(analyzer, (flags & ClassReader.SKIP_DEBUG)
+				| ClassReader.SKIP_FRAMES);
+		return analyzer;
+	}
+
+	/**
+	 * Returns the flow information of the next method.
+	 *
+	 * @return flow information of the next method or <code>null</code> if the
+	 *         method contains subroutines and has to be sanitized first
+	 */
+	MethodFlow nextMethod() {
+		return methods.get(next++);
+	}
+
+	@Override
+	public MethodVisitor visitMethod(final int access, final String name,
+			final String desc, final String signature, final String[] exceptions) {
+		return new LabelRecorder();
+	}
+
+	/**
+	 * Recorded labels of a single method.
+	 */
+	static final class MethodFlow {
+
+		private final Label[] labels;
+
+		private final int[] positions;
+
+		private MethodFlow(final Label[] labels, final int[] positions) {
+			this.labels = labels;
+			this.positions = positions;
+		}
+
+		/**
+		 * Creates an adapter which attaches the recorded flow information to
+		 * the labels of the current pass before it delegates to the given
+		 * visitor.
+		 *
+		 * @param mv
+		 *            visitor to delegate to
+		 * @return adapter for the current pass over the method
+		 */
+		MethodVisitor createAdapter(final MethodVisitor mv) {
+			return new LabelFlowAdapter(this, mv);
+		}
+
+	}
+
+	/**
+	 * Base class for method visitors which track the position of the current
+	 * instruction.
+	 */
+	private abstract static class PositionVisitor extends MethodVisitor {
+
+		/** Number of instructions visited so far */
+		int position = 0;
+
+		PositionVisitor(final MethodVisitor mv) {
+			super(InstrSupport.ASM_API_VERSION, mv);
+		}
+
+		/**
+		 * Called for every instruction before it is passed to the delegate.
+		 *
+		 * @param opcode
+		 *            opcode of the instruction
+		 */
+		void instruction(final int opcode) {
+			position++;
+		}
+
+		@Override
+		public void visitInsn(final int opcode) {
+			instruction(opcode);
+			super.visitInsn(opcode);
+		}
+
+		@Override
+		public void visitIntInsn(final int opcode, final int operand) {
+			instruction(opcode);
+			super.visitIntInsn(opcode, operand);
+		}
+
+		@Override
+		public void visitVarInsn(final int opcode, final int var) {
+			instruction(opcode);
+			super.visitVarInsn(opcode, var);
+		}
+
+		@Override
+		public void visitTypeInsn(final int opcode, final String type) {
+			instruction(opcode);
+			super.visitTypeInsn(opcode, type);
+		}
+
+		@Override
+		public void visitFieldInsn(final int opcode, final String owner,
+				final String name, final String desc) {
+			instruction(opcode);
+			super.visitFieldInsn(opcode, owner, name, desc);
+		}
+
+		@Override
+		public void visitMethodInsn(final int opcode, final String owner,
+				final String name, final String desc, final boolean itf) {
+			instruction(opcode);
+			super.visitMethodInsn(opcode, owner, name, desc, itf);
+		}
+
+		@Override
+		public void visitInvokeDynamicInsn(final String name,
+				final String desc, final Handle bsm, final Object... bsmArgs) {
+			instruction(Opcodes.INVOKEDYNAMIC);
+			super.visitInvokeDynamicInsn(name, desc, bsm, bsmArgs);
+		}
+
+		@Override
+		public void visitJumpInsn(final int opcode, final Label label) {
+			instruction(opcode);
+			super.visitJumpInsn(opcode, label);
+		}
+
+		@Override
+		public void visitLdcInsn(final Object cst) {
+			instruction(Opcodes.LDC);
+			super.visitLdcInsn(cst);
+		}
+
+		@Override
+		public void visitIincInsn(final int var, final int increment) {
+			instruction(Opcodes.IINC);
+			super.visitIincInsn(var, increment);
+		}
+
+		@Override
+		public void visitTableSwitchInsn(final int min, final int max,
+				final Label dflt, final Label... labels) {
+			instruction(Opcodes.TABLESWITCH);
+			super.visitTableSwitchInsn(min, max, dflt, labels);
+		}
+
+		@Override
+		public void visitLookupSwitchInsn(final Label dflt, final int[] keys,
+				final Label[] labels) {
+			instruction(Opcodes.LOOKUPSWITCH);
+			super.visitLookupSwitchInsn(dflt, keys, labels);
+		}
+
+		@Override
+		public void visitMultiANewArrayInsn(final String desc, final int dims) {
+			instruction(Opcodes.MULTIANEWARRAY);
+			super.visitMultiANewArrayInsn(desc, dims);
+		}
+
+	}
+
+	/**
+	 * Records all labels of a method at their first occurrence and calculates
+	 * their flow information with a {@link LabelFlowAnalyzer}.
+	 */
+	private class LabelRecorder extends PositionVisitor {
+
+		private final List<Label> labels = new ArrayList<Label>();
+
+		private int[] positions = new int[16];
+
+		private boolean subroutines = false;
+
+		LabelRecorder() {
+			super(new LabelFlowAnalyzer());
+		}
+
+		private void record(final Label label, final int position) {
+			if (LabelInfo.attach(label)) {
+				if (labels.size() == positions.length) {
+					final int[] newPositions = new int[positions.length * 2];
+					System.arraycopy(positions, 0, newPositions, 0,
+							positions.length);
+					positions = newPositions;
+				}
+				positions[labels.size()] = position;
+				labels.add(label);
+			}
+		}
+
+		@Override
+		void instruction(final int opcode) {
+			super.instruction(opcode);
+			if (opcode == Opcodes.JSR || opcode == Opcodes.RET) {
+				// Subroutines are inlined by MethodSanitizer in the actual pass
+				subroutines = true;
+				mv = null;
+			}
+		}
+
+		@Override
+		public void visitTryCatchBlock(final Label start, final Label end,
+				final Label handler, final String type) {
+			record(start, REFERENCE);
+			record(end, REFERENCE);
+			record(handler, REFERENCE);
+			super.visitTryCatchBlock(start, end, handler, type);
+		}
+
+		@Override
+		public void visitLabel(final Label label) {
+			record(label, position);
+			super.visitLabel(label);
+		}
+
+		@Override
+		public void visitJumpInsn(final int opcode, final Label label) {
+			record(label, REFERENCE);
+			super.visitJumpInsn(opcode, label);
+		}
+
+		@Override
+		public void visitTableSwitchInsn(final int min, final int max,
+				final Label dflt, final Label... labels) {
+			recordSwitch(dflt, labels);
+			super.visitTableSwitchInsn(min, max, dflt, labels);
+		}
+
+		@Override
+		public void visitLookupSwitchInsn(final Label dflt, final int[] keys,
+				final Label[] labels) {
+			recordSwitch(dflt, labels);
+			super.visitLookupSwitchInsn(dflt, keys, labels);
+		}
+
+		private void recordSwitch(final Label dflt, final Label[] labels) {
+			record(dflt, REFERENCE);
+			for (final Label l : labels) {
+				record(l, REFERENCE);
+			}
+		}
+
+		@Override
+		public void visitEnd() {
+			if (subroutines) {
+				methods.add(null);
+			} else {
+				final Label[] array = labels.toArray(new Label[labels.size()]);
+				methods.add(new MethodFlow(array, positions));
+			}
+		}
+
+	}
+
+	/**
+	 * Attaches the recorded flow information to the labels of the current
+	 * pass. Labels which have not been recorded only exist for stackmap frames.
+	 */
+	private static class LabelFlowAdapter extends PositionVisitor {
+
+		private final MethodFlow flow;
+
+		private int next = 0;
+
+		private boolean successor = false;
+
+		LabelFlowAdapter(final MethodFlow flow, final MethodVisitor mv) {
+			super(mv);
+			this.flow = flow;
+		}
+
+		private void transfer(final Label label, final int position) {
+			if (next < flow.labels.length && flow.positions[next] == position
+					&& LabelInfo.transfer(flow.labels[next], label)) {
+				next++;
+			}
+		}
+
+		@Override
+		void instruction(final int opcode) {
+			super.instruction(opcode);
+			switch (opcode) {
+			case Opcodes.GOTO:
+			case Opcodes.TABLESWITCH:
+			case Opcodes.LOOKUPSWITCH:
+			case Opcodes.IRETURN:
+			case Opcodes.LRETURN:
+			case Opcodes.FRETURN:
+			case Opcodes.DRETURN:
+			case Opcodes.ARETURN:
+			case Opcodes.RETURN:
+			case Opcodes.ATHROW:
+				successor = false;
+				break;
+			default:
+				successor = true;
+				break;
+			}
+		}
+
+		@Override
+		public void visitTryCatchBlock(final Label start, final Label end,
+				final Label handler, final String type) {
+			transfer(start, REFERENCE);
+			transfer(end, REFERENCE);
+			transfer(handler, REFERENCE);
+			super.visitTryCatchBlock(start, end, handler, type);
+		}
+
+		@Override
+		public void visitLabel(final Label label) {
+			transfer(label, position);
+			if (LabelInfo.attach(label) && successor) {
+				LabelInfo.setSuccessor(label);
+			}
+			super.visitLabel(label);
+		}
+
+		@Override
+		public void visitJumpInsn(final int opcode, final Label label) {
+			transfer(label, REFERENCE);
+			super.visitJumpInsn(opcode, label);
+		}
+
+		@Override
+		public void visitTableSwitchInsn(final int min, final int max,
+				final Label dflt, final Label... labels) {
+			transferSwitch(dflt, labels);
+			super.visitTableSwitchInsn(min, max, dflt, labels);
+		}
+
+		@Override
+		public void visitLookupSwitchInsn(final Label dflt, final int[] keys,
+				final Label[] labels) {
+			transferSwitch(dflt, labels);
+			super.visitLookupSwitchInsn(dflt, keys, labels);
+		}
+
+		private void transferSwitch(final Label dflt, final Label[] labels) {
+			transfer(dflt, REFERENCE);
+			for (final Label l : labels) {
+				transfer(l, REFERENCE);
+			}
+		}
+
+		@Override
+		public void visitLocalVariable(final String name, final String desc,
+				final String signature, final Label start, final Label end,
+				final int index) {
+			// Same as MethodSanitizer: Labels which did not occur before point
+			// to invalid offsets.
+			if (start.info != null && end.info != null) {
+				super.visitLocalVariable(name, desc, signature, start, end,
+						index);
+			}
+		}
+
+	}
+
+}
@@ -11,14 +11,20 @@
  *******************************************************************************/
 package org.jacoco.core.internal.flow;
 
+import org.jacoco.core.internal.flow.ClassFlowAnalyzer.MethodFlow;
 import org.jacoco.core.internal.instr.InstrSupport;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.commons.AnalyzerAdapter;
 
 /**
  * A {@link org.objectweb.asm.ClassVisitor} that calculates probes for every
- * method.
+ * method. By default every method is buffered to calculate its control flow
+ * before the probes are emitted. When the class is visited with
+ * {@link #accept(ClassReader, ClassProbesVisitor, boolean, int)} the control
+ * flow is calculated in a separate lightweight pass and methods are processed
+ * without buffering, unless they contain subroutines.
  */
 public class ClassProbesAdapter extends ClassVisitor implements
 		IProbeIdGenerator {
@@ -30,6 +36,8 @@ public class ClassProbesAdapter extends ClassVisitor implements
 
 	private final boolean trackFrames;
 
+	private final ClassFlowAnalyzer flow;
+
 	private int counter = 0;
 
 	private String name;
@@ -44,9 +52,37 @@ public class ClassProbesAdapter extends ClassVisitor implements
 	 */
 	public ClassProbesAdapter(final ClassProbesVisitor cv,
 			final boolean trackFrames) {
+		this(cv, trackFrames, null);
+	}
+
+	private ClassProbesAdapter(final ClassProbesVisitor cv,
+			final boolean trackFrames, final ClassFlowAnalyzer flow) {
 		super(InstrSupport.ASM_API_VERSION, cv);
 		this.cv = cv;
 		this.trackFrames = trackFrames;
+		this.flow = flow;
+	}
+
+	/**
+	 * Visits the class from the given reader with a new adapter that delegates
+	 * to the given visitor. The control flow of all methods is calculated in
+	 * advance with a separate pass over the reader, so methods without
+	 * subroutines are processed without buffering.
+	 * 
+	 * @param reader
+	 *            reader with the class definition
+	 * @param cv
+	 *            instance to delegate to
+	 * @param trackFrames
+	 *            if <code>true</code> stackmap frames are tracked and provided
+	 * @param flags
+	 *            option flags for {@link ClassReader#accept(ClassVisitor, int)}
+	 */
+	public static void accept(final ClassReader reader,
+			final ClassProbesVisitor cv, final boolean trackFrames,
+			final int flags) {
+		final ClassFlowAnalyzer flow = ClassFlowAnalyzer.analyze(reader, flags);
+		reader.accept(new ClassProbesAdapter(cv, trackFrames, flow), flags);
 	}
 
 	@Override
@@ -70,6 +106,18 @@ public class ClassProbesAdapter extends ClassVisitor implements
 		} else {
 			methodProbes = mv;
 		}
+		final MethodFlow methodFlow = flow == null ? null : flow.nextMethod();
+		if (methodFlow != null) {
+			final MethodProbesAdapter probesAdapter = new MethodProbesAdapter(
+					methodProbes, this);
+			if (trackFrames) {
+				final AnalyzerAdapter analyzer = new AnalyzerAdapter(
+						this.name, access, name, desc, probesAdapter);
+				probesAdapter.setAnalyzer(analyzer);
+				return methodFlow.createAdapter(analyzer);
+			}
+			return methodFlow.createAdapter(probesAdapter);
+		}
 		return new MethodSanitizer(null, access, name, desc, signature,
 				exceptions) {
 
@@ -11,6 +11,8 @@
  *******************************************************************************/
 package org.jacoco.core.internal.flow;
 
+import java.util.List;
+
 /**
  * Representation of a byte code instruction for analysis. Internally used for
  * analysis.
@@ -25,6 +27,11 @@ public class Instruction {
 
 	private Instruction predecessor;
 
+	private int executions;
+
+	/** number of instructions which have this instruction as predecessor */
+	private int successors;
+
 	/**
 	 * New instruction at the given line.
 	 * 
@@ -57,6 +64,15 @@ public class Instruction {
 		predecessor.addBranch();
 	}
 
+	/**
+	 * Returns the predecessor of this instruction.
+	 * 
+	 * @return predecessor instruction or <code>null</code>
+	 */
+	public Instruction getPredecessor() {
+		return predecessor;
+	}
+
 	/**
 	 * Marks one branch of this instruction as covered. Also recursively marks
 	 * all predecessor instructions as covered if this is the first covered
@@ -69,6 +85,87 @@ public class Instruction {
 		}
 	}
 
+	/**
+	 * Adds the given number of executions to this instruction. The sum
+	 * saturates at {@link Integer#MAX_VALUE}. To add the executions to all
+	 * predecessors {@link #propagateExecutions(List)} has to be called
+	 * afterwards.
+	 * 
+	 * @param count
+	 *            number of executions to add
+	 */
+	public void addExecutions(final int count) {
+		executions = saturatedSum(executions, count);
+	}
+
+	/**
+	 * Adds the executions of every given instruction to all its predecessors.
+	 * All instructions are processed in a single pass where every instruction
+	 * is visited after all instructions it is the predecessor of. Instructions
+	 * on a cyclic predecessor chain all get the sum of the executions which
+	 * reach the cycle.
+	 * 
+	 * @param instructions
+	 *            all instructions of a method
+	 */
+	public static void propagateExecutions(
+			final List<Instruction> instructions) {
+		for (final Instruction i : instructions) {
+			if (i.predecessor != null) {
+				i.predecessor.successors++;
+			}
+		}
+		final Instruction[] queue = new Instruction[instructions.size()];
+		int head = 0;
+		int tail = 0;
+		for (final Instruction i : instructions) {
+			if (i.successors == 0) {
+				queue[tail++] = i;
+			}
+		}
+		while (head < tail) {
+			final Instruction i = queue[head++];
+			final Instruction p = i.predecessor;
+			if (p != null) {
+				p.executions = saturatedSum(p.executions, i.executions);
+				if (--p.successors == 0) {
+					queue[tail++] = p;
+				}
+			}
+		}
+		// All remaining instructions are part of cycles:
+		for (final Instruction i : instructions) {
+			if (i.successors != 0) {
+				int sum = 0;
+				Instruction c = i;
+				do {
+					sum = saturatedSum(sum, c.executions);
+					c = c.predecessor;
+				} while (c != i);
+				do {
+					c.executions = sum;
+					c.successors = 0;
+					c = c.predecessor;
+				} while (c != i);
+			}
+		}
+	}
+
+	private static int saturatedSum(final int a, final int b) {
+		final int sum = a + b;
+		return sum < 0 ? Integer.MAX_VALUE : sum;
+	}
+
+	/**
+	 * Returns the number of executions of this instruction as added with
+	 * {@link #addExecutions(int)} and {@link #propagateExecutions(List)}.
+	 * 
+	 * @return number of executions
+	 */
+	public int getExecutions() {
+		return executions;
+	}
+
 	/**
 	 * Returns the source line this instruction belongs to.
 	 * 
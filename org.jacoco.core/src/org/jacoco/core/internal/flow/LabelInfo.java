@@ -268,6 +268,41 @@ public final class LabelInfo {
 		return info == null ? null : info.instruction;
 	}
 
+	/**
+	 * Attaches empty flow information to the given label if it has no
+	 * information yet.
+	 * 
+	 * @param label
+	 *            label to attach information to
+	 * @return <code>true</code> if the label had no information before
+	 */
+	public static boolean attach(final Label label) {
+		if (get(label) != null) {
+			return false;
+		}
+		label.info = new LabelInfo();
+		return true;
+	}
+
+	/**
+	 * Attaches the flow information of the source label to the target label if
+	 * the target label has no information yet. The information is shared, so
+	 * the source label must not be used afterwards.
+	 * 
+	 * @param source
+	 *            label to take information from
+	 * @param target
+	 *            label to attach information to
+	 * @return <code>true</code> if the target label had no information before
+	 */
+	public static boolean transfer(final Label source, final Label target) {
+		if (get(target) != null) {
+			return false;
+		}
+		target.info = get(source);
+		return true;
+	}
+
 	private static LabelInfo get(final Label label) {
 		final Object info = label.info;
 		return info instanceof LabelInfo ? (LabelInfo) info : null;
@@ -24,11 +24,6 @@ import org.objectweb.asm.Opcodes;
  */
 class ClassFieldProbeArrayStrategy implements IProbeArrayStrategy {
 
-	/**
-	 * Frame stack with a single boolean array.
-	 */
-	private static final Object[] FRAME_STACK_ARRZ = new Object[] { InstrSupport.DATAFIELD_DESC };
-
 	/**
 	 * Empty frame locals.
 	 */
@@ -38,21 +33,31 @@ class ClassFieldProbeArrayStrategy implements IProbeArrayStrategy {
 	private final long classId;
 	private final boolean withFrames;
 	private final IExecutionDataAccessorGenerator accessorGenerator;
+	private final String dataFieldDesc;
+	private final String initMethodDesc;
 
 	ClassFieldProbeArrayStrategy(final String className, final long classId,
 			final boolean withFrames,
 			final IExecutionDataAccessorGenerator accessorGenerator) {
+		this(className, classId, withFrames, accessorGenerator, false);
+	}
+
+	ClassFieldProbeArrayStrategy(final String className, final long classId,
+			final boolean withFrames,
+			final IExecutionDataAccessorGenerator accessorGenerator,
+			final boolean hitCounts) {
 		this.className = className;
 		this.classId = classId;
 		this.withFrames = withFrames;
 		this.accessorGenerator = accessorGenerator;
+		this.dataFieldDesc = InstrSupport.getDataFieldDesc(hitCounts);
+		this.initMethodDesc = InstrSupport.getInitMethodDesc(hitCounts);
 	}
 
 	public int storeInstance(final MethodVisitor mv, final boolean clinit,
 			final int variable) {
 		mv.visitMethodInsn(Opcodes.INVOKESTATIC, className,
-				InstrSupport.INITMETHOD_NAME, InstrSupport.INITMETHOD_DESC,
-				false);
+				InstrSupport.INITMETHOD_NAME, initMethodDesc, false);
 		mv.visitVarInsn(Opcodes.ASTORE, variable);
 		return 1;
 	}
@@ -64,18 +69,17 @@ class ClassFieldProbeArrayStrategy implements IProbeArrayStrategy {
 
 	private void createDataField(final ClassVisitor cv) {
 		cv.visitField(InstrSupport.DATAFIELD_ACC, InstrSupport.DATAFIELD_NAME,
-				InstrSupport.DATAFIELD_DESC, null, null);
+				dataFieldDesc, null, null);
 	}
 
 	private void createInitMethod(final ClassVisitor cv, final int probeCount) {
 		final MethodVisitor mv = cv.visitMethod(InstrSupport.INITMETHOD_ACC,
-				InstrSupport.INITMETHOD_NAME, InstrSupport.INITMETHOD_DESC,
-				null, null);
+				InstrSupport.INITMETHOD_NAME, initMethodDesc, null, null);
 		mv.visitCode();
 
 		// Load the value of the static data field:
 		mv.visitFieldInsn(Opcodes.GETSTATIC, className,
-				InstrSupport.DATAFIELD_NAME, InstrSupport.DATAFIELD_DESC);
+				InstrSupport.DATAFIELD_NAME, dataFieldDesc);
 		mv.visitInsn(Opcodes.DUP);
 
 		// Stack[1]: [Z
@@ -95,7 +99,7 @@ class ClassFieldProbeArrayStrategy implements IProbeArrayStrategy {
 		// Return the class' probe array:
 		if (withFrames) {
 			mv.visitFrame(Opcodes.F_NEW, 0, FRAME_LOCALS_EMPTY, 1,
-					FRAME_STACK_ARRZ);
+					new Object[] { dataFieldDesc });
 		}
 		mv.visitLabel(alreadyInitialized);
 		mv.visitInsn(Opcodes.ARETURN);
@@ -126,7 +130,7 @@ class ClassFieldProbeArrayStrategy implements IProbeArrayStrategy {
 		// Stack[0]: [Z
 
 		mv.visitFieldInsn(Opcodes.PUTSTATIC, className,
-				InstrSupport.DATAFIELD_NAME, InstrSupport.DATAFIELD_DESC);
+				InstrSupport.DATAFIELD_NAME, dataFieldDesc);
 
 		// Stack[0]: [Z
 
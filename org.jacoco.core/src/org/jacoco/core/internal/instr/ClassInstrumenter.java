@@ -24,6 +24,8 @@ public class ClassInstrumenter extends ClassProbesVisitor {
 
 	private final IProbeArrayStrategy probeArrayStrategy;
 
+	private final boolean hitCounts;
+
 	private String className;
 
 	/**
@@ -37,8 +39,26 @@ public class ClassInstrumenter extends ClassProbesVisitor {
 	 */
 	public ClassInstrumenter(final IProbeArrayStrategy probeArrayStrategy,
 			final ClassVisitor cv) {
+		this(probeArrayStrategy, false, cv);
+	}
+
+	/**
+	 * Emits a instrumented version of this class to the given class visitor.
+	 * 
+	 * @param probeArrayStrategy
+	 *            this strategy will be used to access the probe array
+	 * @param hitCounts
+	 *            <code>true</code> if probes increment hit counters, the
+	 *            strategy must provide a <code>int[]</code> array in this case
+	 * @param cv
+	 *            next delegate in the visitor chain will receive the
+	 *            instrumented class
+	 */
+	public ClassInstrumenter(final IProbeArrayStrategy probeArrayStrategy,
+			final boolean hitCounts, final ClassVisitor cv) {
 		super(cv);
 		this.probeArrayStrategy = probeArrayStrategy;
+		this.hitCounts = hitCounts;
 	}
 
 	@Override
@@ -70,7 +90,7 @@ public class ClassInstrumenter extends ClassProbesVisitor {
 		}
 		final MethodVisitor frameEliminator = new DuplicateFrameEliminator(mv);
 		final ProbeInserter probeVariableInserter = new ProbeInserter(access,
-				name, desc, frameEliminator, probeArrayStrategy);
+				name, desc, frameEliminator, probeArrayStrategy, hitCounts);
 		return new MethodInstrumenter(probeVariableInserter,
 				probeVariableInserter);
 	}
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.instr;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Strategy for interfaces which is used before the probe count is known. The
+ * instrumented interface is buffered and the actual strategy is selected when
+ * the members are added at the end of the class. The accessor code of the
+ * actual strategy is then inserted at the beginning of the buffered methods
+ * before the interface is emitted to the target visitor.
+ */
+class DeferredProbeArrayStrategy implements IProbeArrayStrategy {
+
+	private final String className;
+	private final long classId;
+	private final int version;
+	private final IExecutionDataAccessorGenerator accessorGenerator;
+	private final boolean hitCounts;
+
+	private final Buffer buffer;
+
+	private final List<Accessor> accessors = new ArrayList<Accessor>();
+
+	DeferredProbeArrayStrategy(final String className, final long classId,
+			final int version,
+			final IExecutionDataAccessorGenerator accessorGenerator,
+			final boolean hitCounts, final ClassVisitor cv) {
+		this.className = className;
+		this.classId = classId;
+		this.version = version;
+		this.accessorGenerator = accessorGenerator;
+		this.hitCounts = hitCounts;
+		this.buffer = new Buffer(cv);
+	}
+
+	/**
+	 * Returns the visitor the instrumented interface must be emitted to. The
+	 * buffered interface is passed to the target visitor at its end.
+	 *
+	 * @return visitor buffering the instrumented interface
+	 */
+	ClassVisitor getBuffer() {
+		return buffer;
+	}
+
+	public int storeInstance(final MethodVisitor mv, final boolean clinit,
+			final int variable) {
+		// The accessor is always requested first in a method, so it is
+		// inserted at the beginning of the method currently buffered. Its
+		// stack size is added to the method when the code is inserted.
+		accessors.add(new Accessor(buffer.current, clinit, variable));
+		return 0;
+	}
+
+	public void addMembers(final ClassVisitor delegate, final int probeCount) {
+		final IProbeArrayStrategy strategy = ProbeArrayStrategyFactory
+				.createForInterface(className, classId, version, probeCount,
+						hasMethods(), accessorGenerator, hitCounts);
+		for (final Accessor accessor : accessors) {
+			accessor.insert(strategy);
+		}
+		strategy.addMembers(delegate, probeCount);
+	}
+
+	/**
+	 * Same as {@link ProbeCounter#hasMethods()}.
+	 */
+	private boolean hasMethods() {
+		for (final MethodNode m : buffer.methods) {
+			if (!InstrSupport.CLINIT_NAME.equals(m.name)
+					&& (m.access & Opcodes.ACC_ABSTRACT) == 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static class Accessor {
+
+		private final MethodNode method;
+		private final boolean clinit;
+		private final int variable;
+
+		Accessor(final MethodNode method, final boolean clinit,
+				final int variable) {
+			this.method = method;
+			this.clinit = clinit;
+			this.variable = variable;
+		}
+
+		void insert(final IProbeArrayStrategy strategy) {
+			final MethodNode code = new MethodNode();
+			final int maxStack = strategy.storeInstance(code, clinit,
+					variable);
+			method.instructions.insert(code.instructions);
+			method.maxStack = Math.max(method.maxStack, maxStack);
+		}
+
+	}
+
+	private static class Buffer extends ClassNode {
+
+		private final ClassVisitor cv;
+
+		private MethodNode current;
+
+		Buffer(final ClassVisitor cv) {
+			super(InstrSupport.ASM_API_VERSION);
+			this.cv = cv;
+		}
+
+		@Override
+		public MethodVisitor visitMethod(final int access, final String name,
+				final String desc, final String signature,
+				final String[] exceptions) {
+			current = new BufferedMethod(access, name, desc, signature,
+					exceptions);
+			methods.add(current);
+			return current;
+		}
+
+		@Override
+		public void visitEnd() {
+			accept(cv);
+		}
+
+	}
+
+	/**
+	 * Method node which does not store its label nodes in {@link Label#info},
+	 * as this field still holds the flow information of the labels.
+	 */
+	private static class BufferedMethod extends MethodNode {
+
+		private final Map<Label, LabelNode> labels = new HashMap<Label, LabelNode>();
+
+		BufferedMethod(final int access, final String name, final String desc,
+				final String signature, final String[] exceptions) {
+			super(InstrSupport.ASM_API_VERSION, access, name, desc, signature,
+					exceptions);
+		}
+
+		@Override
+		protected LabelNode getLabelNode(final Label label) {
+			LabelNode node = labels.get(label);
+			if (node == null) {
+				node = new LabelNode();
+				labels.put(label, node);
+			}
+			return node;
+		}
+
+	}
+
+}
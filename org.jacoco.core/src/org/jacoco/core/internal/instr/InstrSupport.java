@@ -78,6 +78,12 @@ public final class InstrSupport {
 	 */
 	public static final String DATAFIELD_DESC = "[Z";
 
+	/**
+	 * Data type of the field that stores hit counters for a class (
+	 * <code>int[]</code>).
+	 */
+	public static final String HITCOUNTSFIELD_DESC = "[I";
+
 	// === Init Method ===
 
 	/**
@@ -90,6 +96,11 @@ public final class InstrSupport {
 	 */
 	public static final String INITMETHOD_DESC = "()[Z";
 
+	/**
+	 * Descriptor of the initialization method for hit counters.
+	 */
+	public static final String HITCOUNTS_INITMETHOD_DESC = "()[I";
+
 	/**
 	 * Access modifiers of the initialization method.
 	 */
@@ -178,6 +189,28 @@ public final class InstrSupport {
 		}
 	}
 
+	/**
+	 * Returns the type of the field that stores coverage information.
+	 * 
+	 * @param hitCounts
+	 *            <code>true</code> if hit counters are recorded
+	 * @return field descriptor
+	 */
+	public static String getDataFieldDesc(final boolean hitCounts) {
+		return hitCounts ? HITCOUNTSFIELD_DESC : DATAFIELD_DESC;
+	}
+
+	/**
+	 * Returns the descriptor of the initialization method.
+	 * 
+	 * @param hitCounts
+	 *            <code>true</code> if hit counters are recorded
+	 * @return method descriptor
+	 */
+	public static String getInitMethodDesc(final boolean hitCounts) {
+		return hitCounts ? HITCOUNTS_INITMETHOD_DESC : INITMETHOD_DESC;
+	}
+
 	/**
 	 * Generates the instruction to push the given int value on the stack.
 	 * Implementation taken from
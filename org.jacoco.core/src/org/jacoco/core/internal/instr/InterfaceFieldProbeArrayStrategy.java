@@ -24,11 +24,6 @@ import org.objectweb.asm.Opcodes;
  */
 class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 
-	/**
-	 * Frame stack with a single boolean array.
-	 */
-	private static final Object[] FRAME_STACK_ARRZ = new Object[] { InstrSupport.DATAFIELD_DESC };
-
 	/**
 	 * Empty frame locals.
 	 */
@@ -38,16 +33,27 @@ class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 	private final long classId;
 	private final int probeCount;
 	private final IExecutionDataAccessorGenerator accessorGenerator;
+	private final String dataFieldDesc;
+	private final String initMethodDesc;
 
 	private boolean seenClinit = false;
 
 	InterfaceFieldProbeArrayStrategy(final String className, final long classId,
 			final int probeCount,
 			final IExecutionDataAccessorGenerator accessorGenerator) {
+		this(className, classId, probeCount, accessorGenerator, false);
+	}
+
+	InterfaceFieldProbeArrayStrategy(final String className, final long classId,
+			final int probeCount,
+			final IExecutionDataAccessorGenerator accessorGenerator,
+			final boolean hitCounts) {
 		this.className = className;
 		this.classId = classId;
 		this.probeCount = probeCount;
 		this.accessorGenerator = accessorGenerator;
+		this.dataFieldDesc = InstrSupport.getDataFieldDesc(hitCounts);
+		this.initMethodDesc = InstrSupport.getInitMethodDesc(hitCounts);
 	}
 
 	public int storeInstance(final MethodVisitor mv, final boolean clinit,
@@ -64,7 +70,7 @@ class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 			// Stack[0]: [Z
 
 			mv.visitFieldInsn(Opcodes.PUTSTATIC, className,
-					InstrSupport.DATAFIELD_NAME, InstrSupport.DATAFIELD_DESC);
+					InstrSupport.DATAFIELD_NAME, dataFieldDesc);
 
 			// Stack[0]: [Z
 
@@ -74,8 +80,7 @@ class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 			return Math.max(maxStack, 2);
 		} else {
 			mv.visitMethodInsn(Opcodes.INVOKESTATIC, className,
-					InstrSupport.INITMETHOD_NAME, InstrSupport.INITMETHOD_DESC,
-					true);
+					InstrSupport.INITMETHOD_NAME, initMethodDesc, true);
 			mv.visitVarInsn(Opcodes.ASTORE, variable);
 			return 1;
 		}
@@ -91,19 +96,18 @@ class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 
 	private void createDataField(final ClassVisitor cv) {
 		cv.visitField(InstrSupport.DATAFIELD_INTF_ACC,
-				InstrSupport.DATAFIELD_NAME, InstrSupport.DATAFIELD_DESC, null,
+				InstrSupport.DATAFIELD_NAME, dataFieldDesc, null,
 				null);
 	}
 
 	private void createInitMethod(final ClassVisitor cv, final int probeCount) {
 		final MethodVisitor mv = cv.visitMethod(InstrSupport.INITMETHOD_ACC,
-				InstrSupport.INITMETHOD_NAME, InstrSupport.INITMETHOD_DESC,
-				null, null);
+				InstrSupport.INITMETHOD_NAME, initMethodDesc, null, null);
 		mv.visitCode();
 
 		// Load the value of the static data field:
 		mv.visitFieldInsn(Opcodes.GETSTATIC, className,
-				InstrSupport.DATAFIELD_NAME, InstrSupport.DATAFIELD_DESC);
+				InstrSupport.DATAFIELD_NAME, dataFieldDesc);
 		mv.visitInsn(Opcodes.DUP);
 
 		// Stack[1]: [Z
@@ -123,7 +127,7 @@ class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 
 		// Return the class' probe array:
 		mv.visitFrame(Opcodes.F_NEW, 0, FRAME_LOCALS_EMPTY, 1,
-				FRAME_STACK_ARRZ);
+				new Object[] { dataFieldDesc });
 		mv.visitLabel(alreadyInitialized);
 		mv.visitInsn(Opcodes.ARETURN);
 
@@ -143,7 +147,7 @@ class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 		// Stack[0]: [Z
 
 		mv.visitFieldInsn(Opcodes.PUTSTATIC, className,
-				InstrSupport.DATAFIELD_NAME, InstrSupport.DATAFIELD_DESC);
+				InstrSupport.DATAFIELD_NAME, dataFieldDesc);
 
 		mv.visitInsn(Opcodes.RETURN);
 
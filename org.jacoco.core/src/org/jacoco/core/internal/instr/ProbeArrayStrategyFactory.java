@@ -14,7 +14,10 @@ package org.jacoco.core.internal.instr;
 import org.jacoco.core.internal.data.CRC64;
 import org.jacoco.core.internal.flow.ClassProbesAdapter;
 import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
+import org.jacoco.core.runtime.IHitCountsAccessorGenerator;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
 /**
@@ -39,7 +42,31 @@ public final class ProbeArrayStrategyFactory {
 	 */
 	public static IProbeArrayStrategy createFor(final ClassReader reader,
 			final IExecutionDataAccessorGenerator accessorGenerator) {
+		return createFor(reader, accessorGenerator, false);
+	}
+
+	/**
+	 * Creates a suitable strategy instance for the class described by the given
+	 * reader. Created instance must be used only to process a class or
+	 * interface for which it has been created and must be used only once.
+	 * 
+	 * @param reader
+	 *            reader to get information about the class
+	 * @param accessorGenerator
+	 *            accessor to the coverage runtime, must implement
+	 *            {@link IHitCountsAccessorGenerator} if hit counters are
+	 *            requested
+	 * @param hitCounts
+	 *            <code>true</code> if the strategy should provide hit counters
+	 *            of type <code>int[]</code>
+	 * @return strategy instance
+	 */
+	public static IProbeArrayStrategy createFor(final ClassReader reader,
+			final IExecutionDataAccessorGenerator accessorGenerator,
+			final boolean hitCounts) {
 
+		final IExecutionDataAccessorGenerator generator = getGenerator(
+				accessorGenerator, hitCounts);
 		final String className = reader.getClassName();
 		final int version = getVersion(reader);
 		final long classId = CRC64.checksum(reader.b);
@@ -47,22 +74,102 @@ public final class ProbeArrayStrategyFactory {
 
 		if (isInterface(reader)) {
 			final ProbeCounter counter = getProbeCounter(reader);
-			if (counter.getCount() == 0) {
-				return new NoneProbeArrayStrategy();
-			}
-			if (version >= Opcodes.V1_8 && counter.hasMethods()) {
-				return new InterfaceFieldProbeArrayStrategy(className, classId,
-						counter.getCount(), accessorGenerator);
-			} else {
-				return new LocalProbeArrayStrategy(className, classId,
-						counter.getCount(), accessorGenerator);
-			}
+			return createForInterface(className, classId, version,
+					counter.getCount(), counter.hasMethods(), generator,
+					hitCounts);
 		} else {
 			return new ClassFieldProbeArrayStrategy(className, classId,
-					withFrames, accessorGenerator);
+					withFrames, generator, hitCounts);
 		}
 	}
 
+	/**
+	 * Creates an instrumenter for the class described by the given reader.
+	 * Other than {@link #createFor(ClassReader, IExecutionDataAccessorGenerator, boolean)}
+	 * no separate pass is required to count the probes of interfaces: The
+	 * instrumented interface is buffered and the strategy is selected as soon
+	 * as the probe count is known at the end of the class. The returned
+	 * instrumenter must be used only once.
+	 * 
+	 * @param reader
+	 *            reader to get information about the class
+	 * @param accessorGenerator
+	 *            accessor to the coverage runtime, must implement
+	 *            {@link IHitCountsAccessorGenerator} if hit counters are
+	 *            requested
+	 * @param hitCounts
+	 *            <code>true</code> if probes should count executions
+	 * @param cv
+	 *            visitor the instrumented class is emitted to
+	 * @return instrumenter for the class
+	 */
+	public static ClassInstrumenter createInstrumenter(
+			final ClassReader reader,
+			final IExecutionDataAccessorGenerator accessorGenerator,
+			final boolean hitCounts, final ClassVisitor cv) {
+		if (isInterface(reader)) {
+			final DeferredProbeArrayStrategy strategy = new DeferredProbeArrayStrategy(
+					reader.getClassName(), CRC64.checksum(reader.b),
+					getVersion(reader), getGenerator(accessorGenerator,
+							hitCounts), hitCounts, cv);
+			return new ClassInstrumenter(strategy, hitCounts,
+					strategy.getBuffer());
+		} else {
+			return new ClassInstrumenter(createFor(reader, accessorGenerator,
+					hitCounts), hitCounts, cv);
+		}
+	}
+
+	/**
+	 * Selects the strategy for an interface with the given probe count.
+	 */
+	static IProbeArrayStrategy createForInterface(final String className,
+			final long classId, final int version, final int probeCount,
+			final boolean methods,
+			final IExecutionDataAccessorGenerator generator,
+			final boolean hitCounts) {
+		if (probeCount == 0) {
+			return new NoneProbeArrayStrategy();
+		}
+		if (version >= Opcodes.V1_8 && methods) {
+			return new InterfaceFieldProbeArrayStrategy(className, classId,
+					probeCount, generator, hitCounts);
+		} else {
+			return new LocalProbeArrayStrategy(className, classId,
+					probeCount, generator);
+		}
+	}
+
+	private static IExecutionDataAccessorGenerator getGenerator(
+			final IExecutionDataAccessorGenerator accessorGenerator,
+			final boolean hitCounts) {
+		return hitCounts ? new HitCountsAccessorGenerator(
+				(IHitCountsAccessorGenerator) accessorGenerator)
+				: accessorGenerator;
+	}
+
+	/**
+	 * Adapter which lets the strategies request hit counters through the
+	 * regular data accessor call.
+	 */
+	private static class HitCountsAccessorGenerator implements
+			IExecutionDataAccessorGenerator {
+
+		private final IHitCountsAccessorGenerator delegate;
+
+		HitCountsAccessorGenerator(final IHitCountsAccessorGenerator delegate) {
+			this.delegate = delegate;
+		}
+
+		public int generateDataAccessor(final long classid,
+				final String classname, final int probecount,
+				final MethodVisitor mv) {
+			return delegate.generateHitCountsAccessor(classid, classname,
+					probecount, mv);
+		}
+
+	}
+
 	private static boolean isInterface(final ClassReader reader) {
 		return (reader.getAccess() & Opcodes.ACC_INTERFACE) != 0;
 	}
@@ -73,7 +180,7 @@ public final class ProbeArrayStrategyFactory {
 
 	private static ProbeCounter getProbeCounter(final ClassReader reader) {
 		final ProbeCounter counter = new ProbeCounter();
-		reader.accept(new ClassProbesAdapter(counter, false), 0);
+		ClassProbesAdapter.accept(reader, counter, false, 0);
 		return counter;
 	}
 
@@ -32,6 +32,8 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 	 */
 	private final boolean clinit;
 
+	private final boolean hitCounts;
+
 	/** Position of the inserted variable. */
 	private final int variable;
 
@@ -55,9 +57,34 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 	 */
 	ProbeInserter(final int access, final String name, final String desc, final MethodVisitor mv,
 			final IProbeArrayStrategy arrayStrategy) {
+		this(access, name, desc, mv, arrayStrategy, false);
+	}
+
+	/**
+	 * Creates a new {@link ProbeInserter} which optionally increments hit
+	 * counters of type <code>int[]</code> instead of setting boolean flags.
+	 * 
+	 * @param access
+	 *            access flags of the adapted method.
+	 * @param name
+	 *            the method's name
+	 * @param desc
+	 *            the method's descriptor
+	 * @param mv
+	 *            the method visitor to which this adapter delegates calls
+	 * @param arrayStrategy
+	 *            callback to create the code that retrieves the reference to
+	 *            the probe array
+	 * @param hitCounts
+	 *            <code>true</code> if the probe array contains hit counters
+	 */
+	ProbeInserter(final int access, final String name, final String desc,
+			final MethodVisitor mv, final IProbeArrayStrategy arrayStrategy,
+			final boolean hitCounts) {
 		super(InstrSupport.ASM_API_VERSION, mv);
 		this.clinit = InstrSupport.CLINIT_NAME.equals(name);
 		this.arrayStrategy = arrayStrategy;
+		this.hitCounts = hitCounts;
 		int pos = (Opcodes.ACC_STATIC & access) == 0 ? 1 : 0;
 		for (final Type t : Type.getArgumentTypes(desc)) {
 			pos += t.getSize();
@@ -66,6 +93,10 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 	}
 
 	public void insertProbe(final int id) {
+		if (hitCounts) {
+			insertHitCountProbe(id);
+			return;
+		}
 
 		// For a probe we set the corresponding position in the boolean[] array
 		// to true.
@@ -88,6 +119,38 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 		mv.visitInsn(Opcodes.BASTORE);
 	}
 
+	private void insertHitCountProbe(final int id) {
+
+		// For a hit count probe we increment the corresponding position in the
+		// int[] array. To avoid additional branches and frames the increment
+		// saturates with arithmetic only: c = c + 1 - ((c + 1) >>> 31)
+
+		mv.visitVarInsn(Opcodes.ALOAD, variable);
+		InstrSupport.push(mv, id);
+		mv.visitInsn(Opcodes.DUP2);
+
+		// Stack[3]: I
+		// Stack[2]: [I
+		// Stack[1]: I
+		// Stack[0]: [I
+
+		mv.visitInsn(Opcodes.IALOAD);
+		mv.visitInsn(Opcodes.ICONST_1);
+		mv.visitInsn(Opcodes.IADD);
+		mv.visitInsn(Opcodes.DUP);
+		mv.visitIntInsn(Opcodes.BIPUSH, 31);
+
+		// Stack[4]: I
+		// Stack[3]: I
+		// Stack[2]: I
+		// Stack[1]: I
+		// Stack[0]: [I
+
+		mv.visitInsn(Opcodes.IUSHR);
+		mv.visitInsn(Opcodes.ISUB);
+		mv.visitInsn(Opcodes.IASTORE);
+	}
+
 	@Override
 	public void visitCode() {
 		accessorStackSize = arrayStrategy.storeInstance(mv, clinit, variable);
@@ -113,11 +176,14 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 
 	@Override
 	public void visitMaxs(final int maxStack, final int maxLocals) {
-		// Max stack size of the probe code is 3 which can add to the
-		// original stack size depending on the probe locations. The accessor
-		// stack size is an absolute maximum, as the accessor code is inserted
-		// at the very beginning of each method when the stack size is empty.
-		final int increasedStack = Math.max(maxStack + 3, accessorStackSize);
+		// Max stack size of the probe code is 3 (5 for hit counts) which can
+		// add to the original stack size depending on the probe locations. The
+		// accessor stack size is an absolute maximum, as the accessor code is
+		// inserted at the very beginning of each method when the stack size is
+		// empty.
+		final int probeStack = hitCounts ? 5 : 3;
+		final int increasedStack = Math.max(maxStack + probeStack,
+				accessorStackSize);
 		mv.visitMaxs(increasedStack, maxLocals + 1);
 	}
 
@@ -144,7 +210,7 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 		int pos = 0; // Current variable position
 		while (idx < nLocal || pos <= variable) {
 			if (pos == variable) {
-				newLocal[newIdx++] = InstrSupport.DATAFIELD_DESC;
+				newLocal[newIdx++] = InstrSupport.getDataFieldDesc(hitCounts);
 				pos++;
 			} else {
 				if (idx < nLocal) {
@@ -108,6 +108,7 @@ public final class AgentOptions {
 	 * Specifies the output mode. Default is {@link OutputMode#file}.
 	 * 
 	 * @see OutputMode#file
+	 * @see OutputMode#rotatingfile
 	 * @see OutputMode#tcpserver
 	 * @see OutputMode#tcpclient
 	 * @see OutputMode#none
@@ -129,6 +130,26 @@ public final class AgentOptions {
 		 */
 		file,
 
+		/**
+		 * Value for the {@link AgentOptions#OUTPUT} parameter: Execution data
+		 * is written to separate files per VM next to the file specified by
+		 * {@link AgentOptions#DESTFILE}. Every file is written completely
+		 * before it becomes visible. With {@link AgentOptions#APPEND} every
+		 * dump is written to a new file, otherwise files are rotated as
+		 * specified by {@link AgentOptions#ROTATESIZE} and
+		 * {@link AgentOptions#ROTATEINTERVAL}.
+		 */
+		rotatingfile,
+
+		/**
+		 * Value for the {@link AgentOptions#OUTPUT} parameter: The probes are
+		 * continuously mirrored into a memory mapped file per VM next to the
+		 * file specified by {@link AgentOptions#DESTFILE}, so the data
+		 * survives a crash of the VM. The file can be converted with
+		 * <code>org.jacoco.core.tools.MappedExecFileConverter</code>.
+		 */
+		mappedfile,
+
 		/**
 		 * Value for the {@link AgentOptions#OUTPUT} parameter: The agent
 		 * listens for incoming connections on a TCP port specified by
@@ -188,10 +209,44 @@ public final class AgentOptions {
 	 */
 	public static final String JMX = "jmx";
 
+	/**
+	 * Specifies whether probes should count their executions instead of only
+	 * recording whether they have been executed. Default is <code>false</code>
+	 * .
+	 */
+	public static final String HITCOUNTS = "hitcounts";
+
+	/**
+	 * Specifies whether execution data should be compressed when written to a
+	 * file or a TCP connection. Default is <code>false</code>.
+	 */
+	public static final String COMPRESS = "compress";
+
+	/**
+	 * Specifies the interval in seconds in which the agent periodically writes
+	 * execution data to its output. Dumps are skipped if no probes have been
+	 * executed since the previous dump. Default is <code>0</code> (no periodic
+	 * dumps).
+	 */
+	public static final String DUMPINTERVAL = "dumpinterval";
+
+	/**
+	 * Size in bytes after which output {@link OutputMode#rotatingfile}
+	 * starts a new file. Default is <code>0</code> (no size limit).
+	 */
+	public static final String ROTATESIZE = "rotatesize";
+
+	/**
+	 * Interval in seconds after which output {@link OutputMode#rotatingfile}
+	 * starts a new file. Default is <code>0</code> (no time limit).
+	 */
+	public static final String ROTATEINTERVAL = "rotateinterval";
+
 	private static final Collection<String> VALID_OPTIONS = Arrays.asList(
 			DESTFILE, APPEND, INCLUDES, EXCLUDES, EXCLCLASSLOADER,
 			INCLBOOTSTRAPCLASSES, INCLNOLOCATIONCLASSES, SESSIONID, DUMPONEXIT,
-			OUTPUT, ADDRESS, PORT, CLASSDUMPDIR, JMX);
+			OUTPUT, ADDRESS, PORT, CLASSDUMPDIR, JMX, HITCOUNTS, COMPRESS,
+			DUMPINTERVAL, ROTATESIZE, ROTATEINTERVAL);
 
 	private final Map<String, String> options;
 
@@ -249,6 +304,9 @@ public final class AgentOptions {
 
 	private void validateAll() {
 		validatePort(getPort());
+		validatePositive(DUMPINTERVAL, getDumpInterval());
+		validatePositive(ROTATESIZE, getRotateSize());
+		validatePositive(ROTATEINTERVAL, getRotateInterval());
 		getOutput();
 	}
 
@@ -258,6 +316,12 @@ public final class AgentOptions {
 		}
 	}
 
+	private void validatePositive(final String key, final int value) {
+		if (value < 0) {
+			throw new IllegalArgumentException(key + " must not be negative");
+		}
+	}
+
 	/**
 	 * Returns the output file location.
 	 * 
@@ -556,6 +620,104 @@ public final class AgentOptions {
 		setOption(JMX, jmx);
 	}
 
+	/**
+	 * Returns whether probes count their executions.
+	 * 
+	 * @return <code>true</code>, when hit counts are recorded
+	 */
+	public boolean getHitCounts() {
+		return getOption(HITCOUNTS, false);
+	}
+
+	/**
+	 * Sets whether probes should count their executions.
+	 * 
+	 * @param hitCounts
+	 *            <code>true</code> if hit counts should be recorded
+	 */
+	public void setHitCounts(final boolean hitCounts) {
+		setOption(HITCOUNTS, hitCounts);
+	}
+
+	/**
+	 * Returns whether execution data should be compressed.
+	 * 
+	 * @return <code>true</code>, when execution data is compressed
+	 */
+	public boolean getCompress() {
+		return getOption(COMPRESS, false);
+	}
+
+	/**
+	 * Sets whether execution data should be compressed.
+	 * 
+	 * @param compress
+	 *            <code>true</code> if execution data should be compressed
+	 */
+	public void setCompress(final boolean compress) {
+		setOption(COMPRESS, compress);
+	}
+
+	/**
+	 * Returns the interval for periodic dumps.
+	 * 
+	 * @return interval in seconds or <code>0</code> for no periodic dumps
+	 */
+	public int getDumpInterval() {
+		return getOption(DUMPINTERVAL, 0);
+	}
+
+	/**
+	 * Sets the interval for periodic dumps.
+	 * 
+	 * @param interval
+	 *            interval in seconds or <code>0</code> for no periodic dumps
+	 */
+	public void setDumpInterval(final int interval) {
+		validatePositive(DUMPINTERVAL, interval);
+		setOption(DUMPINTERVAL, interval);
+	}
+
+	/**
+	 * Returns the file size after which a new file is started.
+	 * 
+	 * @return size in bytes or <code>0</code> for no size limit
+	 */
+	public int getRotateSize() {
+		return getOption(ROTATESIZE, 0);
+	}
+
+	/**
+	 * Sets the file size after which a new file is started.
+	 * 
+	 * @param size
+	 *            size in bytes or <code>0</code> for no size limit
+	 */
+	public void setRotateSize(final int size) {
+		validatePositive(ROTATESIZE, size);
+		setOption(ROTATESIZE, size);
+	}
+
+	/**
+	 * Returns the interval after which a new file is started.
+	 * 
+	 * @return interval in seconds or <code>0</code> for no time limit
+	 */
+	public int getRotateInterval() {
+		return getOption(ROTATEINTERVAL, 0);
+	}
+
+	/**
+	 * Sets the interval after which a new file is started.
+	 * 
+	 * @param interval
+	 *            interval in seconds or <code>0</code> for no time limit
+	 */
+	public void setRotateInterval(final int interval) {
+		validatePositive(ROTATEINTERVAL, interval);
+		setOption(ROTATEINTERVAL, interval);
+	}
+
 	private void setOption(final String key, final int value) {
 		setOption(key, Integer.toString(value));
 	}
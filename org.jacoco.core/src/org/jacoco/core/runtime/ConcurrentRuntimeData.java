@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.ISessionInfoVisitor;
+import org.jacoco.core.data.SessionInfo;
+
+/**
+ * {@link RuntimeData} implementation which allows concurrent class
+ * initialization. Execution data is kept in a striped hash table with
+ * primitive <code>long</code> keys. Lookups of already registered classes do
+ * not acquire any lock, registration of new classes only locks a single
+ * segment of the table.
+ *
+ * Collecting execution data works on a per segment snapshot of the registered
+ * classes. Classes registered while a dump is in progress are not blocked and
+ * will be included in the next dump.
+ */
+public class ConcurrentRuntimeData extends RuntimeData {
+
+	private static final int SEGMENT_BITS = 6;
+
+	private static final int SEGMENT_COUNT = 1 << SEGMENT_BITS;
+
+	private static final int INITIAL_SEGMENT_CAPACITY = 32;
+
+	private final Segment[] segments;
+
+	private final Object collectLock = new Object();
+
+	/**
+	 * Creates a new runtime.
+	 */
+	public ConcurrentRuntimeData() {
+		super();
+		segments = new Segment[SEGMENT_COUNT];
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			segments[i] = new Segment();
+		}
+	}
+
+	@Override
+	public void collect(final IExecutionDataVisitor executionDataVisitor,
+			final ISessionInfoVisitor sessionInfoVisitor, final boolean reset) {
+		synchronized (collectLock) {
+			final SessionInfo info = new SessionInfo(getSessionId(),
+					startTimeStamp, System.currentTimeMillis());
+			sessionInfoVisitor.visitSessionInfo(info);
+			for (final Segment segment : segments) {
+				for (final ExecutionData data : segment.snapshot()) {
+					if (data != null) {
+						executionDataVisitor.visitClassExecution(data);
+						if (reset) {
+							data.reset();
+						}
+					}
+				}
+			}
+			if (reset) {
+				resetDelta();
+				startTimeStamp = System.currentTimeMillis();
+			}
+		}
+	}
+
+	@Override
+	public void reset() {
+		synchronized (collectLock) {
+			for (final Segment segment : segments) {
+				for (final ExecutionData data : segment.snapshot()) {
+					if (data != null) {
+						data.reset();
+					}
+				}
+			}
+			resetDelta();
+			startTimeStamp = System.currentTimeMillis();
+		}
+	}
+
+	@Override
+	public ExecutionData getExecutionData(final Long id, final String name,
+			final int probecount, final boolean hitCounts) {
+		final long classid = id.longValue();
+		final int hash = hash(classid);
+		return segments[hash >>> (32 - SEGMENT_BITS)].get(classid, hash, name,
+				probecount, hitCounts);
+	}
+
+	/**
+	 * Returns the coverage data for the class with the given identifier. If
+	 * there is no data available under the given id a new entry is created.
+	 * This method does not box the class identifier.
+	 *
+	 * @param id
+	 *            class identifier
+	 * @param name
+	 *            VM name of the class
+	 * @param probecount
+	 *            probe data length
+	 * @return execution data
+	 */
+	public ExecutionData getExecutionData(final long id, final String name,
+			final int probecount) {
+		final int hash = hash(id);
+		return segments[hash >>> (32 - SEGMENT_BITS)].get(id, hash, name,
+				probecount, false);
+	}
+
+	private static int hash(final long id) {
+		// Class ids are CRC64 checksums, but spread the bits anyways to be
+		// safe with synthetic ids:
+		int h = (int) (id ^ (id >>> 32));
+		h ^= (h >>> 20) ^ (h >>> 12);
+		return h ^ (h >>> 7) ^ (h >>> 4);
+	}
+
+	/**
+	 * Open addressing hash table with linear probing. Reads are performed
+	 * without locking on the current (volatile) table. As entries are never
+	 * removed and {@link ExecutionData} only has final fields an unsynchronized
+	 * read either finds a fully initialized entry or misses and falls back to a
+	 * synchronized lookup.
+	 */
+	private static final class Segment {
+
+		private volatile ExecutionData[] table = new ExecutionData[INITIAL_SEGMENT_CAPACITY];
+
+		private int size;
+
+		ExecutionData get(final long id, final int hash, final String name,
+				final int probecount, final boolean hitCounts) {
+			ExecutionData entry = find(table, id, hash);
+			if (entry == null) {
+				synchronized (this) {
+					entry = find(table, id, hash);
+					if (entry == null) {
+						entry = hitCounts ? new ExecutionData(id, name,
+								new int[probecount]) : new ExecutionData(id,
+								name, probecount);
+						insert(entry, hash);
+						return entry;
+					}
+				}
+			}
+			entry.assertCompatibility(id, name, probecount, hitCounts);
+			return entry;
+		}
+
+		synchronized ExecutionData[] snapshot() {
+			return table.clone();
+		}
+
+		private void insert(final ExecutionData entry, final int hash) {
+			ExecutionData[] t = table;
+			if ((size + 1) * 4 > t.length * 3) {
+				t = rehash(t);
+				put(t, entry, hash);
+				table = t;
+			} else {
+				put(t, entry, hash);
+			}
+			size++;
+		}
+
+		private static ExecutionData[] rehash(final ExecutionData[] old) {
+			final ExecutionData[] t = new ExecutionData[old.length << 1];
+			for (final ExecutionData e : old) {
+				if (e != null) {
+					put(t, e, hash(e.getId()));
+				}
+			}
+			return t;
+		}
+
+		private static void put(final ExecutionData[] t,
+				final ExecutionData entry, final int hash) {
+			final int mask = t.length - 1;
+			int i = hash & mask;
+			while (t[i] != null) {
+				i = (i + 1) & mask;
+			}
+			t[i] = entry;
+		}
+
+		private static ExecutionData find(final ExecutionData[] t,
+				final long id, final int hash) {
+			final int mask = t.length - 1;
+			int i = hash & mask;
+			ExecutionData e;
+			while ((e = t[i]) != null) {
+				if (e.getId() == id) {
+					return e;
+				}
+				i = (i + 1) & mask;
+			}
+			return null;
+		}
+
+	}
+
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.ISessionInfoVisitor;
+import org.jacoco.core.data.SessionInfo;
+
+/**
+ * Collects the execution data of a {@link RuntimeData} instance which has been
+ * recorded since the previous collection of the same collector or since the
+ * last reset of the runtime data. Only classes with newly executed probes are
+ * reported. For such classes only the newly executed probes are set, or the
+ * hit counts recorded since the previous collection respectively. Merging all
+ * deltas results in the same data as a regular collection.
+ *
+ * The collector keeps a copy of the probe data of every reported class as its
+ * baseline. Therefore every consumer of delta dumps has to use its own
+ * collector, consumers sharing a collector would receive disjoint parts of the
+ * deltas. A reset of the runtime data discards the baselines of all
+ * collectors.
+ */
+public class DeltaCollector {
+
+	private final RuntimeData data;
+
+	/** probe data of every class at the time of the previous collection */
+	private final Map<Long, Object> baseline = new HashMap<Long, Object>();
+
+	private long resetCount;
+
+	/**
+	 * Creates a new collector for the given runtime data with an empty
+	 * baseline.
+	 *
+	 * @param data
+	 *            runtime data to collect deltas from
+	 */
+	public DeltaCollector(final RuntimeData data) {
+		this.data = data;
+		this.resetCount = data.getResetCount();
+	}
+
+	/**
+	 * Collects the execution data recorded since the previous call of this
+	 * method or since the last reset and writes it to the given
+	 * {@link IExecutionDataVisitor} object.
+	 *
+	 * @param executionDataVisitor
+	 *            handler to write coverage data to
+	 * @param sessionInfoVisitor
+	 *            handler to write session information to
+	 */
+	public void collect(final IExecutionDataVisitor executionDataVisitor,
+			final ISessionInfoVisitor sessionInfoVisitor) {
+		collect(executionDataVisitor, sessionInfoVisitor, false);
+	}
+
+	/**
+	 * Collects the execution data recorded since the previous call of this
+	 * method or since the last reset and writes it to the given
+	 * {@link IExecutionDataVisitor} object. Optionally the runtime data is
+	 * reset afterwards, the next collection then starts with an empty
+	 * baseline.
+	 *
+	 * @param executionDataVisitor
+	 *            handler to write coverage data to
+	 * @param sessionInfoVisitor
+	 *            handler to write session information to
+	 * @param reset
+	 *            if <code>true</code> the runtime data is reset after the
+	 *            delta has been collected
+	 */
+	public synchronized void collect(
+			final IExecutionDataVisitor executionDataVisitor,
+			final ISessionInfoVisitor sessionInfoVisitor, final boolean reset) {
+		data.collect(new IExecutionDataVisitor() {
+			public void visitClassExecution(final ExecutionData data) {
+				final ExecutionData delta = createDelta(data);
+				if (delta != null) {
+					executionDataVisitor.visitClassExecution(delta);
+				}
+			}
+		}, new ISessionInfoVisitor() {
+			public void visitSessionInfo(final SessionInfo info) {
+				// The session info is reported while the runtime data is
+				// locked, so no reset can happen until the collection ends:
+				final long current = data.getResetCount();
+				if (current != resetCount) {
+					baseline.clear();
+					resetCount = current;
+				}
+				sessionInfoVisitor.visitSessionInfo(info);
+			}
+		}, reset);
+	}
+
+	private ExecutionData createDelta(final ExecutionData data) {
+		final Long id = Long.valueOf(data.getId());
+		final int[] hitCounts = data.getHitCounts();
+		if (hitCounts != null) {
+			int[] snapshot = (int[]) baseline.get(id);
+			if (snapshot == null) {
+				snapshot = new int[hitCounts.length];
+				baseline.put(id, snapshot);
+			}
+			final int[] delta = new int[hitCounts.length];
+			boolean changed = false;
+			for (int i = 0; i < hitCounts.length; i++) {
+				final int count = hitCounts[i];
+				if (count > snapshot[i]) {
+					delta[i] = count - snapshot[i];
+					snapshot[i] = count;
+					changed = true;
+				}
+			}
+			return changed ? new ExecutionData(data.getId(), data.getName(),
+					delta) : null;
+		}
+		final boolean[] probes = data.getProbes();
+		boolean[] snapshot = (boolean[]) baseline.get(id);
+		if (snapshot == null) {
+			snapshot = new boolean[probes.length];
+			baseline.put(id, snapshot);
+		}
+		final boolean[] delta = new boolean[probes.length];
+		boolean changed = false;
+		for (int i = 0; i < probes.length; i++) {
+			if (probes[i] && !snapshot[i]) {
+				delta[i] = true;
+				snapshot[i] = true;
+				changed = true;
+			}
+		}
+		return changed ? new ExecutionData(data.getId(), data.getName(), delta)
+				: null;
+	}
+
+}
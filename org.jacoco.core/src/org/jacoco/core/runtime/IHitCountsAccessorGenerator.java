@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import org.objectweb.asm.MethodVisitor;
+
+/**
+ * Extension of {@link IExecutionDataAccessorGenerator} for runtimes which can
+ * provide hit counters of type <code>int[]</code> instead of
+ * <code>boolean[]</code> probe arrays.
+ */
+public interface IHitCountsAccessorGenerator extends
+		IExecutionDataAccessorGenerator {
+
+	/**
+	 * This method generates the byte code required to obtain the hit counters
+	 * for the class with the given id. The same constraints as for
+	 * {@link #generateDataAccessor(long, String, int, MethodVisitor)} apply,
+	 * except that the generated code must push a <code>int[]</code> instance
+	 * to the operand stack.
+	 * 
+	 * @param classid
+	 *            identifier of the class
+	 * @param classname
+	 *            VM class name
+	 * @param probecount
+	 *            probe count for this class
+	 * @param mv
+	 *            code output
+	 * @return additional stack size required by the implementation, including
+	 *         the instance pushed to the stack
+	 */
+	public int generateHitCountsAccessor(final long classid,
+			final String classname, final int probecount, MethodVisitor mv);
+
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import java.io.IOException;
+
+/**
+ * Extension of {@link IRemoteCommandVisitor} for handlers which support delta
+ * dumps.
+ */
+public interface IRemoteDeltaCommandVisitor extends IRemoteCommandVisitor {
+
+	/**
+	 * Requests a dump of the execution data recorded since the last delta dump
+	 * of the client with the given identifier. The identifier allows clients
+	 * to use a new connection for every dump.
+	 * 
+	 * @see DeltaCollector
+	 * @param clientId
+	 *            identifier of the requesting client
+	 * @throws IOException
+	 *             in case of problems with the remote connection
+	 */
+	public void visitDeltaDumpCommand(String clientId) throws IOException;
+
+}
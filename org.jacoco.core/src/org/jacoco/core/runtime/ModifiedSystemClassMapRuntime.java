@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import java.lang.instrument.Instrumentation;
+
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Variant of the {@link ModifiedSystemClassRuntime} which uses the allocation
+ * free {@link ProbeArrayMap} access protocol. Instrumented classes obtain their
+ * probe array with a single {@link java.util.Map#get(Object)} call on a
+ * constant key instead of allocating and filling an argument array. This is
+ * especially relevant for interfaces, where the probe array is requested on
+ * every method invocation.
+ */
+public class ModifiedSystemClassMapRuntime extends ModifiedSystemClassRuntime
+		implements IHitCountsAccessorGenerator {
+
+	/**
+	 * Creates a new runtime based on the given class and members.
+	 *
+	 * @param systemClass
+	 *            system class that contains the execution data
+	 * @param accessFieldName
+	 *            name of the public static runtime access field
+	 */
+	public ModifiedSystemClassMapRuntime(final Class<?> systemClass,
+			final String accessFieldName) {
+		super(systemClass, accessFieldName);
+	}
+
+	@Override
+	protected Object createAccessObject(final RuntimeData data) {
+		return new ProbeArrayMap(data);
+	}
+
+	@Override
+	protected int generateAccessCall(final long classid,
+			final String classname, final int probecount, final MethodVisitor mv) {
+		ProbeArrayMap.generateAccessCall(classid, classname, probecount, mv);
+		return 2;
+	}
+
+	public int generateHitCountsAccessor(final long classid,
+			final String classname, final int probecount, final MethodVisitor mv) {
+		mv.visitFieldInsn(Opcodes.GETSTATIC, systemClassName, accessFieldName,
+				ACCESS_FIELD_TYPE);
+		ProbeArrayMap.generateHitCountsAccessCall(classid, classname,
+				probecount, mv);
+		return 2;
+	}
+
+	/**
+	 * Creates a new {@link ModifiedSystemClassMapRuntime} using the given class
+	 * as the data container. Member is created with internal default name. The
+	 * given class must not have been loaded before by the agent.
+	 *
+	 * @param inst
+	 *            instrumentation interface
+	 * @param className
+	 *            VM name of the class to use
+	 * @return new runtime instance
+	 *
+	 * @throws ClassNotFoundException
+	 *             id the given class can not be found
+	 */
+	public static IRuntime createFor(final Instrumentation inst,
+			final String className) throws ClassNotFoundException {
+		return createFor(inst, className, "$jacocoAccess");
+	}
+
+	/**
+	 * Creates a new {@link ModifiedSystemClassMapRuntime} using the given class
+	 * as the data container. The given class must not have been loaded before
+	 * by the agent.
+	 *
+	 * @param inst
+	 *            instrumentation interface
+	 * @param className
+	 *            VM name of the class to use
+	 * @param accessFieldName
+	 *            name of the added runtime access field
+	 * @return new runtime instance
+	 *
+	 * @throws ClassNotFoundException
+	 *             id the given class can not be found
+	 */
+	public static IRuntime createFor(final Instrumentation inst,
+			final String className, final String accessFieldName)
+			throws ClassNotFoundException {
+		final Class<?> clazz = addAccessField(inst, className, accessFieldName);
+		return new ModifiedSystemClassMapRuntime(clazz, accessFieldName);
+	}
+
+}
@@ -35,13 +35,16 @@ import org.objectweb.asm.Opcodes;
  */
 public class ModifiedSystemClassRuntime extends AbstractRuntime {
 
-	private static final String ACCESS_FIELD_TYPE = "Ljava/lang/Object;";
+	/** Type of the static access field */
+	static final String ACCESS_FIELD_TYPE = "Ljava/lang/Object;";
 
 	private final Class<?> systemClass;
 
-	private final String systemClassName;
+	/** VM name of the system class */
+	final String systemClassName;
 
-	private final String accessFieldName;
+	/** Name of the static access field */
+	final String accessFieldName;
 
 	/**
 	 * Creates a new runtime based on the given class and members.
@@ -64,7 +67,20 @@ public class ModifiedSystemClassRuntime extends AbstractRuntime {
 	public void startup(final RuntimeData data) throws Exception {
 		super.startup(data);
 		final Field field = systemClass.getField(accessFieldName);
-		field.set(null, data);
+		field.set(null, createAccessObject(data));
+	}
+
+	/**
+	 * Creates the object which is stored in the static access field of the
+	 * system class. Subclasses may provide a different access protocol here.
+	 * The default implementation uses the {@link RuntimeData} instance itself.
+	 * 
+	 * @param data
+	 *            runtime data of this runtime
+	 * @return object to store in the access field
+	 */
+	protected Object createAccessObject(final RuntimeData data) {
+		return data;
 	}
 
 	public void shutdown() {
@@ -77,8 +93,27 @@ public class ModifiedSystemClassRuntime extends AbstractRuntime {
 		mv.visitFieldInsn(Opcodes.GETSTATIC, systemClassName, accessFieldName,
 				ACCESS_FIELD_TYPE);
 
-		RuntimeData.generateAccessCall(classid, classname, probecount, mv);
+		return generateAccessCall(classid, classname, probecount, mv);
+	}
 
+	/**
+	 * Generates the code that obtains the probe array from the access object
+	 * on top of the operand stack. Must correspond to the object created by
+	 * {@link #createAccessObject(RuntimeData)}.
+	 * 
+	 * @param classid
+	 *            class identifier
+	 * @param classname
+	 *            VM class name
+	 * @param probecount
+	 *            probe count for this class
+	 * @param mv
+	 *            visitor to emit generated code
+	 * @return required stack size, including the access object
+	 */
+	protected int generateAccessCall(final long classid,
+			final String classname, final int probecount, final MethodVisitor mv) {
+		RuntimeData.generateAccessCall(classid, classname, probecount, mv);
 		return 6;
 	}
 
@@ -120,6 +155,26 @@ public class ModifiedSystemClassRuntime extends AbstractRuntime {
 	public static IRuntime createFor(final Instrumentation inst,
 			final String className, final String accessFieldName)
 			throws ClassNotFoundException {
+		final Class<?> clazz = addAccessField(inst, className, accessFieldName);
+		return new ModifiedSystemClassRuntime(clazz, accessFieldName);
+	}
+
+	/**
+	 * Loads the given system class while adding the static access field.
+	 * 
+	 * @param inst
+	 *            instrumentation interface
+	 * @param className
+	 *            VM name of the class to use
+	 * @param accessFieldName
+	 *            name of the added runtime access field
+	 * @return the loaded class with the access field
+	 * @throws ClassNotFoundException
+	 *             id the given class can not be found
+	 */
+	static Class<?> addAccessField(final Instrumentation inst,
+			final String className, final String accessFieldName)
+			throws ClassNotFoundException {
 		final ClassFileTransformer transformer = new ClassFileTransformer() {
 			public byte[] transform(final ClassLoader loader,
 					final String name, final Class<?> classBeingRedefined,
@@ -140,7 +195,7 @@ public class ModifiedSystemClassRuntime extends AbstractRuntime {
 			throw new RuntimeException(format(
 					"Class %s could not be instrumented.", className), e);
 		}
-		return new ModifiedSystemClassRuntime(clazz, accessFieldName);
+		return clazz;
 	}
 
 	/**
@@ -23,7 +23,7 @@ import org.objectweb.asm.Opcodes;
  * only.
  */
 public class OfflineInstrumentationAccessGenerator implements
-		IExecutionDataAccessorGenerator {
+		IHitCountsAccessorGenerator {
 
 	private final String runtimeClassName;
 
@@ -55,4 +55,14 @@ public class OfflineInstrumentationAccessGenerator implements
 		return 4;
 	}
 
+	public int generateHitCountsAccessor(final long classid,
+			final String classname, final int probecount, final MethodVisitor mv) {
+		mv.visitLdcInsn(Long.valueOf(classid));
+		mv.visitLdcInsn(classname);
+		InstrSupport.push(mv, probecount);
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC, runtimeClassName,
+				"getHitCounts", "(JLjava/lang/String;I)[I", false);
+		return 4;
+	}
+
 }
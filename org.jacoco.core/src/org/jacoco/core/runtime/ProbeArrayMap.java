@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Allocation free access protocol to a {@link RuntimeData} instance through
+ * the JRE API method {@link Map#get(Object)}. The key is a string constant
+ * which encodes class id, class name and probe count. As string constants are
+ * interned and cache their hash code a lookup of an already known class does
+ * neither box values nor allocate argument arrays. Keys created by
+ * {@link #createHitCountsKey(long, String, int)} return hit counters of type
+ * <code>int[]</code> instead.
+ *
+ * This is not a general purpose map: Only {@link #get(Object)} is supported,
+ * the map always appears to be empty.
+ */
+public final class ProbeArrayMap extends AbstractMap<Object, Object> {
+
+	private static final char SEPARATOR = ':';
+
+	private static final char HITCOUNTS_PREFIX = '#';
+
+	private final RuntimeData data;
+
+	private final Map<Object, Object> cache;
+
+	/**
+	 * Creates a new map which provides probe arrays from the given runtime
+	 * data.
+	 *
+	 * @param data
+	 *            runtime data to obtain probe arrays from
+	 */
+	public ProbeArrayMap(final RuntimeData data) {
+		this.data = data;
+		this.cache = new ConcurrentHashMap<Object, Object>();
+	}
+
+	/**
+	 * Returns the probe array for the class described by the given key.
+	 *
+	 * @param key
+	 *            key as created by {@link #createKey(long, String, int)} or
+	 *            {@link #createHitCountsKey(long, String, int)}
+	 * @return probe array of type <code>boolean[]</code> or hit counters of
+	 *         type <code>int[]</code>
+	 */
+	@Override
+	public Object get(final Object key) {
+		final Object probes = cache.get(key);
+		if (probes != null) {
+			return probes;
+		}
+		return lookup((String) key);
+	}
+
+	private Object lookup(final String key) {
+		final boolean hitCounts = key.charAt(0) == HITCOUNTS_PREFIX;
+		final int idStart = hitCounts ? 1 : 0;
+		final int idEnd = key.indexOf(SEPARATOR, idStart);
+		final int countEnd = key.indexOf(SEPARATOR, idEnd + 1);
+		final long classid = Long.parseLong(key.substring(idStart, idEnd));
+		final int probecount = Integer.parseInt(key.substring(idEnd + 1,
+				countEnd));
+		final String classname = key.substring(countEnd + 1);
+		final ExecutionData executionData = data.getExecutionData(
+				Long.valueOf(classid), classname, probecount, hitCounts);
+		final Object probes = hitCounts ? executionData.getHitCounts()
+				: executionData.getProbes();
+		cache.put(key, probes);
+		return probes;
+	}
+
+	@Override
+	public Set<Map.Entry<Object, Object>> entrySet() {
+		return Collections.emptySet();
+	}
+
+	/**
+	 * Creates the lookup key for the given class.
+	 *
+	 * @param classid
+	 *            class identifier
+	 * @param classname
+	 *            VM class name
+	 * @param probecount
+	 *            probe count for this class
+	 * @return key for {@link #get(Object)}
+	 */
+	public static String createKey(final long classid, final String classname,
+			final int probecount) {
+		return Long.toString(classid) + SEPARATOR + probecount + SEPARATOR
+				+ classname;
+	}
+
+	/**
+	 * Creates the lookup key for the hit counters of the given class.
+	 *
+	 * @param classid
+	 *            class identifier
+	 * @param classname
+	 *            VM class name
+	 * @param probecount
+	 *            probe count for this class
+	 * @return key for {@link #get(Object)}
+	 */
+	public static String createHitCountsKey(final long classid,
+			final String classname, final int probecount) {
+		return HITCOUNTS_PREFIX + createKey(classid, classname, probecount);
+	}
+
+	/**
+	 * Generates the code that calls a {@link ProbeArrayMap} instance through
+	 * the JRE API method {@link Map#get(Object)}. The code pops a
+	 * {@link Object} instance from the stack and pushes the probe array of type
+	 * <code>boolean[]</code> on the operand stack. The generated code requires
+	 * a stack size of 2.
+	 *
+	 * @param classid
+	 *            class identifier
+	 * @param classname
+	 *            VM class name
+	 * @param probecount
+	 *            probe count for this class
+	 * @param mv
+	 *            visitor to emit generated code
+	 */
+	public static void generateAccessCall(final long classid,
+			final String classname, final int probecount, final MethodVisitor mv) {
+		generateAccessCall(createKey(classid, classname, probecount),
+				InstrSupport.DATAFIELD_DESC, mv);
+	}
+
+	/**
+	 * Generates the code that obtains the hit counters from a
+	 * {@link ProbeArrayMap} instance. The code pops a {@link Object} instance
+	 * from the stack and pushes the hit counters of type <code>int[]</code> on
+	 * the operand stack. The generated code requires a stack size of 2.
+	 *
+	 * @param classid
+	 *            class identifier
+	 * @param classname
+	 *            VM class name
+	 * @param probecount
+	 *            probe count for this class
+	 * @param mv
+	 *            visitor to emit generated code
+	 */
+	public static void generateHitCountsAccessCall(final long classid,
+			final String classname, final int probecount, final MethodVisitor mv) {
+		generateAccessCall(createHitCountsKey(classid, classname, probecount),
+				InstrSupport.HITCOUNTSFIELD_DESC, mv);
+	}
+
+	private static void generateAccessCall(final String key,
+			final String resultDesc, final MethodVisitor mv) {
+		// stack[0]: Ljava/lang/Object;
+
+		mv.visitTypeInsn(Opcodes.CHECKCAST, "java/util/Map");
+		mv.visitLdcInsn(key);
+
+		// stack[1]: Ljava/lang/String;
+		// stack[0]: Ljava/util/Map;
+
+		mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/util/Map", "get",
+				"(Ljava/lang/Object;)Ljava/lang/Object;", true);
+
+		// stack[0]: Ljava/lang/Object;
+
+		mv.visitTypeInsn(Opcodes.CHECKCAST, resultDesc);
+
+		// stack[0]: [Z or [I
+	}
+
+}
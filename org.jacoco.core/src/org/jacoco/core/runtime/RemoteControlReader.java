@@ -41,6 +41,9 @@ public class RemoteControlReader extends ExecutionDataReader {
 		case RemoteControlWriter.BLOCK_CMDDUMP:
 			readDumpCommand();
 			return true;
+		case RemoteControlWriter.BLOCK_CMDDELTADUMP:
+			readDeltaDumpCommand();
+			return true;
 		case RemoteControlWriter.BLOCK_CMDOK:
 			return false;
 		default:
@@ -49,7 +52,8 @@ public class RemoteControlReader extends ExecutionDataReader {
 	}
 
 	/**
-	 * Sets an listener for agent commands.
+	 * Sets an listener for agent commands. To receive delta dump commands the
+	 * visitor has to implement {@link IRemoteDeltaCommandVisitor}.
 	 * 
 	 * @param visitor
 	 *            visitor to retrieve agent commands
@@ -67,4 +71,13 @@ public class RemoteControlReader extends ExecutionDataReader {
 		remoteCommandVisitor.visitDumpCommand(dump, reset);
 	}
 
+	private void readDeltaDumpCommand() throws IOException {
+		if (!(remoteCommandVisitor instanceof IRemoteDeltaCommandVisitor)) {
+			throw new IOException("No remote delta command visitor.");
+		}
+		final String clientId = in.readUTF();
+		((IRemoteDeltaCommandVisitor) remoteCommandVisitor)
+				.visitDeltaDumpCommand(clientId);
+	}
+
 }
@@ -20,7 +20,7 @@ import org.jacoco.core.data.ExecutionDataWriter;
  * {@link ExecutionDataWriter} with commands added for runtime remote control.
  */
 public class RemoteControlWriter extends ExecutionDataWriter implements
-		IRemoteCommandVisitor {
+		IRemoteDeltaCommandVisitor {
 
 	/** Block identifier to confirm successful command execution. */
 	public static final byte BLOCK_CMDOK = 0x20;
@@ -28,6 +28,9 @@ public class RemoteControlWriter extends ExecutionDataWriter implements
 	/** Block identifier for dump command */
 	public static final byte BLOCK_CMDDUMP = 0x40;
 
+	/** Block identifier for delta dump command */
+	public static final byte BLOCK_CMDDELTADUMP = 0x41;
+
 	/**
 	 * Creates a new writer based on the given output stream.
 	 * 
@@ -40,6 +43,23 @@ public class RemoteControlWriter extends ExecutionDataWriter implements
 		super(output);
 	}
 
+	/**
+	 * Creates a new writer based on the given output stream which optionally
+	 * compresses session info and execution data. Buffered data is written
+	 * before every command block.
+	 * 
+	 * @param output
+	 *            stream to write commands to
+	 * @param compress
+	 *            <code>true</code> if data should be compressed
+	 * @throws IOException
+	 *             if the header can't be written
+	 */
+	public RemoteControlWriter(final OutputStream output,
+			final boolean compress) throws IOException {
+		super(output, compress);
+	}
+
 	/**
 	 * Sends a confirmation that a commands has been successfully executed and
 	 * the response is completed.
@@ -48,14 +68,23 @@ public class RemoteControlWriter extends ExecutionDataWriter implements
 	 *             in case of problems with the remote connection
 	 */
 	public void sendCmdOk() throws IOException {
+		writeCompressedBlock();
 		out.writeByte(RemoteControlWriter.BLOCK_CMDOK);
 	}
 
 	public void visitDumpCommand(final boolean dump, final boolean reset)
 			throws IOException {
+		writeCompressedBlock();
 		out.writeByte(RemoteControlWriter.BLOCK_CMDDUMP);
 		out.writeBoolean(dump);
 		out.writeBoolean(reset);
 	}
 
+	public void visitDeltaDumpCommand(final String clientId)
+			throws IOException {
+		writeCompressedBlock();
+		out.writeByte(RemoteControlWriter.BLOCK_CMDDELTADUMP);
+		out.writeUTF(clientId);
+	}
+
 }
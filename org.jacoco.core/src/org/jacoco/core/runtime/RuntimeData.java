@@ -29,10 +29,14 @@ public class RuntimeData {
 	/** store for execution data */
 	protected final ExecutionDataStore store;
 
-	private long startTimeStamp;
+	/** time stamp of the last reset or creation of this runtime */
+	protected volatile long startTimeStamp;
 
 	private String sessionId;
 
+	/** number of resets, invalidates the baselines of delta collectors */
+	private volatile long resetCount;
+
 	/**
 	 * Creates a new runtime.
 	 */
@@ -78,7 +82,7 @@ public class RuntimeData {
 	 *            if <code>true</code> the current coverage information is also
 	 *            cleared
 	 */
-	public final void collect(final IExecutionDataVisitor executionDataVisitor,
+	public void collect(final IExecutionDataVisitor executionDataVisitor,
 			final ISessionInfoVisitor sessionInfoVisitor, final boolean reset) {
 		synchronized (store) {
 			final SessionInfo info = new SessionInfo(sessionId, startTimeStamp,
@@ -91,12 +95,32 @@ public class RuntimeData {
 		}
 	}
 
+	/**
+	 * Discards the baselines of all {@link DeltaCollector} instances for this
+	 * runtime. Must be called by subclasses whenever the execution data is
+	 * reset, while collections are blocked.
+	 */
+	protected void resetDelta() {
+		resetCount++;
+	}
+
+	/**
+	 * Returns the number of resets of this runtime. Collectors use it to detect
+	 * whether their baseline is still valid.
+	 * 
+	 * @return number of resets
+	 */
+	long getResetCount() {
+		return resetCount;
+	}
+
 	/**
 	 * Resets all coverage information.
 	 */
-	public final void reset() {
+	public void reset() {
 		synchronized (store) {
 			store.reset();
+			resetDelta();
 			startTimeStamp = System.currentTimeMillis();
 		}
 	}
@@ -116,8 +140,29 @@ public class RuntimeData {
 	 */
 	public ExecutionData getExecutionData(final Long id, final String name,
 			final int probecount) {
+		return getExecutionData(id, name, probecount, false);
+	}
+
+	/**
+	 * Returns the coverage data for the class with the given identifier. If
+	 * there is no data available under the given id a new entry is created,
+	 * which records hit counts if requested. This is a synchronized access to
+	 * the underlying store.
+	 * 
+	 * @param id
+	 *            class identifier
+	 * @param name
+	 *            VM name of the class
+	 * @param probecount
+	 *            probe data length
+	 * @param hitCounts
+	 *            <code>true</code> if the class records hit counts
+	 * @return execution data
+	 */
+	public ExecutionData getExecutionData(final Long id, final String name,
+			final int probecount, final boolean hitCounts) {
 		synchronized (store) {
-			return store.get(id, name, probecount);
+			return store.get(id, name, probecount, hitCounts);
 		}
 	}
 
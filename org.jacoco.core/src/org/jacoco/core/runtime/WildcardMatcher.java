@@ -7,68 +7,273 @@
  *
  * Contributors:
  *    Marc R. Hoffmann - initial API and implementation
- *    
+ *
  *******************************************************************************/
 package org.jacoco.core.runtime;
 
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Matches strings against <code>?</code>/<code>*</code> wildcard expressions.
  * Multiple expressions can be separated with a colon (:). In this case the
  * expression matches if at least one part matches.
+ *
+ * A <code>?</code> matches zero or one character, a <code>*</code> matches
+ * any number of characters. As with the corresponding regular expressions
+ * <code>.?</code> and <code>.*</code> wildcards do not match line terminators
+ * and consume supplementary characters as a whole.
+ *
+ * The expressions are compiled into a set of literals, a sorted array of
+ * prefixes for expressions of the form <code>prefix*</code> and a list of
+ * other expressions. Matching does not allocate any objects, instances are
+ * thread safe.
  */
 public class WildcardMatcher {
 
-	private final Pattern pattern;
+	/** Result of a partial match */
+	private static final int MATCH = 0;
+
+	/** Result of a partial match if other alternatives might still match */
+	private static final int NO_MATCH = 1;
+
+	/** Result of a partial match if no other alternative can match */
+	private static final int ABORT = 2;
+
+	private final Set<String> literals;
+
+	private final String[] prefixes;
+
+	private final String[] expressions;
 
 	/**
 	 * Creates a new matcher with the given expression.
-	 * 
+	 *
 	 * @param expression
 	 *            wildcard expressions
 	 */
 	public WildcardMatcher(final String expression) {
-		final String[] parts = expression.split("\\:");
-		final StringBuilder regex = new StringBuilder(expression.length() * 2);
-		boolean next = false;
+		String[] parts = expression.split("\\:");
+		if (parts.length == 0) {
+			// Only separators, same as the empty expression
+			parts = new String[] { "" };
+		}
+		literals = new HashSet<String>();
+		final List<String> prefixList = new ArrayList<String>();
+		final List<String> expressionList = new ArrayList<String>();
 		for (final String part : parts) {
-			if (next) {
-				regex.append('|');
+			final String normalized = normalize(part);
+			final int wildcard = indexOfWildcard(normalized);
+			if (wildcard == -1) {
+				literals.add(normalized);
+			} else if (wildcard == normalized.length() - 1
+					&& normalized.charAt(wildcard) == '*'
+					&& !containsLineTerminator(normalized)) {
+				prefixList.add(normalized.substring(0, wildcard));
+			} else {
+				expressionList.add(normalized);
 			}
-			regex.append('(').append(toRegex(part)).append(')');
-			next = true;
 		}
-		pattern = Pattern.compile(regex.toString());
+		prefixes = removeRedundantPrefixes(prefixList);
+		expressions = expressionList.toArray(new String[expressionList
+				.size()]);
 	}
 
-	private static CharSequence toRegex(final String expression) {
-		final StringBuilder regex = new StringBuilder(expression.length() * 2);
+	/**
+	 * Removes wildcards which are covered by an adjacent <code>*</code>.
+	 */
+	private static String normalize(final String expression) {
+		final StringBuilder result = new StringBuilder(expression.length());
+		boolean star = false;
+		int optionals = 0;
 		for (final char c : expression.toCharArray()) {
 			switch (c) {
-			case '?':
-				regex.append(".?");
-				break;
 			case '*':
-				regex.append(".*");
+				star = true;
+				break;
+			case '?':
+				optionals++;
 				break;
 			default:
-				regex.append(Pattern.quote(String.valueOf(c)));
+				appendWildcards(result, star, optionals);
+				star = false;
+				optionals = 0;
+				result.append(c);
 				break;
 			}
 		}
-		return regex;
+		appendWildcards(result, star, optionals);
+		return result.toString();
+	}
+
+	private static void appendWildcards(final StringBuilder result,
+			final boolean star, final int optionals) {
+		if (star) {
+			result.append('*');
+		} else {
+			for (int i = 0; i < optionals; i++) {
+				result.append('?');
+			}
+		}
+	}
+
+	private static int indexOfWildcard(final String expression) {
+		for (int i = 0; i < expression.length(); i++) {
+			final char c = expression.charAt(i);
+			if (c == '*' || c == '?') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Sorts the prefixes and removes all prefixes starting with another
+	 * prefix. In the resulting array the only candidate for a prefix of a
+	 * string is the greatest prefix less than or equal to the string.
+	 */
+	private static String[] removeRedundantPrefixes(final List<String> list) {
+		final String[] sorted = list.toArray(new String[list.size()]);
+		Arrays.sort(sorted);
+		final List<String> result = new ArrayList<String>();
+		for (final String prefix : sorted) {
+			if (result.isEmpty()
+					|| !prefix.startsWith(result.get(result.size() - 1))) {
+				result.add(prefix);
+			}
+		}
+		return result.toArray(new String[result.size()]);
 	}
 
 	/**
 	 * Matches the given string against the expressions of this matcher.
-	 * 
+	 *
 	 * @param s
 	 *            string to test
 	 * @return <code>true</code>, if the expression matches
 	 */
 	public boolean matches(final String s) {
-		return pattern.matcher(s).matches();
+		if (literals.contains(s) || matchesPrefix(s)) {
+			return true;
+		}
+		for (final String expression : expressions) {
+			if (match(expression, 0, s, 0) == MATCH) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean matchesPrefix(final String s) {
+		int low = 0;
+		int high = prefixes.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (prefixes[mid].compareTo(s) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		if (low == 0) {
+			return false;
+		}
+		final String prefix = prefixes[low - 1];
+		return s.startsWith(prefix)
+				&& !containsLineTerminator(s, prefix.length());
+	}
+
+	/**
+	 * Matches the remainder of the string starting at the given index against
+	 * the remainder of the expression.
+	 *
+	 * @return {@link #MATCH}, {@link #NO_MATCH} or {@link #ABORT} if the
+	 *         expression can't match for any later start of the last
+	 *         <code>*</code>
+	 */
+	private static int match(final String expression, int ei, final String s,
+			int si) {
+		final int elength = expression.length();
+		final int slength = s.length();
+		while (ei < elength) {
+			final char c = expression.charAt(ei++);
+			switch (c) {
+			case '*':
+				while (true) {
+					final int result = match(expression, ei, s, si);
+					if (result != NO_MATCH) {
+						return result;
+					}
+					if (si == slength) {
+						// A later start of a previous * can't match either
+						return ABORT;
+					}
+					if (isLineTerminator(s.charAt(si))) {
+						return NO_MATCH;
+					}
+					si = next(s, si);
+				}
+			case '?':
+				// Previous * alternatives might match with a different choice
+				// for this wildcard, therefore abort is not propagated
+				if (si < slength && !isLineTerminator(s.charAt(si))
+						&& match(expression, ei, s, next(s, si)) == MATCH) {
+					return MATCH;
+				}
+				return match(expression, ei, s, si) == MATCH ? MATCH
+						: NO_MATCH;
+			default:
+				if (si == slength || s.charAt(si) != c) {
+					return NO_MATCH;
+				}
+				si++;
+				break;
+			}
+		}
+		return si == slength ? MATCH : NO_MATCH;
+	}
+
+	private static int next(final String s, final int index) {
+		if (Character.isHighSurrogate(s.charAt(index))
+				&& index + 1 < s.length()
+				&& Character.isLowSurrogate(s.charAt(index + 1))) {
+			return index + 2;
+		}
+		return index + 1;
+	}
+
+	private static boolean containsLineTerminator(final String s) {
+		return containsLineTerminator(s, 0);
+	}
+
+	private static boolean containsLineTerminator(final String s,
+			final int start) {
+		for (int i = start; i < s.length(); i++) {
+			if (isLineTerminator(s.charAt(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Same as the characters not matched by <code>.</code> in
+	 * {@link java.util.regex.Pattern} without flags.
+	 */
+	private static boolean isLineTerminator(final char c) {
+		switch (c) {
+		case '\n':
+		case '\r':
+		case '\u0085':
+		case '\u2028':
+		case '\u2029':
+			return true;
+		default:
+			return false;
+		}
 	}
 
 }
@@ -16,6 +16,7 @@ import java.io.InterruptedIOException;
 import java.net.InetAddress;
 import java.net.Socket;
 
+import org.jacoco.core.runtime.AbstractRuntime;
 import org.jacoco.core.runtime.RemoteControlReader;
 import org.jacoco.core.runtime.RemoteControlWriter;
 
@@ -29,16 +30,21 @@ public class ExecDumpClient {
 	private int retryCount;
 	private long retryDelay;
 
+	private boolean delta;
+	private String clientId;
+
 	/**
 	 * New instance with the defaults <code>dump==true</code>,
-	 * <code>reset==false</code>, <code>retryCount==0</code> and
-	 * <code>retryDelay=1000</code>.
+	 * <code>reset==false</code>, <code>delta==false</code>,
+	 * <code>retryCount==0</code>, <code>retryDelay=1000</code> and a random
+	 * client identifier.
 	 */
 	public ExecDumpClient() {
 		this.dump = true;
 		this.reset = false;
 		this.retryCount = 0;
 		this.setRetryDelay(1000);
+		this.clientId = AbstractRuntime.createRandomId();
 	}
 
 	/**
@@ -61,6 +67,30 @@ public class ExecDumpClient {
 		this.reset = reset;
 	}
 
+	/**
+	 * Specifies whether only the execution data recorded since the last delta
+	 * dump with the same client identifier should be requested. If set the
+	 * dump and reset flags are ignored.
+	 * 
+	 * @param delta
+	 *            <code>true</code> if a delta dump should be requested
+	 */
+	public void setDelta(final boolean delta) {
+		this.delta = delta;
+	}
+
+	/**
+	 * Sets the identifier the agent uses to keep track of the delta dumps of
+	 * this client. By default every instance uses a random identifier, a fixed
+	 * identifier allows to continue the delta dumps from a different process.
+	 * 
+	 * @param clientId
+	 *            identifier for delta dumps
+	 */
+	public void setClientId(final String clientId) {
+		this.clientId = clientId;
+	}
+
 	/**
 	 * Sets the number of retry attempts to connect to the target socket. This
 	 * allows to wait for a certain time until the target agent has initialized.
@@ -122,7 +152,11 @@ public class ExecDumpClient {
 			remoteReader
 					.setExecutionDataVisitor(loader.getExecutionDataStore());
 
-			remoteWriter.visitDumpCommand(dump, reset);
+			if (delta) {
+				remoteWriter.visitDeltaDumpCommand(clientId);
+			} else {
+				remoteWriter.visitDumpCommand(dump, reset);
+			}
 			remoteReader.read();
 
 		} finally {
@@ -0,0 +1,379 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.SessionInfoStore;
+
+/**
+ * Utility to merge a large number of *.exec files with bounded memory. Other
+ * than {@link ExecFileLoader} only a limited number of classes is kept in
+ * memory. If this limit is exceeded the buffered execution data is written to
+ * a temporary file sorted by class id. Finally all temporary files are
+ * combined with a k-way merge. Session infos are always kept in memory.
+ *
+ * The merged file contains the execution data sorted by class id.
+ */
+public class ExecFileMerger {
+
+	/** Default maximum number of classes kept in memory */
+	public static final int DEFAULT_BUFFER_SIZE = 100000;
+
+	/** Maximum number of temporary files merged at once */
+	private static final int MERGE_FACTOR = 64;
+
+	private static final Comparator<ExecutionData> BY_ID = new Comparator<ExecutionData>() {
+		public int compare(final ExecutionData d1, final ExecutionData d2) {
+			return compareIds(d1.getId(), d2.getId());
+		}
+	};
+
+	private final File tempDirectory;
+
+	private final int bufferSize;
+
+	private final SessionInfoStore sessionInfos;
+
+	private final List<File> runs;
+
+	private ExecutionDataStore buffer;
+
+	private int bufferCount;
+
+	private boolean executionData;
+
+	/**
+	 * New merger with default settings. Temporary files are created in the
+	 * default temporary-file directory.
+	 */
+	public ExecFileMerger() {
+		this(null, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * New merger with the given settings.
+	 *
+	 * @param tempDirectory
+	 *            directory for temporary files or <code>null</code> for the
+	 *            default temporary-file directory
+	 * @param bufferSize
+	 *            maximum number of classes kept in memory
+	 */
+	public ExecFileMerger(final File tempDirectory, final int bufferSize) {
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("Invalid buffer size.");
+		}
+		this.tempDirectory = tempDirectory;
+		this.bufferSize = bufferSize;
+		this.sessionInfos = new SessionInfoStore();
+		this.runs = new ArrayList<File>();
+		this.buffer = new ExecutionDataStore();
+	}
+
+	/**
+	 * Reads all data from given input stream.
+	 *
+	 * @param stream
+	 *            Stream to read data from
+	 * @throws IOException
+	 *             in case of problems while reading from the stream or writing
+	 *             temporary files
+	 */
+	public void add(final InputStream stream) throws IOException {
+		final ExecutionDataReader reader = new ExecutionDataReader(
+				new BufferedInputStream(stream)) {
+			@Override
+			protected boolean readBlock(final byte blocktype)
+					throws IOException {
+				final boolean more = super.readBlock(blocktype);
+				if (bufferCount >= bufferSize) {
+					spill();
+				}
+				return more;
+			}
+		};
+		reader.setSessionInfoVisitor(sessionInfos);
+		reader.setExecutionDataVisitor(new IExecutionDataVisitor() {
+			public void visitClassExecution(final ExecutionData data) {
+				if (buffer.get(data.getId()) == null) {
+					bufferCount++;
+				}
+				buffer.put(data);
+			}
+		});
+		reader.read();
+	}
+
+	/**
+	 * Reads all data from given file.
+	 *
+	 * @param file
+	 *            file to read data from
+	 * @throws IOException
+	 *             in case of problems while reading from the file or writing
+	 *             temporary files
+	 */
+	public void add(final File file) throws IOException {
+		final InputStream stream = new FileInputStream(file);
+		try {
+			add(stream);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Checks whether any execution data has been added so far.
+	 *
+	 * @return <code>true</code> if at least one class has been added
+	 */
+	public boolean hasExecutionData() {
+		return executionData || bufferCount > 0;
+	}
+
+	/**
+	 * Writes the merged content to the given output stream. All temporary
+	 * files are deleted afterwards and this merger must not be used any more.
+	 *
+	 * @param stream
+	 *            stream to save content to
+	 * @throws IOException
+	 *             in case of problems while reading temporary files or
+	 *             writing to the stream
+	 */
+	public void merge(final OutputStream stream) throws IOException {
+		try {
+			final ExecutionDataWriter writer = new ExecutionDataWriter(stream);
+			sessionInfos.accept(writer);
+			if (runs.isEmpty()) {
+				for (final ExecutionData data : sorted(buffer)) {
+					writer.visitClassExecution(data);
+				}
+			} else {
+				spill();
+				while (runs.size() > MERGE_FACTOR) {
+					final List<File> group = new ArrayList<File>(runs.subList(
+							0, MERGE_FACTOR));
+					runs.removeAll(group);
+					runs.add(mergeToTempFile(group));
+				}
+				mergeRuns(runs, writer);
+			}
+		} finally {
+			for (final File run : runs) {
+				run.delete();
+			}
+			runs.clear();
+			buffer = new ExecutionDataStore();
+			bufferCount = 0;
+		}
+	}
+
+	/**
+	 * Writes the merged content into the given file. Parent directories are
+	 * created as needed. Also a files system lock is acquired to avoid
+	 * concurrent write access.
+	 *
+	 * @param file
+	 *            file to save content to
+	 * @param append
+	 *            <code>true</code> if the content should be appended, otherwise
+	 *            the file is overwritten.
+	 * @throws IOException
+	 *             in case of problems while reading temporary files or
+	 *             writing to the file
+	 * @see ExecFileLoader#save(File, boolean)
+	 */
+	public void merge(final File file, final boolean append)
+			throws IOException {
+		final File folder = file.getParentFile();
+		if (folder != null) {
+			folder.mkdirs();
+		}
+		final FileOutputStream fileStream = new FileOutputStream(file, append);
+		// Avoid concurrent writes from other processes:
+		fileStream.getChannel().lock();
+		final OutputStream bufferedStream = new BufferedOutputStream(fileStream);
+		try {
+			merge(bufferedStream);
+		} finally {
+			bufferedStream.close();
+		}
+	}
+
+	private void spill() throws IOException {
+		if (bufferCount == 0) {
+			return;
+		}
+		final File run = createTempFile();
+		final OutputStream out = new BufferedOutputStream(new FileOutputStream(
+				run));
+		try {
+			final ExecutionDataWriter writer = new ExecutionDataWriter(out);
+			for (final ExecutionData data : sorted(buffer)) {
+				writer.visitClassExecution(data);
+			}
+		} finally {
+			out.close();
+		}
+		runs.add(run);
+		buffer = new ExecutionDataStore();
+		bufferCount = 0;
+		executionData = true;
+	}
+
+	private File mergeToTempFile(final List<File> group) throws IOException {
+		final File run = createTempFile();
+		final OutputStream out = new BufferedOutputStream(new FileOutputStream(
+				run));
+		try {
+			mergeRuns(group, new ExecutionDataWriter(out));
+		} finally {
+			out.close();
+		}
+		for (final File f : group) {
+			f.delete();
+		}
+		return run;
+	}
+
+	private File createTempFile() throws IOException {
+		final File file = File.createTempFile("jacoco", ".exec", tempDirectory);
+		file.deleteOnExit();
+		return file;
+	}
+
+	private static List<ExecutionData> sorted(final ExecutionDataStore store) {
+		final List<ExecutionData> list = new ArrayList<ExecutionData>(
+				store.getContents());
+		Collections.sort(list, BY_ID);
+		return list;
+	}
+
+	/**
+	 * Merges the given sorted runs. Entries with the same id are merged in the
+	 * order of the runs, i.e. in the order the input files have been added.
+	 */
+	private static void mergeRuns(final List<File> runs,
+			final IExecutionDataVisitor output) throws IOException {
+		final PriorityQueue<Run> queue = new PriorityQueue<Run>(runs.size());
+		try {
+			for (int i = 0; i < runs.size(); i++) {
+				final Run run = new Run(runs.get(i), i);
+				if (run.next()) {
+					queue.add(run);
+				} else {
+					run.close();
+				}
+			}
+			while (!queue.isEmpty()) {
+				final Run head = queue.poll();
+				final ExecutionData merged = head.current;
+				advance(queue, head);
+				while (!queue.isEmpty()
+						&& queue.peek().current.getId() == merged.getId()) {
+					final Run other = queue.poll();
+					merged.merge(other.current);
+					advance(queue, other);
+				}
+				output.visitClassExecution(merged);
+			}
+		} finally {
+			for (final Run run : queue) {
+				run.close();
+			}
+		}
+	}
+
+	private static void advance(final PriorityQueue<Run> queue, final Run run)
+			throws IOException {
+		if (run.next()) {
+			queue.add(run);
+		} else {
+			run.close();
+		}
+	}
+
+	private static int compareIds(final long id1, final long id2) {
+		return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+	}
+
+	/**
+	 * Sequential reader for a temporary file with sorted execution data.
+	 */
+	private static class Run extends ExecutionDataReader implements
+			IExecutionDataVisitor, Comparable<Run> {
+
+		private final InputStream in;
+
+		private final int index;
+
+		ExecutionData current;
+
+		Run(final File file, final int index) throws IOException {
+			this(new BufferedInputStream(new FileInputStream(file)), index);
+		}
+
+		private Run(final InputStream in, final int index) {
+			super(in);
+			this.in = in;
+			this.index = index;
+			setExecutionDataVisitor(this);
+		}
+
+		boolean next() throws IOException {
+			current = null;
+			read();
+			return current != null;
+		}
+
+		void close() throws IOException {
+			in.close();
+		}
+
+		@Override
+		protected boolean readBlock(final byte blocktype) throws IOException {
+			super.readBlock(blocktype);
+			// Stop after every class to read the runs in lockstep:
+			return current == null;
+		}
+
+		public void visitClassExecution(final ExecutionData data) {
+			current = data;
+		}
+
+		public int compareTo(final Run other) {
+			final int c = compareIds(current.getId(), other.current.getId());
+			return c != 0 ? c : index - other.index;
+		}
+
+	}
+
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.MappedExecutionDataReader;
+import org.jacoco.core.data.MappedExecutionDataWriter;
+
+/**
+ * Utility to convert memory mapped execution data files written by
+ * {@link MappedExecutionDataWriter}, e.g. by the agent output
+ * <code>mappedfile</code>, into regular *.exec files. Files of running or
+ * crashed processes can be converted as well.
+ */
+public class MappedExecFileConverter {
+
+	private boolean compress;
+
+	/**
+	 * New converter which writes uncompressed execution data.
+	 */
+	public MappedExecFileConverter() {
+		this.compress = false;
+	}
+
+	/**
+	 * Specifies whether the converted execution data should be compressed.
+	 *
+	 * @param compress
+	 *            <code>true</code> to write compressed execution data
+	 */
+	public void setCompress(final boolean compress) {
+		this.compress = compress;
+	}
+
+	/**
+	 * Converts the given mapped file into an execution data file. Existing
+	 * content of the target file is replaced.
+	 *
+	 * @param source
+	 *            memory mapped execution data file
+	 * @param destfile
+	 *            execution data file to write
+	 * @throws IOException
+	 *             if the files can't be read or written
+	 */
+	public void convert(final File source, final File destfile)
+			throws IOException {
+		final File folder = destfile.getParentFile();
+		if (folder != null) {
+			folder.mkdirs();
+		}
+		final OutputStream out = new BufferedOutputStream(
+				new FileOutputStream(destfile));
+		try {
+			convert(source, out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Converts the given mapped file and writes the execution data to the
+	 * given stream.
+	 *
+	 * @param source
+	 *            memory mapped execution data file
+	 * @param output
+	 *            stream to write execution data to
+	 * @throws IOException
+	 *             if the file can't be read or the stream can't be written
+	 */
+	public void convert(final File source, final OutputStream output)
+			throws IOException {
+		final ExecutionDataWriter writer = new ExecutionDataWriter(output,
+				compress);
+		final MappedExecutionDataReader reader = new MappedExecutionDataReader(
+				source);
+		reader.setSessionInfoVisitor(writer);
+		reader.setExecutionDataVisitor(writer);
+		reader.read();
+		writer.flush();
+	}
+
+}
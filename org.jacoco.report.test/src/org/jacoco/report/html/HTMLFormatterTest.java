@@ -18,9 +18,32 @@ import static org.junit.Assert.assertTrue;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.core.analysis.ISourceFileCoverage;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.internal.analysis.BundleCoverageImpl;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.CounterImpl;
+import org.jacoco.core.internal.analysis.MethodCoverageImpl;
+import org.jacoco.core.internal.analysis.PackageCoverageImpl;
+import org.jacoco.core.internal.analysis.SourceFileCoverageImpl;
 
 import org.jacoco.report.ILanguageNames;
+import org.jacoco.report.IReportVisitor;
+import org.jacoco.report.ISourceFileLocator;
 import org.jacoco.report.MemoryMultiReportOutput;
 import org.jacoco.report.ReportStructureTestDriver;
 import org.junit.After;
@@ -98,6 +121,96 @@ public class HTMLFormatterTest {
 				line.startsWith("<?xml version=\"1.0\" encoding=\"UTF-16\""));
 	}
 
+	@Test
+	public void testParallelRendering() throws Exception {
+		final IBundleCoverage bundle = createBundle();
+		final MemoryMultiReportOutput expected = render(bundle);
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			formatter.setExecutor(executor);
+			final MemoryMultiReportOutput actual = render(bundle);
+			assertEquals(expected.getFileNames(), actual.getFileNames());
+			for (final String name : expected.getFileNames()) {
+				assertTrue(name, Arrays.equals(expected.getFile(name),
+						actual.getFile(name)));
+			}
+		} finally {
+			executor.shutdown();
+		}
+		output.close();
+	}
+
+	@Test
+	public void testParallelRenderingSingleThread() throws Exception {
+		// Pages waiting for their child pages must not block the only thread
+		final IBundleCoverage bundle = createBundle();
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			formatter.setExecutor(executor);
+			final MemoryMultiReportOutput actual = render(bundle);
+			actual.assertFile("p3/index.html");
+			actual.assertFile("p3/class3.html");
+			actual.assertFile("p3/class3.java.html");
+		} finally {
+			executor.shutdown();
+		}
+		output.close();
+	}
+
+	private MemoryMultiReportOutput render(final IBundleCoverage bundle)
+			throws IOException {
+		final MemoryMultiReportOutput out = new MemoryMultiReportOutput();
+		final IReportVisitor visitor = formatter.createVisitor(out);
+		visitor.visitInfo(Collections.<SessionInfo> emptyList(),
+				Collections.<ExecutionData> emptyList());
+		visitor.visitBundle(bundle, new ISourceFileLocator() {
+			public Reader getSourceFile(final String packageName,
+					final String fileName) {
+				return new StringReader(packageName + "\n" + fileName);
+			}
+
+			public int getTabWidth() {
+				return 4;
+			}
+		});
+		visitor.visitEnd();
+		out.assertAllClosed();
+		return out;
+	}
+
+	/**
+	 * Creates a bundle with several packages. The names of some classes and
+	 * source files only differ in case, so their file names depend on the
+	 * order of normalization.
+	 */
+	private IBundleCoverage createBundle() {
+		final List<IPackageCoverage> packages = new ArrayList<IPackageCoverage>();
+		for (int p = 0; p < 10; p++) {
+			final String packageName = "p" + p;
+			final List<IClassCoverage> classes = new ArrayList<IClassCoverage>();
+			final List<ISourceFileCoverage> sources = new ArrayList<ISourceFileCoverage>();
+			for (int c = 0; c < 12; c++) {
+				final String name = (c % 2 == 0 ? "class" : "Class") + c / 2;
+				final MethodCoverageImpl m = new MethodCoverageImpl("m", "()V",
+						null);
+				m.increment(CounterImpl.getInstance(c, p), CounterImpl.COUNTER_0_0,
+						1);
+				m.incrementMethodCounter();
+				final ClassCoverageImpl cc = new ClassCoverageImpl(packageName
+						+ "/" + name, p * 100 + c, false);
+				cc.setSourceFileName(name + ".java");
+				cc.addMethod(m);
+				classes.add(cc);
+				final SourceFileCoverageImpl sc = new SourceFileCoverageImpl(
+						name + ".java", packageName);
+				sc.increment(cc);
+				sources.add(sc);
+			}
+			packages.add(new PackageCoverageImpl(packageName, classes, sources));
+		}
+		return new BundleCoverageImpl("bundle", packages);
+	}
+
 	@Test
 	public void testGetLanguageNames() throws Exception {
 		ILanguageNames names = new ILanguageNames() {
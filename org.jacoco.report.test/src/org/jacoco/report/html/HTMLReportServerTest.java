@@ -0,0 +1,308 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.html;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.internal.analysis.BundleCoverageImpl;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.PackageCoverageImpl;
+import org.jacoco.core.internal.analysis.SourceFileCoverageImpl;
+import org.jacoco.report.IReportVisitor;
+import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.MemoryMultiReportOutput;
+import org.jacoco.report.ReportStructureTestDriver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link HTMLReportServer}.
+ */
+public class HTMLReportServerTest {
+
+	private ReportStructureTestDriver driver;
+
+	private HTMLFormatter formatter;
+
+	private HTMLReportServer server;
+
+	private boolean started;
+
+	@Before
+	public void setup() {
+		driver = new ReportStructureTestDriver();
+		formatter = new HTMLFormatter();
+		formatter.setLocale(Locale.ENGLISH);
+		server = new HTMLReportServer(formatter);
+	}
+
+	@After
+	public void teardown() throws Exception {
+		if (started) {
+			server.shutdown();
+		}
+	}
+
+	@Test
+	public void testSameContentAsWrittenReport() throws IOException {
+		final HTMLFormatter formatter = new HTMLFormatter();
+		formatter.setLocale(Locale.ENGLISH);
+		final MemoryMultiReportOutput output = new MemoryMultiReportOutput();
+		driver.sendNestedGroups(formatter.createVisitor(output));
+		driver.sendNestedGroups(server.createVisitor());
+
+		output.assertFile("index.html");
+		for (final String name : output.getFileNames()) {
+			assertArrayEquals(name, output.getFile(name), server.getFile(name));
+		}
+	}
+
+	@Test
+	public void testSourceFilePage() throws IOException {
+		sendSourceFile(new ISourceFileLocator() {
+			public Reader getSourceFile(String packageName, String fileName) {
+				return new StringReader("class Foo {}");
+			}
+
+			public int getTabWidth() {
+				return 4;
+			}
+		});
+
+		final String page = new String(
+				server.getFile("org.jacoco.example/Foo.java.html"), "UTF-8");
+		assertEquals(true, page.contains("class Foo {}"));
+	}
+
+	@Test
+	public void testFormatterReusedWhileServing() throws IOException {
+		server.setCacheSize(0);
+		driver.sendNestedGroups(server.createVisitor());
+		final byte[] page = server.getFile("group1/index.html");
+
+		formatter.setFooterText("other");
+		driver.sendBundle(formatter
+				.createVisitor(new MemoryMultiReportOutput()));
+
+		assertArrayEquals(page, server.getFile("group1/index.html"));
+	}
+
+	@Test
+	public void testGetUnknownFile() throws IOException {
+		assertNull(server.getFile("index.html"));
+		driver.sendBundle(server.createVisitor());
+		assertNotNull(server.getFile("index.html"));
+		assertNull(server.getFile("unknown.html"));
+	}
+
+	@Test
+	public void testHttpGet() throws Exception {
+		driver.sendBundle(server.createVisitor());
+		start();
+
+		final byte[] index = server.getFile("index.html");
+		assertEquals("HTTP/1.1 200 OK\r\n"
+				+ "Content-Type: text/html;charset=UTF-8\r\n"
+				+ "Content-Length: " + index.length + "\r\n"
+				+ "Connection: close\r\n\r\n" + new String(index, "UTF-8"),
+				request("GET / HTTP/1.1"));
+		assertEquals(true,
+				request("GET /jacoco-resources/report.css?v=1 HTTP/1.1")
+						.startsWith("HTTP/1.1 200 OK\r\n"
+								+ "Content-Type: text/css\r\n"));
+		assertEquals(true, request("GET /org.jacoco.example/ HTTP/1.1")
+				.startsWith("HTTP/1.1 200 OK\r\n"));
+	}
+
+	@Test
+	public void testHttpHead() throws Exception {
+		driver.sendBundle(server.createVisitor());
+		start();
+
+		final byte[] index = server.getFile("index.html");
+		assertEquals("HTTP/1.1 200 OK\r\n"
+				+ "Content-Type: text/html;charset=UTF-8\r\n"
+				+ "Content-Length: " + index.length + "\r\n"
+				+ "Connection: close\r\n\r\n", request("HEAD / HTTP/1.1"));
+	}
+
+	@Test
+	public void testHttpErrors() throws Exception {
+		driver.sendBundle(server.createVisitor());
+		start();
+
+		assertEquals(true, request("GET /unknown.html HTTP/1.1").startsWith(
+				"HTTP/1.1 404 Not Found\r\n"));
+		assertEquals(true, request("POST / HTTP/1.1").startsWith(
+				"HTTP/1.1 405 Method Not Allowed\r\n"));
+		assertEquals(true,
+				request("GARBAGE").startsWith("HTTP/1.1 400 Bad Request\r\n"));
+	}
+
+	@Test
+	public void testHttpEncodedPath() throws Exception {
+		driver.sendBundle(server.createVisitor());
+		start();
+
+		assertEquals(true, request("GET /index%2Ehtml HTTP/1.1").startsWith(
+				"HTTP/1.1 200 OK\r\n"));
+		assertEquals(true, request("GET /index%2 HTTP/1.1").startsWith(
+				"HTTP/1.1 400 Bad Request\r\n"));
+		assertEquals(true, request("GET /index%zz.html HTTP/1.1")
+				.startsWith("HTTP/1.1 400 Bad Request\r\n"));
+	}
+
+	@Test
+	public void testHttpRuntimeException() throws Exception {
+		sendSourceFile(new ISourceFileLocator() {
+			private boolean opened;
+
+			public Reader getSourceFile(String packageName, String fileName) {
+				if (opened) {
+					throw new IllegalStateException("Source not available");
+				}
+				opened = true;
+				return new StringReader("class Foo {}");
+			}
+
+			public int getTabWidth() {
+				return 4;
+			}
+		});
+		start();
+
+		assertEquals(true,
+				request("GET /org.jacoco.example/Foo.java.html HTTP/1.1")
+						.startsWith("HTTP/1.1 500 Internal Server Error\r\n"));
+		assertEquals(true,
+				request("GET / HTTP/1.1").startsWith("HTTP/1.1 200 OK\r\n"));
+	}
+
+	@Test
+	public void testHttpConcurrentRequests() throws Exception {
+		final CountDownLatch rendering = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		sendSourceFile(new ISourceFileLocator() {
+			private boolean opened;
+
+			public Reader getSourceFile(String packageName, String fileName) {
+				if (opened) {
+					rendering.countDown();
+					try {
+						release.await();
+					} catch (final InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+				}
+				opened = true;
+				return new StringReader("class Foo {}");
+			}
+
+			public int getTabWidth() {
+				return 4;
+			}
+		});
+		start();
+
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Future<String> slow = executor
+					.submit(new Callable<String>() {
+						public String call() throws Exception {
+							return request(
+									"GET /org.jacoco.example/Foo.java.html HTTP/1.1");
+						}
+					});
+			assertTrue(rendering.await(5, TimeUnit.SECONDS));
+
+			// Other requests are served while the page is rendered:
+			assertEquals(true, request("GET / HTTP/1.1").startsWith(
+					"HTTP/1.1 200 OK\r\n"));
+
+			release.countDown();
+			assertEquals(true, slow.get(5, TimeUnit.SECONDS).startsWith(
+					"HTTP/1.1 200 OK\r\n"));
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	private void sendSourceFile(final ISourceFileLocator locator)
+			throws IOException {
+		final ClassCoverageImpl classCoverage = new ClassCoverageImpl(
+				"org/jacoco/example/Foo", 1, false);
+		classCoverage.setSourceFileName("Foo.java");
+		final SourceFileCoverageImpl sourceCoverage = new SourceFileCoverageImpl(
+				"Foo.java", "org/jacoco/example");
+		final PackageCoverageImpl packageCoverage = new PackageCoverageImpl(
+				"org/jacoco/example", Collections.singleton(classCoverage),
+				Collections.singleton(sourceCoverage));
+		final IReportVisitor visitor = server.createVisitor();
+		visitor.visitInfo(Collections.<SessionInfo> emptyList(),
+				Collections.<ExecutionData> emptyList());
+		visitor.visitBundle(new BundleCoverageImpl("bundle",
+				Collections.singleton(packageCoverage)), locator);
+		visitor.visitEnd();
+	}
+
+	private void start() throws IOException {
+		server.start(InetAddress.getByName("localhost"), 0);
+		started = true;
+	}
+
+	private String request(final String requestLine) throws IOException {
+		final Socket socket = new Socket(InetAddress.getByName("localhost"),
+				server.getPort());
+		try {
+			final OutputStream out = socket.getOutputStream();
+			out.write((requestLine + "\r\nHost: localhost\r\n\r\n")
+					.getBytes("ISO-8859-1"));
+			out.flush();
+			final InputStream in = socket.getInputStream();
+			final ByteArrayOutputStream response = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[1024];
+			int len;
+			while ((len = in.read(buffer)) != -1) {
+				response.write(buffer, 0, len);
+			}
+			return response.toString("UTF-8");
+		} finally {
+			socket.close();
+		}
+	}
+
+}
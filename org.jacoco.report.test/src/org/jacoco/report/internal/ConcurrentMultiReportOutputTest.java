@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.jacoco.report.FileMultiReportOutput;
+import org.jacoco.report.MemoryMultiReportOutput;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link ConcurrentMultiReportOutput}.
+ */
+public class ConcurrentMultiReportOutputTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private MemoryMultiReportOutput delegate;
+
+	private ConcurrentMultiReportOutput output;
+
+	@Before
+	public void setup() {
+		delegate = new MemoryMultiReportOutput();
+		output = new ConcurrentMultiReportOutput(delegate);
+	}
+
+	@After
+	public void teardown() throws IOException {
+		output.close();
+		delegate.assertAllClosed();
+	}
+
+	@Test
+	public void testFileWrittenOnClose() throws IOException {
+		final OutputStream out = output.createFile("a/b.html");
+		out.write(new byte[] { 1, 2 });
+		delegate.assertEmpty();
+		out.write(3);
+		out.close();
+		assertArrayEquals(new byte[] { 1, 2, 3 }, delegate.getFile("a/b.html"));
+	}
+
+	@Test
+	public void testInterleavedFiles() throws IOException {
+		final OutputStream out1 = output.createFile("1.html");
+		final OutputStream out2 = output.createFile("2.html");
+		out1.write(1);
+		out2.write(2);
+		out2.close();
+		out1.write(1);
+		out1.close();
+		assertArrayEquals(new byte[] { 1, 1 }, delegate.getFile("1.html"));
+		assertArrayEquals(new byte[] { 2 }, delegate.getFile("2.html"));
+	}
+
+	@Test
+	public void testCloseTwice() throws IOException {
+		final OutputStream out = output.createFile("test.html");
+		out.close();
+		out.close();
+		delegate.assertSingleFile("test.html");
+	}
+
+	@Test
+	public void testFileOutputWrittenDirectly() throws IOException {
+		final File dir = folder.newFolder("report");
+		final ConcurrentMultiReportOutput files = new ConcurrentMultiReportOutput(
+				new FileMultiReportOutput(dir));
+		final OutputStream out1 = files.createFile("1.html");
+		final OutputStream out2 = files.createFile("a/2.html");
+		assertTrue(new File(dir, "1.html").isFile());
+		assertTrue(new File(dir, "a/2.html").isFile());
+		out1.write(1);
+		out2.write(2);
+		out2.close();
+		out1.close();
+		files.close();
+		assertEquals(1, new File(dir, "1.html").length());
+		assertEquals(1, new File(dir, "a/2.html").length());
+	}
+
+}
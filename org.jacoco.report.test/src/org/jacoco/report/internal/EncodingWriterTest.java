@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link EncodingWriter}.
+ */
+public class EncodingWriterTest {
+
+	private ByteArrayOutputStream buffer;
+
+	private EncodingWriter writer;
+
+	@Before
+	public void setup() throws IOException {
+		buffer = new ByteArrayOutputStream();
+		writer = new EncodingWriter(buffer, "UTF-8");
+	}
+
+	@Test
+	public void testWrite() throws IOException {
+		writer.write('a');
+		writer.write("bcd");
+		writer.write("xefx", 1, 2);
+		writer.write(new char[] { 'x', 'g', 'x' }, 1, 1);
+		writer.append("hi");
+		writer.close();
+		assertEquals("abcdefghi", buffer.toString("UTF-8"));
+	}
+
+	@Test
+	public void testWriteDecimal() throws IOException {
+		final long[] values = new long[] { 0, 1, 9, 10, 99, 100, -1, -10,
+				1000000000000000000L, Integer.MAX_VALUE, Integer.MIN_VALUE,
+				Long.MAX_VALUE, Long.MIN_VALUE };
+		final StringBuilder expected = new StringBuilder();
+		for (final long v : values) {
+			writer.writeDecimal(v);
+			writer.write(' ');
+			expected.append(v).append(' ');
+		}
+		writer.close();
+		assertEquals(expected.toString(), buffer.toString("UTF-8"));
+	}
+
+	@Test
+	public void testWriteLargeContent() throws IOException {
+		final StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			expected.append("\u00E4\u20AC");
+			writer.write("\u00E4\u20AC");
+			expected.append(i);
+			writer.writeDecimal(i);
+		}
+		final char[] chars = new char[200000];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) ('a' + i % 26);
+		}
+		expected.append(chars);
+		writer.write(chars);
+		writer.close();
+		assertEquals(expected.toString(), buffer.toString("UTF-8"));
+	}
+
+	@Test
+	public void testSurrogatePairAtBufferBoundary() throws IOException {
+		final StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 0x10000 - 1; i++) {
+			expected.append('a');
+		}
+		expected.append("\uD834\uDD1E");
+		writer.write(expected.toString());
+		writer.close();
+		assertEquals(expected.toString(), buffer.toString("UTF-8"));
+	}
+
+	@Test
+	public void testFlush() throws IOException {
+		writer.write("abc");
+		assertEquals(0, buffer.size());
+		writer.flush();
+		assertEquals("abc", buffer.toString("UTF-8"));
+	}
+
+	@Test
+	public void testEncoding() throws IOException {
+		writer = new EncodingWriter(buffer, "UTF-16");
+		writer.write("\u00E4b");
+		writer.close();
+		assertEquals("\u00E4b", buffer.toString("UTF-16"));
+	}
+
+	@Test
+	public void testUnmappableCharacter() throws IOException {
+		writer = new EncodingWriter(buffer, "ISO-8859-1");
+		writer.write("a\u20ACb");
+		writer.close();
+		assertEquals("a?b", buffer.toString("ISO-8859-1"));
+	}
+
+	@Test(expected = UnsupportedEncodingException.class)
+	public void testUnsupportedEncoding() throws IOException {
+		new EncodingWriter(buffer, "no-such-encoding");
+	}
+
+	@Test
+	public void testClose() throws IOException {
+		final boolean[] closed = new boolean[1];
+		writer = new EncodingWriter(new ByteArrayOutputStream() {
+			@Override
+			public void close() {
+				closed[0] = true;
+			}
+		}, "UTF-8");
+		writer.close();
+		writer.close();
+		assertTrue(closed[0]);
+	}
+
+	@Test(expected = IOException.class)
+	public void testWriteAfterClose() throws IOException {
+		writer.close();
+		writer.write('a');
+	}
+
+}
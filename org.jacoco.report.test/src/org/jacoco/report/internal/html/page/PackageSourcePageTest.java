@@ -21,6 +21,7 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.Executor;
 
 import org.jacoco.core.analysis.IClassCoverage;
 import org.jacoco.core.analysis.ISourceFileCoverage;
@@ -44,6 +45,9 @@ public class PackageSourcePageTest extends PageTestBase {
 
 	private PackageSourcePage page;
 
+	private int openReaders;
+	private int maxOpenReaders;
+
 	@Before
 	@Override
 	public void setup() throws Exception {
@@ -52,9 +56,11 @@ public class PackageSourcePageTest extends PageTestBase {
 				"org/jacoco/example");
 		ISourceFileCoverage src2 = new SourceFileCoverageImpl("Src2.java",
 				"org/jacoco/example");
+		ISourceFileCoverage src3 = new SourceFileCoverageImpl("Src3.java",
+				"org/jacoco/example");
 		node = new PackageCoverageImpl("org/jacoco/example",
 				Collections.<IClassCoverage> emptyList(), Arrays.asList(src1,
-						src2));
+						src2, src3));
 		sourceLocator = new ISourceFileLocator() {
 
 			public int getTabWidth() {
@@ -63,8 +69,16 @@ public class PackageSourcePageTest extends PageTestBase {
 
 			public Reader getSourceFile(String packageName, String fileName)
 					throws IOException {
-				return fileName.equals("Src1.java") ? new StringReader("")
-						: null;
+				if (fileName.equals("Src2.java")) {
+					return null;
+				}
+				maxOpenReaders = Math.max(maxOpenReaders, ++openReaders);
+				return new StringReader("") {
+					@Override
+					public void close() {
+						openReaders--;
+					}
+				};
 			}
 		};
 		packagePageLink = new ILinkable() {
@@ -108,6 +122,24 @@ public class PackageSourcePageTest extends PageTestBase {
 				"/html/body/table[1]/tbody/tr[2]/td[1]/span"));
 	}
 
+	@Test
+	public void testSourceFilesOpenedWhenRenderedWithExecutor()
+			throws Exception {
+		// Scheduled pages are executed by PageRenderer.complete():
+		executor = new Executor() {
+			public void execute(Runnable command) {
+			}
+		};
+		page = new PackageSourcePage(node, null, sourceLocator, rootFolder,
+				context, packagePageLink);
+		page.render();
+
+		assertEquals(1, maxOpenReaders);
+		assertEquals(0, openReaders);
+		assertNotNull(output.getFile("Src1.java.html"));
+		assertNotNull(output.getFile("Src3.java.html"));
+	}
+
 	@Test
 	public void testGetSourceFilePages() throws Exception {
 		page = new PackageSourcePage(node, null, sourceLocator, rootFolder,
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.internal.html.page;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+
+import org.jacoco.report.internal.ReportOutputFolder;
+import org.jacoco.report.internal.html.HTMLElement;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ * Unit tests for {@link PageRegistry}.
+ */
+public class PageRegistryTest extends PageTestBase {
+
+	private class TestReportPage extends ReportPage {
+
+		private final String label;
+
+		protected TestReportPage(String label, ReportOutputFolder folder) {
+			super(null, folder, PageRegistryTest.this.context);
+			this.label = label;
+		}
+
+		@Override
+		protected void content(HTMLElement body) throws IOException {
+			body.div("testcontent").text("Hello " + label);
+		}
+
+		@Override
+		protected String getFileName() {
+			return label + ".html";
+		}
+
+		public String getLinkLabel() {
+			return label;
+		}
+
+		public String getLinkStyle() {
+			return "el_report";
+		}
+
+	}
+
+	@Before
+	@Override
+	public void setup() throws Exception {
+		super.setup();
+		pageRegistry = new PageRegistry(rootFolder, 1);
+	}
+
+	@Test
+	public void testRenderRegistersPage() throws Exception {
+		new TestReportPage("A", rootFolder).render();
+		new TestReportPage("B", rootFolder.subFolder("sub")).render();
+
+		output.assertEmpty();
+		assertEquals(2, pageRegistry.getPageCount());
+	}
+
+	@Test
+	public void testGetContent() throws Exception {
+		new TestReportPage("A", rootFolder.subFolder("sub")).render();
+
+		final Document doc = support.parse(pageRegistry
+				.getContent("sub/A.html"));
+		assertEquals("Hello A", support.findStr(doc,
+				"/html/body/div[@class='testcontent']/text()"));
+	}
+
+	@Test
+	public void testGetContentFromCache() throws Exception {
+		new TestReportPage("A", rootFolder).render();
+
+		assertSame(pageRegistry.getContent("A.html"),
+				pageRegistry.getContent("A.html"));
+	}
+
+	@Test
+	public void testGetContentAfterEviction() throws Exception {
+		new TestReportPage("A", rootFolder).render();
+		new TestReportPage("B", rootFolder).render();
+
+		final byte[] first = pageRegistry.getContent("A.html");
+		pageRegistry.getContent("B.html");
+		final byte[] second = pageRegistry.getContent("A.html");
+
+		assertNotSame(first, second);
+		assertArrayEquals(first, second);
+	}
+
+	@Test
+	public void testGetContentUnknownPage() throws Exception {
+		assertNull(pageRegistry.getContent("A.html"));
+	}
+
+}
@@ -13,6 +13,7 @@ package org.jacoco.report.internal.html.page;
 
 import java.io.IOException;
 import java.util.Locale;
+import java.util.concurrent.Executor;
 
 import org.jacoco.report.ILanguageNames;
 import org.jacoco.report.JavaNames;
@@ -42,6 +43,10 @@ public abstract class PageTestBase {
 
 	protected HTMLSupport support;
 
+	protected PageRegistry pageRegistry;
+
+	protected Executor executor;
+
 	protected void setup() throws Exception {
 		output = new MemoryMultiReportOutput();
 		rootFolder = new ReportOutputFolder(output);
@@ -86,6 +91,14 @@ public abstract class PageTestBase {
 				return Locale.ENGLISH;
 			}
 
+			public Executor getExecutor() {
+				return executor;
+			}
+
+			public PageRegistry getPageRegistry() {
+				return pageRegistry;
+			}
+
 		};
 		support = new HTMLSupport();
 	}
@@ -15,10 +15,13 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 
 import org.jacoco.core.internal.analysis.SourceFileCoverageImpl;
+import org.jacoco.report.ISourceFileLocator;
 import org.junit.Before;
 import org.junit.Test;
 import org.w3c.dom.Document;
@@ -68,4 +71,51 @@ public class SourceFilePageTest extends PageTestBase {
 		// source code
 		assertNotNull(support.findStr(result, "/html/body/pre"));
 	}
+
+	@Test
+	public void testContentsFromLocator() throws Exception {
+		final SourceFileCoverageImpl node = new SourceFileCoverageImpl(
+				"Foo.java", "org/jacoco/example");
+		final ISourceFileLocator locator = new ISourceFileLocator() {
+			public Reader getSourceFile(String packageName, String fileName) {
+				return new StringReader(packageName + "/" + fileName);
+			}
+
+			public int getTabWidth() {
+				return 2;
+			}
+		};
+		final SourceFilePage page = new SourceFilePage(node, locator, null,
+				rootFolder, context);
+		pageRegistry = new PageRegistry(rootFolder, 0);
+		page.render();
+
+		// The source file is opened for every rendering
+		for (int i = 0; i < 2; i++) {
+			final Document result = support.parse(pageRegistry
+					.getContent("Foo.java.html"));
+			assertEquals("org/jacoco/example/Foo.java\n",
+					support.findStr(result, "/html/body/pre"));
+			assertEquals("window['PR_TAB_WIDTH']=2;prettyPrint()",
+					support.findStr(result, "/html/body/@onload"));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testMissingSourceFile() throws Exception {
+		final SourceFileCoverageImpl node = new SourceFileCoverageImpl(
+				"Foo.java", "org/jacoco/example");
+		final ISourceFileLocator locator = new ISourceFileLocator() {
+			public Reader getSourceFile(String packageName, String fileName) {
+				return null;
+			}
+
+			public int getTabWidth() {
+				return 4;
+			}
+		};
+		pageRegistry = new PageRegistry(rootFolder, 0);
+		new SourceFilePage(node, locator, null, rootFolder, context).render();
+		pageRegistry.getContent("Foo.java.html");
+	}
 }
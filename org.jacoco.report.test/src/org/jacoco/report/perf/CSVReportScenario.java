@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.perf;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.report.IReportVisitor;
+import org.jacoco.report.csv.CSVFormatter;
+
+/**
+ * Scenario to measure the time to write a CSV report.
+ */
+public class CSVReportScenario extends ReportScenario {
+
+	protected CSVReportScenario(Class<?> target, int packages, int classes) {
+		super(String.format("writing CSV report for %s classes",
+				Integer.valueOf(packages * classes)), target, packages,
+				classes);
+	}
+
+	@Override
+	protected Callable<Void> getCallable() throws Exception {
+		final IBundleCoverage bundle = createBundle();
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				final IReportVisitor visitor = new CSVFormatter()
+						.createVisitor(NUL);
+				visitor.visitInfo(Collections.<SessionInfo> emptyList(),
+						Collections.<ExecutionData> emptyList());
+				visitor.visitBundle(bundle, null);
+				visitor.visitEnd();
+				return null;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.perf;
+
+import java.io.PrintWriter;
+
+import org.jacoco.report.internal.html.HTMLElement;
+
+/**
+ * Runs the performance scenarios for report creation. The bundle analyzed for
+ * the reports consists of copies of a class of the report implementation.
+ */
+public class ReportPerformanceSuite {
+
+	public static void run(final PrintWriter writer) throws Exception {
+		new ReportRenderingScenario(HTMLElement.class, 20, 50, 4).run(writer);
+		new XMLReportScenario(HTMLElement.class, 50, 200).run(writer);
+		new CSVReportScenario(HTMLElement.class, 50, 200).run(writer);
+	}
+
+	public static void main(String[] args) throws Exception {
+		final PrintWriter writer;
+		if (args.length == 0) {
+			writer = new PrintWriter(System.out, true);
+		} else {
+			writer = new PrintWriter(args[0]);
+		}
+		run(writer);
+		writer.close();
+	}
+
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.perf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.report.IMultiReportOutput;
+import org.jacoco.report.IReportVisitor;
+import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.html.HTMLFormatter;
+
+/**
+ * Scenario to compare parallel rendering of HTML reports with the given number
+ * of threads with sequential rendering.
+ */
+public class ReportRenderingScenario extends ReportScenario {
+
+	private final int threads;
+
+	protected ReportRenderingScenario(Class<?> target, int packages,
+			int classes, int threads) {
+		super(String.format(
+				"rendering HTML report for %s classes with %s threads",
+				Integer.valueOf(packages * classes), Integer.valueOf(threads)),
+				target, packages, classes);
+		this.threads = threads;
+	}
+
+	@Override
+	protected Callable<Void> getCallable() throws Exception {
+		return createCallable(threads);
+	}
+
+	@Override
+	protected Callable<Void> getReferenceCallable() throws Exception {
+		return createCallable(0);
+	}
+
+	private Callable<Void> createCallable(final int threads) throws Exception {
+		final IBundleCoverage bundle = createBundle();
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				final HTMLFormatter formatter = new HTMLFormatter();
+				final ExecutorService executor = threads == 0 ? null
+						: Executors.newFixedThreadPool(threads);
+				try {
+					formatter.setExecutor(executor);
+					render(formatter, bundle);
+				} finally {
+					if (executor != null) {
+						executor.shutdown();
+					}
+				}
+				return null;
+			}
+		};
+	}
+
+	private void render(final HTMLFormatter formatter,
+			final IBundleCoverage bundle) throws IOException {
+		final IReportVisitor visitor = formatter
+				.createVisitor(new IMultiReportOutput() {
+					public OutputStream createFile(final String path) {
+						return NUL;
+					}
+
+					public void close() {
+					}
+				});
+		visitor.visitInfo(Collections.<SessionInfo> emptyList(),
+				Collections.<ExecutionData> emptyList());
+		visitor.visitBundle(bundle, new ISourceFileLocator() {
+			public Reader getSourceFile(final String packageName,
+					final String fileName) {
+				final StringBuilder source = new StringBuilder();
+				for (int i = 0; i < 200; i++) {
+					source.append("int field").append(i).append(" = 0;\n");
+				}
+				return new StringReader(source.toString());
+			}
+
+			public int getTabWidth() {
+				return 4;
+			}
+		});
+		visitor.visitEnd();
+	}
+
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.perf;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.concurrent.Callable;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.SimpleRemapper;
+
+/**
+ * Base class for scenarios which measure the time to create reports for a
+ * bundle of copies of a target class.
+ */
+public abstract class ReportScenario {
+
+	private static final int RUNS = 10;
+
+	/** Output stream which discards all content */
+	protected static final OutputStream NUL = new OutputStream() {
+		@Override
+		public void write(final int b) {
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+		}
+	};
+
+	private final String description;
+
+	private final Class<?> target;
+
+	private final int packages;
+
+	private final int classes;
+
+	protected ReportScenario(final String description, final Class<?> target,
+			final int packages, final int classes) {
+		this.description = description;
+		this.target = target;
+		this.packages = packages;
+		this.classes = classes;
+	}
+
+	/**
+	 * Runs the scenario and the reference, if any, several times and writes
+	 * the minimum execution times.
+	 * 
+	 * @param writer
+	 *            output for the result
+	 * @throws Exception
+	 */
+	public void run(final PrintWriter writer) throws Exception {
+		final double time = getMinimumTime(getCallable()) / 1000000.0;
+		final Callable<Void> reference = getReferenceCallable();
+		if (reference == null) {
+			writer.printf("%-56s%8s         ms%n", description,
+					format("%.2f", Double.valueOf(time)));
+		} else {
+			final double reftime = getMinimumTime(reference) / 1000000.0;
+			writer.printf("%-56s%8s%8s ms%6.0f%%%n", description,
+					format("%.2f", Double.valueOf(time)),
+					format("%.2f", Double.valueOf(reftime)),
+					Double.valueOf(100 * (time - reftime) / reftime));
+		}
+	}
+
+	private static long getMinimumTime(final Callable<Void> subject)
+			throws Exception {
+		long min = Long.MAX_VALUE;
+		for (int i = 0; i < RUNS; i++) {
+			final long start = System.nanoTime();
+			subject.call();
+			min = Math.min(min, System.nanoTime() - start);
+		}
+		return min;
+	}
+
+	protected abstract Callable<Void> getCallable() throws Exception;
+
+	protected Callable<Void> getReferenceCallable() throws Exception {
+		return null;
+	}
+
+	/**
+	 * Analyzes copies of the target class with different names in different
+	 * packages.
+	 */
+	protected IBundleCoverage createBundle() throws IOException {
+		final byte[] bytes = getClassData(target);
+		final String name = target.getName().replace('.', '/');
+		final CoverageBuilder builder = new CoverageBuilder();
+		final Analyzer analyzer = new Analyzer(new ExecutionDataStore(),
+				builder);
+		for (int p = 0; p < packages; p++) {
+			for (int c = 0; c < classes; c++) {
+				final String copy = "pkg" + p + "/Target" + c;
+				final String sourceName = "Target" + c + ".java";
+				final ClassWriter writer = new ClassWriter(0);
+				final ClassVisitor remapper = new ClassRemapper(writer,
+						new SimpleRemapper(name, copy)) {
+					@Override
+					public void visitSource(final String source,
+							final String debug) {
+						super.visitSource(sourceName, debug);
+					}
+				};
+				new ClassReader(bytes).accept(remapper, 0);
+				analyzer.analyzeClass(writer.toByteArray(), copy);
+			}
+		}
+		return builder.getBundle("perf");
+	}
+
+	private static byte[] getClassData(final Class<?> clazz)
+			throws IOException {
+		final String resource = "/" + clazz.getName().replace('.', '/')
+				+ ".class";
+		final InputStream in = clazz.getResourceAsStream(resource);
+		try {
+			return new ClassReader(in).b;
+		} finally {
+			in.close();
+		}
+	}
+
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.perf;
+
+import java.io.OutputStreamWriter;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.report.IReportVisitor;
+import org.jacoco.report.internal.xml.XMLCoverageWriter;
+import org.jacoco.report.internal.xml.XMLDocument;
+import org.jacoco.report.xml.XMLFormatter;
+
+/**
+ * Scenario to measure the time to write a XML report. As a reference the same
+ * report is written through a standard {@link OutputStreamWriter}.
+ */
+public class XMLReportScenario extends ReportScenario {
+
+	protected XMLReportScenario(Class<?> target, int packages, int classes) {
+		super(String.format("writing XML report for %s classes",
+				Integer.valueOf(packages * classes)), target, packages,
+				classes);
+	}
+
+	@Override
+	protected Callable<Void> getCallable() throws Exception {
+		final IBundleCoverage bundle = createBundle();
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				final IReportVisitor visitor = new XMLFormatter()
+						.createVisitor(NUL);
+				visitor.visitInfo(Collections.<SessionInfo> emptyList(),
+						Collections.<ExecutionData> emptyList());
+				visitor.visitBundle(bundle, null);
+				visitor.visitEnd();
+				return null;
+			}
+		};
+	}
+
+	@Override
+	protected Callable<Void> getReferenceCallable() throws Exception {
+		final IBundleCoverage bundle = createBundle();
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				final XMLDocument document = new XMLDocument("report", null,
+						null, "UTF-8", true,
+						new OutputStreamWriter(NUL, "UTF-8"));
+				document.attr("name", bundle.getName());
+				XMLCoverageWriter.writeBundle(bundle, document);
+				document.close();
+				return null;
+			}
+		};
+	}
+
+}
@@ -21,7 +21,8 @@ import java.io.OutputStream;
 
 /**
  * Implementation of {@link IMultiReportOutput} that writes files directly to a
- * given directory.
+ * given directory. Files can be created and written from multiple threads at
+ * the same time.
  */
 public class FileMultiReportOutput implements IMultiReportOutput {
 
@@ -13,7 +13,6 @@ package org.jacoco.report.csv;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.util.Collection;
 import java.util.List;
 
@@ -22,6 +21,7 @@ import org.jacoco.core.data.SessionInfo;
 import org.jacoco.report.ILanguageNames;
 import org.jacoco.report.IReportVisitor;
 import org.jacoco.report.JavaNames;
+import org.jacoco.report.internal.EncodingWriter;
 
 /**
  * Report formatter that will create a single CSV file. By default the filename
@@ -75,7 +75,7 @@ public class CSVFormatter {
 	public IReportVisitor createVisitor(final OutputStream output)
 			throws IOException {
 		final DelimitedWriter writer = new DelimitedWriter(
-				new OutputStreamWriter(output, outputEncoding));
+				new EncodingWriter(output, outputEncoding));
 		final ClassRowWriter rowWriter = new ClassRowWriter(writer,
 				languageNames);
 		class Visitor extends CSVGroupHandler implements IReportVisitor {
@@ -14,6 +14,8 @@ package org.jacoco.report.csv;
 import java.io.IOException;
 import java.io.Writer;
 
+import org.jacoco.report.internal.EncodingWriter;
+
 /**
  * Helper class for writing out CSV or tab delimited files.
  * <p>
@@ -32,7 +34,7 @@ import java.io.Writer;
  * </p>
  */
 class DelimitedWriter {
-	private static final String QUOTE = "\"";
+	private static final char QUOTE = '"';
 	private static final String ESCAPED_QUOTE = "\"\"";
 
 	private static final char DEFAULT_DELIMITER = ',';
@@ -93,7 +95,11 @@ class DelimitedWriter {
 		if (fieldPosition != 0) {
 			delegate.write(delimiter);
 		}
-		delegate.write(escape(field));
+		if (field.indexOf(QUOTE) == -1 && field.indexOf(delimiter) == -1) {
+			delegate.write(field);
+		} else {
+			writeQuoted(field);
+		}
 		fieldPosition++;
 	}
 
@@ -106,7 +112,15 @@ class DelimitedWriter {
 	 *             Error writing to the underlying writer object
 	 */
 	public void write(final int value) throws IOException {
-		write(Integer.toString(value));
+		if (fieldPosition != 0) {
+			delegate.write(delimiter);
+		}
+		if (delegate instanceof EncodingWriter) {
+			((EncodingWriter) delegate).writeDecimal(value);
+		} else {
+			delegate.write(Integer.toString(value));
+		}
+		fieldPosition++;
 	}
 
 	/**
@@ -119,7 +133,7 @@ class DelimitedWriter {
 	 */
 	public void write(final int... values) throws IOException {
 		for (final int value : values) {
-			write(Integer.toString(value));
+			write(value);
 		}
 	}
 
@@ -147,24 +161,25 @@ class DelimitedWriter {
 	}
 
 	/**
-	 * Escapes any occurrences of the quote character in value by replacing it
-	 * with a double quote. Also Quotes the value if a quote or delimiter value
-	 * is found.
+	 * Quotes the value and escapes any occurrences of the quote character in
+	 * value by replacing it with a double quote. The value is written in
+	 * ranges between quote characters.
 	 * 
 	 * @param value
 	 *            String that needs escaping
-	 * @return New string with all values escaped
+	 * @throws IOException
+	 *             Error writing to the underlying writer object
 	 */
-	private String escape(final String value) {
-		String escapedValue = value;
-
-		// Escape and quote if the source value contains the delimiter
-		// or the quote character
-		if (value.indexOf(QUOTE) != -1 || value.indexOf(delimiter) != -1) {
-			escapedValue = value.replace(QUOTE, ESCAPED_QUOTE);
-			escapedValue = QUOTE + escapedValue + QUOTE;
+	private void writeQuoted(final String value) throws IOException {
+		delegate.write(QUOTE);
+		int start = 0;
+		int quote;
+		while ((quote = value.indexOf(QUOTE, start)) != -1) {
+			delegate.write(value, start, quote - start);
+			delegate.write(ESCAPED_QUOTE);
+			start = quote + 1;
 		}
-
-		return escapedValue;
+		delegate.write(value, start, value.length() - start);
+		delegate.write(QUOTE);
 	}
 }
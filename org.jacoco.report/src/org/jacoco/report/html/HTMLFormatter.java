@@ -15,6 +15,7 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Executor;
 
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
@@ -26,6 +27,7 @@ import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.IReportVisitor;
 import org.jacoco.report.ISourceFileLocator;
 import org.jacoco.report.JavaNames;
+import org.jacoco.report.internal.ConcurrentMultiReportOutput;
 import org.jacoco.report.internal.ReportOutputFolder;
 import org.jacoco.report.internal.html.HTMLGroupVisitor;
 import org.jacoco.report.internal.html.IHTMLReportContext;
@@ -33,6 +35,7 @@ import org.jacoco.report.internal.html.ILinkable;
 import org.jacoco.report.internal.html.index.ElementIndex;
 import org.jacoco.report.internal.html.index.IIndexUpdate;
 import org.jacoco.report.internal.html.page.BundlePage;
+import org.jacoco.report.internal.html.page.PageRegistry;
 import org.jacoco.report.internal.html.page.ReportPage;
 import org.jacoco.report.internal.html.page.SessionsPage;
 import org.jacoco.report.internal.html.resources.Resources;
@@ -62,7 +65,12 @@ public class HTMLFormatter implements IHTMLReportContext {
 
 	private SessionsPage sessionsPage;
 
-	private Table table;
+	private Executor executor;
+
+	private PageRegistry pageRegistry;
+
+	/** Tables keep state while they are rendered */
+	private final ThreadLocal<Table> table = new ThreadLocal<Table>();
 
 	/**
 	 * New instance with default settings.
@@ -112,6 +120,39 @@ public class HTMLFormatter implements IHTMLReportContext {
 		this.outputEncoding = outputEncoding;
 	}
 
+	/**
+	 * Sets an executor which is used to render the pages of packages, classes
+	 * and source files in parallel. The generated report is identical to the
+	 * report rendered without executor. The executor is not required to
+	 * provide more than one thread. Files are passed to the report output
+	 * one at a time. The configured {@link ILanguageNames} implementation must
+	 * be thread safe. Default is <code>null</code> which means all pages are
+	 * rendered on the calling thread.
+	 * 
+	 * @param executor
+	 *            executor for page rendering or <code>null</code>
+	 */
+	public void setExecutor(final Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Creates a new formatter with the same settings. The copy keeps its own
+	 * report state, so reports created with this formatter afterwards do not
+	 * affect the report of the copy.
+	 * 
+	 * @return new formatter with the settings of this instance
+	 */
+	HTMLFormatter copy() {
+		final HTMLFormatter copy = new HTMLFormatter();
+		copy.languageNames = languageNames;
+		copy.locale = locale;
+		copy.footerText = footerText;
+		copy.outputEncoding = outputEncoding;
+		copy.executor = executor;
+		return copy;
+	}
+
 	// === IHTMLReportContext ===
 
 	public ILanguageNames getLanguageNames() {
@@ -123,10 +164,12 @@ public class HTMLFormatter implements IHTMLReportContext {
 	}
 
 	public Table getTable() {
-		if (table == null) {
-			table = createTable();
+		Table t = table.get();
+		if (t == null) {
+			t = createTable();
+			table.set(t);
 		}
-		return table;
+		return t;
 	}
 
 	private Table createTable() {
@@ -175,6 +218,14 @@ public class HTMLFormatter implements IHTMLReportContext {
 		return locale;
 	}
 
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	public PageRegistry getPageRegistry() {
+		return pageRegistry;
+	}
+
 	/**
 	 * Creates a new visitor to write a report to the given output.
 	 * 
@@ -186,7 +237,34 @@ public class HTMLFormatter implements IHTMLReportContext {
 	 */
 	public IReportVisitor createVisitor(final IMultiReportOutput output)
 			throws IOException {
+		final IMultiReportOutput target = executor == null ? output
+				: new ConcurrentMultiReportOutput(output);
+		pageRegistry = null;
+		return createVisitor(target, new ReportOutputFolder(target));
+	}
+
+	/**
+	 * Creates a new visitor which registers all pages of the report with a new
+	 * page registry for rendering on demand, see {@link #getPageRegistry()}.
+	 * Only the static resources are written to the given output.
+	 * 
+	 * @param output
+	 *            output for static resources
+	 * @param cacheSize
+	 *            maximum number of rendered pages kept in memory
+	 * @return visitor to emit the report data to
+	 * @throws IOException
+	 *             in case of problems with the output
+	 */
+	IReportVisitor createVisitor(final IMultiReportOutput output,
+			final int cacheSize) throws IOException {
 		final ReportOutputFolder root = new ReportOutputFolder(output);
+		pageRegistry = new PageRegistry(root, cacheSize);
+		return createVisitor(output, root);
+	}
+
+	private IReportVisitor createVisitor(final IMultiReportOutput target,
+			final ReportOutputFolder root) throws IOException {
 		resources = new Resources(root);
 		resources.copyResources();
 		index = new ElementIndex(root);
@@ -231,7 +309,7 @@ public class HTMLFormatter implements IHTMLReportContext {
 					groupHandler.visitEnd();
 				}
 				sessionsPage.render();
-				output.close();
+				target.close();
 			}
 		};
 	}
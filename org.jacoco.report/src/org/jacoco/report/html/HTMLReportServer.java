@@ -0,0 +1,382 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.html;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.jacoco.report.IMultiReportOutput;
+import org.jacoco.report.IReportVisitor;
+
+/**
+ * Embedded HTTP server for HTML reports. Other than
+ * {@link HTMLFormatter#createVisitor(IMultiReportOutput)} the visitor of this
+ * server does not write any pages. Every page is rendered when it is requested
+ * for the first time. The most recently requested pages are kept in a cache.
+ * Requests are processed by a fixed number of threads. The report is rendered
+ * with the settings of the formatter at the time the visitor is created, the
+ * formatter may be used for other reports while the report is served.
+ */
+public class HTMLReportServer {
+
+	/** Default number of rendered pages kept in memory */
+	public static final int DEFAULT_CACHE_SIZE = 200;
+
+	private static final int BACKLOG = 50;
+
+	private static final int TIMEOUT = 10000;
+
+	/** Number of threads processing requests */
+	private static final int THREADS = 4;
+
+	private static final String INDEX = "index.html";
+
+	private static final String HEADER_ENCODING = "ISO-8859-1";
+
+	private static final String CRLF = "\r\n";
+
+	private final HTMLFormatter formatter;
+
+	private final Map<String, byte[]> resources = new HashMap<String, byte[]>();
+
+	private int cacheSize = DEFAULT_CACHE_SIZE;
+
+	private volatile HTMLFormatter report;
+
+	private ServerSocket serverSocket;
+
+	private Thread worker;
+
+	private ExecutorService executor;
+
+	/**
+	 * Creates a new server for reports in the format of the given formatter.
+	 *
+	 * @param formatter
+	 *            formatter providing the report settings
+	 */
+	public HTMLReportServer(final HTMLFormatter formatter) {
+		this.formatter = formatter;
+	}
+
+	/**
+	 * Sets the maximum number of rendered pages which are kept in memory.
+	 * Default is {@value #DEFAULT_CACHE_SIZE}.
+	 *
+	 * @param cacheSize
+	 *            number of cached pages
+	 */
+	public void setCacheSize(final int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
+	/**
+	 * Creates a new visitor to provide the report served by this server. The
+	 * visitor only keeps the structure of the report in memory and returns
+	 * quickly. A report provided before is replaced.
+	 *
+	 * @return visitor to emit the report data to
+	 * @throws IOException
+	 *             in case of problems with the formatter
+	 */
+	public IReportVisitor createVisitor() throws IOException {
+		final Map<String, byte[]> files = new HashMap<String, byte[]>();
+		// Every report has its own formatter instance, as the formatter keeps
+		// the state of the report for rendering pages on demand:
+		final HTMLFormatter reportFormatter = formatter.copy();
+		final IReportVisitor visitor = reportFormatter.createVisitor(
+				new IMultiReportOutput() {
+					public OutputStream createFile(final String path) {
+						return new ByteArrayOutputStream() {
+							@Override
+							public void close() {
+								files.put(path, toByteArray());
+							}
+						};
+					}
+
+					public void close() {
+						synchronized (resources) {
+							resources.clear();
+							resources.putAll(files);
+						}
+					}
+				}, cacheSize);
+		report = reportFormatter;
+		return visitor;
+	}
+
+	/**
+	 * Returns the content of the file with the given path. Pages are rendered
+	 * if they are not in the cache.
+	 *
+	 * @param path
+	 *            path of the file relative to the report root
+	 * @return content of the file or <code>null</code> if there is no such
+	 *         file
+	 * @throws IOException
+	 *             if the page can't be rendered
+	 */
+	public byte[] getFile(final String path) throws IOException {
+		synchronized (resources) {
+			final byte[] content = resources.get(path);
+			if (content != null) {
+				return content;
+			}
+		}
+		final HTMLFormatter r = report;
+		if (r == null) {
+			return null;
+		}
+		return r.getPageRegistry().getContent(path);
+	}
+
+	/**
+	 * Starts the server on the given address and port.
+	 *
+	 * @param address
+	 *            local address to listen on or <code>null</code> for all
+	 *            local addresses
+	 * @param port
+	 *            port to listen on or <code>0</code> for any free port
+	 * @throws IOException
+	 *             if the server socket can't be opened
+	 */
+	public void start(final InetAddress address, final int port)
+			throws IOException {
+		serverSocket = new ServerSocket(port, BACKLOG, address);
+		executor = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+			public Thread newThread(final Runnable r) {
+				final Thread thread = new Thread(r);
+				thread.setName(HTMLReportServer.class.getName());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		worker = new Thread(new Runnable() {
+			public void run() {
+				while (!serverSocket.isClosed()) {
+					try {
+						dispatch(serverSocket.accept());
+					} catch (final IOException e) {
+						// The closed server socket on shutdown is ignored.
+					}
+				}
+			}
+		});
+		worker.setName(getClass().getName());
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Returns the port the server is listening on.
+	 *
+	 * @return local port
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Stops the server and waits until the current requests are processed.
+	 *
+	 * @throws IOException
+	 *             if the server socket can't be closed
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted while waiting
+	 */
+	public void shutdown() throws IOException, InterruptedException {
+		serverSocket.close();
+		worker.join();
+		executor.shutdown();
+		executor.awaitTermination(TIMEOUT, TimeUnit.MILLISECONDS);
+	}
+
+	private void dispatch(final Socket socket) throws IOException {
+		try {
+			executor.execute(new Runnable() {
+				public void run() {
+					try {
+						serve(socket);
+					} catch (final IOException e) {
+						// Broken connections are ignored.
+					}
+				}
+			});
+		} catch (final RejectedExecutionException e) {
+			socket.close();
+		}
+	}
+
+	private void serve(final Socket socket) throws IOException {
+		try {
+			socket.setSoTimeout(TIMEOUT);
+			final BufferedReader in = new BufferedReader(new InputStreamReader(
+					socket.getInputStream(), HEADER_ENCODING));
+			final String request = in.readLine();
+			String header;
+			do {
+				header = in.readLine();
+			} while (header != null && header.length() > 0);
+			final OutputStream out = socket.getOutputStream();
+			respond(request, out);
+			out.flush();
+		} finally {
+			socket.close();
+		}
+	}
+
+	private void respond(final String request, final OutputStream out)
+			throws IOException {
+		final String[] parts = request == null ? new String[0] : request
+				.split(" ");
+		if (parts.length < 2) {
+			sendError(out, "400 Bad Request");
+			return;
+		}
+		final boolean head = "HEAD".equals(parts[0]);
+		if (!head && !"GET".equals(parts[0])) {
+			sendError(out, "405 Method Not Allowed");
+			return;
+		}
+		final String path = getPath(parts[1]);
+		if (path == null) {
+			sendError(out, "400 Bad Request");
+			return;
+		}
+		final byte[] content;
+		try {
+			content = getFile(path);
+		} catch (final IOException e) {
+			sendError(out, "500 Internal Server Error");
+			return;
+		} catch (final RuntimeException e) {
+			sendError(out, "500 Internal Server Error");
+			return;
+		}
+		if (content == null) {
+			sendError(out, "404 Not Found");
+			return;
+		}
+		sendHeader(out, "200 OK", getContentType(path), content.length);
+		if (!head) {
+			out.write(content);
+		}
+	}
+
+	private static void sendError(final OutputStream out, final String status)
+			throws IOException {
+		final byte[] message = status.getBytes(HEADER_ENCODING);
+		sendHeader(out, status, "text/plain", message.length);
+		out.write(message);
+	}
+
+	private static void sendHeader(final OutputStream out,
+			final String status, final String contentType, final int length)
+			throws IOException {
+		final StringBuilder header = new StringBuilder();
+		header.append("HTTP/1.1 ").append(status).append(CRLF);
+		header.append("Content-Type: ").append(contentType).append(CRLF);
+		header.append("Content-Length: ").append(length).append(CRLF);
+		header.append("Connection: close").append(CRLF);
+		header.append(CRLF);
+		out.write(header.toString().getBytes(HEADER_ENCODING));
+	}
+
+	/**
+	 * Extracts the decoded path relative to the report root from the given
+	 * request target.
+	 * 
+	 * @return path or <code>null</code> if the target is not properly encoded
+	 */
+	private static String getPath(final String target) {
+		String path = target;
+		final int query = path.indexOf('?');
+		if (query != -1) {
+			path = path.substring(0, query);
+		}
+		path = decode(path);
+		if (path == null) {
+			return null;
+		}
+		while (path.startsWith("/")) {
+			path = path.substring(1);
+		}
+		if (path.length() == 0 || path.endsWith("/")) {
+			path += INDEX;
+		}
+		return path;
+	}
+
+	private static String decode(final String path) {
+		if (path.indexOf('%') == -1) {
+			return path;
+		}
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		for (int i = 0; i < path.length(); i++) {
+			final char c = path.charAt(i);
+			if (c == '%') {
+				if (i + 2 >= path.length()) {
+					return null;
+				}
+				final int high = Character.digit(path.charAt(i + 1), 16);
+				final int low = Character.digit(path.charAt(i + 2), 16);
+				if (high == -1 || low == -1) {
+					return null;
+				}
+				bytes.write(high << 4 | low);
+				i += 2;
+			} else {
+				bytes.write(c);
+			}
+		}
+		try {
+			return bytes.toString("UTF-8");
+		} catch (final UnsupportedEncodingException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private String getContentType(final String path) {
+		if (path.endsWith(".html")) {
+			final HTMLFormatter r = report;
+			return "text/html;charset="
+					+ (r == null ? formatter : r).getOutputEncoding();
+		}
+		if (path.endsWith(".css")) {
+			return "text/css";
+		}
+		if (path.endsWith(".js")) {
+			return "text/javascript";
+		}
+		if (path.endsWith(".gif")) {
+			return "image/gif";
+		}
+		return "application/octet-stream";
+	}
+
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.jacoco.report.FileMultiReportOutput;
+import org.jacoco.report.IMultiReportOutput;
+
+/**
+ * Wrapper which allows to create files from multiple threads for outputs which
+ * only support one open file at a time. The content of every file is buffered
+ * in memory and passed to the underlying output in one piece when the file is
+ * closed. Files of a {@link FileMultiReportOutput} are independent of each
+ * other, therefore they are written directly.
+ */
+public class ConcurrentMultiReportOutput implements IMultiReportOutput {
+
+	private final IMultiReportOutput delegate;
+
+	private final boolean direct;
+
+	/**
+	 * Creates a new wrapper for the given output.
+	 *
+	 * @param delegate
+	 *            output to write files to
+	 */
+	public ConcurrentMultiReportOutput(final IMultiReportOutput delegate) {
+		this.delegate = delegate;
+		this.direct = delegate instanceof FileMultiReportOutput;
+	}
+
+	public OutputStream createFile(final String path) throws IOException {
+		if (direct) {
+			return delegate.createFile(path);
+		}
+		return new ByteArrayOutputStream() {
+
+			private boolean closed = false;
+
+			@Override
+			public void close() throws IOException {
+				if (!closed) {
+					closed = true;
+					writeFile(path, this);
+				}
+			}
+		};
+	}
+
+	private synchronized void writeFile(final String path,
+			final ByteArrayOutputStream content) throws IOException {
+		final OutputStream out = delegate.createFile(path);
+		try {
+			content.writeTo(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	public synchronized void close() throws IOException {
+		delegate.close();
+	}
+
+}
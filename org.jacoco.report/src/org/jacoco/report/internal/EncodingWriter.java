@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Unsynchronized writer for large text reports. Characters are collected in a
+ * large buffer and encoded in bulk to the underlying stream. In addition to
+ * the {@link Writer} API decimal numbers can be written without creating
+ * intermediate strings. Instances are not thread safe.
+ */
+public class EncodingWriter extends Writer {
+
+	private static final int BUFFER_SIZE = 0x10000;
+
+	/** Maximum number of characters of a decimal long value */
+	private static final int MAX_DECIMAL_LENGTH = 20;
+
+	private final OutputStream output;
+
+	private final WritableByteChannel channel;
+
+	private final CharsetEncoder encoder;
+
+	private final char[] chars;
+
+	private final ByteBuffer bytes;
+
+	private int position;
+
+	private boolean closed;
+
+	/**
+	 * Creates a new writer for the given stream.
+	 *
+	 * @param output
+	 *            stream to write encoded characters to
+	 * @param encoding
+	 *            name of the character encoding
+	 * @throws UnsupportedEncodingException
+	 *             if the given encoding is not supported
+	 */
+	public EncodingWriter(final OutputStream output, final String encoding)
+			throws UnsupportedEncodingException {
+		this.output = output;
+		this.channel = Channels.newChannel(output);
+		this.encoder = createEncoder(encoding);
+		this.chars = new char[BUFFER_SIZE];
+		this.bytes = ByteBuffer.allocate(BUFFER_SIZE);
+		this.position = 0;
+		this.closed = false;
+	}
+
+	private static CharsetEncoder createEncoder(final String encoding)
+			throws UnsupportedEncodingException {
+		final Charset charset;
+		try {
+			charset = Charset.forName(encoding);
+		} catch (final IllegalArgumentException e) {
+			throw new UnsupportedEncodingException(encoding);
+		}
+		return charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * Writes the decimal representation of the given value.
+	 *
+	 * @param value
+	 *            value to write
+	 * @throws IOException
+	 *             in case of problems with the underlying stream
+	 */
+	public void writeDecimal(final long value) throws IOException {
+		if (value == Long.MIN_VALUE) {
+			write(Long.toString(value));
+			return;
+		}
+		ensureCapacity(MAX_DECIMAL_LENGTH);
+		long remainder = value;
+		if (remainder < 0) {
+			chars[position++] = '-';
+			remainder = -remainder;
+		}
+		int length = 1;
+		for (long limit = 10; length < 19 && remainder >= limit; limit *= 10) {
+			length++;
+		}
+		int i = position + length;
+		position = i;
+		do {
+			chars[--i] = (char) ('0' + (int) (remainder % 10));
+			remainder /= 10;
+		} while (remainder != 0);
+	}
+
+	@Override
+	public void write(final int c) throws IOException {
+		ensureCapacity(1);
+		chars[position++] = (char) c;
+	}
+
+	@Override
+	public void write(final char[] cbuf, final int off, final int len)
+			throws IOException {
+		int offset = off;
+		int remaining = len;
+		while (remaining > 0) {
+			ensureCapacity(1);
+			final int n = Math.min(remaining, chars.length - position);
+			System.arraycopy(cbuf, offset, chars, position, n);
+			position += n;
+			offset += n;
+			remaining -= n;
+		}
+	}
+
+	@Override
+	public void write(final String str) throws IOException {
+		write(str, 0, str.length());
+	}
+
+	@Override
+	public void write(final String str, final int off, final int len)
+			throws IOException {
+		int offset = off;
+		int remaining = len;
+		while (remaining > 0) {
+			ensureCapacity(1);
+			final int n = Math.min(remaining, chars.length - position);
+			str.getChars(offset, offset + n, chars, position);
+			position += n;
+			offset += n;
+			remaining -= n;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		encodeBuffer();
+		writeBytes();
+		output.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		try {
+			final CharBuffer in = CharBuffer.wrap(chars, 0, position);
+			encode(in, true);
+			while (encoder.flush(bytes).isOverflow()) {
+				writeBytes();
+			}
+			writeBytes();
+		} finally {
+			closed = true;
+			channel.close();
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Writer closed.");
+		}
+	}
+
+	private void ensureCapacity(final int length) throws IOException {
+		ensureOpen();
+		if (position + length > chars.length) {
+			encodeBuffer();
+		}
+	}
+
+	/**
+	 * Encodes the buffered characters. An incomplete surrogate pair at the end
+	 * of the buffer is kept for the next call.
+	 */
+	private void encodeBuffer() throws IOException {
+		final CharBuffer in = CharBuffer.wrap(chars, 0, position);
+		encode(in, false);
+		final int remaining = in.remaining();
+		System.arraycopy(chars, in.position(), chars, 0, remaining);
+		position = remaining;
+	}
+
+	private void encode(final CharBuffer in, final boolean endOfInput)
+			throws IOException {
+		while (true) {
+			final CoderResult result = encoder.encode(in, bytes, endOfInput);
+			if (result.isOverflow()) {
+				writeBytes();
+			} else if (result.isUnderflow()) {
+				return;
+			} else {
+				result.throwException();
+			}
+		}
+	}
+
+	private void writeBytes() throws IOException {
+		bytes.flip();
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+		bytes.clear();
+	}
+
+}
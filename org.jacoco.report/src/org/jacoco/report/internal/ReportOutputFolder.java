@@ -21,6 +21,7 @@ import org.jacoco.report.IMultiReportOutput;
 /**
  * Logical representation of a folder in the output structure. This utility
  * ensures valid and unique file names and helps to create relative links.
+ * Instances can be used by multiple threads.
  */
 public class ReportOutputFolder {
 
@@ -66,7 +67,7 @@ public class ReportOutputFolder {
 	 *            name of the sub-folder
 	 * @return handle for output into the sub-folder
 	 */
-	public ReportOutputFolder subFolder(final String name) {
+	public synchronized ReportOutputFolder subFolder(final String name) {
 		final String normalizedName = normalize(name);
 		ReportOutputFolder folder = subFolders.get(normalizedName);
 		if (folder != null) {
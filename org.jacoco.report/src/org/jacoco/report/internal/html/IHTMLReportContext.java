@@ -12,9 +12,11 @@
 package org.jacoco.report.internal.html;
 
 import java.util.Locale;
+import java.util.concurrent.Executor;
 
 import org.jacoco.report.ILanguageNames;
 import org.jacoco.report.internal.html.index.IIndexUpdate;
+import org.jacoco.report.internal.html.page.PageRegistry;
 import org.jacoco.report.internal.html.resources.Resources;
 import org.jacoco.report.internal.html.table.Table;
 
@@ -79,4 +81,23 @@ public interface IHTMLReportContext {
 	 */
 	public Locale getLocale();
 
+	/**
+	 * Returns the executor used to render pages in parallel. All other
+	 * services of the context must be thread safe if an executor is
+	 * provided.
+	 * 
+	 * @return executor or <code>null</code> for sequential rendering
+	 */
+	public Executor getExecutor();
+
+	/**
+	 * Returns the registry for pages which are rendered on demand. If a
+	 * registry is provided pages register themselves instead of writing their
+	 * content when they are rendered.
+	 * 
+	 * @return page registry or <code>null</code> if pages are written
+	 *         immediately
+	 */
+	public PageRegistry getPageRegistry();
+
 }
\ No newline at end of file
@@ -61,15 +61,17 @@ public class BundlePage extends TablePage<ICoverageNode> {
 	}
 
 	private void renderPackages() throws IOException {
+		final PageRenderer renderer = new PageRenderer(context.getExecutor());
 		for (final IPackageCoverage p : bundle.getPackages()) {
 			final String packagename = p.getName();
 			final String foldername = packagename.length() == 0 ? "default"
 					: packagename.replace('/', '.');
 			final PackagePage page = new PackagePage(p, this, locator,
 					folder.subFolder(foldername), context);
-			page.render();
+			renderer.render(page);
 			addItem(page);
 		}
+		renderer.complete();
 	}
 
 	@Override
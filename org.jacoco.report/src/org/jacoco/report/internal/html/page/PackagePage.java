@@ -64,14 +64,16 @@ public class PackagePage extends TablePage<IPackageCoverage> {
 	}
 
 	private void renderClasses() throws IOException {
+		final PageRenderer renderer = new PageRenderer(context.getExecutor());
 		for (final IClassCoverage c : getNode().getClasses()) {
 			final ILinkable sourceFilePage = packageSourcePage
 					.getSourceFilePage(c.getSourceFileName());
 			final ClassPage page = new ClassPage(c, this, sourceFilePage,
 					folder, context);
-			page.render();
+			renderer.render(page);
 			addItem(page);
 		}
+		renderer.complete();
 	}
 
 	@Override
@@ -77,6 +77,7 @@ public class PackageSourcePage extends TablePage<IPackageCoverage> {
 	}
 
 	private final void renderSourceFilePages() throws IOException {
+		final PageRenderer renderer = new PageRenderer(context.getExecutor());
 		final String packagename = getNode().getName();
 		for (final ISourceFileCoverage s : getNode().getSourceFiles()) {
 			final String sourcename = s.getName();
@@ -85,14 +86,25 @@ public class PackageSourcePage extends TablePage<IPackageCoverage> {
 			if (reader == null) {
 				addItem(new SourceFileItem(s));
 			} else {
-				final SourceFilePage sourcePage = new SourceFilePage(s, reader,
-						locator.getTabWidth(), this, folder, context);
-				sourcePage.render();
+				final SourceFilePage sourcePage;
+				if (context.getPageRegistry() == null
+						&& context.getExecutor() == null) {
+					sourcePage = new SourceFilePage(s, reader,
+							locator.getTabWidth(), this, folder, context);
+				} else {
+					// Scheduled pages and pages rendered on demand open the
+					// source file again, so no files are kept open until then
+					reader.close();
+					sourcePage = new SourceFilePage(s, locator, this, folder,
+							context);
+				}
+				renderer.render(sourcePage);
 				sourceFilePages.put(sourcename, sourcePage);
 				addItem(sourcePage);
 			}
 
 		}
+		renderer.complete();
 	}
 
 	@Override
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.internal.html.page;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jacoco.report.internal.ReportOutputFolder;
+
+/**
+ * Registry of the pages of a report which are rendered on demand. Pages are
+ * identified by their path relative to the root folder of the report. The
+ * content of the most recently requested pages is cached. Instances are thread
+ * safe.
+ */
+public class PageRegistry {
+
+	private final ReportOutputFolder root;
+
+	private final Map<String, ReportPage> pages = new HashMap<String, ReportPage>();
+
+	private final Map<String, byte[]> cache;
+
+	/**
+	 * Creates a new registry for the given root folder.
+	 *
+	 * @param root
+	 *            root folder of the report
+	 * @param cacheSize
+	 *            maximum number of rendered pages kept in memory
+	 */
+	public PageRegistry(final ReportOutputFolder root, final int cacheSize) {
+		this.root = root;
+		this.cache = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					final Map.Entry<String, byte[]> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	/**
+	 * Adds the given page to the registry.
+	 *
+	 * @param page
+	 *            page to add
+	 */
+	synchronized void add(final ReportPage page) {
+		pages.put(page.getLink(root), page);
+	}
+
+	/**
+	 * Returns the number of registered pages.
+	 *
+	 * @return number of pages
+	 */
+	public synchronized int getPageCount() {
+		return pages.size();
+	}
+
+	/**
+	 * Renders the page with the given path or returns it from the cache.
+	 *
+	 * @param path
+	 *            path of the page relative to the root folder
+	 * @return content of the page or <code>null</code> if no such page exists
+	 * @throws IOException
+	 *             if the page can't be rendered
+	 */
+	public byte[] getContent(final String path) throws IOException {
+		final ReportPage page;
+		synchronized (this) {
+			final byte[] content = cache.get(path);
+			if (content != null) {
+				return content;
+			}
+			page = pages.get(path);
+		}
+		if (page == null) {
+			return null;
+		}
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		page.renderDocument(buffer);
+		final byte[] content = buffer.toByteArray();
+		synchronized (this) {
+			cache.put(path, content);
+		}
+		return content;
+	}
+
+}
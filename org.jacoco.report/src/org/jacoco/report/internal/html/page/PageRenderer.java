@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.internal.html.page;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Renders child pages of a page, in parallel if the report context provides an
+ * executor. The file name of every page is reserved before the page is
+ * scheduled, so file names are normalized in the same order as with sequential
+ * rendering and the output is identical.
+ *
+ * Pages may schedule their own child pages with the same executor while they
+ * are rendered. To avoid dead locks with bounded thread pools
+ * {@link #complete()} runs all pages itself which have not been started by the
+ * executor yet.
+ */
+class PageRenderer {
+
+	private final Executor executor;
+
+	private final List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>();
+
+	/**
+	 * Creates a new renderer.
+	 *
+	 * @param executor
+	 *            executor for parallel rendering or <code>null</code>
+	 */
+	PageRenderer(final Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Renders the given page immediately or schedules it for rendering.
+	 *
+	 * @param page
+	 *            page to render
+	 * @throws IOException
+	 *             if the page is rendered immediately and can't be written
+	 */
+	void render(final ReportPage page) throws IOException {
+		if (executor == null) {
+			page.render();
+			return;
+		}
+		page.getLink(page.folder);
+		final FutureTask<Void> task = new FutureTask<Void>(
+				new Callable<Void>() {
+					public Void call() throws IOException {
+						page.render();
+						return null;
+					}
+				});
+		tasks.add(task);
+		executor.execute(task);
+	}
+
+	/**
+	 * Waits until all scheduled pages have been rendered. If rendering of
+	 * several pages failed, the first failure is reported.
+	 *
+	 * @throws IOException
+	 *             if a page can't be written
+	 */
+	void complete() throws IOException {
+		Throwable failure = null;
+		for (final FutureTask<Void> task : tasks) {
+			// Does nothing if the task has already been started:
+			task.run();
+			try {
+				task.get();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException(
+						"Interrupted while rendering report.");
+			} catch (final ExecutionException e) {
+				if (failure == null) {
+					failure = e.getCause();
+				}
+			}
+		}
+		tasks.clear();
+		if (failure instanceof IOException) {
+			throw (IOException) failure;
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure != null) {
+			throw (Error) failure;
+		}
+	}
+
+}
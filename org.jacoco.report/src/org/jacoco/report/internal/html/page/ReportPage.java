@@ -12,6 +12,7 @@
 package org.jacoco.report.internal.html.page;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
 import org.jacoco.core.JaCoCo;
 import org.jacoco.report.internal.ReportOutputFolder;
@@ -65,14 +66,33 @@ public abstract class ReportPage implements ILinkable {
 
 	/**
 	 * Renders this page's content and optionally additional pages. This method
-	 * must be called at most once.
+	 * must be called at most once. If the context provides a page registry the
+	 * page is only registered for rendering on demand.
 	 * 
 	 * @throws IOException
 	 *             if the page can't be written
 	 */
 	public void render() throws IOException {
-		final HTMLDocument doc = new HTMLDocument(
-				folder.createFile(getFileName()), context.getOutputEncoding());
+		final PageRegistry registry = context.getPageRegistry();
+		if (registry == null) {
+			renderDocument(folder.createFile(getFileName()));
+		} else {
+			registry.add(this);
+		}
+	}
+
+	/**
+	 * Writes the document of this page to the given stream. The stream is
+	 * closed afterwards.
+	 * 
+	 * @param output
+	 *            stream for the document
+	 * @throws IOException
+	 *             if the page can't be written
+	 */
+	void renderDocument(final OutputStream output) throws IOException {
+		final HTMLDocument doc = new HTMLDocument(output,
+				context.getOutputEncoding());
 		doc.attr("lang", context.getLocale().getLanguage());
 		head(doc.head());
 		body(doc.body());
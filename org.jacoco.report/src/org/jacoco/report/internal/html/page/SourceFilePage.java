@@ -16,7 +16,9 @@ import static java.lang.String.format;
 import java.io.IOException;
 import java.io.Reader;
 
+import org.jacoco.core.analysis.ISourceFileCoverage;
 import org.jacoco.core.analysis.ISourceNode;
+import org.jacoco.report.ISourceFileLocator;
 import org.jacoco.report.internal.ReportOutputFolder;
 import org.jacoco.report.internal.html.HTMLElement;
 import org.jacoco.report.internal.html.IHTMLReportContext;
@@ -28,7 +30,11 @@ import org.jacoco.report.internal.html.resources.Resources;
  */
 public class SourceFilePage extends NodePage<ISourceNode> {
 
-	private final Reader sourceReader;
+	private final ISourceFileLocator locator;
+
+	private final String packageName;
+
+	private Reader sourceReader;
 
 	private final int tabWidth;
 
@@ -53,15 +59,71 @@ public class SourceFilePage extends NodePage<ISourceNode> {
 			final ReportPage parent, final ReportOutputFolder folder,
 			final IHTMLReportContext context) {
 		super(sourceFileNode, parent, folder, context);
+		this.locator = null;
+		this.packageName = null;
 		this.sourceReader = sourceReader;
 		this.tabWidth = tabWidth;
 	}
 
+	/**
+	 * Creates a new page which opens the source file with the given locator
+	 * every time the page is rendered.
+	 * 
+	 * @param sourceFileNode
+	 *            coverage data for this source file
+	 * @param locator
+	 *            locator for the source code
+	 * @param parent
+	 *            optional hierarchical parent
+	 * @param folder
+	 *            base folder for this page
+	 * @param context
+	 *            settings context
+	 */
+	public SourceFilePage(final ISourceFileCoverage sourceFileNode,
+			final ISourceFileLocator locator, final ReportPage parent,
+			final ReportOutputFolder folder, final IHTMLReportContext context) {
+		super(sourceFileNode, parent, folder, context);
+		this.locator = locator;
+		this.packageName = sourceFileNode.getPackageName();
+		this.sourceReader = null;
+		this.tabWidth = locator.getTabWidth();
+	}
+
+	@Override
+	public void render() throws IOException {
+		try {
+			super.render();
+		} finally {
+			// The reader is not consumed if the page can't be written
+			if (sourceReader != null) {
+				sourceReader.close();
+				sourceReader = null;
+			}
+		}
+	}
+
 	@Override
 	protected void content(final HTMLElement body) throws IOException {
-		final SourceHighlighter hl = new SourceHighlighter(context.getLocale());
-		hl.render(body, getNode(), sourceReader);
-		sourceReader.close();
+		final Reader reader = sourceReader == null ? openSourceFile()
+				: sourceReader;
+		sourceReader = null;
+		try {
+			final SourceHighlighter hl = new SourceHighlighter(
+					context.getLocale());
+			hl.render(body, getNode(), reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	private Reader openSourceFile() throws IOException {
+		final String name = getNode().getName();
+		final Reader reader = locator.getSourceFile(packageName, name);
+		if (reader == null) {
+			throw new IOException(format("Source file %s not found.", name));
+		}
+		return reader;
 	}
 
 	@Override
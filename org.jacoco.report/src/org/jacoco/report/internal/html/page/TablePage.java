@@ -72,8 +72,11 @@ public abstract class TablePage<NodeType extends ICoverageNode> extends
 	protected void content(final HTMLElement body) throws IOException {
 		context.getTable().render(body, items, getNode(),
 				context.getResources(), folder);
-		// free memory, otherwise we will keep the complete page tree:
-		items.clear();
+		// free memory, otherwise we will keep the complete page tree. Pages
+		// rendered on demand need their items again:
+		if (context.getPageRegistry() == null) {
+			items.clear();
+		}
 	}
 
 }
@@ -15,9 +15,10 @@ import static java.lang.String.format;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Writer;
 
+import org.jacoco.report.internal.EncodingWriter;
+
 /**
  * Root element of an XML document. Each instance represents a separate output
  * document.
@@ -86,7 +87,7 @@ public class XMLDocument extends XMLElement {
 			final boolean standalone, final OutputStream output)
 			throws IOException {
 		this(rootnode, pubId, system, encoding, standalone,
-				new OutputStreamWriter(output, encoding));
+				new EncodingWriter(output, encoding));
 	}
 
 	@Override
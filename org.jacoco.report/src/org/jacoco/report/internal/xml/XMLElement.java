@@ -16,6 +16,8 @@ import static java.lang.String.format;
 import java.io.IOException;
 import java.io.Writer;
 
+import org.jacoco.report.internal.EncodingWriter;
+
 /**
  * Simple API to create well formed XML streams. A {@link XMLElement} instance
  * represents a single element in a XML document.
@@ -107,25 +109,37 @@ public class XMLElement {
 
 	private void quote(final String text) throws IOException {
 		final int len = text.length();
+		int start = 0;
 		for (int i = 0; i < len; i++) {
-			final char c = text.charAt(i);
-			switch (c) {
+			final String entity;
+			switch (text.charAt(i)) {
 			case LT:
-				writer.write("&lt;");
+				entity = "&lt;";
 				break;
 			case GT:
-				writer.write("&gt;");
+				entity = "&gt;";
 				break;
 			case QUOT:
-				writer.write("&quot;");
+				entity = "&quot;";
 				break;
 			case AMP:
-				writer.write("&amp;");
+				entity = "&amp;";
 				break;
 			default:
-				writer.write(c);
-				break;
+				continue;
 			}
+			writer.write(text, start, i - start);
+			writer.write(entity);
+			start = i + 1;
+		}
+		writer.write(text, start, len - start);
+	}
+
+	private void decimal(final long value) throws IOException {
+		if (writer instanceof EncodingWriter) {
+			((EncodingWriter) writer).writeDecimal(value);
+		} else {
+			writer.write(String.valueOf(value));
 		}
 	}
 
@@ -149,6 +163,13 @@ public class XMLElement {
 		if (value == null) {
 			return this;
 		}
+		beginAttr(name);
+		quote(value);
+		writer.write(QUOT);
+		return this;
+	}
+
+	private void beginAttr(final String name) throws IOException {
 		if (closed || openTagDone) {
 			throw new IOException(format("Element %s already closed.",
 					this.name));
@@ -157,9 +178,6 @@ public class XMLElement {
 		writer.write(name);
 		writer.write(EQ);
 		writer.write(QUOT);
-		quote(value);
-		writer.write(QUOT);
-		return this;
 	}
 
 	/**
@@ -178,7 +196,7 @@ public class XMLElement {
 	 */
 	public XMLElement attr(final String name, final int value)
 			throws IOException {
-		return attr(name, String.valueOf(value));
+		return attr(name, (long) value);
 	}
 
 	/**
@@ -197,7 +215,10 @@ public class XMLElement {
 	 */
 	public XMLElement attr(final String name, final long value)
 			throws IOException {
-		return attr(name, String.valueOf(value));
+		beginAttr(name);
+		decimal(value);
+		writer.write(QUOT);
+		return this;
 	}
 
 	/**